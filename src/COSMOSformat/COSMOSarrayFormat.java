@@ -24,6 +24,8 @@
 
 package COSMOSformat;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -71,6 +73,16 @@ abstract class COSMOSarrayFormat {
      */
     public abstract int parseValues( int startLine, String[] infile) 
                                 throws FormatException;
+    /**
+     * This method is to be defined for each array type, to extract numeric
+     * values and formatting information from the file as it is read.  The 
+     * reader is left at the line after the array info.
+     * @param reader the reader for the input file, at the array format line
+     * @throws FormatException if unable to extract the formatting values
+     * @throws IOException if unable to read the file
+     */
+    public abstract void parseValues( COSMOSlineReader reader) 
+                                throws FormatException, IOException;
     
     /**
      * This method takes the format line before either the header or the data
@@ -187,6 +199,56 @@ abstract class COSMOSarrayFormat {
         }
         return holdNumbers;
     }
+    /**
+     * This method splits the numbers out of the lines of the array as they are
+     * read and passes them to the sink for conversion, in the same way as the
+     * string version of extractNumericVals.  The lines of the array block are
+     * split directly from the bytes read in, without making a string for each
+     * value.  If the array runs past the number of lines given by the format
+     * line, the extra lines are looked at without being read, so the reader 
+     * ends up at the line after the block.
+     * @param reader the reader for the input file, at the line after the 
+     * format line
+     * @param sink the sink to receive the numbers
+     * @throws FormatException if unpacked values from the format line are not 
+     * valid or if the end-of-file is reached before all values extracted
+     * @throws IOException if unable to read the file
+     */
+    void extractNumericVals(COSMOSlineReader reader, 
+                COSMOSlineReader.FieldSink sink) throws FormatException, IOException {
+        int current = reader.getLineIndex() - 1;
+        int blockEnd;
+        int count;
+        int total = 0;
+        
+        //do some initial error checking
+        if ((this.numVals <= 0) || (this.fieldWidth <= 0)) {
+            throw new FormatException("Invalid number of values: " + this.numVals 
+            + " or field width: " + this.fieldWidth);
+        }
+        blockEnd = (this.valsPerLine > 0) ? current + 
+                (this.numVals + this.valsPerLine - 1) / this.valsPerLine : current;
+        while (total < this.numVals){
+            current++;
+            if (!reader.hasLineAt(current)) {
+                throw new FormatException("Unexpected end-of-file at line " + current);
+            }
+            if ((current <= blockEnd) && (current == reader.getLineIndex())) {
+                count = reader.readFields(this.fieldWidth, sink);
+            } else {
+                count = COSMOSlineReader.splitFields(reader.getLine(current), 
+                                                        this.fieldWidth, sink);
+            }
+            if (count < 0) {
+                throw new FormatException("Could not extract number from line " + current);
+            }
+            total += count;
+        }
+        if (this.numVals != sink.getCount()) {
+            throw new FormatException("Expected " + this.numVals + 
+                            " values in array but found " + sink.getCount());
+        }
+    }
     /**
      * This method uses the number of data values and the number of values per
      * line extracted from the format line to calculate the number of lines of
@@ -215,40 +277,85 @@ abstract class COSMOSarrayFormat {
      * number in the array
      */
     public abstract ArrayList<String> arrayToText();
+    /**
+     * This method is defined for each array type using this abstract class.  It
+     * formats the values in the given index range according to the defined
+     * formatting and appends them to the line, giving the same text as
+     * arrayToText.
+     * @param line the line to append the formatted values to
+     * @param from index of the first value to append
+     * @param to index after the last value to append
+     * @param formatter the formatter to use for the values
+     */
+    abstract void appendText( StringBuilder line, int from, int to,
+                                            NumberFieldFormatter formatter);
     /**
      * This method converts the array and its format line into text
-     * strings to be written to a file.  It calls arrayToText, which is defined
-     * in each individual array type's methods, to convert each numeric value 
-     * into a text string according to the output format.  This method then
-     * packs each text string into a line.  It puts the format line at the
-     * start and returns a string array ready to be appended to the text output.
+     * strings to be written to a file.  It calls appendText, which is defined
+     * in each individual array type's methods, to format the numeric values 
+     * for each line directly into the line according to the output format.
+     * It puts the format line at the start and returns a string array ready 
+     * to be appended to the text output.
      * 
      * @return array of strings ready for text file output
      */
     public String[] numberSectionToText() {
-        int valsToPack = 0;
-        int current = 0;
         int totalLength = 1 + this.numLines;
         String[] newText = new String[totalLength];
         newText[0] = this.getFormatLine();
-        ArrayList<String> textVals = this.arrayToText();
+        NumberFieldFormatter formatter = new NumberFieldFormatter();
+        StringBuilder line = new StringBuilder();
         
-        //pack each text value into a line according to the values per line
+        //pack each value into a line according to the values per line
         for (int i=0; i<this.numLines; i++) {
-            StringBuilder line = new StringBuilder();
-            //calculate the number of vals to pack into a single line
-            //use valsPerLine unless the last line has fewer
-            valsToPack = ((this.numVals-current) >= this.valsPerLine) ? 
-                                this.valsPerLine : (this.numVals - current);
-            for (int next=0; next < valsToPack; next++){
-                line.append(textVals.get(current));
-                current++;
-            }
+            line.setLength(0);
+            this.packLine(line, i, formatter);
             newText[i+1] = line.toString();
         }
-        textVals.clear();
         return newText;
     }
+    /**
+     * This method writes the format line and the array out to the writer, 
+     * one line at a time, giving the same lines as numberSectionToText.  Each
+     * line is formatted into a reused buffer and written out, so the text of
+     * the array is not held in memory.
+     * @param writer the writer for the output file
+     * @throws IOException if unable to write to the file
+     */
+    public void writeNumberSection(BufferedWriter writer) throws IOException {
+        NumberFieldFormatter formatter = new NumberFieldFormatter();
+        StringBuilder line = new StringBuilder();
+        char[] chars = new char[0];
+        
+        writer.write(this.getFormatLine());
+        writer.newLine();
+        for (int i=0; i<this.numLines; i++) {
+            line.setLength(0);
+            this.packLine(line, i, formatter);
+            if (chars.length < line.length()) {
+                chars = new char[line.length()];
+            }
+            line.getChars(0, line.length(), chars, 0);
+            writer.write(chars, 0, line.length());
+            writer.newLine();
+        }
+    }
+    /**
+     * This method packs the values for one line of the array into the line,
+     * according to the values per line.
+     * @param line the line to append the values to
+     * @param lineNum the index of the line in the array, starting at 0
+     * @param formatter the formatter to use for the values
+     */
+    private void packLine(StringBuilder line, int lineNum, 
+                                            NumberFieldFormatter formatter) {
+        int current = lineNum * this.valsPerLine;
+        //calculate the number of vals to pack into a single line
+        //use valsPerLine unless the last line has fewer
+        int valsToPack = ((this.numVals-current) >= this.valsPerLine) ? 
+                                this.valsPerLine : (this.numVals - current);
+        this.appendText(line, current, current + valsToPack, formatter);
+    }
     /**
      * This getter returns the full format line for the array
      * @return string containing the array's format line
@@ -28,7 +28,9 @@ import static SmConstants.VFileConstants.*;
 
 import SmException.FormatException;
 import SmException.SmException;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 
 import java.util.Arrays;
@@ -89,43 +91,62 @@ public class COSMOScontentFormat {
      */
     public int loadComponent (int start, String[] infile) 
                                 throws FormatException, SmException {
-        int current = start;
+        COSMOSlineReader reader = new COSMOSlineReader(infile);
+        try {
+            reader.skipTo(start);
+            return loadComponent(reader);
+        } catch (IOException err) {
+            throw new FormatException("Unable to read component at line " + (start+1));
+        }
+    }
+    /**
+     * This method extracts the current component/channel from the input file
+     * as it is read.  It is set up to handle multiple components in the same 
+     * file by starting at the reader's current line and leaving the reader at
+     * the line after the end of the current component.
+     * @param reader the reader for the input file, at the start of the component
+     * @return the line number after the end of the current component
+     * @throws FormatException if unable to extract expected values from text
+     * @throws SmException if unable to convert text to numeric
+     * @throws IOException if unable to read the file
+     */
+    public int loadComponent (COSMOSlineReader reader) 
+                                throws FormatException, SmException, IOException {
         int channelNum;  //this is no longer used now that the SCNL code is in
                         //place in the comments, so channel will be set to the empty
                         //string in order to have channel info picked up from
                         //the SCNL tag instead.
         
         //Read in text header, look for number of lines and int, real NoData vals
-        current = parseTextHeader(current, infile);
+        parseTextHeader(reader);
          
         //get integer header values !!channelNum no longer used, just set channel to ""
         channel = "";
         intHeader = new VIntArray();    
-        current = intHeader.parseValues( current, infile);
+        intHeader.parseValues( reader);
         
         //get real header values
         realHeader = new VRealArray();     
-        current = realHeader.parseValues( current, infile);
+        realHeader.parseValues( reader);
          
         //store commments
-        current = parseComments ( current, infile);
+        parseComments ( reader);
         
         //Look for additional info in the comments
         checkForRcrdIdAndAuth();
         
         //get data values
-        current = parseDataSection ( current, infile);
+        parseDataSection ( reader);
         
         //check for last line
-        current = parseEndOfData( current, infile );
+        parseEndOfData( reader );
                 
-        return (current);
+        return (reader.getLineIndex());
     }
     /**
-     * This method must be overridden by each extended class.  Since each COSMOS
-     * file differs only in the format of the data sections, each class extending
-     * this for a specific V type must define the process for extracting the
-     * data from the data arrays.
+     * This method parses the data section from an array of lines, using a
+     * reader over the lines and the parseDataSection method defined by the
+     * extending class.
      * @param startLine line number where data section starts
      * @param infile array containing each line of the input file
      * @return the updated line number, after the data section
@@ -133,20 +154,41 @@ public class COSMOScontentFormat {
      */
     public int parseDataSection (int startLine, String[] infile) throws 
                                                             FormatException {
+        COSMOSlineReader reader = new COSMOSlineReader(infile);
+        try {
+            reader.skipTo(startLine);
+            parseDataSection(reader);
+        } catch (IOException err) {
+            throw new FormatException("Unable to read data section at line " + 
+                                                                (startLine+1));
+        }
+        return reader.getLineIndex();
+    }
+    /**
+     * This method must be overridden by each extended class.  Since each COSMOS
+     * file differs only in the format of the data sections, each class extending
+     * this for a specific V type must define the process for extracting the
+     * data from the data arrays.
+     * @param reader the reader for the input file, at the start of the data 
+     * section, and left at the line after the data section
+     * @throws FormatException if unable to extract parameters from format line
+     * @throws IOException if unable to read the file
+     */
+    public void parseDataSection (COSMOSlineReader reader) throws 
+                                                FormatException, IOException {
         System.err.println("method parseDataSection must be overridden");
-        return startLine;
     }
     /**
      * This method extracts the text header to get the number of lines and the
      * NoData values.  It also saves the header for writing out other data products.
-     * @param startLine line number where the text header starts
-     * @param infile array containing each line of the input file
-     * @return the updated line number, after the text header section
+     * @param reader the reader for the input file, at the start of the text 
+     * header, and left at the line after the text header
      * @throws FormatException if unable to extract expected parameters
-     * @throws NumberFormatException if unable to convert text to numeric
+     * @throws IOException if unable to read the file
      */
-    private int parseTextHeader(int startLine, String[] infile) 
-                                                        throws FormatException {
+    private void parseTextHeader(COSMOSlineReader reader) 
+                                        throws FormatException, IOException {
+        int startLine = reader.getLineIndex();
         int current = startLine;
         String line;
         String[] numbers;
@@ -156,7 +198,7 @@ public class COSMOScontentFormat {
         
         try {
             //get the first header line and extract the number of lines in the header
-            line = infile[current];
+            line = reader.getLine(current);
             Pattern regField = Pattern.compile(matchRegex);
             Matcher m = regField.matcher( line );
             if (m.find()) {
@@ -167,10 +209,9 @@ public class COSMOScontentFormat {
                 throw new FormatException("Unable to find number of text header lines at line " + 
                                                                         (current+1));
             }
-            //verify that the header lines are in the array, then extract NoData vals
-            if ((numHeaderLines > 0) && (infile.length > (startLine + numHeaderLines))) {
-                textHeader = new String[numHeaderLines];
-                textHeader = Arrays.copyOfRange( infile, startLine, startLine+numHeaderLines);
+            //verify that the header lines are in the file, then extract NoData vals
+            if ((numHeaderLines > 0) && reader.hasLineAt(startLine + numHeaderLines)) {
+                textHeader = reader.readLines(numHeaderLines);
                 line = textHeader[NODATA_LINE].substring(textHeader[NODATA_LINE].lastIndexOf(":")+1);
                 numbers = line.split(",");
                 if (numbers.length == 2) {
@@ -187,29 +228,28 @@ public class COSMOScontentFormat {
         } catch (NumberFormatException err) {
             throw new FormatException("Unable to convert text to numeric in text header");
         }
-        return (startLine + textHeader.length);
     }
     /**
      * This method extracts and saves the comments for the channel.
-     * @param startLine line number where the comments start
-     * @param infile array containing each line of the input file
-     * @return the updated line number, after the comment section
+     * @param reader the reader for the input file, at the start of the 
+     * comments, and left at the line after the comments
      * @throws FormatException if unable to locate expected parameters
+     * @throws IOException if unable to read the file
      */
-    private int parseComments(int startLine, String[] infile) 
-                                                        throws FormatException {
+    private void parseComments(COSMOSlineReader reader) 
+                                        throws FormatException, IOException {
 
         //at start of line, skip over any whitespace and pick up all digits
         String getDigitsRegex = "^((\\s*)(\\d+))";
         String commentRegex = "(?i).*comment.*";
         
-        int current = startLine;
+        int current = reader.getLineIndex();
         int numComments = 0;
         String line = "";
         
         //get the first header line and extract the number of lines in the header
-        if (infile.length > current) {
-            line = infile[current];
+        if (reader.hasLineAt(current)) {
+            line = reader.getLine(current);
         } else {
             throw new FormatException("EOF found before comments at line " 
                                                                     + (current+1));
@@ -230,10 +270,9 @@ public class COSMOScontentFormat {
                 throw new FormatException("Could not find comments at " + (current+1));
             }
 
-            //verify that the comment lines are in the array
-            if ((numComments > 0) && (infile.length > (current + numComments + 1))) {
-                comments = new String[numComments+1];
-                comments = Arrays.copyOfRange(infile,current,(current + numComments + 1));
+            //verify that the comment lines are in the file
+            if ((numComments > 0) && reader.hasLineAt(current + numComments + 1)) {
+                comments = reader.readLines(numComments + 1);
             }
             else {
                 throw new FormatException("Error in comment length of " + numComments);
@@ -241,24 +280,24 @@ public class COSMOScontentFormat {
         } catch (NumberFormatException err) {
             throw new FormatException("Unable to convert text to numeric in comment line");
         }
-        return (startLine + comments.length);
     }
     /**
      * This method extracts and saves the end-of-data line for the channel.
-     * @param startLine line number where the EOD starts
-     * @param infile array containing each line of the input file
-     * @return the updated line number, after the end-of-data line
+     * @param reader the reader for the input file, at the end-of-data line,
+     * and left at the line after it
      * @throws FormatException if unable to locate expected parameters
+     * @throws IOException if unable to read the file
      */
-    private int parseEndOfData( int startLine, String[] infile) throws FormatException {
+    private void parseEndOfData( COSMOSlineReader reader) 
+                                        throws FormatException, IOException {
         String line;
-        int current = startLine;
+        int current = reader.getLineIndex();
         //at start of line, skip over any whitespace and look for end-of-data,
         // case insensitive
         String endOfDataRegex = "^((\\s*)(?i)(End-of-data))";
 
-        if (infile.length > current) {
-            line = infile[current];        
+        if (reader.hasLineAt(current)) {
+            line = reader.readLine();        
             Pattern regDigits = Pattern.compile( endOfDataRegex );
             Matcher m = regDigits.matcher( line );
             if (m.find(0)){
@@ -271,7 +310,6 @@ public class COSMOScontentFormat {
             throw new FormatException("End-of-file found before end-of-data at line " + 
                                                                         (current+1));
         }
-        return (current + 1);
     }
     /**
      * This  method must be overridden by each extending class.  It is called to
@@ -283,6 +321,45 @@ public class COSMOScontentFormat {
         System.err.println("method VrecToText must be overridden");
         return temp;
     }
+    /**
+     * This method writes the V record out to the writer in its COSMOS text 
+     * format, section by section, giving the same lines as VrecToText.  The
+     * numeric arrays are formatted a line at a time as they are written, so
+     * the text of the whole record is not held in memory.
+     * @param writer the writer for the output file
+     * @throws IOException if unable to write to the file
+     */
+    public void writeRecord(BufferedWriter writer) throws IOException {
+        writeLines(writer, this.textHeader);
+        this.intHeader.writeNumberSection(writer);
+        this.realHeader.writeNumberSection(writer);
+        writeLines(writer, this.comments);
+        writeDataSection(writer);
+        writer.write(this.endOfData);
+        writer.newLine();
+    }
+    /**
+     * This method must be overridden by each extending class, to write out
+     * its data section for writeRecord.
+     * @param writer the writer for the output file
+     * @throws IOException if unable to write to the file
+     */
+    protected void writeDataSection(BufferedWriter writer) throws IOException {
+        System.err.println("method writeDataSection must be overridden");
+    }
+    /**
+     * Writes each of the text lines out to the writer, followed by a newline
+     * @param writer the writer for the output file
+     * @param lines the lines to write
+     * @throws IOException if unable to write to the file
+     */
+    protected static void writeLines(BufferedWriter writer, String[] lines) 
+                                                            throws IOException {
+        for (String line : lines) {
+            writer.write(line);
+            writer.newLine();
+        }
+    }
     /**
      * This method checks line 7 of the text header to see if it contains the 
      * record id, and checks the comments for the Authorization tag.  If either
@@ -0,0 +1,677 @@
+/*******************************************************************************
+ * Name: Java class COSMOSlineReader.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package COSMOSformat;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class hands out the lines of a COSMOS file to the record parsers, either
+ * from an array of lines already in memory or by reading the file through a
+ * byte channel.  When reading from a channel, only a buffer of the file is held
+ * at a time, the text lines such as the headers and comments are decoded into
+ * strings as they are needed, and the lines of the numeric arrays are split
+ * into their fixed-width fields directly from the bytes in the buffer.  The
+ * fields are converted to numbers without making a string for each field.
+ * <p>
+ * Lines end at a line feed, a carriage return, or a carriage return followed by
+ * a line feed, and the text is decoded with the platform default character
+ * set, the same as reading the file with a BufferedReader.  The numeric fields
+ * are split by byte position, which is the same as the character position for
+ * the ASCII text of a COSMOS file; a line with any other bytes in it is decoded
+ * and split as a string instead.
+ * </p><p>
+ * The reader keeps the index of the next line to read, counting from 0, so the
+ * parsers can report the same line numbers as when they worked on an array.
+ * Lines can be looked at ahead of the current line, and the lines read ahead
+ * are kept until they are read.  A reader is used by one thread at a time.
+ * </p>
+ * @author jmjones
+ */
+public class COSMOSlineReader implements Closeable {
+    private static final int BUFFER_SIZE = 65536;
+    private static final int MAX_FAST_INT_DIGITS = 9;
+    private static final int MAX_FAST_REAL_DIGITS = 15;
+    private static final int MAX_FAST_POWER = 22;
+    private static final double[] POWERS_OF_10 = new double[MAX_FAST_POWER + 1];
+    static {
+        POWERS_OF_10[0] = 1.0;
+        for (int i = 1; i <= MAX_FAST_POWER; i++) {
+            POWERS_OF_10[i] = POWERS_OF_10[i - 1] * 10.0;
+        }
+    }
+    private final String[] lines;
+    private final ReadableByteChannel channel;
+    private final Charset charset;
+    private final ArrayList<String> pending;
+    private int head;
+    private int index;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean located;
+    private int lineEnd;
+    private int nextPos;
+    /**
+     * Constructor for a reader over lines already in memory
+     * @param lines the lines of the file
+     */
+    public COSMOSlineReader( String[] lines ) {
+        this.lines = lines;
+        this.channel = null;
+        this.charset = null;
+        this.pending = null;
+        this.index = 0;
+    }
+    /**
+     * Constructor for a reader that reads the file through a byte channel.  The
+     * channel is closed when the reader is closed.
+     * @param channel the channel to read the file from
+     */
+    public COSMOSlineReader( ReadableByteChannel channel ) {
+        this.lines = null;
+        this.channel = channel;
+        this.charset = Charset.defaultCharset();
+        this.pending = new ArrayList<>();
+        this.head = 0;
+        this.index = 0;
+        this.buf = new byte[BUFFER_SIZE];
+        this.pos = 0;
+        this.limit = 0;
+        this.eof = false;
+        this.located = false;
+    }
+    /**
+     * Opens a reader on the given file.
+     * @param file the file to read
+     * @return the reader, which must be closed after use
+     * @throws IOException if unable to open the file
+     */
+    public static COSMOSlineReader open( File file ) throws IOException {
+        return new COSMOSlineReader(FileChannel.open(file.toPath(),
+                                                        StandardOpenOption.READ));
+    }
+    /**
+     * Getter for the index of the next line to be read, counting from 0
+     * @return the index of the next line
+     */
+    public int getLineIndex() {
+        return index;
+    }
+    /**
+     * Checks if the file has a line at the given index.  Lines before the next
+     * line have already been read and are counted as present.
+     * @param at the line index to check for
+     * @return true if the line is in the file
+     * @throws IOException if unable to read from the channel
+     */
+    public boolean hasLineAt( int at ) throws IOException {
+        if (at < 0) {
+            return false;
+        }
+        if (lines != null) {
+            return at < lines.length;
+        }
+        if (at < index) {
+            return true;
+        }
+        if ((at == index) && (head == pending.size())) {
+            return locateLine();
+        }
+        return readAhead(at - index);
+    }
+    /**
+     * Gets the line at the given index without reading past it.  The index
+     * can't be before the next line when reading from a channel.
+     * @param at the line index
+     * @return the text of the line
+     * @throws IOException if unable to read from the channel
+     * @throws IndexOutOfBoundsException if there is no line at the index
+     */
+    public String getLine( int at ) throws IOException {
+        if (lines != null) {
+            return lines[at];
+        }
+        if ((at < index) || !readAhead(at - index)) {
+            throw new IndexOutOfBoundsException("No line available at index " + at);
+        }
+        return pending.get(head + at - index);
+    }
+    /**
+     * Reads the next line.
+     * @return the text of the line
+     * @throws IOException if unable to read from the channel
+     * @throws IndexOutOfBoundsException if there are no more lines
+     */
+    public String readLine() throws IOException {
+        String line = getLine(index);
+        if (lines == null) {
+            dropPending();
+        }
+        index++;
+        return line;
+    }
+    /**
+     * Reads the given number of lines.
+     * @param count the number of lines to read
+     * @return the text of the lines
+     * @throws IOException if unable to read from the channel
+     * @throws IndexOutOfBoundsException if there aren't enough lines
+     */
+    public String[] readLines( int count ) throws IOException {
+        if (lines != null) {
+            String[] out = Arrays.copyOfRange(lines, index, index + count);
+            index += count;
+            return out;
+        }
+        String[] out = new String[count];
+        for (int i = 0; i < count; i++) {
+            out[i] = readLine();
+        }
+        return out;
+    }
+    /**
+     * Moves to the given line index, skipping the lines between.  The index
+     * may be past the end of the file, in which case no lines are left.  When
+     * reading from a channel, the index can't be moved back.
+     * @param at the new line index
+     * @throws IOException if unable to read from the channel
+     */
+    public void skipTo( int at ) throws IOException {
+        if (lines != null) {
+            index = at;
+            return;
+        }
+        if (at < index) {
+            throw new IllegalStateException("Unable to move back to line " + at);
+        }
+        while (index < at) {
+            if (head < pending.size()) {
+                dropPending();
+            } else if (locateLine()) {
+                consumeLine();
+            } else {
+                break;
+            }
+            index++;
+        }
+        index = at;
+    }
+    /**
+     * Reads the next line and splits it into fields of the given width, in
+     * the same way as splitting the text of the line with substring and trim.
+     * Each field that isn't blank is passed to the sink.
+     * @param width the field width
+     * @param sink the sink to receive the fields
+     * @return the number of fields in the line, including blank fields, or -1
+     * if the line is shorter than the field width
+     * @throws IOException if unable to read from the channel
+     * @throws IndexOutOfBoundsException if there are no more lines
+     */
+    int readFields( int width, FieldSink sink ) throws IOException {
+        if ((lines != null) || (head < pending.size())) {
+            return splitFields(readLine(), width, sink);
+        }
+        if (!locateLine()) {
+            throw new IndexOutOfBoundsException("No line available at index " + index);
+        }
+        int start = pos;
+        int end = lineEnd;
+        for (int i = start; i < end; i++) {
+            if (buf[i] < 0) {
+                return splitFields(readLine(), width, sink);
+            }
+        }
+        consumeLine();
+        index++;
+        if ((end - start) < width) {
+            return -1;
+        }
+        int count = 0;
+        for (int j = start; j <= end - width; j += width) {
+            int s = j;
+            int e = j + width;
+            while ((s < e) && (buf[s] <= ' ')) {
+                s++;
+            }
+            while ((e > s) && (buf[e - 1] <= ' ')) {
+                e--;
+            }
+            if (s < e) {
+                sink.add(buf, s, e);
+            }
+            count++;
+        }
+        return count;
+    }
+    /**
+     * Splits the text of a line into fields of the given width, passing each
+     * field that isn't blank to the sink.
+     * @param line the text of the line
+     * @param width the field width
+     * @param sink the sink to receive the fields
+     * @return the number of fields in the line, including blank fields, or -1
+     * if the line is shorter than the field width
+     */
+    static int splitFields( String line, int width, FieldSink sink ) {
+        if (line.length() < width) {
+            return -1;
+        }
+        int count = 0;
+        for (int j = 0; j <= line.length() - width; j += width) {
+            String num = line.substring(j, j + width).trim();
+            if (!num.isEmpty()) {
+                sink.add(num);
+            }
+            count++;
+        }
+        return count;
+    }
+    /**
+     * Closes the channel, if reading from one
+     * @throws IOException if unable to close the channel
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+    /**
+     * Reads lines ahead into the pending list until it holds the line the
+     * given number of lines past the next line.
+     * @param ahead the number of lines past the next line
+     * @return true if the line is in the file
+     * @throws IOException if unable to read from the channel
+     */
+    private boolean readAhead( int ahead ) throws IOException {
+        while ((pending.size() - head) <= ahead) {
+            if (!locateLine()) {
+                return false;
+            }
+            pending.add(new String(buf, pos, lineEnd - pos, charset));
+            consumeLine();
+        }
+        return true;
+    }
+    /**
+     * Drops the next line from the pending list after it has been read.
+     */
+    private void dropPending() {
+        head++;
+        if (head == pending.size()) {
+            pending.clear();
+            head = 0;
+        }
+    }
+    /**
+     * Moves the buffer position past the line found by locateLine.
+     */
+    private void consumeLine() {
+        pos = nextPos;
+        located = false;
+    }
+    /**
+     * Finds the end of the next line in the buffer, reading more of the file
+     * into the buffer as needed so the whole line is in the buffer.  The line
+     * runs from pos to lineEnd, and the following line starts at nextPos.
+     * The line stays located until it is consumed.
+     * @return false if there are no more lines in the file
+     * @throws IOException if unable to read from the channel
+     */
+    private boolean locateLine() throws IOException {
+        if (located) {
+            return true;
+        }
+        int scan = pos;
+        while (true) {
+            for (; scan < limit; scan++) {
+                byte b = buf[scan];
+                if (b == '\n') {
+                    lineEnd = scan;
+                    nextPos = scan + 1;
+                    located = true;
+                    return true;
+                }
+                if (b == '\r') {
+                    if (scan + 1 < limit) {
+                        lineEnd = scan;
+                        nextPos = (buf[scan + 1] == '\n') ? scan + 2 : scan + 1;
+                        located = true;
+                        return true;
+                    }
+                    break;
+                }
+            }
+            int offset = scan - pos;
+            if (!fill()) {
+                if (pos == limit) {
+                    return false;
+                }
+                lineEnd = Math.min(pos + offset, limit);
+                nextPos = limit;
+                located = true;
+                return true;
+            }
+            scan = pos + offset;
+        }
+    }
+    /**
+     * Reads more of the file into the buffer, moving the unread bytes to the
+     * front of the buffer first and growing the buffer if it is full.
+     * @return false if the end of the file has been reached
+     * @throws IOException if unable to read from the channel
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int count;
+        do {
+            count = channel.read(ByteBuffer.wrap(buf, limit, buf.length - limit));
+        } while (count == 0);
+        if (count < 0) {
+            eof = true;
+            return false;
+        }
+        limit += count;
+        return true;
+    }
+    /**
+     * Converts the ASCII text of an integer field, giving the same value as
+     * Integer.parseInt.  Plain values of up to 9 digits are converted
+     * directly, anything else is handed to Integer.parseInt.
+     * @param b the buffer holding the field
+     * @param from the start of the field
+     * @param to the end of the field
+     * @return the value
+     * @throws NumberFormatException if the field is not an integer
+     */
+    static int parseInt( byte[] b, int from, int to ) {
+        int i = from;
+        boolean negative = false;
+        if ((b[i] == '-') || (b[i] == '+')) {
+            negative = (b[i] == '-');
+            i++;
+        }
+        if ((i == to) || ((to - i) > MAX_FAST_INT_DIGITS)) {
+            return Integer.parseInt(new String(b, from, to - from, StandardCharsets.US_ASCII));
+        }
+        int value = 0;
+        for (; i < to; i++) {
+            int digit = b[i] - '0';
+            if ((digit < 0) || (digit > 9)) {
+                return Integer.parseInt(new String(b, from, to - from, StandardCharsets.US_ASCII));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+    /**
+     * Converts the ASCII text of a real field, giving the same value as
+     * Double.parseDouble.  Decimal values with up to 15 significant digits
+     * and a power of ten within 22 are converted with a single exact
+     * multiply or divide, which rounds the same as Double.parseDouble.
+     * Anything else is handed to Double.parseDouble.
+     * @param b the buffer holding the field
+     * @param from the start of the field
+     * @param to the end of the field
+     * @return the value
+     * @throws NumberFormatException if the field is not a number
+     */
+    static double parseDouble( byte[] b, int from, int to ) {
+        int i = from;
+        boolean negative = false;
+        if ((b[i] == '-') || (b[i] == '+')) {
+            negative = (b[i] == '-');
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seendigit = false;
+        boolean seendot = false;
+        for (; i < to; i++) {
+            byte c = b[i];
+            if ((c >= '0') && (c <= '9')) {
+                seendigit = true;
+                if (seendot) {
+                    scale++;
+                }
+                if ((mantissa == 0) && (c == '0')) {
+                    continue;
+                }
+                if (++digits > MAX_FAST_REAL_DIGITS) {
+                    return slowParseDouble(b, from, to);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+            } else if ((c == '.') && !seendot) {
+                seendot = true;
+            } else {
+                break;
+            }
+        }
+        int exponent = 0;
+        if ((i < to) && ((b[i] == 'e') || (b[i] == 'E'))) {
+            i++;
+            boolean negexp = false;
+            if ((i < to) && ((b[i] == '-') || (b[i] == '+'))) {
+                negexp = (b[i] == '-');
+                i++;
+            }
+            if ((i == to) || ((to - i) > 3)) {
+                return slowParseDouble(b, from, to);
+            }
+            for (; i < to; i++) {
+                int digit = b[i] - '0';
+                if ((digit < 0) || (digit > 9)) {
+                    return slowParseDouble(b, from, to);
+                }
+                exponent = exponent * 10 + digit;
+            }
+            exponent = negexp ? -exponent : exponent;
+        }
+        if (!seendigit || (i != to)) {
+            return slowParseDouble(b, from, to);
+        }
+        double value;
+        int power = scale - exponent;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if ((power >= 0) && (power <= MAX_FAST_POWER)) {
+            value = mantissa / POWERS_OF_10[power];
+        } else if ((power < 0) && (power >= -MAX_FAST_POWER)) {
+            value = mantissa * POWERS_OF_10[-power];
+        } else {
+            return slowParseDouble(b, from, to);
+        }
+        return negative ? -value : value;
+    }
+    /**
+     * Converts the text of a real field with Double.parseDouble
+     * @param b the buffer holding the field
+     * @param from the start of the field
+     * @param to the end of the field
+     * @return the value
+     * @throws NumberFormatException if the field is not a number
+     */
+    private static double slowParseDouble( byte[] b, int from, int to ) {
+        return Double.parseDouble(new String(b, from, to - from, StandardCharsets.US_ASCII));
+    }
+    /**
+     * This interface receives the fields split from the lines of a numeric
+     * array, either as text or as bytes in the read buffer.
+     */
+    interface FieldSink {
+        /**
+         * Adds a field given as text
+         * @param text the trimmed text of the field
+         */
+        void add( String text );
+        /**
+         * Adds a field given as ASCII bytes
+         * @param b the buffer holding the field
+         * @param from the start of the trimmed field
+         * @param to the end of the trimmed field
+         */
+        void add( byte[] b, int from, int to );
+        /**
+         * Getter for the number of fields added
+         * @return the number of fields added
+         */
+        int getCount();
+    }
+    /**
+     * This class converts the fields of an integer array as they are added.
+     * Fields past the expected number of values are counted but not kept.  A
+     * field that can't be converted is remembered and reported when the
+     * values are requested, so that a wrong count is reported first, as it was
+     * when the fields were collected as text before being converted.
+     */
+    static final class IntFields implements FieldSink {
+        private final int[] values;
+        private int count;
+        private boolean invalid;
+        /**
+         * Constructor for the sink
+         * @param size the expected number of values
+         */
+        IntFields( int size ) {
+            this.values = new int[Math.max(size, 0)];
+            this.count = 0;
+            this.invalid = false;
+        }
+        @Override
+        public void add( String text ) {
+            if (count < values.length) {
+                try {
+                    values[count] = Integer.parseInt(text);
+                } catch (NumberFormatException err) {
+                    invalid = true;
+                }
+            }
+            count++;
+        }
+        @Override
+        public void add( byte[] b, int from, int to ) {
+            if (count < values.length) {
+                try {
+                    values[count] = parseInt(b, from, to);
+                } catch (NumberFormatException err) {
+                    invalid = true;
+                }
+            }
+            count++;
+        }
+        @Override
+        public int getCount() {
+            return count;
+        }
+        /**
+         * Getter for the converted values
+         * @return the values
+         * @throws NumberFormatException if a field couldn't be converted
+         */
+        int[] getValues() {
+            if (invalid) {
+                throw new NumberFormatException("Invalid integer field in array");
+            }
+            return values;
+        }
+    }
+    /**
+     * This class converts the fields of a real array as they are added, in
+     * the same way as IntFields.
+     */
+    static final class RealFields implements FieldSink {
+        private final double[] values;
+        private int count;
+        private boolean invalid;
+        /**
+         * Constructor for the sink
+         * @param size the expected number of values
+         */
+        RealFields( int size ) {
+            this.values = new double[Math.max(size, 0)];
+            this.count = 0;
+            this.invalid = false;
+        }
+        @Override
+        public void add( String text ) {
+            if (count < values.length) {
+                try {
+                    values[count] = Double.parseDouble(text);
+                } catch (NumberFormatException err) {
+                    invalid = true;
+                }
+            }
+            count++;
+        }
+        @Override
+        public void add( byte[] b, int from, int to ) {
+            if (count < values.length) {
+                try {
+                    values[count] = parseDouble(b, from, to);
+                } catch (NumberFormatException err) {
+                    invalid = true;
+                }
+            }
+            count++;
+        }
+        @Override
+        public int getCount() {
+            return count;
+        }
+        /**
+         * Getter for the converted values
+         * @return the values
+         * @throws NumberFormatException if a field couldn't be converted
+         */
+        double[] getValues() {
+            if (invalid) {
+                throw new NumberFormatException("Invalid real field in array");
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Name: Java class NumberFieldFormatter.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package COSMOSformat;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * This class formats numbers into the fixed-width fields of the COSMOS
+ * numeric arrays, appending each field to a line being built.  It gives the
+ * same text as String.format with the "%wd", "%w.pf" and "%w.pe" formats used
+ * for the integer and real arrays, but works out the digits directly instead
+ * of going through a Formatter for each value.
+ * <p>
+ * String.format rounds the shortest decimal form of a double half up, which
+ * can differ from rounding the exact binary value only when the value is very
+ * close to halfway between two outputs.  The scaled value is checked for this,
+ * and values close to halfway, values too large or small for the direct
+ * scaling, and non-finite values are handed to String.format.  String.format
+ * is also used for everything if the default locale doesn't format numbers
+ * with plain ASCII digits, a '.' decimal separator and a '-' minus sign.
+ * </p>
+ * A formatter keeps a scratch buffer, so each thread should use its own.
+ * @author jmjones
+ */
+public final class NumberFieldFormatter {
+    private static final int MAX_POWER = 22;
+    private static final int MAX_SCALE = 2 * MAX_POWER;
+    private static final double MAX_SCALED = 1.0e12;
+    private static final double TIE_GUARD = 1.0e-3;
+    private static final double[] POWERS_OF_10 = new double[MAX_POWER + 1];
+    private static final long[] LONG_POWERS_OF_10 = new long[13];
+    static {
+        POWERS_OF_10[0] = 1.0;
+        for (int i = 1; i <= MAX_POWER; i++) {
+            POWERS_OF_10[i] = POWERS_OF_10[i - 1] * 10.0;
+        }
+        LONG_POWERS_OF_10[0] = 1L;
+        for (int i = 1; i < LONG_POWERS_OF_10.length; i++) {
+            LONG_POWERS_OF_10[i] = LONG_POWERS_OF_10[i - 1] * 10L;
+        }
+    }
+    private final boolean plain;
+    private final char[] digits;
+    /**
+     * Constructor for the formatter, which checks the number formatting of
+     * the default locale used by String.format.
+     */
+    public NumberFieldFormatter() {
+        DecimalFormatSymbols dfs = DecimalFormatSymbols.getInstance(
+                                    Locale.getDefault(Locale.Category.FORMAT));
+        this.plain = (dfs.getZeroDigit() == '0') &&
+                            (dfs.getDecimalSeparator() == '.') &&
+                                            (dfs.getMinusSign() == '-');
+        this.digits = new char[24];
+    }
+    /**
+     * Appends an integer right-justified in a field of the given width, the
+     * same as String.format("%wd", value).
+     * @param line the line to append the field to
+     * @param value the value to format
+     * @param width the field width
+     */
+    public void appendInt( StringBuilder line, int value, int width ) {
+        if (!plain) {
+            line.append(String.format("%" + width + "d", value));
+            return;
+        }
+        long mag = Math.abs((long)value);
+        int count = putDigits(mag, 1);
+        padLeft(line, width - count - ((value < 0) ? 1 : 0));
+        if (value < 0) {
+            line.append('-');
+        }
+        line.append(digits, digits.length - count, count);
+    }
+    /**
+     * Appends a real number in fixed-point form right-justified in a field of
+     * the given width, the same as String.format("%w.pf", value).
+     * @param line the line to append the field to
+     * @param value the value to format
+     * @param width the field width
+     * @param precision the number of digits after the decimal point
+     */
+    public void appendFixed( StringBuilder line, double value, int width,
+                                                            int precision ) {
+        double abs = Math.abs(value);
+        double scaled = (precision <= MAX_POWER) ?
+                                        abs * POWERS_OF_10[precision] : Double.NaN;
+        if (!plain || !(scaled < MAX_SCALED) || nearTie(scaled)) {
+            line.append(String.format("%" + width + "." + precision + "f", value));
+            return;
+        }
+        long mag = (long)Math.floor(scaled + 0.5);
+        boolean negative = (Double.compare(value, 0.0) < 0);
+        int count = putDigits(mag, precision + 1);
+        int length = count + ((precision > 0) ? 1 : 0) + (negative ? 1 : 0);
+        padLeft(line, width - length);
+        if (negative) {
+            line.append('-');
+        }
+        int start = digits.length - count;
+        line.append(digits, start, count - precision);
+        if (precision > 0) {
+            line.append('.');
+            line.append(digits, digits.length - precision, precision);
+        }
+    }
+    /**
+     * Appends a real number in scientific form right-justified in a field of
+     * the given width, the same as String.format("%w.pe", value).
+     * @param line the line to append the field to
+     * @param value the value to format
+     * @param width the field width
+     * @param precision the number of digits after the decimal point
+     */
+    public void appendScientific( StringBuilder line, double value, int width,
+                                                            int precision ) {
+        double abs = Math.abs(value);
+        long mag = 0;
+        int exponent = 0;
+        boolean fast = plain && (precision < LONG_POWERS_OF_10.length - 1) &&
+                                                            !Double.isNaN(abs);
+        if (fast && (abs > 0.0)) {
+            exponent = (int)Math.floor(Math.log10(abs));
+            double scaled = scale(abs, precision - exponent);
+            double low = LONG_POWERS_OF_10[precision];
+            double high = LONG_POWERS_OF_10[precision + 1];
+            if (scaled >= high) {
+                exponent++;
+                scaled = scale(abs, precision - exponent);
+            } else if (scaled < low) {
+                exponent--;
+                scaled = scale(abs, precision - exponent);
+            }
+            if ((scaled >= low) && (scaled < high) && !nearTie(scaled)) {
+                mag = (long)Math.floor(scaled + 0.5);
+                if (mag == LONG_POWERS_OF_10[precision + 1]) {
+                    mag = LONG_POWERS_OF_10[precision];
+                    exponent++;
+                }
+            } else {
+                fast = false;
+            }
+        }
+        if (!fast) {
+            line.append(String.format("%" + width + "." + precision + "e", value));
+            return;
+        }
+        boolean negative = (Double.compare(value, 0.0) < 0);
+        int absexp = Math.abs(exponent);
+        int expcount = (absexp < 100) ? 2 : 3;
+        int length = ((negative) ? 1 : 0) + 1 + ((precision > 0) ? 1 + precision : 0)
+                                                            + 2 + expcount;
+        padLeft(line, width - length);
+        if (negative) {
+            line.append('-');
+        }
+        int count = putDigits(mag, precision + 1);
+        int start = digits.length - count;
+        line.append(digits[start]);
+        if (precision > 0) {
+            line.append('.');
+            line.append(digits, start + 1, precision);
+        }
+        line.append('e');
+        line.append((exponent < 0) ? '-' : '+');
+        count = putDigits(absexp, expcount);
+        line.append(digits, digits.length - count, count);
+    }
+    /**
+     * Scales a positive value by the given power of ten, using at most two
+     * powers from the table.
+     * @param abs the positive value
+     * @param power the power of ten
+     * @return the scaled value, or NaN if the power is out of range
+     */
+    private static double scale( double abs, int power ) {
+        if (Math.abs(power) > MAX_SCALE) {
+            return Double.NaN;
+        }
+        double result = abs;
+        int left = power;
+        while (left != 0) {
+            int step = Math.min(Math.abs(left), MAX_POWER);
+            result = (left > 0) ? result * POWERS_OF_10[step] : result / POWERS_OF_10[step];
+            left -= (left > 0) ? step : -step;
+        }
+        return result;
+    }
+    /**
+     * Checks if the fraction of the scaled value is close to one half, where
+     * the rounding of the shortest decimal form may differ from the rounding
+     * of the scaled value.
+     * @param scaled the scaled value
+     * @return true if the fraction is close to one half
+     */
+    private static boolean nearTie( double scaled ) {
+        return Math.abs((scaled - Math.floor(scaled)) - 0.5) < TIE_GUARD;
+    }
+    /**
+     * Puts the decimal digits of a value at the end of the scratch buffer,
+     * with leading zeros to fill at least the given number of digits.
+     * @param value the non-negative value
+     * @param mincount the minimum number of digits
+     * @return the number of digits put in the buffer
+     */
+    private int putDigits( long value, int mincount ) {
+        int pos = digits.length;
+        long rest = value;
+        do {
+            digits[--pos] = (char)('0' + (int)(rest % 10));
+            rest /= 10;
+        } while (rest > 0);
+        while ((digits.length - pos) < mincount) {
+            digits[--pos] = '0';
+        }
+        return digits.length - pos;
+    }
+    /**
+     * Pads the line with spaces
+     * @param line the line to pad
+     * @param count the number of spaces, nothing is added if not positive
+     */
+    private static void padLeft( StringBuilder line, int count ) {
+        for (int i = 0; i < count; i++) {
+            line.append(' ');
+        }
+    }
+}
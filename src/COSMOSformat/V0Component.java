@@ -27,13 +27,13 @@ package COSMOSformat;
 import SmConstants.VFileConstants;
 import static SmConstants.VFileConstants.CNTN;
 import static SmConstants.VFileConstants.COUNTTEXT;
-import static SmConstants.VFileConstants.DEFAULT_ARRAY_STYLE;
 import static SmConstants.VFileConstants.DELTA_T;
 import static SmConstants.VFileConstants.MSEC_TO_SEC;
 import SmException.FormatException;
 import SmException.SmException;
-import SmUtilities.ConfigReader;
-import static SmConstants.SmConfigConstants.OUT_ARRAY_FORMAT;
+import SmUtilities.ProcessingContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
 
 /**
  * This class extends the COSMOScontentFormat base class to define a V0 record.
@@ -55,20 +55,16 @@ public class V0Component extends COSMOScontentFormat {
     /**
      * This method defines the steps for parsing a V0 data record, which contains
      * an integer data array.
-     * @param startLine line number for the start of the data section
-     * @param infile contents of the input file, one string per line
-     * @return updated line number now pointing to first line after data section
+     * @param reader the reader for the input file, at the start of the data section
      * @throws FormatException if unable to extract format information or
      * to convert text values to numeric
+     * @throws IOException if unable to read the file
      */
     @Override
-    public int parseDataSection (int startLine, String[] infile) throws 
-                                                            FormatException {
-        int current = startLine;
-        
+    public void parseDataSection (COSMOSlineReader reader) throws 
+                                                FormatException, IOException {
         V0Data = new VIntArray();
-        current = V0Data.parseValues( current, infile);
-        return current;
+        V0Data.parseValues( reader);
     }
     /**
      * This method converts the internal record to a text format.  Items already
@@ -110,6 +106,15 @@ public class V0Component extends COSMOScontentFormat {
         outText[totalLength-1] = this.endOfData;
         return outText;
     }
+    /**
+     * This method writes the V0 data section out to the writer for writeRecord.
+     * @param writer the writer for the output file
+     * @throws IOException if unable to write to the file
+     */
+    @Override
+    protected void writeDataSection(BufferedWriter writer) throws IOException {
+        this.V0Data.writeNumberSection(writer);
+    }
     /**
      * Updates certain parameters for the V0 file to facilitate its rewrite out
      * as single channel.  The array output format is checked in the configuration
@@ -121,15 +126,22 @@ public class V0Component extends COSMOScontentFormat {
      * @throws SmException if unable to build the new format line
      */
     public void updateV0(String inname) throws FormatException, SmException {
+        updateV0(inname, ProcessingContext.snapshot());
+    }
+    /**
+     * Updates the V0 record for output as above, with the array output format
+     * taken from the configuration snapshot in the processing context.
+     * @param inname the file name for this record
+     * @param config the processing context for the run
+     * @throws FormatException if field width is invalid
+     * @throws SmException if unable to build the new format line
+     */
+    public void updateV0(String inname, ProcessingContext config) 
+                                        throws FormatException, SmException {
         //Get the array output format of single column per channel or packed
         VFileConstants.SmArrayStyle packtype;
-        ConfigReader config = ConfigReader.INSTANCE;
         
-        String arrformat = config.getConfigValue(OUT_ARRAY_FORMAT);
-        arrformat = (arrformat == null) ? DEFAULT_ARRAY_STYLE : arrformat;
-        packtype = (arrformat.equalsIgnoreCase("singleColumn")) ? 
-                            VFileConstants.SmArrayStyle.SINGLE_COLUMN : 
-                                            VFileConstants.SmArrayStyle.PACKED;
+        packtype = config.getPrismConfig().getArrayStyle();
         V0Data.buildArrayParams( packtype );
         this.buildNewDataFormatLine(COUNTTEXT, CNTN, "raw accel.  ");
         this.setFileName(inname);
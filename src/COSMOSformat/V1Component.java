@@ -30,13 +30,12 @@ import SmException.SmException;
 import SmProcessing.ArrayOps;
 import SmProcessing.ArrayStats;
 import SmProcessing.V1Process;
-import SmUtilities.ConfigReader;
+import SmUtilities.PrismConfig;
 import SmUtilities.ProcessStepsRecorder2;
-import static SmConstants.SmConfigConstants.OUT_ARRAY_FORMAT;
-import static SmConstants.SmConfigConstants.PROC_AGENCY_ABBREV;
-import static SmConstants.SmConfigConstants.PROC_AGENCY_CODE;
 import SmUtilities.CommentFormatter;
 import SmUtilities.SmTimeFormatter;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.time.ZonedDateTime;
 
 /**
@@ -98,20 +97,16 @@ public class V1Component extends COSMOScontentFormat {
     /**
      * This method defines the steps for parsing a V1 data record, which contains
      * a floating point data array.
-     * @param startLine line number for the start of the data section
-     * @param infile contents of the input file, one string per line
-     * @return updated line number now pointing to first line after data section
+     * @param reader the reader for the input file, at the start of the data section
      * @throws FormatException if unable to extract format information or
      * to convert text values to numeric
+     * @throws IOException if unable to read the file
      */
     @Override
-    public int parseDataSection (int startLine, String[] infile) throws 
-                                                             FormatException {
-        int current = startLine;
-        
+    public void parseDataSection (COSMOSlineReader reader) throws 
+                                                FormatException, IOException {
         V1Data = new VRealArray();
-        current = V1Data.parseValues( current, infile);
-        return current;
+        V1Data.parseValues( reader);
     }
     /**
      * Getter for the parent V0 object
@@ -154,7 +149,7 @@ public class V1Component extends COSMOScontentFormat {
         String realformat = "%8.3f";
 
         SmTimeFormatter proctime = new SmTimeFormatter();
-        ConfigReader config = ConfigReader.INSTANCE;
+        PrismConfig config = inVvals.getContext().getPrismConfig();
         
         this.realHeader.setFieldWidth(DEFAULT_REAL_FIELDWIDTH);
         this.realHeader.buildArrayParams( SmArrayStyle.PACKED );
@@ -164,14 +159,9 @@ public class V1Component extends COSMOScontentFormat {
         double ptime = (inVvals.getPeakIndex()) * MSEC_TO_SEC * delta_t;
 
         //Get the processing agency info from the config. data
-        String agabbrev = config.getConfigValue(PROC_AGENCY_ABBREV);
-        if (agabbrev == null) {
-            agabbrev = DEFAULT_AG_CODE;
-        }
-        String agcode = config.getConfigValue(PROC_AGENCY_CODE);
-        if (agcode != null) {
-            int agency_code = Integer.parseInt(agcode);
-            this.intHeader.setIntValue(PROCESSING_AGENCY, agency_code);
+        String agabbrev = config.getAgencyAbbrev();
+        if (config.hasAgencyCode()) {
+            this.intHeader.setIntValue(PROCESSING_AGENCY, config.getAgencyCode());
         }
         
         //Get units info from V1 processing object
@@ -179,10 +169,7 @@ public class V1Component extends COSMOScontentFormat {
         int unitscode = inVvals.getDataUnitCode();
         
         //Get the array output format of single column per channel or packed
-        String arrformat = config.getConfigValue(OUT_ARRAY_FORMAT);
-        arrformat = (arrformat == null) ? DEFAULT_ARRAY_STYLE : arrformat;
-        SmArrayStyle packtype = (arrformat.equalsIgnoreCase("singleColumn")) ? 
-                              SmArrayStyle.SINGLE_COLUMN : SmArrayStyle.PACKED;
+        SmArrayStyle packtype = config.getArrayStyle();
 
         //Get the current processing time
         String val = proctime.getGMTdateTime();
@@ -290,6 +277,15 @@ public class V1Component extends COSMOScontentFormat {
         outText[totalLength-1] = this.endOfData;
         return outText;
     }
+    /**
+     * This method writes the V1 data section out to the writer for writeRecord.
+     * @param writer the writer for the output file
+     * @throws IOException if unable to write to the file
+     */
+    @Override
+    protected void writeDataSection(BufferedWriter writer) throws IOException {
+        this.V1Data.writeNumberSection(writer);
+    }
     /**
      * This method is used by the GUI review tool during the trim process. After
      * an uncorrected acceleration array is trimmed, the array is updated and
@@ -24,20 +24,18 @@
 
 package COSMOSformat;
 
-import static SmConstants.SmConfigConstants.BP_FILTER_ORDER;
 import static SmConstants.VFileConstants.*;
 import SmConstants.VFileConstants.SmArrayStyle;
 import SmConstants.VFileConstants.V2DataType;
 import SmException.FormatException;
 import SmException.SmException;
 import SmProcessing.V2Process;
-import SmUtilities.ConfigReader;
+import SmUtilities.PrismConfig;
 import SmUtilities.ProcessStepsRecorder2;
-import static SmConstants.SmConfigConstants.OUT_ARRAY_FORMAT;
-import static SmConstants.SmConfigConstants.PROC_AGENCY_ABBREV;
-import static SmConstants.SmConfigConstants.PROC_AGENCY_CODE;
 import SmUtilities.CommentFormatter;
 import SmUtilities.SmTimeFormatter;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -104,20 +102,16 @@ public class V2Component extends COSMOScontentFormat {
     /**
      * This method defines the steps for parsing a V2 data record, which contains
      * a floating point data array.
-     * @param startLine line number for the start of the data section
-     * @param infile contents of the input file, one string per line
-     * @return updated line number now pointing to first line after data section
+     * @param reader the reader for the input file, at the start of the data section
      * @throws FormatException if unable to extract format information or
      * to convert text values to numeric
+     * @throws IOException if unable to read the file
      */
     @Override
-    public int parseDataSection (int startLine, String[] infile) throws 
-                                                            FormatException {
-        int current = startLine;
-        
+    public void parseDataSection (COSMOSlineReader reader) throws 
+                                                FormatException, IOException {
         V2Data = new VRealArray();
-        current = V2Data.parseValues( current, infile);
-        return current;
+        V2Data.parseValues( reader);
     }
     /**
      * Getter for the parent V1 object
@@ -175,7 +169,7 @@ public class V2Component extends COSMOScontentFormat {
         int unitscode;
 
         SmTimeFormatter proctime = new SmTimeFormatter();
-        ConfigReader config = ConfigReader.INSTANCE;
+        PrismConfig config = inVvals.getContext().getPrismConfig();
         
         double delta_t;
         double dtime;
@@ -207,18 +201,11 @@ public class V2Component extends COSMOScontentFormat {
         }
         
         //Get the processing agency info from the config. data
-        String agabbrev = config.getConfigValue(PROC_AGENCY_ABBREV);
-        if (agabbrev == null) {
-            agabbrev = DEFAULT_AG_CODE;
-        }
-        String agcode = config.getConfigValue(PROC_AGENCY_CODE);
-        int agency_code = (agcode == null) ? 0 : Integer.parseInt(agcode);
+        String agabbrev = config.getAgencyAbbrev();
+        int agency_code = config.getAgencyCode();
         
         //Get the array output format of single column per channel or packed
-        String arrformat = config.getConfigValue(OUT_ARRAY_FORMAT);
-        arrformat = (arrformat == null) ? DEFAULT_ARRAY_STYLE : arrformat;
-        SmArrayStyle packtype = (arrformat.equalsIgnoreCase("singleColumn")) ? 
-                              SmArrayStyle.SINGLE_COLUMN : SmArrayStyle.PACKED;
+        SmArrayStyle packtype = config.getArrayStyle();
         
         //Get the current processing time
         String val = proctime.getGMTdateTime();
@@ -301,8 +288,8 @@ public class V2Component extends COSMOScontentFormat {
         this.realHeader.setRealValue(BRACKETED_DURATION, inVvals.getBracketedDuration());
         this.realHeader.setRealValue(DURATION_INTERVAL, inVvals.getDurationInterval());
         this.realHeader.setRealValue(CUMULATIVE_ABS_VEL, inVvals.getCumulativeAbsVelocity());
-        this.realHeader.setRealValue(FILTER_DECAY_LOW,Integer.parseInt(config.getConfigValue(BP_FILTER_ORDER)));
-        this.realHeader.setRealValue(FILTER_DECAY_HI,Integer.parseInt(config.getConfigValue(BP_FILTER_ORDER)));
+        this.realHeader.setRealValue(FILTER_DECAY_LOW,config.getFilterOrder());
+        this.realHeader.setRealValue(FILTER_DECAY_HI,config.getFilterOrder());
         
         //Housner intensity is calculated during V3 processing and appears in V3 product
         this.realHeader.setRealValue(RMS_ACCELERATION, inVvals.getRMSacceleration());
@@ -397,6 +384,15 @@ public class V2Component extends COSMOScontentFormat {
         outText[totalLength-1] = this.endOfData;
         return outText;
     }
+    /**
+     * This method writes the V2 data section out to the writer for writeRecord.
+     * @param writer the writer for the output file
+     * @throws IOException if unable to write to the file
+     */
+    @Override
+    protected void writeDataSection(BufferedWriter writer) throws IOException {
+        this.V2Data.writeNumberSection(writer);
+    }
     public double extractEONSETfromComments() throws SmException {
         String matchRegex = "(<EONSET>)";
         double etime = 0.0;
@@ -31,11 +31,10 @@ import static SmConstants.VFileConstants.V3_DAMPING_VALUES;
 import SmException.FormatException;
 import SmException.SmException;
 import SmProcessing.V3Process;
-import SmUtilities.ConfigReader;
-import static SmConstants.SmConfigConstants.OUT_ARRAY_FORMAT;
-import static SmConstants.SmConfigConstants.PROC_AGENCY_ABBREV;
-import static SmConstants.SmConfigConstants.PROC_AGENCY_CODE;
+import SmUtilities.PrismConfig;
 import SmUtilities.SmTimeFormatter;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -103,30 +102,27 @@ public class V3Component extends COSMOScontentFormat {
     /**
      * This method defines the steps for parsing a V3 data record, which contains
      * multiple floating point data arrays.
-     * @param startLine line number for the start of the data section
-     * @param infile contents of the input file, one string per line
-     * @return updated line number now pointing to first line after data section
+     * @param reader the reader for the input file, at the start of the data section
      * @throws FormatException if unable to extract format information or
      * to convert text values to numeric
+     * @throws IOException if unable to read the file
      */
     @Override
-    public int parseDataSection (int startLine, String[] infile) throws 
-                                                            FormatException {
-        int current = startLine;
-        V3DampingValues = infile[current++];
+    public void parseDataSection (COSMOSlineReader reader) throws 
+                                                FormatException, IOException {
+        V3DampingValues = reader.readLine();
         VRealArray Periods = new VRealArray();
-        current = Periods.parseValues(current, infile);
+        Periods.parseValues(reader);
         V3Data.add(Periods);
         VRealArray fftVals = new VRealArray();
-        current = fftVals.parseValues(current, infile);
+        fftVals.parseValues(reader);
         V3Data.add(fftVals);
         VRealArray spectra;
         for (int i = 0; i < NUM_V3_SPECTRA_ARRAYS; i++) {
             spectra = new VRealArray();
-            current = spectra.parseValues(current, infile);
+            spectra.parseValues(reader);
             V3Data.add(spectra);
         }
-        return current;
     }
     /**
      * Getter for the length of the data array
@@ -167,28 +163,22 @@ public class V3Component extends COSMOScontentFormat {
         String freqformat53 = "%5.3f";
 
         SmTimeFormatter proctime = new SmTimeFormatter();
-        ConfigReader config = ConfigReader.INSTANCE;
+        PrismConfig config = inVvals.getContext().getPrismConfig();
         
         this.realHeader.setFieldWidth(DEFAULT_REAL_FIELDWIDTH);
         this.realHeader.buildArrayParams( VFileConstants.SmArrayStyle.PACKED );
         this.setRealHeaderFormatLine();
         
         //Get the processing agency info from the config. data
-        String agabbrev = config.getConfigValue(PROC_AGENCY_ABBREV);
-        agabbrev = (agabbrev == null) ? DEFAULT_AG_CODE : agabbrev;
-        
-        String agcode = config.getConfigValue(PROC_AGENCY_CODE);
-        int agency_code = (agcode == null) ? 0 : Integer.parseInt(agcode);
+        String agabbrev = config.getAgencyAbbrev();
+        int agency_code = config.getAgencyCode();
         unitsname = GUNITST;
 
         
         //get real header value 62 (it has already been validated in the processing)
         double delta_t = this.realHeader.getRealValue(DELTA_T);
         //Get the array output format of single column per channel or packed
-        String arrformat = config.getConfigValue(OUT_ARRAY_FORMAT);
-        arrformat = (arrformat == null) ? DEFAULT_ARRAY_STYLE : arrformat;
-        SmArrayStyle packtype = (arrformat.equalsIgnoreCase("singleColumn")) ? 
-                              SmArrayStyle.SINGLE_COLUMN : SmArrayStyle.PACKED;
+        SmArrayStyle packtype = config.getArrayStyle();
         
         //Make the V3 damping values line
         V3DampingValues = sb.append(String.format("%1$4s", String.valueOf(V3_DAMPING_VALUES.length)))
@@ -387,4 +377,17 @@ public class V3Component extends COSMOScontentFormat {
         outText[totalLength-1] = this.endOfData;
         return outText;
     }
+    /**
+     * This method writes the V3 data section out to the writer for writeRecord.
+     * @param writer the writer for the output file
+     * @throws IOException if unable to write to the file
+     */
+    @Override
+    protected void writeDataSection(BufferedWriter writer) throws IOException {
+        writer.write(V3DampingValues);
+        writer.newLine();
+        for (VRealArray each : V3Data) {
+            each.writeNumberSection(writer);
+        }
+    }
 }
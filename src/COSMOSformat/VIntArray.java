@@ -26,6 +26,7 @@ package COSMOSformat;
 
 import static SmConstants.VFileConstants.*;
 import SmException.FormatException;
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -71,8 +72,7 @@ public class VIntArray extends COSMOSarrayFormat {
      * This method overrides the abstract class to handle the extraction of 
      * numeric values for integer arrays.  It takes a string array of text lines
      * from the input file and an index into the text where the array section
-     * begins, and parses the format line, then extracts each number and stores
-     * in an integer array
+     * begins, and parses the array with a reader over the lines.
      * @param startLine beginning line in the text file for the array information
      * @param infile string array holding the contents of the COSMOS file
      * @return updated line number, now pointing to the line after the array info.
@@ -82,27 +82,46 @@ public class VIntArray extends COSMOSarrayFormat {
     @Override
     public int parseValues( int startLine, String[] infile) 
                                                         throws FormatException {
-        int current = startLine;
-        int next = 0;
-        ArrayList<String> holdNumbers;
+        COSMOSlineReader reader = new COSMOSlineReader(infile);
+        try {
+            reader.skipTo(startLine);
+            this.parseValues(reader);
+        } catch (IOException err) {
+            throw new FormatException("Unable to read array at line " + startLine);
+        }
+        return reader.getLineIndex();
+    }
+    /**
+     * This method overrides the abstract class to handle the extraction of 
+     * numeric values for integer arrays.  It parses the format line at the 
+     * reader's current line, then converts each number as it is read and 
+     * stores it in an integer array.  The reader is left at the line after
+     * the array info.
+     * @param reader the reader for the input file, at the array format line
+     * @throws FormatException if unable to find the expected format values or
+     * unable to convert text to integer
+     * @throws IOException if unable to read the file
+     */
+    @Override
+    public void parseValues( COSMOSlineReader reader) 
+                                        throws FormatException, IOException {
+        int current = reader.getLineIndex();
+        COSMOSlineReader.IntFields fields;
         
         //Check for EOF before parsing format line
-        if (infile.length <= current) {
+        if (!reader.hasLineAt(current)) {
             throw new FormatException("Unexpected EOF encountered at line " + current);
         }
         try {
-            this.parseNumberFormatLine(infile[current]);
-            holdNumbers =  this.extractNumericVals( current, infile);
-            intVals = new int[holdNumbers.size()];
-            for (String each: holdNumbers){
-                intVals[next++] = Integer.parseInt(each);
-            }
-            holdNumbers.clear();
+            this.parseNumberFormatLine(reader.readLine());
+            fields = new COSMOSlineReader.IntFields(this.getNumVals());
+            this.extractNumericVals(reader, fields);
+            intVals = fields.getValues();
         } catch (NumberFormatException err) {
             throw new FormatException("Unable to convert text to numeric in array");
         }
         //add 1 to account for the integer header format line
-        return (current + calculateNumLines() + 1);
+        reader.skipTo(current + calculateNumLines() + 1);
     }
     /**
      * This getter returns a value from the integer array at the given index
@@ -165,14 +184,34 @@ public class VIntArray extends COSMOSarrayFormat {
      */
     @Override
     public ArrayList<String> arrayToText() {
-        String formatting = "%" + String.valueOf(this.getFieldWidth()) + "d";
+        NumberFieldFormatter formatter = new NumberFieldFormatter();
+        StringBuilder text = new StringBuilder();
         ArrayList <String> textVals = new ArrayList<>();
         
-        for (int each : intVals){
-            textVals.add(String.format(formatting, each));
+        for (int i = 0; i < intVals.length; i++){
+            text.setLength(0);
+            this.appendText(text, i, i + 1, formatter);
+            textVals.add(text.toString());
         }
         return textVals;
     }
+    /**
+     * This method formats the values in the given index range as "%wd", using
+     * the field width of the array, and appends them to the line.
+     * @param line the line to append the formatted values to
+     * @param from index of the first value to append
+     * @param to index after the last value to append
+     * @param formatter the formatter to use for the values
+     */
+    @Override
+    void appendText( StringBuilder line, int from, int to,
+                                            NumberFieldFormatter formatter) {
+        int width = this.getFieldWidth();
+        
+        for (int i = from; i < to; i++) {
+            formatter.appendInt(line, intVals[i], width);
+        }
+    }
     /**
      * Getter for the displayType field,i.e. "I", for type integer
      * @return the display type
@@ -26,6 +26,7 @@ package COSMOSformat;
 
 import static SmConstants.VFileConstants.*;
 import SmException.FormatException;
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -73,8 +74,7 @@ public class VRealArray extends COSMOSarrayFormat {
      * This method overrides the abstract class to handle the extraction of 
      * numeric values for real arrays.  It takes a string array of text lines
      * from the input file and an index into the text where the array section
-     * begins, and parses the format line, then extracts each number and stores
-     * in a real array
+     * begins, and parses the array with a reader over the lines.
      * @param startLine beginning line in the text file for the array information
      * @param infile string array holding the contents of the COSMOS file
      * @return updated line number, now pointing to the line after the array info.
@@ -83,30 +83,49 @@ public class VRealArray extends COSMOSarrayFormat {
      */
     @Override
     public int parseValues( int startLine, String[] infile) 
-                                                    throws FormatException {
-        int current = startLine;
-        int next = 0;
-        ArrayList<String> holdNumbers;
+                                                        throws FormatException {
+        COSMOSlineReader reader = new COSMOSlineReader(infile);
+        try {
+            reader.skipTo(startLine);
+            this.parseValues(reader);
+        } catch (IOException err) {
+            throw new FormatException("Unable to read array at line " + startLine);
+        }
+        return reader.getLineIndex();
+    }
+    /**
+     * This method overrides the abstract class to handle the extraction of 
+     * numeric values for real arrays.  It parses the format line at the 
+     * reader's current line, then converts each number as it is read and 
+     * stores it in a real array.  The reader is left at the line after
+     * the array info.
+     * @param reader the reader for the input file, at the array format line
+     * @throws FormatException if unable to find the expected format values or
+     * unable to convert text to double
+     * @throws IOException if unable to read the file
+     */
+    @Override
+    public void parseValues( COSMOSlineReader reader) 
+                                        throws FormatException, IOException {
+        int current = reader.getLineIndex();
+        COSMOSlineReader.RealFields fields;
         
         //Check for EOF before parsing format line
-        if (infile.length <= current) {
+        if (!reader.hasLineAt(current)) {
             throw new FormatException("Unexpected EOF encountered at line " + current);
         }
         try {
-            super.parseNumberFormatLine(infile[current]);
+            super.parseNumberFormatLine(reader.readLine());
             String numformat = super.getNumberFormat();
             this.displayType = ((numformat.contains("F")) || (numformat.contains("f"))) ? "F" : "E";
-            holdNumbers =  this.extractNumericVals( current, infile);        
-            realVals = new double[holdNumbers.size()];
-            for (String each: holdNumbers){
-                realVals[next++] = Double.parseDouble(each);
-            }
-            holdNumbers.clear();
+            fields = new COSMOSlineReader.RealFields(this.getNumVals());
+            this.extractNumericVals(reader, fields);
+            realVals = fields.getValues();
         } catch (NumberFormatException err) {
             throw new FormatException("Unable to convert text to numeric in array");
         }
         //add 1 to account for the real header format line
-        return (current + calculateNumLines() + 1);
+        reader.skipTo(current + calculateNumLines() + 1);
     }
     /**
      * This getter returns a value from the real array at the given index
@@ -178,17 +197,42 @@ public class VRealArray extends COSMOSarrayFormat {
      */
     @Override
     public ArrayList<String> arrayToText() {
-        String outType = ("e".equalsIgnoreCase(this.displayType)) ? "e" : "f";
-        //!!!update this line for floating pt. format
-        String formatting = "%" + String.valueOf(this.getFieldWidth()) + "." +
-                                String.valueOf(this.getPrecision())+ outType;
+        NumberFieldFormatter formatter = new NumberFieldFormatter();
+        StringBuilder text = new StringBuilder();
         ArrayList <String> textVals = new ArrayList<>();
         
-        for (double each : realVals){
-            textVals.add(String.format(formatting, each));
+        for (int i = 0; i < realVals.length; i++){
+            text.setLength(0);
+            this.appendText(text, i, i + 1, formatter);
+            textVals.add(text.toString());
         }
         return textVals;
     }
+    /**
+     * This method formats the values in the given index range as "%w.pe" for
+     * the 'E' display type or "%w.pf" otherwise, using the field width and 
+     * precision of the array, and appends them to the line.
+     * @param line the line to append the formatted values to
+     * @param from index of the first value to append
+     * @param to index after the last value to append
+     * @param formatter the formatter to use for the values
+     */
+    @Override
+    void appendText( StringBuilder line, int from, int to,
+                                            NumberFieldFormatter formatter) {
+        int width = this.getFieldWidth();
+        int precision = this.getPrecision();
+        
+        if ("e".equalsIgnoreCase(this.displayType)) {
+            for (int i = from; i < to; i++) {
+                formatter.appendScientific(line, realVals[i], width, precision);
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                formatter.appendFixed(line, realVals[i], width, precision);
+            }
+        }
+    }
     /**
      * Getter for the displayType field,i.e. "F", for floating point
      * @return the display type
@@ -66,9 +66,13 @@ public class SmConfigConstants {
     public static final String FIRST_POLY_ORDER_UPPER  = "PRISM/AdaptiveBaselineCorrection/FirstPolyOrder/UpperLimit";
     public static final String THIRD_POLY_ORDER_LOWER = "PRISM/AdaptiveBaselineCorrection/ThirdPolyOrder/LowerLimit";
     public static final String THIRD_POLY_ORDER_UPPER = "PRISM/AdaptiveBaselineCorrection/ThirdPolyOrder/UpperLimit";
+    public static final String ABC_SEARCH_MODE = "PRISM/AdaptiveBaselineCorrection/SearchMode";
+    public static final String ABC_CANDIDATE_BUDGET = "PRISM/AdaptiveBaselineCorrection/CandidateBudget";
+    public static final String ABC_PRESCREEN = "PRISM/AdaptiveBaselineCorrection/Prescreen";
     
     public static final String DIFFERENTIATION_ORDER = "PRISM/DifferentiationOrder";
     public static final String INTEGRATION_METHOD = "PRISM/IntegrationMethod";
+    public static final String SINGLE_FFT_INTEGRATION = "PRISM/SingleFFTIntegration";
     public static final String DECIMATE_AFTER_RESAMPLING = "PRISM/DecimateResampledOutput";
     public static final String SIGNAL_NOISE_RATIO = "PRISM/SignalToNoiseRatio";
     public static final String FULL_ACC_SPECTRA = "PRISM/ApktableSaValues";
@@ -77,4 +81,11 @@ public class SmConfigConstants {
     
     public static final String DESPIKE_INPUT = "PRISM/DespikeInput";
     public static final String DESPIKING_STDEV_LIMIT = "PRISM/DespikingStdevLimit";
+    
+    public static final String PROCESSING_THREADS = "PRISM/ProcessingThreads";
+    public static final String CHANNEL_THREADS = "PRISM/ChannelThreads";
+    public static final String SPECTRA_THREADS = "PRISM/SpectraThreads";
+    public static final String ABC_THREADS = "PRISM/ABCThreads";
+    public static final String FFT_LENGTH = "PRISM/FFTLength";
+    public static final String WRITER_THREADS = "PRISM/WriterThreads";
 }
@@ -217,6 +217,10 @@ public final class VFileConstants {
     public static final int DEFAULT_1ST_POLY_ORD_UPPER = 2;
     public static final int DEFAULT_3RD_POLY_ORD_LOWER = 1;
     public static final int DEFAULT_3RD_POLY_ORD_UPPER = 3;
+    public static final String ABC_ADAPTIVE_SEARCH = "Adaptive";
+    public static final int DEFAULT_ABC_CANDIDATE_BUDGET = 60;
+    public static final int MIN_ABC_CANDIDATE_BUDGET = 10;
+    public static final String ABC_PRESCREEN_OFF = "No";
     
     //QC check constants
     public static final double DEFAULT_QA_INITIAL_VELOCITY = 0.1;
@@ -226,6 +230,8 @@ public final class VFileConstants {
     //differentiation order and integration flag
     public static final int DEFAULT_DIFFORDER = 5;
     public static final String FFT_FOR_INTEGRATION = "Freq";
+    public static final String SINGLE_FFT_INTEGRATION_ON = "Yes";
+    public static final String FFT_FAST_LENGTH = "Fast";
     
     public static final String DEBUG_TO_LOG_ON = "On";
     public static final String BASELINE_WRITE_ON = "On";
@@ -239,6 +245,13 @@ public final class VFileConstants {
     public static final String PGA_INPUT_FLAG = "Yes";
     public static final double DEFAULT_PGA = 0.5;  //  cm/sec/sec
     
+    //batch processing
+    public static final int DEFAULT_PROCESSING_THREADS = 1;
+    public static final int DEFAULT_CHANNEL_THREADS = 1;
+    public static final int DEFAULT_SPECTRA_THREADS = 1;
+    public static final int DEFAULT_ABC_THREADS = 1;
+    public static final int DEFAULT_WRITER_THREADS = 0;
+    
     //V3 processing
     public static final int NUM_COEF_VALS = 6;
     public static final double[] V3_DAMPING_VALUES = {0.00, 0.02, 0.05, 0.10, 0.20};
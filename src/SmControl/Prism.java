@@ -25,11 +25,10 @@
 package SmControl;
 
 import SmConstants.VFileConstants;
-import static SmConstants.VFileConstants.RAWACC;
-import SmException.FormatException;
 import SmException.SmException;
 import SmUtilities.ConfigReader;
 import SmUtilities.PrismLogger;
+import SmUtilities.ProcessingContext;
 import SmUtilities.PrismXMLReader;
 import SmConstants.SmConfigConstants;
 import static SmConstants.SmConfigConstants.FILTER_CORNER_METHOD;
@@ -37,6 +36,7 @@ import static SmConstants.SmConfigConstants.STATION_FILTER_TABLE;
 import static SmConstants.VFileConstants.FAS_FOR_CORNERS;
 import SmUtilities.FileRemovalCheck;
 import SmUtilities.FilterCornerReader;
+import SmUtilities.LogAppender;
 import SmUtilities.SmDebugLogger;
 import SmUtilities.SmTimeFormatter;
 import java.io.*;
@@ -46,8 +46,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.parsers.ParserConfigurationException;
 import org.xml.sax.SAXException;
 
@@ -58,7 +62,12 @@ import org.xml.sax.SAXException;
  * reads in *.V0 files in the folder and then processes each file in turn.
  * Processing involves reading in the file and parsing into record(s), running
  * the waveform processing algorithms to create the data products, and then
- * writing out the data in the different formats.
+ * writing out the data in the different formats.  Input files are independent
+ * of each other, so they can optionally be processed on a pool of worker
+ * threads, and the products can be written out on a separate pool of writer
+ * threads while the next files are processed.  The log entries are still
+ * written out in input file order, giving the same output as processing each
+ * file in turn.
  * @author jmjones
  */
 public class Prism {
@@ -66,6 +75,7 @@ public class Prism {
     private final String outFolder;
     private String logFolder;
     private String configFile;
+    private int numThreads;
 
     // data structures for the controller
     private File[] inVList;
@@ -78,6 +88,7 @@ public class Prism {
      */
     public Prism (String[] args) throws SmException {
         this.configFile = "";
+        this.numThreads = 0;
         if (args.length > 1) {
             File inDir = new File(args[0]);
             File outDir = new File(args[1]);
@@ -96,12 +107,22 @@ public class Prism {
                     throw new SmException("Unable to read configuration file.");
                 }
             }
-            if (args.length == 4) {
+            if (args.length > 3) {
                 File logDir = new File(args[3]);
                 if (logDir.isDirectory()) {
                     this.logFolder = args[3];
                 }
             }
+            if (args.length == 5) {
+                try {
+                    this.numThreads = Integer.parseInt(args[4]);
+                } catch (NumberFormatException err) {
+                    this.numThreads = -1;
+                }
+                if (this.numThreads < 1) {
+                    throw new SmException("Invalid number of processing threads: " + args[4]);
+                }
+            }
         } else {
             throw new SmException("Input and output directories must be provided.");
         }
@@ -109,14 +130,17 @@ public class Prism {
     /**
      * Main method starts the loggers, reads in the configuration file, 
      * reads in all .v0 or .v0c file names in the input folder, processes each file
-     * in turn, and then deletes the input file.
+     * in turn, and then deletes the input file.  If more than one processing
+     * thread is requested, the files are processed concurrently and then
+     * written out in input order.  If writer threads are requested in the
+     * configuration file, the products are written out on those threads.
      * @param args input string arguments, input folder, output folder, optional
-     * configuration file (full path names)
+     * configuration file, optional log folder (full path names), and optional
+     * number of processing threads, which overrides the configuration file value
      * @throws SmException if a fatal error occurs during processing
      * @throws IOException if unable to read in the files or file names
      */
     public static void main(String[] args) throws SmException, IOException, Exception { 
-        int recordCount = 0;
         try {
             Prism smc = new Prism( args ); 
 
@@ -166,43 +190,131 @@ public class Prism {
             //Attempt to process all the files in the list. Check if config file
             //flagged removal of V0 from input dir and, if so, delete after copy
             //to output dir.
+            //The configuration parameters and filter corners are taken once
+            //into the processing context, which is shared by all the records.
+            //The products of each file are handed to the product writer, which
+            //logs the results of each file in input order once it's written.
             FileRemovalCheck remover = new FileRemovalCheck();
-            for (File each: smc.inVList){
-                smc.smqueue = new SmQueue(each, logtime, log.getLogFolder());
-                smc.Vproduct = new SmProduct(smc.outFolder);
-                try {
-                    smc.smqueue.readInFile( each );
-                    
-                    // parse the raw acceleration file into channel record(s)
-                    recordCount = smc.smqueue.parseVFile( RAWACC );
-                    
-                    //process the records, then write out results
-                    smc.smqueue.processQueueContents(smc.Vproduct);
-
-                    String[] outlist = smc.Vproduct.writeOutProducts("");
-                    log.writeToLog(outlist);
-                    String[] troublelist = smc.Vproduct.buildTroubleLog(outlist);
-                    if (troublelist.length > 0) {
-                        errlog.writeToLog(troublelist, VFileConstants.LogType.TROUBLE);
+            ProcessingContext context = ProcessingContext.snapshot();
+            int threads = smc.getProcessingThreads();
+            SmProductWriter writer = new SmProductWriter(smc.getWriterThreads(),
+                                (task) -> smc.logFileResults(task, remover));
+            try {
+                if (threads > 1) {
+                    smc.processFilesInParallel(threads, logtime, context, writer);
+                } else {
+                    for (File each: smc.inVList){
+                        SmFileTask task = new SmFileTask(each, logtime, 
+                                log.getLogFolder(), smc.outFolder, context, 
+                                                    writer.isAsynchronous());
+                        writer.submit(task.call());
                     }
                 }
-                catch (FormatException | IOException | SmException err) {
-                    String[] logtxt = new String[2];
-                    logtxt[0] = "Unable to process file " + each.toString();
-                    logtxt[1] = "\t" + err.getMessage();
-                    log.writeToLog(logtxt);
-                    File badread = Paths.get(smc.outFolder, "Read_Trouble").toFile();
-                    if (!badread.isDirectory()) { badread.mkdir(); }
-                    Path target = badread.toPath().resolve(each.toPath().getFileName());
-                    Files.copy(each.toPath(), target, REPLACE_EXISTING);
-                }
-                remover.deleteV0Check(each);
+                writer.finishAll();
+            } finally {
+                writer.shutdown();
             }
+            //write out anything still held by the log appender
+            LogAppender.INSTANCE.close();
         } 
         catch (SmException err){
             System.err.println(err.getMessage());
         }
     }
+    /**
+     * Processes the input files on a fixed pool of worker threads.  Each file
+     * is read, parsed and processed in its own task with its log entries held
+     * in a buffer.  The results are collected in input file order, and only a
+     * limited number of files are in flight at a time so that finished products
+     * waiting to be written out don't build up in memory.
+     * @param threads the number of worker threads
+     * @param logtime time processing started
+     * @param context the processing context for the run
+     * @param writer the product writer for the processed files
+     * @throws Exception if an unexpected error occurs during processing
+     */
+    private void processFilesInParallel( int threads, String logtime, 
+                ProcessingContext context, SmProductWriter writer ) throws Exception {
+        File logfolder = context.getPrismLogger().getLogFolder();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<SmFileTask>> inflight = new ArrayDeque<>();
+        int maxinflight = 2 * threads;
+        int next = 0;
+        try {
+            while ((next < this.inVList.length) || (!inflight.isEmpty())) {
+                while ((next < this.inVList.length) && (inflight.size() < maxinflight)) {
+                    inflight.add(pool.submit(new SmFileTask(this.inVList[next], 
+                            logtime, logfolder, this.outFolder, context, true)));
+                    next++;
+                }
+                writer.submit(SmFileTask.getResult(inflight.poll()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    /**
+     * Logs the results of processing one input file once its products have
+     * been written out.  Any log entries held during processing are written
+     * first, then the product file names are logged.  If the file could not be
+     * processed or written out, the error is logged and the file is copied to
+     * the Read_Trouble folder.  The input file is then deleted if requested in
+     * the configuration file.
+     * @param task the processed file task
+     * @param remover the V0 deletion check
+     * @throws IOException if unable to write to the log or copy the file
+     */
+    private void logFileResults( SmFileTask task, FileRemovalCheck remover ) 
+                                                            throws IOException {
+        PrismLogger log = PrismLogger.INSTANCE;
+        SmDebugLogger errlog = SmDebugLogger.INSTANCE;
+        File each = task.getInputFile();
+        Exception error = task.getError();
+        this.smqueue = task.getSmqueue();
+        this.Vproduct = task.getProduct();
+        
+        task.flushLogs();
+        if (error == null) {
+            String[] outlist = task.getOutputList();
+            log.writeToLog(outlist);
+            String[] troublelist = this.Vproduct.buildTroubleLog(outlist);
+            if (troublelist.length > 0) {
+                errlog.writeToLog(troublelist, VFileConstants.LogType.TROUBLE);
+            }
+        }
+        if (error != null) {
+            String[] logtxt = new String[2];
+            logtxt[0] = "Unable to process file " + each.toString();
+            logtxt[1] = "\t" + error.getMessage();
+            log.writeToLog(logtxt);
+            File badread = Paths.get(this.outFolder, "Read_Trouble").toFile();
+            if (!badread.isDirectory()) { badread.mkdir(); }
+            Path target = badread.toPath().resolve(each.toPath().getFileName());
+            Files.copy(each.toPath(), target, REPLACE_EXISTING);
+        }
+        remover.deleteV0Check(each);
+    }
+    /**
+     * Gets the number of processing threads to use.  A value given on the
+     * command line overrides the configuration file value, and the default
+     * of a single thread is used if neither is set or the value is invalid.
+     * @return the number of processing threads
+     */
+    public int getProcessingThreads() {
+        if (this.numThreads > 0) {
+            return this.numThreads;
+        }
+        return ConfigReader.INSTANCE.getPrismConfig().getProcessingThreads();
+    }
+    /**
+     * Gets the number of product writer threads from the configuration file.
+     * The default of 0 writes the products out on the controller thread, as
+     * does an invalid value.
+     * @return the number of writer threads
+     */
+    public int getWriterThreads() {
+        return ConfigReader.INSTANCE.getPrismConfig().getWriterThreads();
+    }
     /**
      * Reads in the configuration file and parses the xml
      * @param filename the configuration file name
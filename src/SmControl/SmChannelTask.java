@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Name: Java class SmChannelTask.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmControl;
+
+import COSMOSformat.V0Component;
+import COSMOSformat.V1Component;
+import COSMOSformat.V2Component;
+import COSMOSformat.V3Component;
+import static SmConstants.VFileConstants.*;
+import SmConstants.VFileConstants.V2DataType;
+import SmProcessing.V1Process;
+import SmProcessing.V2Process;
+import SmProcessing.V3Process;
+import SmUtilities.BuildAPKtable;
+import SmUtilities.DeferredLogBuffer;
+import SmUtilities.ProcessingContext;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * This class holds the processing of a single channel record from an input
+ * file.  The V0 record is processed through V1, V2 and V3 and the resulting
+ * components are held until the queue hands them to the product object in
+ * channel order.  The channels of a file don't depend on each other, so the
+ * tasks can be run at the same time.  When the log writes are deferred, the
+ * debug and csv log entries made during processing are held in a log buffer
+ * so that they can be written out in channel order.
+ * @author jmjones
+ */
+class SmChannelTask implements Callable<SmChannelTask> {
+    private final V0Component v0rec;
+    private final File fileName;
+    private final String logtime;
+    private final File logfolder;
+    private final ProcessingContext context;
+    private final boolean deferLogs;
+    private DeferredLogBuffer logbuffer;
+    private V1Component v1rec;
+    private V2Status V2result;
+    private V2Component V2acc;
+    private V2Component V2vel;
+    private V2Component V2dis;
+    private V3Component V3rec;
+    /**
+     * Constructor for the channel task
+     * @param rec the V0 channel record
+     * @param fileName input file name
+     * @param logtime time processing started
+     * @param logfolder folder to use for logging
+     * @param context the processing context for the run
+     * @param deferLogs true if log writes should be held in a buffer
+     */
+    public SmChannelTask( V0Component rec, File fileName, String logtime,
+                File logfolder, ProcessingContext context, boolean deferLogs ) {
+        this.v0rec = rec;
+        this.fileName = fileName;
+        this.logtime = logtime;
+        this.logfolder = logfolder;
+        this.context = context;
+        this.deferLogs = deferLogs;
+        this.logbuffer = null;
+        this.V2result = null;
+        this.V2acc = null;
+        this.V2vel = null;
+        this.V2dis = null;
+        this.V3rec = null;
+    }
+    /**
+     * Processes the channel record into its V1, V2 and V3 components.
+     * @return this task, holding the processed components
+     * @throws Exception if unable to process the record
+     */
+    @Override
+    public SmChannelTask call() throws Exception {
+        if (deferLogs) {
+            logbuffer = DeferredLogBuffer.attach();
+        }
+        try {
+            v0rec.updateV0(this.fileName.toString(), context);
+
+            //create the V1 processing object and do the processing
+            V1Process v1val = new V1Process(v0rec, context);
+            v1val.processV1Data();
+
+            //create a V1 component to get the processing results
+            v1rec = new V1Component( UNCORACC, v0rec);
+            v1rec.buildV1(v1val);
+
+            //Create the V2 processing object and do the processing.  V2 processing
+            //produces 3 V2 objects: corrected acceleration, velocity, and displacement
+            V2Process v2val = new V2Process(v1rec, this.fileName, this.logtime, context);
+            V2result = v2val.processV2Data();
+
+            if ((V2result == V2Status.GOOD) || (V2result == V2Status.FAILQC)) {
+                //create the V2 components to get the processing results
+                V2acc = new V2Component( CORACC, v1rec );
+                V2acc.buildV2(V2DataType.ACC, v2val, null);
+                V2vel = new V2Component( VELOCITY, v1rec );
+                V2vel.buildV2(V2DataType.VEL, v2val, null);
+                V2dis = new V2Component( DISPLACE, v1rec );
+                V2dis.buildV2(V2DataType.DIS, v2val, null);
+                if (V2result == V2Status.GOOD) {
+                    //Create the V3 processing object and do the processing.  V3
+                    //processing produces 1  V3 object: response spectra.
+                    V3Process v3val = new V3Process(V2acc, v2val);
+                    v3val.processV3Data();
+                    BuildAPKtable apk = new BuildAPKtable(context);
+                    apk.buildTable(v3val, v1rec, V2acc, V2vel, V2dis, this.logfolder, this.logtime);
+                    V3rec = new V3Component( SPECTRA, V2acc, V2vel, V2dis);
+                    V3rec.buildV3(v3val);
+                }
+            }
+        }
+        finally {
+            if (deferLogs) {
+                DeferredLogBuffer.detach();
+            }
+        }
+        return this;
+    }
+    /**
+     * Sets up the output directories for this channel and adds the processed
+     * components to the product object, in the order V0, V1, V2 acceleration,
+     * velocity and displacement, and V3.
+     * @param Vprod the product queue object to receive the results
+     */
+    public void addProducts( SmProduct Vprod ) {
+        setDirectories(Vprod);
+        Vprod.addProduct(v0rec, "V0");
+        Vprod.addProduct(v1rec, "V1");
+        if (V2acc != null) {
+            Vprod.addProduct(V2acc, "V2");
+            Vprod.addProduct(V2vel, "V2");
+            Vprod.addProduct(V2dis, "V2");
+        }
+        if (V3rec != null) {
+            Vprod.addProduct(V3rec, "V3");
+        }
+    }
+    /**
+     * Sets up the output directories for this channel once V2 processing has
+     * completed.  This is also called when processing fails after V2, since the
+     * directories are created at this point when the records are processed in turn.
+     * @param Vprod the product queue object to receive the results
+     */
+    public void setDirectories( SmProduct Vprod ) {
+        if (V2result != null) {
+            Vprod.setDirectories(v0rec.getRcrdId(),v0rec.getSCNLauth(),
+                                            v1rec.getEventDateTime(),V2result);
+        }
+    }
+    /**
+     * Writes out any log entries held during processing.
+     * @throws IOException if unable to write to the log files
+     */
+    public void flushLogs() throws IOException {
+        if (logbuffer != null) {
+            logbuffer.flush();
+        }
+    }
+}
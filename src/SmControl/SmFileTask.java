@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Name: Java class SmFileTask.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmControl;
+
+import static SmConstants.VFileConstants.RAWACC;
+import SmException.FormatException;
+import SmException.SmException;
+import SmUtilities.DeferredLogBuffer;
+import SmUtilities.ProcessingContext;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * This class holds the processing of a single input V0 file for the batch
+ * controller.  The file is read in, parsed into records and processed into
+ * its products, which are held in memory until the controller writes them out,
+ * either directly or on one of its writer threads.
+ * Each input file is independent of the others, so the tasks can be run on a
+ * worker pool.  When the log writes are deferred, the debug and csv log
+ * entries made during processing are held in a log buffer so the controller
+ * can write them out in input file order.
+ * @author jmjones
+ */
+class SmFileTask implements Callable<SmFileTask> {
+    private final File infile;
+    private final String logtime;
+    private final File logfolder;
+    private final String outFolder;
+    private final ProcessingContext context;
+    private final boolean deferLogs;
+    private SmQueue smqueue;
+    private SmProduct Vproduct;
+    private DeferredLogBuffer logbuffer;
+    private String[] outlist;
+    private Exception error;
+    /**
+     * Constructor for the file task
+     * @param infile the input V0 file
+     * @param logtime time processing started
+     * @param logfolder folder to use for logging
+     * @param outFolder the top level output folder
+     * @param context the processing context for the run
+     * @param deferLogs true if log writes should be held in a buffer
+     */
+    public SmFileTask( File infile, String logtime, File logfolder,
+            String outFolder, ProcessingContext context, boolean deferLogs ) {
+        this.infile = infile;
+        this.logtime = logtime;
+        this.logfolder = logfolder;
+        this.outFolder = outFolder;
+        this.context = context;
+        this.deferLogs = deferLogs;
+        this.logbuffer = null;
+        this.outlist = new String[0];
+        this.error = null;
+    }
+    /**
+     * Reads in, parses and processes the input file.  Format, read and processing
+     * errors are saved for the controller to report, any other exception is
+     * passed back to the caller.
+     * @return this task, holding the products or the error
+     * @throws Exception if an unexpected error occurs during processing
+     */
+    @Override
+    public SmFileTask call() throws Exception {
+        if (deferLogs) {
+            logbuffer = DeferredLogBuffer.attach();
+        }
+        try {
+            smqueue = new SmQueue(infile, logtime, logfolder, context);
+            Vproduct = new SmProduct(outFolder);
+
+            // read and parse the raw acceleration file into channel record(s)
+            smqueue.parseVFile( infile, RAWACC );
+
+            //process the records, products are written out by the controller
+            smqueue.processQueueContents(Vproduct);
+        }
+        catch (FormatException | IOException | SmException err) {
+            error = err;
+        }
+        finally {
+            if (deferLogs) {
+                DeferredLogBuffer.detach();
+            }
+        }
+        return this;
+    }
+    /**
+     * Writes out the products of the file if it was processed.  An error
+     * writing out the products is saved for the controller to report in the
+     * same way as a processing error.
+     * @return this task, holding the list of files written or the error
+     */
+    public SmFileTask writeProducts() {
+        if (error == null) {
+            try {
+                outlist = Vproduct.writeOutProducts("");
+            }
+            catch (IOException err) {
+                error = err;
+            }
+        }
+        return this;
+    }
+    /**
+     * Waits for a submitted file task to complete and returns it.  If the task
+     * failed with an unexpected exception, that exception is thrown here.
+     * @param result the result of the submitted task
+     * @return the completed task
+     * @throws Exception if the task failed with an unexpected exception
+     */
+    static SmFileTask getResult( Future<SmFileTask> result ) throws Exception {
+        try {
+            return result.get();
+        } catch (ExecutionException err) {
+            Throwable cause = err.getCause();
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw (Exception)cause;
+        }
+    }
+    /**
+     * Writes out any log entries held during processing.
+     * @throws IOException if unable to write to the log files
+     */
+    public void flushLogs() throws IOException {
+        if (logbuffer != null) {
+            logbuffer.flush();
+        }
+    }
+    /**
+     * Getter for the input file
+     * @return the input file
+     */
+    public File getInputFile() {
+        return infile;
+    }
+    /**
+     * Getter for the processing queue of this file
+     * @return the processing queue
+     */
+    public SmQueue getSmqueue() {
+        return smqueue;
+    }
+    /**
+     * Getter for the products created from this file
+     * @return the product object
+     */
+    public SmProduct getProduct() {
+        return Vproduct;
+    }
+    /**
+     * Getter for the list of product files written out for this file
+     * @return the list of file names, empty if the products weren't written
+     */
+    public String[] getOutputList() {
+        return outlist;
+    }
+    /**
+     * Getter for the error found while processing this file
+     * @return the error, or null if processing completed
+     */
+    public Exception getError() {
+        return error;
+    }
+}
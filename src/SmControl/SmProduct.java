@@ -31,7 +31,6 @@ import COSMOSformat.V3Component;
 import static SmConstants.VFileConstants.DELETE_INPUT_V0;
 import SmUtilities.ConfigReader;
 import static SmConstants.SmConfigConstants.DELETE_V0;
-import SmUtilities.TextFileWriter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -76,21 +75,17 @@ public class SmProduct extends SmProductFormat {
      */
     @Override
     public String[] writeOutProducts(String inDir) throws IOException {
-        TextFileWriter textout;
         Iterator iter;
         Path outName = null;
-        String[] contents;
         String chanvalue;
         //write out V0s
         iter = super.V0List.iterator();
         while (iter.hasNext()) {
             V0Component rec0 = (V0Component)iter.next();
-            contents = rec0.VrecToText();
             chanvalue = (super.V0List.size() > 1) ? rec0.getChannel() : "";
             outName = buildFilename(rec0.getStationDir(),super.V0DIR, rec0.getFileName(),
                                                     "V0c", chanvalue, "");
-            textout = new TextFileWriter(outName, contents);
-            textout.writeOutToFile();
+            writeRecord(outName, rec0);
             super.loglist.add(outName.toString());
         }
         super.V0List.clear();
@@ -98,12 +93,10 @@ public class SmProduct extends SmProductFormat {
         iter = super.V1List.iterator();
         while (iter.hasNext()) {
             V1Component rec1 = (V1Component)iter.next();
-            contents = rec1.VrecToText();
             chanvalue = (super.V1List.size() > 1) ? rec1.getChannel() : "";
             outName = buildFilename(rec1.getStationDir(),super.V1DIR, rec1.getFileName(),
                                                     "V1c", chanvalue, "");
-            textout = new TextFileWriter(outName, contents);
-            textout.writeOutToFile();
+            writeRecord(outName, rec1);
             super.loglist.add(outName.toString());
         }
         super.V1List.clear();
@@ -111,12 +104,10 @@ public class SmProduct extends SmProductFormat {
         iter = super.V2List.iterator();
         while (iter.hasNext()) {
             V2Component rec2 = (V2Component)iter.next();
-            contents = rec2.VrecToText();
             chanvalue = (super.V2List.size() > 3) ? rec2.getChannel() : "";
             outName = buildFilename(rec2.getStationDir(),super.V2DIR, rec2.getFileName(),
                                                   "V2c", chanvalue, "acc");
-            textout = new TextFileWriter(outName, contents);
-            textout.writeOutToFile();
+            writeRecord(outName, rec2);
             super.loglist.add(outName.toString());
             
             //get velocity and write to file
@@ -124,9 +115,7 @@ public class SmProduct extends SmProductFormat {
                 rec2 = (V2Component)iter.next();
                 outName = buildFilename(rec2.getStationDir(),super.V2DIR, rec2.getFileName(),
                                                     "V2c",chanvalue, "vel");
-                contents = rec2.VrecToText();
-                textout = new TextFileWriter(outName, contents);
-                textout.writeOutToFile();
+                writeRecord(outName, rec2);
                 super.loglist.add(outName.toString());
             }
             //get displacement and write to file
@@ -134,9 +123,7 @@ public class SmProduct extends SmProductFormat {
                 rec2 = (V2Component)iter.next();
                 outName = buildFilename(rec2.getStationDir(),super.V2DIR, rec2.getFileName(),
                                                     "V2c", chanvalue, "dis");
-                contents = rec2.VrecToText();
-                textout = new TextFileWriter(outName, contents);
-                textout.writeOutToFile();
+                writeRecord(outName, rec2);
                 super.loglist.add(outName.toString());
             }
         }
@@ -148,9 +135,7 @@ public class SmProduct extends SmProductFormat {
             chanvalue = (super.V3List.size() > 1) ? rec3.getChannel() : "";
             outName = buildFilename(rec3.getStationDir(), super.V3DIR, rec3.getFileName(),
                                                    "V3c", chanvalue, "");
-            contents = rec3.VrecToText();
-            textout = new TextFileWriter(outName, contents);
-            textout.writeOutToFile();
+            writeRecord(outName, rec3);
             super.loglist.add(outName.toString());
         }
         super.V3List.clear();
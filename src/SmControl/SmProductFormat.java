@@ -32,10 +32,12 @@ import COSMOSformat.V3Component;
 import SmConstants.VFileConstants;
 import static SmConstants.VFileConstants.MAX_LINE_LENGTH;
 import SmUtilities.RecordIDValidator;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -175,6 +177,18 @@ abstract class SmProductFormat {
      * @throws IOException if unable to write out the file
      */
     abstract public String[] writeOutProducts(String inDir) throws IOException ;
+    /**
+     * Writes the record out to its file, formatting each section as it is
+     * written instead of building the whole text of the record first.
+     * @param outName the full path name of the output file
+     * @param rec the record to write out
+     * @throws IOException if unable to write out the file
+     */
+    protected void writeRecord(Path outName, COSMOScontentFormat rec) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(outName, ENCODING)) {
+            rec.writeRecord(writer);
+        }
+    }
     
     /**
      * Builds the output filename from a folder path, file name, file extension,
@@ -29,7 +29,6 @@ import COSMOSformat.V1Component;
 import COSMOSformat.V2Component;
 import COSMOSformat.V3Component;
 import SmConstants.VFileConstants;
-import SmUtilities.TextFileWriter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -88,10 +87,8 @@ public class SmProductGUI extends SmProductFormat {
      */
     @Override
     public String[] writeOutProducts(String trashDir) throws IOException {
-        TextFileWriter textout;
         Iterator iter;
         Path outName = null;
-        String[] contents;
         File location;
         String channel;
         String srcFileName;
@@ -108,7 +105,6 @@ public class SmProductGUI extends SmProductFormat {
         while (iter.hasNext()) {
             V0Component rec0 = (V0Component)iter.next();  
             
-            contents = rec0.VrecToText();
             location = rec0.getStationDir();
             channel = rec0.getChannel();
             srcFileName = rec0.getFileName();
@@ -132,8 +128,7 @@ public class SmProductGUI extends SmProductFormat {
                 moveFileToTrash(outFile,trashFile);
             }
             
-            textout = new TextFileWriter(outName, contents);
-            textout.writeOutToFile();
+            writeRecord(outName, rec0);
             
             msg = String.format("V0 File: %s", outName);
             loglist.add(msg);
@@ -145,7 +140,6 @@ public class SmProductGUI extends SmProductFormat {
         iter = this.V1List.iterator();
         while (iter.hasNext()) {
             V1Component rec1 = (V1Component)iter.next();
-            contents = rec1.VrecToText();
             location = rec1.getStationDir();
             channel = rec1.getChannel();
             srcFileName = rec1.getFileName();
@@ -169,8 +163,7 @@ public class SmProductGUI extends SmProductFormat {
                 moveFileToTrash(outFile,trashFile);
             }
             
-            textout = new TextFileWriter(outName, contents);
-            textout.writeOutToFile();
+            writeRecord(outName, rec1);
             
             msg = String.format("V1 File: %s", outName);
             loglist.add(msg);
@@ -194,7 +187,6 @@ public class SmProductGUI extends SmProductFormat {
                 VFileConstants.V2DataType.DIS.toString())))
                 v2DataTypeExt = "dis";
             
-            contents = rec2.VrecToText();
             location = rec2.getStationDir();
             channel = rec2.getChannel();
             srcFileName = rec2.getFileName();
@@ -218,8 +210,7 @@ public class SmProductGUI extends SmProductFormat {
                 moveFileToTrash(outFile,trashFile);
             }
             
-            textout = new TextFileWriter(outName, contents);
-            textout.writeOutToFile();
+            writeRecord(outName, rec2);
             
             msg = String.format("V2.%s File: %s", v2DataTypeExt,outName);
             loglist.add(msg);
@@ -230,7 +221,6 @@ public class SmProductGUI extends SmProductFormat {
         iter = this.V3List.iterator();
         while (iter.hasNext()) {
             V3Component rec3 = (V3Component)iter.next();
-            contents = rec3.VrecToText();
             location = rec3.getStationDir();
             channel = rec3.getChannel();
             srcFileName = rec3.getFileName();
@@ -254,8 +244,7 @@ public class SmProductGUI extends SmProductFormat {
                 moveFileToTrash(outFile,trashFile);
             }
             
-            textout = new TextFileWriter(outName, contents);
-            textout.writeOutToFile();
+            writeRecord(outName, rec3);
             
             msg = String.format("V3 File: %s", outName);
             loglist.add(msg);
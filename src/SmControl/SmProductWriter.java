@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Name: Java class SmProductWriter.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmControl;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class is the output stage of the batch controller.  The processed
+ * files are handed to it in input file order and their products are written
+ * out, either directly on the controller thread or on a small pool of writer
+ * threads so that writing the products of one file overlaps processing the
+ * next.  Only a limited number of files are queued for writing at a time, and
+ * once a file has been written the result handler is called for it on the
+ * controller thread, always in the order the files were handed in.  The
+ * handler logs the output file names and any errors, so the logs have the
+ * same contents with or without writer threads.
+ * @author jmjones
+ */
+class SmProductWriter {
+    private final ExecutorService pool;
+    private final ArrayDeque<Future<SmFileTask>> pending;
+    private final int maxpending;
+    private final ResultHandler handler;
+
+    /**
+     * The completion step called for each file after its products are written.
+     */
+    interface ResultHandler {
+        void finish( SmFileTask task ) throws IOException;
+    }
+    /**
+     * Constructor for the product writer
+     * @param threads the number of writer threads, or 0 to write the products
+     * on the calling thread
+     * @param handler the completion step for each file
+     */
+    public SmProductWriter( int threads, ResultHandler handler ) {
+        this.pool = (threads > 0) ? Executors.newFixedThreadPool(threads) : null;
+        this.pending = new ArrayDeque<>();
+        this.maxpending = 2 * Math.max(threads, 1);
+        this.handler = handler;
+    }
+    /**
+     * Checks if the products are written on writer threads.  When they are,
+     * the handler for a file is called after later files have been processed,
+     * so the file tasks should hold their log entries until then.
+     * @return true if the products are written on writer threads
+     */
+    public boolean isAsynchronous() {
+        return (pool != null);
+    }
+    /**
+     * Writes out the products of a processed file.  With writer threads the
+     * write is queued, first waiting for the oldest queued file to finish if
+     * the queue is full.
+     * @param task the processed file task
+     * @throws Exception if an unexpected error occurs while writing
+     */
+    public void submit( SmFileTask task ) throws Exception {
+        if (pool == null) {
+            handler.finish(task.writeProducts());
+            return;
+        }
+        while (pending.size() >= maxpending) {
+            finishNext();
+        }
+        pending.add(pool.submit(task::writeProducts));
+    }
+    /**
+     * Waits for all the queued files to be written and calls the handler for
+     * each of them in turn.
+     * @throws Exception if an unexpected error occurs while writing
+     */
+    public void finishAll() throws Exception {
+        while (!pending.isEmpty()) {
+            finishNext();
+        }
+    }
+    /**
+     * Stops the writer threads, any files still queued are not finished.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+    /**
+     * Waits for the oldest queued file to be written and calls the handler.
+     * @throws Exception if an unexpected error occurs while writing
+     */
+    private void finishNext() throws Exception {
+        handler.finish(SmFileTask.getResult(pending.poll()));
+    }
+}
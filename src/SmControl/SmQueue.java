@@ -25,21 +25,22 @@
 package SmControl;
 
 import COSMOSformat.COSMOScontentFormat;
+import COSMOSformat.COSMOSlineReader;
 import COSMOSformat.V0Component;
 import COSMOSformat.V1Component;
 import COSMOSformat.V2Component;
-import COSMOSformat.V3Component;
 import static SmConstants.VFileConstants.*;
-import SmConstants.VFileConstants.V2DataType;
 import SmException.FormatException;
 import SmException.SmException;
-import SmProcessing.V1Process;
-import SmProcessing.V2Process;
-import SmProcessing.V3Process;
-import SmUtilities.BuildAPKtable;
+import SmUtilities.ProcessingContext;
 import SmUtilities.TextFileReader;
 import java.io.*;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  *  This class builds a queue of all the records in one input V0 file.  The file
@@ -54,16 +55,31 @@ public class SmQueue {
     private String[] fileContents;  // the input file contents by line
     private String logtime;
     private File logfolder;
+    private final ProcessingContext context;
     /**
-     * Constructor for SmQueue
+     * Constructor for SmQueue, the records are processed with a snapshot of
+     * the current configuration parameters and filter corners.
      * @param inFileName input file name
      * @param logtime time processing started (not used?)
      * @param logfolder folder to use for logging
      */
     public SmQueue (File inFileName, String logtime, File logfolder){
+        this(inFileName, logtime, logfolder, ProcessingContext.snapshot());
+    }
+    /**
+     * Constructor for SmQueue with the processing context of the run, which
+     * is handed down to the processing of each record.
+     * @param inFileName input file name
+     * @param logtime time processing started
+     * @param logfolder folder to use for logging
+     * @param context the processing context for the run
+     */
+    public SmQueue (File inFileName, String logtime, File logfolder,
+                                                    ProcessingContext context){
         this.fileName = inFileName;
         this.logtime = logtime;
         this.logfolder = logfolder;
+        this.context = context;
     }
     /**
      * This method reads in the input text file
@@ -91,44 +107,88 @@ public class SmQueue {
      */
     public int parseVFile(String dataType) throws FormatException, 
                                         NumberFormatException, SmException {
-        int currentLine = 0;
+        try {
+            return parseRecords(new COSMOSlineReader(fileContents), dataType);
+        } catch (IOException err) {
+            throw new FormatException("Unable to parse file " + fileName);
+        }
+    }
+    /**
+     * This method reads the COSMOS file and parses it into channel records in
+     * one pass, in the same way as readInFile followed by parseVFile, without
+     * holding the whole file in memory.  The file is read through a byte 
+     * channel and the numeric arrays are converted as they are read.
+     * @param filename input file name
+     * @param dataType the type of file read in (V0, V1, etc.)
+     * @return the number of records in the queue
+     * @throws IOException if unable to read the file or the file is empty
+     * @throws FormatException if unable to parse the file due to unexpected formatting
+     * @throws SmException if unable to parse the file, see log file
+     */
+    public int parseVFile(File filename, String dataType) throws IOException, 
+                                                FormatException, SmException {
+        if (!Files.isReadable(filename.toPath())) {
+            throw new IOException("Unable to read file " + filename);
+        }
+        try (COSMOSlineReader reader = COSMOSlineReader.open(filename)) {
+            if (!reader.hasLineAt(0)) {
+                throw new IOException("Empty file: " + filename);
+            }
+            return parseRecords(reader, dataType);
+        }
+    }
+    /**
+     * Creates a record for each channel read from the file and fills it with
+     * the header and data arrays, for parseVFile.
+     * @param reader the reader for the input file
+     * @param dataType the type of file read in (V0, V1, etc.)
+     * @return the number of records in the queue
+     * @throws FormatException if unable to parse the file due to unexpected formatting
+     * @throws SmException if unable to parse the file, see log file
+     * @throws IOException if unable to read the file
+     */
+    private int parseRecords(COSMOSlineReader reader, String dataType) 
+                                throws FormatException, SmException, IOException {
+        int currentLine = reader.getLineIndex();
         int returnLine;
+        COSMOScontentFormat rec;
         smlist = new ArrayList<>();
         
-        while (currentLine < fileContents.length) {
+        while (reader.hasLineAt(currentLine)) {
             if (dataType.equals( RAWACC )) {
-                V0Component rec = new V0Component( dataType );
-                returnLine = rec.loadComponent(currentLine, fileContents);
-                currentLine = (returnLine > currentLine) ? returnLine : fileContents.length;
-                smlist.add(rec);
+                rec = new V0Component( dataType );
             } else if (dataType.equals( UNCORACC )){
-                V1Component rec = new V1Component( dataType );
-                returnLine = rec.loadComponent(currentLine, fileContents);
-                currentLine = (returnLine > currentLine) ? returnLine : fileContents.length;
-                smlist.add(rec);                
+                rec = new V1Component( dataType );
             } else if ((dataType.equals( CORACC )) || (dataType.equals( VELOCITY )) ||
                                                  (dataType.equals( DISPLACE ))) {
                 //Look at current line to see what piece of V2 is next.
-                if (fileContents[currentLine].matches("(?s).*(?i)Velocity.*")) {
+                String line = reader.getLine(currentLine);
+                if (line.matches("(?s).*(?i)Velocity.*")) {
                     dataType = VELOCITY;
-                } else if (fileContents[currentLine].matches("(?s).*(?i)Displace.*"))  {
+                } else if (line.matches("(?s).*(?i)Displace.*"))  {
                     dataType = DISPLACE;
                 } else {
                     dataType = CORACC;
                 }
-                V2Component rec = new V2Component( dataType );
-                returnLine = rec.loadComponent(currentLine, fileContents);
-                currentLine = (returnLine > currentLine) ? returnLine : fileContents.length;
-                smlist.add(rec);                
+                rec = new V2Component( dataType );
             } else {
                 throw new FormatException("Invalid file data type: " + dataType);
             }
+            returnLine = rec.loadComponent(reader);
+            smlist.add(rec);
+            if (returnLine <= currentLine) {
+                break;
+            }
+            currentLine = returnLine;
         }
         return smlist.size();
     }
     /**
      * This method processes each record in the queue and hands the products off
-     * to the product object.
+     * to the product object.  If more than one channel thread is set in the
+     * configuration file, the records are processed at the same time and the
+     * products are then handed off in record order, so the product object
+     * receives them in the same order as when each record is processed in turn.
      * @param Vprod the product queue object that will receive the processed results
      * @throws FormatException if a called method is unable to format, such as text to numerics
      * @throws SmException if a called method found a processing error such as an
@@ -137,57 +197,63 @@ public class SmQueue {
      */
     public void processQueueContents(SmProduct Vprod) 
                                 throws FormatException, SmException, IOException, Exception {
-
-        V2Component V2acc;
-        V2Component V2vel;
-        V2Component V2dis;
-        
+        int threads = Math.min(context.getPrismConfig().getChannelThreads(), 
+                                                            smlist.size());
+        if (threads > 1) {
+            processChannelsInParallel(Vprod, threads);
+            return;
+        }
         for (COSMOScontentFormat rec : smlist) {
-            //declare rec as a V0 channel record
-            V0Component v0rec = (V0Component)rec;
-            v0rec.updateV0(this.fileName.toString());
-            
-            //create the V1 processing object and do the processing          
-            V1Process v1val = new V1Process(v0rec);
-            v1val.processV1Data();
-            
-            //create a V1 component to get the processing results
-            V1Component v1rec = new V1Component( UNCORACC, v0rec);
-            v1rec.buildV1(v1val);
-           
-            //Create the V2 processing object and do the processing.  V2 processing
-            //produces 3 V2 objects: corrected acceleration, velocity, and displacement
-            V2Process v2val = new V2Process(v1rec, this.fileName, this.logtime);
-            V2Status V2result = v2val.processV2Data();
-            
-            Vprod.setDirectories(v0rec.getRcrdId(),v0rec.getSCNLauth(), 
-                                                v1rec.getEventDateTime(),V2result);
-            Vprod.addProduct(v0rec, "V0");
-            Vprod.addProduct(v1rec, "V1");
-            
-            if ((V2result == V2Status.GOOD) || (V2result == V2Status.FAILQC)) {
-                //create the V2 components to get the processing results
-                V2acc = new V2Component( CORACC, v1rec );
-                V2acc.buildV2(V2DataType.ACC, v2val, null);
-                V2vel = new V2Component( VELOCITY, v1rec );
-                V2vel.buildV2(V2DataType.VEL, v2val, null);
-                V2dis = new V2Component( DISPLACE, v1rec );
-                V2dis.buildV2(V2DataType.DIS, v2val, null);
-                Vprod.addProduct(V2acc, "V2");
-                Vprod.addProduct(V2vel, "V2");
-                Vprod.addProduct(V2dis, "V2");
-                if (V2result == V2Status.GOOD) {
-                    //Create the V3 processing object and do the processing.  V3
-                    //processing produces 1  V3 object: response spectra.
-                    V3Process v3val = new V3Process(V2acc, v2val);
-                    v3val.processV3Data();
-                    BuildAPKtable apk = new BuildAPKtable();
-                    apk.buildTable(v3val, v1rec, V2acc, V2vel, V2dis, this.logfolder, this.logtime);
-                    V3Component V3rec = new V3Component( SPECTRA, V2acc, V2vel, V2dis);
-                    V3rec.buildV3(v3val);
-                    Vprod.addProduct(V3rec, "V3");
+            SmChannelTask task = new SmChannelTask((V0Component)rec, 
+                    this.fileName, this.logtime, this.logfolder, context, false);
+            try {
+                task.call();
+            } catch (Exception err) {
+                task.setDirectories(Vprod);
+                throw err;
+            }
+            task.addProducts(Vprod);
+        }
+    }
+    /**
+     * Processes the records of the queue on a pool of worker threads.  The
+     * results are collected in record order, with the log entries for each record
+     * written out before its products are handed off.  If a record fails, the
+     * records before it are handed off as usual and the error is passed on, as
+     * it would be if the records were processed in turn.
+     * @param Vprod the product queue object that will receive the processed results
+     * @param threads the number of worker threads
+     * @throws Exception if unable to process a record
+     */
+    private void processChannelsInParallel(SmProduct Vprod, int threads) 
+                                                            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<SmChannelTask> tasks = new ArrayList<>();
+        ArrayList<Future<SmChannelTask>> results = new ArrayList<>();
+        try {
+            for (COSMOScontentFormat rec : smlist) {
+                SmChannelTask task = new SmChannelTask((V0Component)rec, 
+                    this.fileName, this.logtime, this.logfolder, context, true);
+                tasks.add(task);
+                results.add(pool.submit(task));
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException err) {
+                    tasks.get(i).flushLogs();
+                    tasks.get(i).setDirectories(Vprod);
+                    Throwable cause = err.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error)cause;
+                    }
+                    throw (Exception)cause;
                 }
+                tasks.get(i).flushLogs();
+                tasks.get(i).addProducts(Vprod);
             }
+        } finally {
+            pool.shutdownNow();
         }
     }
     /**
@@ -29,9 +29,17 @@ import static SmConstants.VFileConstants.*;
 import SmConstants.VFileConstants.V2Status;
 import SmException.SmException;
 import SmUtilities.ABCSortPairs;
-import SmUtilities.ConfigReader;
-import static SmConstants.SmConfigConstants.*;
+import SmUtilities.PrismConfig;
+import SmUtilities.ProcessingContext;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import org.apache.commons.math3.analysis.polynomials.PolynomialFunction;
 
 /**
@@ -62,12 +70,22 @@ import org.apache.commons.math3.analysis.polynomials.PolynomialFunction;
  * @author jmjones
  */
 public class ABC2 {
+    /**
+     * The index in each array of results of the flag for a candidate that was
+     * pruned by the prescreen, 1 if pruned and 0 if it was evaluated
+     */
+    public static final int PRUNED_FLAG = 14;
     private final int NUM_SEGMENTS = 3;
-    private final int RESULT_PARMS = 14;
+    private final int RESULT_PARMS = 15;
     
     private final int MOVING_WINDOW = 200;
+    private final double ACCEL_STEP_PENALTY = 1000.0;
+    private final int MIN_COARSE_POINTS = 2;
+    private final int FILTER_BLOCK = 4;
     private final int difforder;
     private final boolean usefft;
+    private final boolean fastlength;
+    private final boolean singlefft;
     private final double dtime;
     private final double lowcut;
     private final double highcut;
@@ -85,17 +103,24 @@ public class ABC2 {
     private final int degreeP1hi;
     private final int degreeP3lo;
     private final int degreeP3hi;
+    private final boolean adaptivesearch;
+    private final int budget;
+    private boolean prescreen;
     private double[] bnn;
     private double[] derivbnn;
     private double[] b1;
     private int bestfirstdegree;
     private ArrayList<double[]> params;
+    private HashMap<Integer, double[][]> thirdfits;
     private double[] rms;
     private int[] ranking;
     private int solution;
     private int counter;
+    private int screened;
+    private int pruned;
     private double calculated_taper;
     private double config_taper;
+    private final ProcessingContext context;
     /**
      * The constructor for ABC validates the low and high ranges for the 1st and
      * 3rd polynomial orders that were defined in the configuration file.
@@ -112,6 +137,28 @@ public class ABC2 {
     public ABC2(double delttime, double[] invel, double[] inacc,
                                       double lowcut,double highcut, int numroll,
                                       int ppick, double taplengthtime) throws SmException {
+        this(delttime, invel, inacc, lowcut, highcut, numroll, ppick, taplengthtime,
+                                                ProcessingContext.snapshot());
+    }
+    /**
+     * The constructor for ABC used during processing, with the configuration
+     * values taken from the processing context of the run.
+     * @param delttime sampling interval, in seconds/sample
+     * @param invel velocity array to find the baseline function for
+     * @param inacc acceleration array to remove the baseline function derivative from
+     * @param lowcut lowcut filter value to use
+     * @param highcut high cut filter value
+     * @param numroll filter order / 2
+     * @param ppick event onset index
+     * @param taplengthtime minimum number of seconds for the filter taper length
+     * @param context the processing context for the run
+     * @throws SmException if polynomial orders are invalid
+     */
+    public ABC2(double delttime, double[] invel, double[] inacc,
+                                      double lowcut,double highcut, int numroll,
+                                      int ppick, double taplengthtime,
+                                ProcessingContext context) throws SmException {
+        this.context = context;
         this.dtime = delttime;
         this.estart = ppick;
         this.taplength = taplengthtime;
@@ -125,36 +172,25 @@ public class ABC2 {
         this.config_taper = 0.0;
         this.solution = 0;
         this.counter = 1;
+        this.screened = 0;
+        this.pruned = 0;
         this.bestfirstdegree = 0;
+        this.thirdfits = new HashMap<>();
 
-        ConfigReader config = ConfigReader.INSTANCE;
-        String difford = config.getConfigValue(DIFFERENTIATION_ORDER);
-        this.difforder = (difford == null) ? DEFAULT_DIFFORDER : Integer.parseInt(difford);
-        
-        String fftint = config.getConfigValue(INTEGRATION_METHOD);
-        this.usefft = (fftint == null) ? true : 
-                                        fftint.equalsIgnoreCase(FFT_FOR_INTEGRATION);
-
-        
-        //Get the values out of the configuration file and screen for correctness.
-        //First polynomial order        
-        this.degreeP1lo = validateConfigParam(FIRST_POLY_ORDER_LOWER, 
-                                                DEFAULT_1ST_POLY_ORD_LOWER,
-                                                DEFAULT_1ST_POLY_ORD_LOWER,
-                                                DEFAULT_1ST_POLY_ORD_UPPER);
-        this.degreeP1hi = validateConfigParam(FIRST_POLY_ORDER_UPPER, 
-                                                DEFAULT_1ST_POLY_ORD_UPPER,
-                                                degreeP1lo,
-                                                DEFAULT_1ST_POLY_ORD_UPPER);
-        //second polynomial order
-        this.degreeP3lo = validateConfigParam(THIRD_POLY_ORDER_LOWER, 
-                                                DEFAULT_3RD_POLY_ORD_LOWER,
-                                                DEFAULT_3RD_POLY_ORD_LOWER,
-                                                DEFAULT_3RD_POLY_ORD_UPPER);
-        this.degreeP3hi = validateConfigParam(THIRD_POLY_ORDER_UPPER, 
-                                                DEFAULT_3RD_POLY_ORD_UPPER,
-                                                degreeP3lo,
-                                                DEFAULT_3RD_POLY_ORD_UPPER);
+        //Get the values out of the configuration, the polynomial orders have
+        //been screened for correctness when the configuration was converted.
+        PrismConfig config = context.getPrismConfig();
+        this.difforder = config.getDiffOrder();
+        this.usefft = config.getFFTintegration();
+        this.fastlength = config.getFFTFastLength();
+        this.singlefft = config.getSingleFFTIntegration();
+        this.degreeP1lo = config.getFirstPolyLower();
+        this.degreeP1hi = config.getFirstPolyUpper();
+        this.degreeP3lo = config.getThirdPolyLower();
+        this.degreeP3hi = config.getThirdPolyUpper();
+        this.adaptivesearch = config.getABCAdaptiveSearch();
+        this.budget = config.getABCCandidateBudget();
+        this.prescreen = config.getABCPrescreen();
         
         // xml is validated by xsd, but this also does a final check for validity
         if ((this.degreeP1lo < 1) || (this.degreeP1hi < 1) || 
@@ -167,34 +203,6 @@ public class ABC2 {
                     + "are invalid");
         }
     }
-    /**
-     * Validates the input configuration parameter against the acceptable upper
-     * and lower limits and other value.  If input parm is out of range, it is 
-     * flagged as an error.
-     * @param configparm configuration parameter to validate
-     * @param defval the default value for this parameter
-     * @param lower the acceptable lower limit
-     * @param upper the acceptable upper limit
-     * @return a valid value for the configuration parameter, or 0 if unable to 
-     * parse, or -1 if out of range
-     */
-    public final int validateConfigParam( String configparm, int defval, int lower,
-                                                                    int upper) {
-        int outval = 0;
-        ConfigReader config = ConfigReader.INSTANCE;
-        String inval = config.getConfigValue(configparm);
-        if (inval == null) {
-            outval = defval;
-        } else {
-            try {
-                outval = Integer.parseInt(inval);
-                outval = ((outval < lower) || (outval > upper)) ? -1 : outval;
-            } catch (NumberFormatException e) {
-                outval = 0;
-            }
-        }
-        return outval;
-    }
     /**
      * Finds the best fit for the input velocity array.  This method controls the
      * flow of adaptive baseline correction.  It runs through each iteration, 
@@ -203,6 +211,9 @@ public class ABC2 {
      * found that passes QC is used to generate the baseline-corrected velocity.
      * If no iteration passes QC, then a flag is set to indicate failure and the
      * iteration with the lowest ranked rms value is returned for inspection.
+     * When the adaptive search is configured and there are more iterations than
+     * the candidate budget, only the iterations chosen by the coarse-to-fine
+     * search are run and ranked.
      * The status of NOABC would be returned if the length of the iteration 
      * segment never gets long enough to exceed the lower bound for the filter limit.
      * @return processing status of GOOD, FAILQC, or NOABC
@@ -213,13 +224,9 @@ public class ABC2 {
         int endval = (int)(0.8 * vlen); //iterate through 80% of the array
         int startval = estart + MOVING_WINDOW;
         boolean success = false;
-        boolean NO_FFT = false;
         params = new ArrayList<>();
-        double[] onerun;
         VFileConstants.V2Status status = V2Status.NOABC;
-        QCcheck qcchecker = new QCcheck();
-        qcchecker.validateQCvalues();
-        qcchecker.findWindow(lowcut, (1.0/dtime), estart);
+        QCcheck qcchecker = makeQCcheck();
         filter = new ButterworthFilter();
         boolean valid = filter.calculateCoefficients(lowcut,highcut,dtime,numroll, true);
         if (!valid) {
@@ -235,40 +242,29 @@ public class ABC2 {
         //the array section, increasing the window for the 2nd segment each time.
         //At each iteration, filter, integrate, and differentiate.  Store the
         //QC results for each iteration as well as the rms of the corrected vs. 
-        //original segments.
+        //original segments.  The iterations don't depend on each other, so
+        //the list of candidates is collected first and then evaluated.  For
+        //the adaptive search, only part of the candidates are evaluated.
+        ArrayList<int[]> candidates = new ArrayList<>();
+        ArrayList<Integer> breaks = new ArrayList<>();
+        for (int t2 = startval; t2 <= endval; t2 += MOVING_WINDOW) {
+            if (((t2-estart)*dtime) >= ((int)1.0/lowcut)) {
+                breaks.add(t2);
+            }
+        }
         for (int order3 = degreeP3lo; order3 <= degreeP3hi; order3++) {
-            for (int t2 = startval; t2 <= endval; t2 += MOVING_WINDOW) {
-                if (((t2-estart)*dtime) >= ((int)1.0/lowcut)) {
-                    processTheArrays( t2, order3, NO_FFT);
-                    qcchecker.qcVelocity(velocity);
-                    qcchecker.qcDisplacement(displace);
-                    //store the results in an array for comparison
-                    onerun = new double[RESULT_PARMS];
-                    onerun[0] = Math.sqrt(Math.pow(rms[0], 2) +
-                            Math.pow(rms[1],2) + Math.pow(rms[2],2));
-                    onerun[1] = Math.abs(qcchecker.getResidualDisplacement());
-                    onerun[2] = Math.abs(qcchecker.getInitialVelocity());
-                    onerun[3] = Math.abs(qcchecker.getResidualVelocity());
-                    onerun[4] = estart;
-                    onerun[5] = t2;
-                    onerun[6] = bestfirstdegree;
-                    onerun[7] = order3;
-                    onerun[8] = counter;
-                    onerun[9] = rms[0];
-                    onerun[10] = rms[1];
-                    onerun[11] = rms[2];
-                    onerun[12] = 0;
-                    onerun[13]= 0;
-                    //Penalty for initial acceleration step
-                    ArrayStats accstat = new ArrayStats(accel);
-                    if (Math.abs(Math.abs(accel[0]) - Math.abs(accstat.getPeakVal())) < 5*Math.ulp(accel[0])) {
-                        onerun[0] = 1000;
-                    }
-                    params.add(onerun);
-                    counter++;
-                }
+            for (int t2 : breaks) {
+                candidates.add(new int[]{t2, order3});
             }
         }
+        if (adaptivesearch && (candidates.size() > budget)) {
+            searchCandidates(breaks, qcchecker);
+        } else if (prescreen) {
+            evaluateScreened(candidates, qcchecker);
+        } else {
+            evaluateBatch(candidates);
+        }
+        
         //exit with error status if no estimates performed
         if (params.isEmpty()) {
             status = V2Status.NOABC;
@@ -288,11 +284,9 @@ public class ABC2 {
         //check each solution against the QA values and find the first that passes
         for (int idx : ranking) {
             eachrun = params.get(idx);
-            success = (eachrun[2] <= qcchecker.getInitVelocityQCval()) && 
-                          (eachrun[3] <= qcchecker.getResVelocityQCval()) && 
-                                (eachrun[1] <= qcchecker.getResDisplaceQCval());
+            success = passesQC(eachrun, qcchecker);
             if (success) {
-                processTheArrays((int)eachrun[5],(int)eachrun[7], usefft);
+                useResults(processTheArrays((int)eachrun[5],(int)eachrun[7], usefft));
                 status = V2Status.GOOD;
                 solution = idx;
                 break;
@@ -301,11 +295,405 @@ public class ABC2 {
         if (status != V2Status.GOOD) { //just pick the lowest rms run to return
             solution = 0;
             eachrun = params.get(solution);
-            processTheArrays((int)eachrun[5],(int)eachrun[7], usefft);
+            useResults(processTheArrays((int)eachrun[5],(int)eachrun[7], usefft));
             status = V2Status.FAILQC;
         }
         return status;
     }
+    /**
+     * Searches for the best 2nd break points with a coarse-to-fine search
+     * instead of trying every break point.  A coarse grid of break points,
+     * using about half of the candidate budget, is evaluated first for each
+     * 3rd polynomial order.  The grid spacing is then halved in turn, and at
+     * each spacing the break points one spacing away from the best ranked
+     * results are evaluated, until the spacing reaches the moving window or the
+     * budget is used up.  Results that pass QC are ranked ahead of those that
+     * don't, each in order of rms, and the budget left is shared evenly over
+     * the remaining spacings.  All the evaluated candidates are added to the
+     * parameter list in the order they were evaluated.
+     * @param breaks the full list of 2nd break points, in increasing order
+     * @param qcchecker the QC checker with the QC limits for this record
+     * @throws SmException if unable to calculate valid filter parameters
+     */
+    private void searchCandidates( ArrayList<Integer> breaks, QCcheck qcchecker)
+                                                            throws SmException {
+        int norders = degreeP3hi - degreeP3lo + 1;
+        int nbreaks = breaks.size();
+        boolean[][] done = new boolean[norders][nbreaks];
+        int coarse = Math.max(MIN_COARSE_POINTS, (budget / 2) / norders);
+        int stride = Math.max(1, (int)Math.ceil((nbreaks - 1) / (double)(coarse - 1)));
+        ArrayList<int[]> batch = new ArrayList<>();
+        for (int order = 0; order < norders; order++) {
+            for (int b = 0; b < nbreaks; b += stride) {
+                addCandidate(batch, done, breaks, order, b);
+            }
+            addCandidate(batch, done, breaks, order, nbreaks - 1);
+        }
+        evaluateBatch(batch);
+        int remaining = budget - batch.size();
+        while ((stride > 1) && (remaining > 0)) {
+            int levels = 0;
+            for (int s = stride; s > 1; s = (s + 1) / 2) {
+                levels++;
+            }
+            int regions = Math.max(1, remaining / (2 * levels));
+            stride = (stride + 1) / 2;
+            batch = new ArrayList<>();
+            int[] ranked = rankForRefinement(qcchecker);
+            for (int i = 0; (i < ranked.length) && (i < regions); i++) {
+                double[] run = params.get(ranked[i]);
+                int order = (int)run[7] - degreeP3lo;
+                int b = Collections.binarySearch(breaks, (int)run[5]);
+                for (int next : new int[]{b - stride, b + stride}) {
+                    if ((next >= 0) && (next < nbreaks) && (batch.size() < remaining)) {
+                        addCandidate(batch, done, breaks, order, next);
+                    }
+                }
+            }
+            evaluateBatch(batch);
+            remaining -= batch.size();
+        }
+    }
+    /**
+     * Adds a candidate to the batch if it hasn't already been evaluated or
+     * added.
+     * @param batch the batch of candidates to add to
+     * @param done flags for the candidates already added, by order and break
+     * @param breaks the full list of 2nd break points
+     * @param order the 3rd polynomial order, less the lowest order
+     * @param b the index of the 2nd break point in the list
+     */
+    private void addCandidate( ArrayList<int[]> batch, boolean[][] done,
+                            ArrayList<Integer> breaks, int order, int b ) {
+        if (!done[order][b]) {
+            done[order][b] = true;
+            batch.add(new int[]{breaks.get(b), order + degreeP3lo});
+        }
+    }
+    /**
+     * Ranks the candidates evaluated so far for refinement, with the results
+     * that pass QC ahead of the others and each in order of rms.
+     * @param qcchecker the QC checker with the QC limits for this record
+     * @return the indexes into the parameter list, in rank order
+     */
+    private int[] rankForRefinement( QCcheck qcchecker ) {
+        ABCSortPairs passed = new ABCSortPairs();
+        ABCSortPairs failed = new ABCSortPairs();
+        for (int i = 0; i < params.size(); i++) {
+            double[] run = params.get(i);
+            if (passesQC(run, qcchecker)) {
+                passed.addPair(run[0], i);
+            } else {
+                failed.addPair(run[0], i);
+            }
+        }
+        int[] first = passed.getSortedVals();
+        int[] second = failed.getSortedVals();
+        int[] ranked = new int[first.length + second.length];
+        System.arraycopy(first, 0, ranked, 0, first.length);
+        System.arraycopy(second, 0, ranked, first.length, second.length);
+        return ranked;
+    }
+    /**
+     * Evaluates a batch of candidates and adds the results to the parameter
+     * list, numbering the runs on from the candidates already evaluated.
+     * @param batch the list of candidates, each holding the 2nd break point
+     * and 3rd polynomial order
+     * @throws SmException if unable to calculate valid filter parameters
+     */
+    private void evaluateBatch( ArrayList<int[]> batch ) throws SmException {
+        boolean NO_FFT = false;
+        findThirdPolynomialFits(batch);
+        int[] runnums = new int[batch.size()];
+        for (int i = 0; i < runnums.length; i++) {
+            runnums[i] = counter + i;
+        }
+        params.addAll(evaluateCandidates(batch, runnums, NO_FFT));
+        counter += batch.size();
+    }
+    /**
+     * Evaluates the candidates with a prescreen that skips the filtering and
+     * integration for candidates that can't be selected.  The ranking value of
+     * a candidate, the combined rms of the 3 segments, comes from the baseline
+     * fit alone, so it is found for every candidate first.  The initial
+     * acceleration penalty replaces the ranking value with 1000, so the final
+     * value of a candidate is never below the smaller of its rms and 1000.
+     * The candidates are then filtered, integrated and checked by QC in order
+     * of their rms, and once a candidate passes QC, the candidates whose bound
+     * is above its value can't be ranked ahead of it and are not evaluated any
+     * further.  The selected solution and its results are the same as
+     * evaluating every candidate, and the run numbers are unchanged.  The
+     * pruned candidates are still added to the parameter list, marked with the
+     * PRUNED_FLAG, but they hold their prescreen rms, without the acceleration
+     * penalty, and NaN for their QC values.  Their order in the ranking below
+     * the solution can therefore differ from evaluating every candidate.  If
+     * no candidate passes QC, every candidate is evaluated.
+     * <p>With more than 1 ABC thread, the candidates are evaluated as many at
+     * a time as there are threads.  The results of a group are then taken in
+     * rms order, and any that an earlier result in the group would have pruned
+     * are put back to their prescreen values, so the parameter list and the
+     * number pruned are the same for any number of threads.</p>
+     * @param candidates the list of candidates, each holding the 2nd break
+     * point and 3rd polynomial order
+     * @param qcchecker the QC checker with the QC limits for this record
+     * @throws SmException if unable to calculate valid filter parameters
+     */
+    private void evaluateScreened( ArrayList<int[]> candidates, QCcheck qcchecker)
+                                                            throws SmException {
+        boolean NO_FFT = false;
+        int total = candidates.size();
+        findThirdPolynomialFits(candidates);
+        double[][] results = new double[total][];
+        Integer[] order = new Integer[total];
+        for (int i = 0; i < total; i++) {
+            results[i] = screenCandidate(candidates.get(i), counter + i);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(results[a][0], results[b][0]));
+        
+        //evaluate in order of rms, as many at a time as there are threads
+        int chunk = Math.max(1, context.getPrismConfig().getABCThreads());
+        double best = Double.MAX_VALUE;
+        int next = 0;
+        boolean searching = true;
+        while (searching && (next < total) && (lowestValue(results[order[next]]) <= best)) {
+            int start = next;
+            int end = Math.min(total, start + chunk);
+            ArrayList<int[]> batch = new ArrayList<>(end - start);
+            int[] runnums = new int[end - start];
+            for (int i = start; i < end; i++) {
+                batch.add(candidates.get(order[i]));
+                runnums[i - start] = counter + order[i];
+            }
+            ArrayList<double[]> evaluated = evaluateCandidates(batch, runnums, NO_FFT);
+            for (int i = start; (i < end) && searching; i++) {
+                if (lowestValue(results[order[i]]) > best) {
+                    searching = false;
+                } else {
+                    double[] run = evaluated.get(i - start);
+                    results[order[i]] = run;
+                    if (passesQC(run, qcchecker)) {
+                        best = Math.min(best, run[0]);
+                    }
+                    next = i + 1;
+                }
+            }
+        }
+        for (int i = next; i < total; i++) {
+            results[order[i]][PRUNED_FLAG] = 1;
+        }
+        screened += total;
+        pruned += total - next;
+        params.addAll(Arrays.asList(results));
+        counter += total;
+    }
+    /**
+     * Gets the lowest ranking value a screened candidate can have once it has
+     * been evaluated, allowing for the initial acceleration penalty.
+     * @param screen the prescreen results for the candidate
+     * @return the lower bound on the ranking value
+     */
+    private double lowestValue( double[] screen ) {
+        return Math.min(screen[0], ACCEL_STEP_PENALTY);
+    }
+    /**
+     * Checks the QC results of a candidate against the QC limits
+     * @param run the array of results for the candidate
+     * @param qcchecker the QC checker with the QC limits for this record
+     * @return true if the initial velocity, residual velocity and residual
+     * displacement are all within the limits
+     */
+    private boolean passesQC( double[] run, QCcheck qcchecker ) {
+        return (run[2] <= qcchecker.getInitVelocityQCval()) && 
+                          (run[3] <= qcchecker.getResVelocityQCval()) && 
+                                (run[1] <= qcchecker.getResDisplaceQCval());
+    }
+    /**
+     * Fits the 3rd segment polynomials for the break points of the candidates
+     * before they are evaluated.  The break points are visited from the end of
+     * the array toward the front, so the fitter only adds the samples between
+     * one break point and the next to its running sums instead of summing over
+     * the whole 3rd segment for each break point.  The fits for each break
+     * point are stored by polynomial order.
+     * @param candidates the list of candidates, each holding the 2nd break
+     * point and 3rd polynomial order
+     */
+    private void findThirdPolynomialFits( ArrayList<int[]> candidates ) {
+        TreeSet<Integer> breaks = new TreeSet<>();
+        for (int[] each : candidates) {
+            breaks.add(each[0]);
+        }
+        SegmentTrendFitter fitter = new SegmentTrendFitter(velstart, dtime, degreeP3hi);
+        for (int t2 : breaks.descendingSet()) {
+            if (thirdfits.containsKey(t2)) {
+                continue;
+            }
+            fitter.moveTo(t2);
+            double[][] fits = new double[degreeP3hi - degreeP3lo + 1][];
+            for (int order3 = degreeP3lo; order3 <= degreeP3hi; order3++) {
+                fits[order3 - degreeP3lo] = fitter.fit(order3);
+            }
+            thirdfits.put(t2, fits);
+        }
+    }
+    /**
+     * Evaluates each candidate 2nd break point and 3rd polynomial order.  The
+     * candidates are evaluated in blocks of up to FILTER_BLOCK, with the
+     * corrected accelerations of a block filtered together by the batch
+     * Butterworth filter.  When more than 1 thread is configured, the blocks
+     * are made small enough to give each thread at least one, and are divided
+     * among the threads of a shared fork-join pool.  Each candidate is
+     * evaluated in its own workspace and the batch filter gives the same
+     * results as filtering one array, so the results are the same as
+     * evaluating the candidates in turn, and they are returned in the
+     * candidate order.
+     * @param candidates the list of candidates, each holding the 2nd break
+     * point and 3rd polynomial order
+     * @param runnums the iteration number of each candidate
+     * @param fftuse true if FFT integration should be used
+     * @return the list of results, one for each candidate
+     * @throws SmException if unable to calculate valid filter parameters
+     */
+    private ArrayList<double[]> evaluateCandidates( ArrayList<int[]> candidates,
+                            int[] runnums, boolean fftuse ) throws SmException {
+        int threads = Math.max(1, context.getPrismConfig().getABCThreads());
+        int total = candidates.size();
+        int block = Math.max(1, Math.min(FILTER_BLOCK, (total + threads - 1) / threads));
+        ArrayList<double[]> results = new ArrayList<>(total);
+        if ((threads == 1) || (total <= block)) {
+            for (int start = 0; start < total; start += block) {
+                int end = Math.min(total, start + block);
+                results.addAll(evaluateBlock(candidates.subList(start, end),
+                                Arrays.copyOfRange(runnums, start, end), fftuse));
+            }
+            return results;
+        }
+        ArrayList<Callable<ArrayList<double[]>>> tasks = new ArrayList<>();
+        for (int start = 0; start < total; start += block) {
+            final int end = Math.min(total, start + block);
+            final List<int[]> each = candidates.subList(start, end);
+            final int[] eachnums = Arrays.copyOfRange(runnums, start, end);
+            tasks.add(() -> evaluateBlock(each, eachnums, fftuse));
+        }
+        try {
+            for (Future<ArrayList<double[]>> each : SharedPools.getPool(threads).invokeAll(tasks)) {
+                results.addAll(each.get());
+            }
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new SmException("ABC: Interrupted while evaluating the baseline corrections");
+        } catch (ExecutionException err) {
+            Throwable cause = err.getCause();
+            if (cause instanceof SmException) {
+                throw (SmException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new SmException("ABC: " + cause.getMessage());
+        }
+        return results;
+    }
+    /**
+     * Evaluates a block of candidates by making the baseline corrections,
+     * filtering and integrating them together, and running the QC checks on
+     * the results of each.
+     * @param block the candidates, each holding the 2nd break point and 3rd
+     * polynomial order
+     * @param runnums the iteration number of each candidate
+     * @param fftuse true if FFT integration should be used
+     * @return the list of results, one for each candidate
+     * @throws SmException if unable to calculate valid filter parameters
+     */
+    private ArrayList<double[]> evaluateBlock( List<int[]> block, int[] runnums,
+                                        boolean fftuse) throws SmException {
+        ABCWorkspace[] works = processTheArrays( block, fftuse);
+        ArrayList<double[]> results = new ArrayList<>(block.size());
+        for (int i = 0; i < works.length; i++) {
+            results.add(checkCandidate(block.get(i), runnums[i], works[i]));
+        }
+        return results;
+    }
+    /**
+     * Runs the QC checks on the filtered and integrated results of one
+     * candidate and makes its array of results.
+     * @param candidate the 2nd break point and 3rd polynomial order
+     * @param runnum the iteration number of the candidate
+     * @param work the workspace holding the results for the candidate
+     * @return the array of results for the candidate
+     */
+    private double[] checkCandidate( int[] candidate, int runnum, ABCWorkspace work) {
+        int t2 = candidate[0];
+        int order3 = candidate[1];
+        QCcheck qcchecker = makeQCcheck();
+        qcchecker.qcVelocity(work.velocity);
+        qcchecker.qcDisplacement(work.displace);
+        //store the results in an array for comparison
+        double[] onerun = makeResult(t2, order3, runnum, work);
+        onerun[1] = Math.abs(qcchecker.getResidualDisplacement());
+        onerun[2] = Math.abs(qcchecker.getInitialVelocity());
+        onerun[3] = Math.abs(qcchecker.getResidualVelocity());
+        //Penalty for initial acceleration step
+        double[] accel = work.accel;
+        ArrayStats accstat = new ArrayStats(accel);
+        if (Math.abs(Math.abs(accel[0]) - Math.abs(accstat.getPeakVal())) < 5*Math.ulp(accel[0])) {
+            onerun[0] = ACCEL_STEP_PENALTY;
+        }
+        return onerun;
+    }
+    /**
+     * Finds the rms values of a candidate from its baseline fit, without
+     * filtering and integrating.  The QC values are set to NaN.
+     * @param candidate the 2nd break point and 3rd polynomial order
+     * @param runnum the iteration number of the candidate
+     * @return the array of results for the candidate
+     */
+    private double[] screenCandidate( int[] candidate, int runnum ) {
+        ABCWorkspace work = new ABCWorkspace();
+        fitBaseline(work, velstart, candidate[0], candidate[1]);
+        double[] onerun = makeResult(candidate[0], candidate[1], runnum, work);
+        onerun[1] = Double.NaN;
+        onerun[2] = Double.NaN;
+        onerun[3] = Double.NaN;
+        return onerun;
+    }
+    /**
+     * Creates the array of results for a candidate, holding everything but
+     * the QC values.
+     * @param t2 the 2nd break point
+     * @param order3 the 3rd polynomial order
+     * @param runnum the iteration number of the candidate
+     * @param work the workspace holding the segment rms values
+     * @return the array of results
+     */
+    private double[] makeResult( int t2, int order3, int runnum, ABCWorkspace work ) {
+        double[] onerun = new double[RESULT_PARMS];
+        onerun[0] = Math.sqrt(Math.pow(rms[0], 2) +
+                Math.pow(work.rms2,2) + Math.pow(work.rms3,2));
+        onerun[4] = estart;
+        onerun[5] = t2;
+        onerun[6] = bestfirstdegree;
+        onerun[7] = order3;
+        onerun[8] = runnum;
+        onerun[9] = rms[0];
+        onerun[10] = work.rms2;
+        onerun[11] = work.rms3;
+        onerun[12] = 0;
+        onerun[13]= 0;
+        onerun[PRUNED_FLAG] = 0;
+        return onerun;
+    }
+    /**
+     * Creates a QC checker with the QC limits and window for this record
+     * @return the QC checker
+     */
+    private QCcheck makeQCcheck() {
+        QCcheck qcchecker = new QCcheck(context);
+        qcchecker.validateQCvalues();
+        qcchecker.findWindow(lowcut, (1.0/dtime), estart);
+        return qcchecker;
+    }
     /**
      * Finds the best fit for the first segment (from 0 to event onset) by
      * iterating over the different polynomial orders and choosing the order that
@@ -323,7 +711,7 @@ public class ABC2 {
         double rms1;
         PolynomialFunction poly;
         
-        double[] time = ArrayOps.makeTimeArray( dtime, h1.length);
+        double[] time = V2Workspace.forThread().getTimeArray( dtime, h1.length);
         System.arraycopy(velstart,0,h1,0,h1.length);
         for (int order1 = degreeP1lo; order1 <= degreeP1hi; order1++) {
             //find best fit for 1st polynomial, since its length doesn't change
@@ -346,63 +734,168 @@ public class ABC2 {
         bestfirstdegree = bestdegree;
         return bestrms;
     }
+    /**
+     * This private class holds the arrays and values calculated for one
+     * candidate baseline correction, so that each candidate can be evaluated
+     * without changing the class variables.
+     */
+    private static class ABCWorkspace {
+        private double[] accel;
+        private double[] velocity;
+        private double[] displace;
+        private double[] paddedaccel;
+        private double[] bnn;
+        private double[] derivbnn;
+        private double rms2;
+        private double rms3;
+        private double calculated_taper;
+        private double config_taper;
+    }
     /**
      * Performs the steps of making the correction for segments 2 and 3, then filtering
      * and integrating to obtain the corrected acceleration and velocity
      * @param secondb the second break point
      * @param order the polynomial order for the 3rd segment
+     * @param fftuse true if FFT integration should be used
+     * @return the workspace holding the results
      * @throws SmException if unable to calculate valid filter parameters
      */
-    private void processTheArrays( int secondb, int order, boolean fftuse) throws SmException {
-
+    private ABCWorkspace processTheArrays( int secondb, int order, boolean fftuse) 
+                                                            throws SmException {
+        ArrayList<int[]> block = new ArrayList<>(1);
+        block.add(new int[]{secondb, order});
+        return processTheArrays(block, fftuse)[0];
+    }
+    /**
+     * Performs the steps of making the correction for segments 2 and 3 for a
+     * block of candidates, then filtering the corrected accelerations together
+     * and integrating each to obtain the corrected acceleration and velocity
+     * @param block the candidates, each holding the 2nd break point and 3rd
+     * polynomial order
+     * @param fftuse true if FFT integration should be used
+     * @return the workspaces holding the results, one for each candidate
+     * @throws SmException if unable to calculate valid filter parameters
+     */
+    private ABCWorkspace[] processTheArrays( List<int[]> block, boolean fftuse) 
+                                                            throws SmException {
+        int count = block.size();
+        ABCWorkspace[] works = new ABCWorkspace[count];
+        double[][] accels = new double[count][];
+        
         //fit a baseline function to segments 2 and 3 and make correction
         //updated results in accel and velocity
-        makeCorrection(velstart, accstart, secondb, order, fftuse);
+        for (int i = 0; i < count; i++) {
+            works[i] = new ABCWorkspace();
+            makeCorrection(works[i], velstart, accstart, block.get(i)[0], 
+                                                        block.get(i)[1], fftuse);
+            accels[i] = works[i].accel;
+        }
         
         //filter acceleration and integrate to velocity and displacement
         FilterAndIntegrateProcess filterInt = 
                 new FilterAndIntegrateProcess(lowcut,highcut,numroll,
-                                                            taplength,estart,fftuse);
-        filterInt.filterAndIntegrate(accel, dtime);
-        paddedaccel = filterInt.getPaddedAccel();
-        velocity = filterInt.getVelocity();
-        displace = filterInt.getDisplacement();
-        calculated_taper = filterInt.getCalculatedTaper();
-        config_taper = filterInt.getConfigTaper();
+                                    taplength,estart,fftuse,fastlength,singlefft);
+        FilterAndIntegrateProcess[] filtered = filterInt.filterAndIntegrate(accels, dtime);
+        for (int i = 0; i < count; i++) {
+            ABCWorkspace work = works[i];
+            work.paddedaccel = filtered[i].getPaddedAccel();
+            work.velocity = filtered[i].getVelocity();
+            work.displace = filtered[i].getDisplacement();
+            work.calculated_taper = filtered[i].getCalculatedTaper();
+            work.config_taper = filtered[i].getConfigTaper();
+        }
+        return works;
+    }
+    /**
+     * Copies the results of the selected baseline correction into the class
+     * variables returned by the getters.
+     * @param work the workspace holding the selected results
+     */
+    private void useResults( ABCWorkspace work ) {
+        accel = work.accel;
+        velocity = work.velocity;
+        displace = work.displace;
+        paddedaccel = work.paddedaccel;
+        bnn = work.bnn;
+        derivbnn = work.derivbnn;
+        rms[1] = work.rms2;
+        rms[2] = work.rms3;
+        calculated_taper = work.calculated_taper;
+        config_taper = work.config_taper;
     }
     /**
-     * Makes the baseline correction on the input array. It first calculates the
+     * Makes the baseline correction on the input array. It first fits the
+     * baseline function for the 2nd and 3rd segments, then subtracts the
+     * derivative of the baseline function from the input acceleration and
+     * integrates the corrected acceleration to velocity.  The corrected
+     * arrays are stored in the workspace along with the baseline function and
+     * the rms values.
+     * @param work the workspace to hold the results
+     * @param velin the input velocity array
+     * @param accin the input acceleration array to correct
+     * @param break2 the index to split the array at for the 3rd segment
+     * @param order3 the order of the 3rd segment polynomial for correction
+     * @param fftuse true if FFT integration should be used
+     */
+    private void makeCorrection( ABCWorkspace work, double[] velin, double[] accin,
+                                        int break2, int order3, boolean fftuse) {
+        double[] accel = new double[accin.length];
+        double[] velocity;
+        FFTinteDiff fftid = new FFTinteDiff(fastlength);
+        
+        fitBaseline(work, velin, break2, order3);
+        
+        //differentiate the baseline function and remove the derivative from
+        //acceleration
+        double[] derivbnn = ArrayOps.differentiate(work.bnn, dtime, difforder);
+        for (int i = 0; i < accin.length; i++) {
+            accel[i] = accin[i] - derivbnn[i];
+        }
+        
+        //integrate acceleration to velocity and correct for initial estimate of 0
+        if (fftuse) {
+            velocity = fftid.integrate(accel, dtime);
+        } else {
+            velocity = ArrayOps.integrate(accel, dtime, 0.0);
+        }
+        ArrayOps.correctForZeroInitialEstimate( velocity, estart );
+        work.accel = accel;
+        work.velocity = velocity;
+        work.derivbnn = derivbnn;
+    }
+    /**
+     * Fits the baseline function for a candidate. It first calculates the
      * baseline function for the 3rd segment based on the input order and beginning
      * at the input break index.  Then it calls the spline method to build the
      * interpolating spline between the baseline functions of the 1st and 3rd 
-     * segments. It subtracts the baseline function from the input array and
-     * calculates the rms of the 2nd and 3rd segments and adds these to the stored
-     * rms values.
-     * @param array the input array to correct
+     * segments. It calculates the rms of the 2nd and 3rd segments against the
+     * input array and stores these in the workspace along with the baseline
+     * function.
+     * @param work the workspace to hold the results
+     * @param velin the input velocity array
      * @param break2 the index to split the array at for the 3rd segment
      * @param order3 the order of the 3rd segment polynomial for correction
-     * @return the baseline-corrected input array
      */
-    private void makeCorrection( double[] velin, double[] accin, int break2, int order3, boolean fftuse) {
+    private void fitBaseline( ABCWorkspace work, double[] velin, int break2,
+                                                                int order3) {
         double[] h2;
         double[] h3;
         int break1 = estart;
         int splinelength = break2-(break1+1);
-        accel = new double[accin.length];
-        double[] time = ArrayOps.makeTimeArray(dtime, velin.length);
         
+        //the segment arrays change length with every candidate, so they are
+        //not taken from the workspace pool
         h2 = new double[splinelength];
         double[] b2 = new double[splinelength];
         h3 = new double[velin.length-break2];
         System.arraycopy(velin, break1+1, h2, 0, splinelength);
         System.arraycopy(velin, break2, h3, 0, velin.length-break2);
-        FFTinteDiff fftid = new FFTinteDiff();
         
         //Get the best fit baseline function for the 3rd segment
-        double[] b3 = find3rdPolyFit(h3, order3);
+        double[] b3 = find3rdPolyFit(h3, break2, order3);
         
         //Construct the baseline function from the first and 3rd sections
-        bnn = new double[time.length];
+        double[] bnn = new double[velin.length];
         for (int i = 0; i < bnn.length; i++) {
             if ( i <= break1) {
                 bnn[i] = b1[i];
@@ -416,35 +909,27 @@ public class ABC2 {
         getSplineSmooth( bnn, break1, break2, dtime );
         System.arraycopy(bnn,break1+1,b2,0,splinelength);
         
-        //differentiate the baseline function and remove the derivative from
-        //acceleration
-        derivbnn = ArrayOps.differentiate(bnn, dtime, difforder);
-        for (int i = 0; i < accin.length; i++) {
-            accel[i] = accin[i] - derivbnn[i];
-        }
-        
-        //integrate acceleration to velocity and correct for initial estimate of 0
-        if (fftuse) {
-            velocity = fftid.integrate(accel, dtime);
-        } else {
-            velocity = ArrayOps.integrate(accel, dtime, 0.0);
-        }
-        ArrayOps.correctForZeroInitialEstimate( velocity, estart );
-        
         //Compute the rms of original and corrected segments
-        rms[1] = ArrayOps.rootMeanSquare(h2,b2);
-        rms[2] = ArrayOps.rootMeanSquare(h3,b3);
+        work.bnn = bnn;
+        work.rms2 = ArrayOps.rootMeanSquare(h2,b2);
+        work.rms3 = ArrayOps.rootMeanSquare(h3,b3);
     }
     /**
      * Finds the 3rd polynomial baseline fit based on the polynomial degree.
+     * The fit found for the break point before the candidates were evaluated
+     * is used, and the fit is only calculated here for a break point that
+     * wasn't one of the candidates.
      * @param array the input array to fit
+     * @param break2 the index the 3rd segment starts at
      * @param degree the degree of the polynomial to use to fit
      * @return the baseline correction function
      */
-    private double[] find3rdPolyFit(double[] array, int degree) {
+    private double[] find3rdPolyFit(double[] array, int break2, int degree) {
         double[] result = new double[array.length];
-        double[] time = ArrayOps.makeTimeArray(dtime, array.length);
-        double[] coefs = ArrayOps.findPolynomialTrend(array, degree, dtime);
+        double[] time = V2Workspace.forThread().getTimeArray(dtime, array.length);
+        double[][] fits = thirdfits.get(break2);
+        double[] coefs = (fits != null) ? fits[degree - degreeP3lo] :
+                            ArrayOps.findPolynomialTrend(array, degree, dtime);
         PolynomialFunction poly = new PolynomialFunction( coefs );
         for (int i = 0; i < array.length; i++) {
             result[i] = poly.value(time[i]);
@@ -473,7 +958,7 @@ public class ABC2 {
         double esq;
         
         int len = vals.length;
-        double[] loctime = ArrayOps.makeTimeArray( intime, len);
+        double[] loctime = V2Workspace.forThread().getTimeArray( intime, len);
         double t1 = break1 * intime;
         double t2 = break2 * intime;
         double time12 = intime * 12.0;   //dt12
@@ -520,7 +1005,8 @@ public class ABC2 {
         return derivbnn;
     }
     /**
-     * Getter for the array of ranks
+     * Getter for the array of ranks.  With the prescreen, the pruned
+     * iterations are ranked by their prescreen rms values.
      * @return ranked index array of iteration numbers
      */
     public int[] getRanking() {
@@ -534,7 +1020,9 @@ public class ABC2 {
         return solution;
     }
     /**
-     * Getter for the entire array list of parameters for every iteration
+     * Getter for the entire array list of parameters for every iteration.
+     * The iterations pruned by the prescreen have the PRUNED_FLAG set and hold
+     * only the prescreen rms values, with NaN for the QC values.
      * @return array list of parameters
      */
     public ArrayList<double[]> getParameters() {
@@ -570,6 +1058,32 @@ public class ABC2 {
     public int getCounter() {
         return counter;
     }
+    /**
+     * Getter for the number of candidates that went through the QC prescreen
+     * @return the number of candidates screened
+     */
+    public int getNumScreened() {
+        return screened;
+    }
+    /**
+     * Getter for the number of screened candidates that were not filtered and
+     * integrated because they couldn't be selected
+     * @return the number of candidates pruned
+     */
+    public int getNumPruned() {
+        return pruned;
+    }
+    /**
+     * Turns the rms prescreen of the full search on or off, replacing the
+     * Prescreen setting from the configuration file.  With it off every
+     * candidate is filtered, integrated and checked by QC.  The selected
+     * solution is the same either way, but only the results of the evaluated
+     * candidates are complete.
+     * @param screen true to prescreen the candidates
+     */
+    public void setPrescreen( boolean screen ) {
+        this.prescreen = screen;
+    }
     /**
      * Getter for the array of RMS values for the winning or return solution
      * @return array of RMS values, one for each segment
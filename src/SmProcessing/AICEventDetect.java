@@ -25,7 +25,6 @@
 package SmProcessing;
 
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 
 /**
  * <p>
@@ -125,46 +124,79 @@ public class AICEventDetect {
      * the variance of each section is calculated. The entry into the output array
      * for each iteration step is calculated by (for iteration step i):
      * i * log(var1) + (segment.length-i) * log(var2)
+     * The variances are not recomputed from the section values at each step.
+     * Instead a running mean and sum of squared differences are updated as each
+     * value is added, once from the end of the array for the second sections
+     * and once from the start for the first sections, so the whole curve is
+     * computed in 2 passes over the array.  The running update is the same one
+     * used by the commons math SummaryStatistics, so a section of constant 
+     * values still has a variance of exactly 0.
      * @param segment the windowed portion of the input array over which to locate
      * the global minimum
      * @return an array of calculated variances corresponding to the combined
      * variances of the windowed array at each index value
      */
     private double[] aicval( double[] segment ) {
-        double[] vararray = new double[segment.length];
-        double[] temp;
+        int len = segment.length;
+        double[] vararray = new double[len];
         double s1;
         double s2;
-        SummaryStatistics sumstats;
-                
-        for (int i = 0; i < segment.length-1; i++) {
-            
-            //compute the variance in the first part of the array
-            temp = new double[i];
-            System.arraycopy(segment,0,temp,0,i);
-            sumstats = new SummaryStatistics();
-            for (double each : temp) {
-                sumstats.addValue(each);
-            }
-            s1 = sumstats.getVariance();
-            s1 = (s1 > 0.0) ? Math.log(s1) : 0.0;
-            
-            //compute the variance in the second part of the array
-            temp = new double[segment.length-i];
-            System.arraycopy(segment,i,temp,0,segment.length-i);
-            sumstats = new SummaryStatistics();
-            for (double each : temp) {
-                sumstats.addValue(each);
-            }
-            s2 = sumstats.getVariance();
-            s2 = (s2 > 0.0) ? Math.log(s2) : 0.0;
-            
-            //combine the 2 variances, weighted by the number of entries in
-            //each section
-            vararray[i] = i * s1 + (segment.length-i) * s2;
+        RunningVariance runvar;
+        
+        //compute the log variance of each second part of the array, holding
+        //the values in the output array until the first parts are done
+        runvar = new RunningVariance();
+        for (int i = len-1; i >= 0; i--) {
+            runvar.addValue(segment[i]);
+            vararray[i] = runvar.getLogVariance();
+        }
+        //compute the log variance of each first part of the array and combine
+        //the 2 variances, weighted by the number of entries in each section
+        runvar = new RunningVariance();
+        for (int i = 0; i < len-1; i++) {
+            s1 = runvar.getLogVariance();
+            s2 = vararray[i];
+            vararray[i] = i * s1 + (len-i) * s2;
+            runvar.addValue(segment[i]);
+        }
+        if (len > 0) {
+            vararray[len-1] = 0.0;
         }
         return vararray;
     }
+    /**
+     * This private class keeps the running mean and sum of squared differences
+     * from the mean as values are added, for the sample variance of the values
+     * added so far.
+     */
+    private static class RunningVariance {
+        private long count = 0;
+        private double mean = 0.0;
+        private double sumsq = 0.0;
+        /**
+         * Adds a value to the running totals
+         * @param value the value to add
+         */
+        void addValue( double value ) {
+            count++;
+            double dev = value - mean;
+            double ndev = dev / count;
+            mean += ndev;
+            sumsq += (count - 1.0) * dev * ndev;
+        }
+        /**
+         * Gets the log of the sample variance of the values added so far
+         * @return the log of the variance, or 0 if the variance isn't greater
+         * than 0 or there are fewer than 2 values
+         */
+        double getLogVariance() {
+            if (count < 2) {
+                return 0.0;
+            }
+            double var = sumsq / (count - 1.0);
+            return (var > 0.0) ? Math.log(var) : 0.0;
+        }
+    }
     /**
      * This method subtracts a buffer of a certain length of time to this class's
      * calculated event onset.  The number of samples is calculated by dividing
@@ -41,7 +41,9 @@ import org.apache.commons.math3.stat.regression.SimpleRegression;
  * an input array.  For trend removal operations, the input array is
  * modified in place.  For integration and differentiation, a new array is
  * created with the calculated values.  A method to make an array of time
- * values for a given time step is also included.
+ * values for a given time step is also included.  The trend fitting methods
+ * use the shared time array and scratch arrays of the V2Workspace of the
+ * calling thread rather than making their own.
  * </p>
  * <p>
  * The constructor for this class is private, and the "static factory" methods
@@ -94,7 +96,7 @@ public class ArrayOps {
             return false;
         }
         int len = array.length;
-        double[] time = makeTimeArray( timestep, len);
+        double[] time = V2Workspace.forThread().getTimeArray( timestep, len);
         SimpleRegression regression = new SimpleRegression();
         for(int i = 0; i < len; i++) {
             regression.addData(time[i], array[i]);
@@ -121,7 +123,7 @@ public class ArrayOps {
             return new double[0];
         }
         int len = array.length;
-        double[] time = makeTimeArray( timestep, len);
+        double[] time = V2Workspace.forThread().getTimeArray( timestep, len);
         SimpleRegression regression = new SimpleRegression();
         for(int i = 0; i < len; i++) {
             regression.addData(time[i], array[i]);
@@ -153,13 +155,13 @@ public class ArrayOps {
         }
         int lenfull = array.length;
         int lensub = subarray.length;
-        double[] time = makeTimeArray( timestep, lensub);
+        double[] time = V2Workspace.forThread().getTimeArray( timestep, lensub);
         SimpleRegression regression = new SimpleRegression();
         for(int i = 0; i < lensub; i++) {
             regression.addData(time[i], subarray[i]);
         }
         //Remove the trend from the first array
-        double[] fulltime = makeTimeArray( timestep, lenfull);
+        double[] fulltime = V2Workspace.forThread().getTimeArray( timestep, lenfull);
         for (int i = 0; i < lenfull; i++) {
             array [i] = array[i] - regression.predict(fulltime[i]);
         }
@@ -300,9 +302,21 @@ public class ArrayOps {
     }
     /**
      * Finds a polynomial trend of specified degree from the input array.  The
-     * polynomial trend is calculated with the apache commons math 
-     * PolynomialCurveFitter class, and the coefficients are returned.
-     * 
+     * polynomial trend is the least squares fit of the polynomial to the
+     * array values at the evenly spaced sample times, and the coefficients are
+     * returned, starting with the constant term.
+     * <p>
+     * Since the sample times are evenly spaced, the fit is solved directly
+     * rather than with the iterative apache commons math PolynomialCurveFitter.
+     * The times are first scaled to the range -1 to 1, which keeps the normal
+     * equations well conditioned for the low degrees used in trend removal.
+     * The sums for the normal equations are collected in one pass through the
+     * array, the small system is solved by Gaussian elimination, and the
+     * coefficients are converted back to the unscaled times.  The coefficients
+     * match those of the PolynomialCurveFitter to within rounding.  Arrays
+     * too short to determine the polynomial are passed to the
+     * PolynomialCurveFitter.
+     * </p>
      * @param array input array containing data with a polynomial trend.
      * @param degree polynomial degree to calculate, such as 2 or 3.
      * @param timestep sample interval
@@ -316,7 +330,82 @@ public class ArrayOps {
             return new double[0];
         }
         int len = array.length;
-        double[] time = makeTimeArray( timestep, len);
+        if (len <= degree) {
+            return fitPolynomialTrend(array, degree, timestep);
+        }
+        int ncoef = degree + 1;
+        
+        //scale the sample index to u in [-1,1], with t = center + half * u
+        double halflen = (len - 1) / 2.0;
+        double[] usums = new double[2*degree + 1];
+        double[] ysums = new double[ncoef];
+        double u;
+        double upow;
+        for (int i = 0; i < len; i++) {
+            u = (i - halflen) / halflen;
+            upow = 1.0;
+            for (int k = 0; k < usums.length; k++) {
+                usums[k] += upow;
+                if (k < ncoef) {
+                    ysums[k] += array[i] * upow;
+                }
+                upow *= u;
+            }
+        }
+        return polynomialFromSums(usums, ysums, degree, halflen, timestep);
+    }
+    /**
+     * Solves the least-squares normal equations for a polynomial fit to an
+     * evenly sampled segment and returns the coefficients in time.  The sums
+     * are taken over the scaled sample position u = (i - halflen) / halflen,
+     * which runs from -1 to 1 across the segment.
+     * @param usums the sums of u^k, for k from 0 to 2*degree
+     * @param ysums the sums of y*u^k, for k from 0 to degree
+     * @param degree polynomial degree to calculate
+     * @param halflen half the segment length, (len - 1) / 2, in samples
+     * @param timestep sample interval
+     * @return array of coefficients, with time 0 at the first segment sample
+     */
+    static double[] polynomialFromSums( double[] usums, double[] ysums,
+                            int degree, double halflen, double timestep ) {
+        int ncoef = degree + 1;
+        
+        //solve the normal equations for the coefficients in u
+        double[][] normal = new double[ncoef][ncoef + 1];
+        for (int r = 0; r < ncoef; r++) {
+            for (int c = 0; c < ncoef; c++) {
+                normal[r][c] = usums[r + c];
+            }
+            normal[r][ncoef] = ysums[r];
+        }
+        double[] ucoefs = solveLinearSystem(normal);
+        
+        //convert to the coefficients in t by expanding ((t - center)/half)^k
+        double center = halflen * timestep;
+        double scale = halflen * timestep;
+        double[] coefs = new double[ncoef];
+        for (int k = 0; k < ncoef; k++) {
+            double term = ucoefs[k] / Math.pow(scale, k);
+            double binom = 1.0;
+            for (int j = k; j >= 0; j--) {
+                coefs[j] += term * binom * Math.pow(-center, k - j);
+                binom = binom * j / (k - j + 1);
+            }
+        }
+        return coefs;
+    }
+    /**
+     * Finds a polynomial trend of specified degree from the input array with
+     * the apache commons math PolynomialCurveFitter class.
+     * @param array input array containing data with a polynomial trend.
+     * @param degree polynomial degree to calculate
+     * @param timestep sample interval
+     * @return array of coefficients
+     */
+    private static double[] fitPolynomialTrend(double[] array, int degree, 
+                                                            double timestep) {
+        int len = array.length;
+        double[] time = V2Workspace.forThread().getTimeArray( timestep, len);
         ArrayList<WeightedObservedPoint> points = new ArrayList<>();
         for (int i = 0; i < len; i++ ){
             points.add(new WeightedObservedPoint( 1.0, time[i], array[i]));
@@ -325,6 +414,41 @@ public class ArrayOps {
         double[] coefs = fitter.fit(points);
         return coefs;
     }
+    /**
+     * Solves a small linear system by Gaussian elimination with partial
+     * pivoting.  The input is the augmented matrix [A | b], which is modified.
+     * @param aug the augmented matrix, with n rows and n+1 columns
+     * @return the solution x of Ax = b
+     */
+    private static double[] solveLinearSystem( double[][] aug ) {
+        int n = aug.length;
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int r = col + 1; r < n; r++) {
+                if (Math.abs(aug[r][col]) > Math.abs(aug[pivot][col])) {
+                    pivot = r;
+                }
+            }
+            double[] temp = aug[col];
+            aug[col] = aug[pivot];
+            aug[pivot] = temp;
+            for (int r = col + 1; r < n; r++) {
+                double factor = aug[r][col] / aug[col][col];
+                for (int c = col; c <= n; c++) {
+                    aug[r][c] -= factor * aug[col][c];
+                }
+            }
+        }
+        double[] x = new double[n];
+        for (int r = n - 1; r >= 0; r--) {
+            double sum = aug[r][n];
+            for (int c = r + 1; c < n; c++) {
+                sum -= aug[r][c] * x[c];
+            }
+            x[r] = sum / aug[r][r];
+        }
+        return x;
+    }
     /**
      * Interpolates values based on a polynomial function.  The function is 
      * created from an input set of x and y values. A set of x values is then
@@ -369,7 +493,7 @@ public class ArrayOps {
             return false;
         }
         int len = array.length;
-        double[] time = makeTimeArray( timestep, len);
+        double[] time = V2Workspace.forThread().getTimeArray( timestep, len);
         PolynomialFunction poly = new PolynomialFunction( coefs );
         for (int i = 0; i < len; i++) {
             array[i] = array[i] - poly.value(time[i]);
@@ -432,14 +556,15 @@ public class ArrayOps {
         int len = inarr.length;
         double[] lcoefs;
         double[] pcoefs;
-        double[] time = makeTimeArray( timestep, len);
+        V2Workspace work = V2Workspace.forThread();
+        double[] time = work.getTimeArray( timestep, len);
         PolynomialFunction firpoly, secpoly;
         int numOrder = 0;
 
         //find 1st order polynomial trend for input array and commpare with original
         lcoefs = findPolynomialTrend(inarr, 1, timestep);
         firpoly = new PolynomialFunction( lcoefs );
-        double[] linbase = new double[len];
+        double[] linbase = work.borrow(len);
         for (int i = 0; i < len; i++) {
             linbase[i] = firpoly.value(time[i]);
         }
@@ -448,11 +573,13 @@ public class ArrayOps {
         //find 2nd order polynomial trend for input array and rms compare with original
         pcoefs = findPolynomialTrend(inarr, 2, timestep);
         secpoly = new PolynomialFunction( pcoefs );
-        double[] polbase = new double[len];
+        double[] polbase = work.borrow(len);
         for (int i = 0; i < len; i++) {
             polbase[i] = secpoly.value(time[i]);
         }
         double polrms = rootMeanSquare( inarr, polbase);
+        work.release(polbase);
+        work.release(linbase);
         
         //compare the rms values and find the trend with the smallest rms
         if ((linrms < polrms)|| (Math.abs(linrms - polrms) < 5*Math.ulp(polrms))) {
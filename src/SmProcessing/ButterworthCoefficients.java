@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Name: Java class ButterworthCoefficients.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmProcessing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class holds the coefficients and gains of a Butterworth bandpass filter
+ * for a set of filter parameters: the low and high cutoff frequencies, the
+ * sample time interval, the roll off and the causal / acausal flag.  The
+ * coefficients are calculated by the ButterworthFilter formulas when the set
+ * is created and can't be changed afterwards, so one set can be shared by any
+ * number of filters and threads.
+ * <p>
+ * Sets are created through the getCoefficients method, which keeps the sets it
+ * has made in a process-wide cache.  Adaptive baseline correction filters
+ * each candidate correction with the same parameters, and the channels of a
+ * record usually share them as well, so the coefficients are only calculated
+ * once for each.  The cache holds at most MAX_SETS sets, and when full drops
+ * the one used least recently.  Counts of the cache hits and misses are kept
+ * for checking how well the cache is working for a batch.
+ * </p>
+ * @author jmjones
+ */
+public final class ButterworthCoefficients {
+    /**
+     * The maximum number of coefficient sets held in the cache
+     */
+    public static final int MAX_SETS = 64;
+    private static final int MAXROLL = 8;
+    private static final double EPSILON = 0.001;
+    private static final Map<Key, ButterworthCoefficients> sets = 
+                    new LinkedHashMap<Key, ButterworthCoefficients>(MAX_SETS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<Key, ButterworthCoefficients> eldest ) {
+            return size() > MAX_SETS;
+        }
+    };
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    
+    private final double[] fact;
+    private final double[] b1;
+    private final double[] b2;
+    /**
+     * Constructor calculates the filter coefficients into arrays b1 and b2,
+     * and the gains into array fact.  The parameters have already been checked.
+     * @param f1 the filter low cutoff frequency
+     * @param f2 the filter high cutoff frequency
+     * @param dtime the sample time interval for the record
+     * @param nroll the filter roll off, which is 1/2 the filter order
+     */
+    private ButterworthCoefficients( double f1, double f2, double dtime, int nroll ) {
+        final double pi = Math.PI;
+        fact = new double[2*MAXROLL];
+        b1 = new double[2*MAXROLL];
+        b2 = new double[2*MAXROLL];
+        
+        double pre; double pim; double argre; double argim; double rho; double theta;
+        double sjre; double sjim; double bj; double cj; double con;
+        int index;
+        
+        //for w1 and w2 calc., the 2 in the num. and denom. can be deleted but its
+        //left in for clarity
+        double w1 = 2.0 * Math.tan(((2.0*pi*f1)*dtime)/2.0) / dtime;
+        double w2 = 2.0 * Math.tan(((2.0*pi*f2)*dtime)/2.0) / dtime;
+        
+        //calculate the filter coefficients into arrays b1 and b2, and calculate
+        //the gain into array fact
+        for (int k = 1; k < nroll+1; k++) {
+            pre = (-1.0) * Math.sin((pi*(2.0*k - 1)) / (4.0*nroll));
+            pim = Math.cos((pi*(2.0*k - 1)) / (4.0*nroll));
+            
+            argre = (((Math.pow(pre,2.0) - Math.pow(pim,2.0)) * Math.pow((w2-w1),2.0)) / 4.0) - (w1 * w2);
+            argim = (2.0 * pre * pim * Math.pow((w2-w1),2.0)) / 4.0;
+            
+            rho = Math.pow((Math.pow(argre,2.0) + Math.pow(argim, 2.0)), (1.0/4.0));
+            theta = pi + (Math.atan2(argim, argre)) / 2.0;
+            
+            for (int i = 1; i < 3; i++) {
+                sjre = (pre * (w2-w1)/2.0) + (Math.pow(-1,i) * rho * ((-1.0)*Math.sin(theta-(pi/2.0))));
+                sjim = (pim * (w2-w1)/2.0) + (Math.pow(-1,i) * rho * (Math.cos(theta-(pi/2.0))));
+                
+                bj = (-2.0) * sjre;
+                cj = Math.pow(sjre,2) + Math.pow(sjim,2);
+                con = 1.0 / ((2.0/dtime) + bj + (cj*dtime/2.0));
+                
+                index = 2*k + i - 3;
+                fact[index] = (w2 - w1) * con;
+                b1[index] = ((cj*dtime) - (4.0/dtime)) * con;
+                b2[index] = ((2.0/dtime) - bj + (cj*dtime/2.0)) * con;
+            }
+        }
+    }
+    /**
+     * Gets the coefficient set for the given filter parameters, from the cache
+     * if it has been calculated before.  The acausal flag doesn't change the
+     * coefficients, but is part of the cache key so that each filter type
+     * keeps its own entries.
+     * @param lowCutOff the filter low cutoff frequency
+     * @param highCutOff the filter high cutoff frequency
+     * @param dtime the sample time interval for the record
+     * @param rolloff the filter roll off, which is 1/2 the filter order
+     * @param acausal flag indicating causal or acausal filtering
+     * @return the coefficient set, or null if the parameters are invalid
+     */
+    public static ButterworthCoefficients getCoefficients( double lowCutOff, 
+                double highCutOff, double dtime, int rolloff, boolean acausal ) {
+        //Check input parameters for valid values
+        if ((Math.abs(lowCutOff - 0.0) < EPSILON) || (Math.abs(highCutOff - lowCutOff) < EPSILON) ||
+                                           (rolloff < 1) || (rolloff > MAXROLL)){
+            return null;
+        }
+        double nyquist = (1.0 / dtime) / 2.0;
+        if ((Math.abs(lowCutOff - nyquist) < EPSILON) || (Math.abs(highCutOff - nyquist) < EPSILON)) {
+            return null;
+        }
+        Key key = new Key(lowCutOff, highCutOff, dtime, rolloff, acausal);
+        synchronized (sets) {
+            ButterworthCoefficients coefs = sets.get(key);
+            if (coefs != null) {
+                hits.incrementAndGet();
+                return coefs;
+            }
+        }
+        misses.incrementAndGet();
+        ButterworthCoefficients coefs = new ButterworthCoefficients(lowCutOff, 
+                                                highCutOff, dtime, rolloff);
+        synchronized (sets) {
+            ButterworthCoefficients other = sets.putIfAbsent(key, coefs);
+            return (other == null) ? coefs : other;
+        }
+    }
+    /**
+     * Getter for a copy of the array with the calculated gains
+     * @return the gains
+     */
+    public double[] getFact() { return fact.clone(); }
+    /**
+     * Getter for a copy of the first coefficient array
+     * @return the first coefficient array
+     */
+    public double[] getB1() { return b1.clone(); }
+    /**
+     * Getter for a copy of the 2nd coefficient array
+     * @return the second coefficient array
+     */
+    public double[] getB2() { return b2.clone(); }
+    /**
+     * Getter for the number of requests found in the cache
+     * @return the number of cache hits
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+    /**
+     * Getter for the number of requests that calculated a new set
+     * @return the number of cache misses
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+    /**
+     * Getter for the number of sets currently in the cache
+     * @return the number of cached sets
+     */
+    public static int size() {
+        synchronized (sets) {
+            return sets.size();
+        }
+    }
+    /**
+     * Empties the cache and resets the hit and miss counts
+     */
+    public static void clear() {
+        synchronized (sets) {
+            sets.clear();
+            hits.set(0);
+            misses.set(0);
+        }
+    }
+    /**
+     * The cache key of the filter parameters.  The frequencies and time
+     * interval are compared by their exact values.
+     */
+    private static final class Key {
+        private final double f1;
+        private final double f2;
+        private final double dtime;
+        private final int nroll;
+        private final boolean acausal;
+        
+        private Key( double f1, double f2, double dtime, int nroll, boolean acausal ) {
+            this.f1 = f1;
+            this.f2 = f2;
+            this.dtime = dtime;
+            this.nroll = nroll;
+            this.acausal = acausal;
+        }
+        @Override
+        public boolean equals( Object obj ) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return (Double.compare(f1, other.f1) == 0) && 
+                   (Double.compare(f2, other.f2) == 0) &&
+                   (Double.compare(dtime, other.dtime) == 0) &&
+                   (nroll == other.nroll) && (acausal == other.acausal);
+        }
+        @Override
+        public int hashCode() {
+            int hash = Double.hashCode(f1);
+            hash = 31 * hash + Double.hashCode(f2);
+            hash = 31 * hash + Double.hashCode(dtime);
+            hash = 31 * hash + nroll;
+            return 31 * hash + (acausal ? 1 : 0);
+        }
+    }
+}
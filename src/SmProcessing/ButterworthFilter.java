@@ -71,9 +71,6 @@ public class ButterworthFilter {
     private double dtime;
     private int nroll;
     private boolean icaus;
-    private final double pi = Math.PI;
-    private final int MAXROLL = 8;
-    private final double epsilon = 0.001;
     private double[] fact;
     private double[] b1;
     private double[] b2;
@@ -81,6 +78,7 @@ public class ButterworthFilter {
     
     private int tapercount;
     private int taperend;
+    private double[] batchtapers;
     
     /**
      * Default constructor
@@ -89,6 +87,7 @@ public class ButterworthFilter {
         this.npad = 0;
         this.tapercount = 0;
         this.taperend = 0;
+        this.batchtapers = new double[0];
     }
     /**
      * This method calculates the filter coefficients based on the corner frequencies,
@@ -111,55 +110,16 @@ public class ButterworthFilter {
         this.nroll = rolloff;
         this.icaus = acausal;           //true if acausal filter
         
-        fact = new double[2*MAXROLL];
-        b1 = new double[2*MAXROLL];
-        b2 = new double[2*MAXROLL];
-        
-        double pre; double pim; double argre; double argim; double rho; double theta;
-        double sjre; double sjim; double bj; double cj; double con;
-        int index;
-        
-        //Check input parameters for valid values
-        if ((Math.abs(f1 - 0.0) < epsilon) || (Math.abs(f2 - f1) < epsilon) ||
-                                           (rolloff < 1) || (rolloff > MAXROLL)){
-            return false;
-        }
-        double nyquist = (1.0 / dtime) / 2.0;
-        if ((Math.abs(f1 - nyquist) < epsilon) || (Math.abs(f2 - nyquist) < epsilon)) {
+        //The coefficients are shared through the ButterworthCoefficients cache,
+        //this filter keeps its own copies
+        ButterworthCoefficients coefs = ButterworthCoefficients.getCoefficients(
+                                    lowCutOff, highCutOff, dtime, rolloff, acausal);
+        if (coefs == null) {
             return false;
         }
-        
-        //for w1 and w2 calc., the 2 in the num. and denom. can be deleted but its
-        //left in for clarity
-        double w1 = 2.0 * Math.tan(((2.0*pi*f1)*dtime)/2.0) / dtime;
-        double w2 = 2.0 * Math.tan(((2.0*pi*f2)*dtime)/2.0) / dtime;
-        
-        //calculate the filter coefficients into arrays b1 and b2, and calculate
-        //the gain into array fact
-        for (int k = 1; k < nroll+1; k++) {
-            pre = (-1.0) * Math.sin((pi*(2.0*k - 1)) / (4.0*nroll));
-            pim = Math.cos((pi*(2.0*k - 1)) / (4.0*nroll));
-            
-            argre = (((Math.pow(pre,2.0) - Math.pow(pim,2.0)) * Math.pow((w2-w1),2.0)) / 4.0) - (w1 * w2);
-            argim = (2.0 * pre * pim * Math.pow((w2-w1),2.0)) / 4.0;
-            
-            rho = Math.pow((Math.pow(argre,2.0) + Math.pow(argim, 2.0)), (1.0/4.0));
-            theta = pi + (Math.atan2(argim, argre)) / 2.0;
-            
-            for (int i = 1; i < 3; i++) {
-                sjre = (pre * (w2-w1)/2.0) + (Math.pow(-1,i) * rho * ((-1.0)*Math.sin(theta-(pi/2.0))));
-                sjim = (pim * (w2-w1)/2.0) + (Math.pow(-1,i) * rho * (Math.cos(theta-(pi/2.0))));
-                
-                bj = (-2.0) * sjre;
-                cj = Math.pow(sjre,2) + Math.pow(sjim,2);
-                con = 1.0 / ((2.0/dtime) + bj + (cj*dtime/2.0));
-                
-                index = 2*k + i - 3;
-                fact[index] = (w2 - w1) * con;
-                b1[index] = ((cj*dtime) - (4.0/dtime)) * con;
-                b2[index] = ((2.0/dtime) - bj + (cj*dtime/2.0)) * con;
-            }
-        }
+        fact = coefs.getFact();
+        b1 = coefs.getB1();
+        b2 = coefs.getB2();
         return true;
     }
     /**
@@ -186,9 +146,181 @@ public class ButterworthFilter {
      */
     public double[] applyFilter( double[] arrayS, double taplengthtime, int eventOnsetIndex ) {
         
+        double[] filteredS = prepareArray( arrayS, taplengthtime, eventOnsetIndex );
+        int np2 = filteredS.length;
+
+        //filter the array, and if acausal filter again from back to front
+        filterSections( filteredS, false );
+        if (icaus) {
+            filterSections( filteredS, true );
+            System.arraycopy(filteredS, (npad/2), arrayS, 0, arrayS.length);
+        } else {
+            System.arraycopy(filteredS, 0, arrayS, 0, np2);
+        }
+        return filteredS;
+    }
+    /**
+     * This method filters several arrays of the same length with the filter
+     * coefficients, giving the same results as calling applyFilter on each
+     * array in turn.  Each array is tapered and padded as in applyFilter, with
+     * its own start taper length.  The arrays are then filtered 4 at a time,
+     * with each filter section advancing the 4 arrays together in one loop.
+     * The filtering of each array is a recurrence that can't be split up, but
+     * the arrays are independent of each other, so the processor can work on
+     * all 4 at once instead of waiting on each step of a single recurrence.
+     * Any arrays left over are filtered one at a time.  The arithmetic for each
+     * array is the same as in applyFilter, so the results are identical.
+     * The start taper lengths used for the arrays are available from
+     * getBatchTaperlengths.
+     * @param arrays the input arrays to filter, all of the same length.  NOTE:
+     * these arrays are updated with the filtered versions upon return
+     * @param taplengthtime the length of time in seconds to apply the taper,
+     * see applyFilter
+     * @param eventOnsetIndex the event onset index is used to refine the
+     * taper length
+     * @return the filtered results with the pads still included, in the same
+     * order as the input arrays
+     * @throws IllegalArgumentException if the arrays are not all the same
+     * length, in which case none of the arrays are changed
+     */
+    public double[][] applyFilter( double[][] arrays, double taplengthtime, 
+                                                        int eventOnsetIndex ) {
+        int count = arrays.length;
+        double[][] filtered = new double[count][];
+        batchtapers = new double[count];
+        if (count == 0) {
+            return filtered;
+        }
+        int len = arrays[0].length;
+        for (double[] each : arrays) {
+            if (each.length != len) {
+                throw new IllegalArgumentException("Batch filter arrays must have the same length");
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            filtered[i] = prepareArray( arrays[i], taplengthtime, eventOnsetIndex );
+            batchtapers[i] = tapercount * dtime;
+        }
+        
+        //filter the arrays, and if acausal filter again from back to front
+        int passes = (icaus) ? 2 : 1;
+        for (int pass = 0; pass < passes; pass++) {
+            boolean backward = (pass == 1);
+            int i = 0;
+            for (; (i + 4) <= count; i += 4) {
+                filterSections( filtered[i], filtered[i+1], filtered[i+2],
+                                                    filtered[i+3], backward );
+            }
+            for (; i < count; i++) {
+                filterSections( filtered[i], backward );
+            }
+        }
+        
+        //copy the filtered values back into the input arrays
+        for (int i = 0; i < count; i++) {
+            if (icaus) {
+                System.arraycopy(filtered[i], (npad/2), arrays[i], 0, len);
+            } else {
+                System.arraycopy(filtered[i], 0, arrays[i], 0, filtered[i].length);
+            }
+        }
+        return filtered;
+    }
+    /**
+     * Runs each filter section over the array in place, either from front to
+     * back or from back to front.
+     * @param s the padded array to filter
+     * @param backward true to filter from the back of the array to the front
+     */
+    private void filterSections( double[] s, boolean backward ) {
+        int np2 = s.length;
+        int start = (backward) ? np2 - 1 : 0;
+        int step = (backward) ? -1 : 1;
+        double x1; double x2; double y1; double y2; double xp; double yp;
+        for (int k = 0; k < 2*nroll; k++) {
+            x1 = 0.0;
+            x2 = 0.0;
+            y1 = 0.0;
+            y2 = 0.0;
+            for (int n = 0, j = start; n < np2; n++, j += step) {
+                xp = s[j];
+                yp = fact[k] * (xp - x2) - (b1[k] * y1) - (b2[k] * y2);
+                s[j] = yp;
+                y2 = y1;
+                y1 = yp;
+                x2 = x1;
+                x1 = xp;
+            }
+        }
+    }
+    /**
+     * Runs each filter section over 4 arrays of the same length in place,
+     * with the same arithmetic for each array as filterSections for one array.
+     * @param a the first padded array to filter
+     * @param b the second padded array to filter
+     * @param c the third padded array to filter
+     * @param d the fourth padded array to filter
+     * @param backward true to filter from the back of the arrays to the front
+     */
+    private void filterSections( double[] a, double[] b, double[] c, double[] d,
+                                                            boolean backward ) {
+        int np2 = a.length;
+        int start = (backward) ? np2 - 1 : 0;
+        int step = (backward) ? -1 : 1;
+        for (int k = 0; k < 2*nroll; k++) {
+            double fk = fact[k];
+            double b1k = b1[k];
+            double b2k = b2[k];
+            double ax1 = 0.0, ax2 = 0.0, ay1 = 0.0, ay2 = 0.0;
+            double bx1 = 0.0, bx2 = 0.0, by1 = 0.0, by2 = 0.0;
+            double cx1 = 0.0, cx2 = 0.0, cy1 = 0.0, cy2 = 0.0;
+            double dx1 = 0.0, dx2 = 0.0, dy1 = 0.0, dy2 = 0.0;
+            for (int n = 0, j = start; n < np2; n++, j += step) {
+                double axp = a[j];
+                double bxp = b[j];
+                double cxp = c[j];
+                double dxp = d[j];
+                double ayp = fk * (axp - ax2) - (b1k * ay1) - (b2k * ay2);
+                double byp = fk * (bxp - bx2) - (b1k * by1) - (b2k * by2);
+                double cyp = fk * (cxp - cx2) - (b1k * cy1) - (b2k * cy2);
+                double dyp = fk * (dxp - dx2) - (b1k * dy1) - (b2k * dy2);
+                a[j] = ayp;
+                b[j] = byp;
+                c[j] = cyp;
+                d[j] = dyp;
+                ay2 = ay1;
+                ay1 = ayp;
+                ax2 = ax1;
+                ax1 = axp;
+                by2 = by1;
+                by1 = byp;
+                bx2 = bx1;
+                bx1 = bxp;
+                cy2 = cy1;
+                cy1 = cyp;
+                cx2 = cx1;
+                cx1 = cxp;
+                dy2 = dy1;
+                dy1 = dyp;
+                dx2 = dx1;
+                dx1 = dxp;
+            }
+        }
+    }
+    /**
+     * Tapers and pads the input array for filtering.  The taper lengths for the
+     * start and end of the array are calculated, and if acausal, the array is
+     * tapered and a copy with the pads added is returned.  If causal, a copy
+     * of the array is returned.
+     * @param arrayS the input array, which is tapered if acausal
+     * @param taplengthtime the length of time in seconds to apply the taper
+     * @param eventOnsetIndex the event onset index is used to refine the
+     * taper length
+     * @return the copy of the array to filter
+     */
+    private double[] prepareArray( double[] arrayS, double taplengthtime, int eventOnsetIndex ) {
         int np2;
         double[] filteredS;
-        double x1; double x2; double y1; double y2; double xp; double yp;
 
         //Calculate the length of the initial cosine taper.  Put a lower limit of the
         //taperlength time specified in the configuration file, and set the ending
@@ -222,44 +354,6 @@ public class ButterworthFilter {
             filteredS = new double[np2];
             System.arraycopy(arrayS, 0, filteredS, 0, np2);
         }
-        //filter the array
-        for (int k = 0; k < 2*nroll; k++) {
-            x1 = 0.0;
-            x2 = 0.0;
-            y1 = 0.0;
-            y2 = 0.0;
-            for (int j = 0; j < np2; j++) {
-                xp = filteredS[j];
-                yp = fact[k] * (xp - x2) - (b1[k] * y1) - (b2[k] * y2);
-                filteredS[j] = yp;
-                y2 = y1;
-                y1 = yp;
-                x2 = x1;
-                x1 = xp;
-            }
-        }
-        
-        //if acausal, filter again from back to front
-        if (icaus) {
-            for (int k = 0; k < 2*nroll; k++) {
-                x1 = 0.0;
-                x2 = 0.0;
-                y1 = 0.0;
-                y2 = 0.0;
-                for (int j = 0; j < np2; j++) {
-                    xp = filteredS[np2 - j - 1];
-                    yp = fact[k] * (xp - x2) - (b1[k] * y1) - (b2[k] * y2);
-                    filteredS[np2 - j - 1] = yp;
-                    y2 = y1;
-                    y1 = yp;
-                    x2 = x1;
-                    x1 = xp;
-                }
-            }
-            System.arraycopy(filteredS, (npad/2), arrayS, 0, arrayS.length);
-        } else {
-            System.arraycopy(filteredS, 0, arrayS, 0, np2);
-        }
         return filteredS;
     }
     /**
@@ -293,4 +387,10 @@ public class ButterworthFilter {
      * @return the end taper length used in filtering
      */
     public double getEndTaperlength() { return (taperend * dtime); }
+    /**
+     * Getter for the calculated taper lengths of the arrays filtered by the
+     * last call to the batch applyFilter
+     * @return the calculated taper lengths, in the order of the arrays
+     */
+    public double[] getBatchTaperlengths() { return batchtapers.clone(); }
 }
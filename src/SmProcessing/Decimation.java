@@ -25,7 +25,6 @@
 package SmProcessing;
 
 import SmException.SmException;
-import org.apache.commons.math3.complex.Complex;
 
 /**
  * The Decimation class provides the inverse to the Resampling class by reducing
@@ -62,31 +61,39 @@ public class Decimation {
         
         //compute fft, shift the array forward (wrapping the end back around
         // to the beginning), and divide each value by the length of the array 
-        Complex[] temp = fft.calculateFFTComplexFront( yarray );
-        Complex[] zarray = fft.shiftForward( temp );
-        for (int i = 0; i < zarray.length; i++) {
-            zarray[i] = zarray[i].divide(zarray.length);
+        double[][] temp = fft.calculateFFTSplitFront( yarray );
+        double[] zreal = fft.shiftForward( temp[0] );
+        double[] zimag = fft.shiftForward( temp[1] );
+        int zlen = zreal.length;
+        for (int i = 0; i < zlen; i++) {
+            zreal[i] = zreal[i] / zlen;
+            zimag[i] = zimag[i] / zlen;
         }
-        int padlength = zarray.length - yarray.length;
+        int padlength = zlen - yarray.length;
         int val = (padlength % 2 == 0) ? (padlength / factor) : (int)(padlength / factor) + 1;
 
         // Calculate half the number of total samples. Zarray.length will always
         // be even after the fft, so ((zarray.length * (factor-1)) / 2) will
         // always be an integer
-        int nsamp = (int)((zarray.length * (factor-1)) / 2) / factor;
+        int nsamp = (int)((zlen * (factor-1)) / 2) / factor;
         
         // drop nsamp number of samples from the beginning and end of the spectrum
-        Complex[] zshorten = new Complex[zarray.length - 2*nsamp];
-        System.arraycopy(zarray,nsamp,zshorten,0,zshorten.length);
+        int shortlen = zlen - 2*nsamp;
+        double[] shortreal = new double[shortlen];
+        double[] shortimag = new double[shortlen];
+        System.arraycopy(zreal,nsamp,shortreal,0,shortlen);
+        System.arraycopy(zimag,nsamp,shortimag,0,shortlen);
         
         // shift the array backwards, wrapping the end back around to the beginning,
-        // then multiply by the length of zshorten and get the inverse fft
-        temp = fft.shiftBack( zshorten );
-        for (int i = 0; i < temp.length; i++) {
-            temp[i] = temp[i].multiply(temp.length);
+        // then multiply by the length of the shortened spectrum and get the inverse fft
+        shortreal = fft.shiftBack( shortreal );
+        shortimag = fft.shiftBack( shortimag );
+        for (int i = 0; i < shortlen; i++) {
+            shortreal[i] = shortreal[i] * shortlen;
+            shortimag[i] = shortimag[i] * shortlen;
         }
-        double[] ytemp = fft.inverseFFTComplex(temp);
-        double[] yp = new double[zshorten.length - val];
+        double[] ytemp = fft.inverseFFTSplit(shortreal, shortimag);
+        double[] yp = new double[shortlen - val];
         System.arraycopy(ytemp,val,yp,0,yp.length);
         return yp;
     }
@@ -0,0 +1,438 @@
+/*******************************************************************************
+ * Name: Java class FFTEngine.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmProcessing;
+
+/**
+ * This class computes fast Fourier transforms of a fixed length directly on
+ * arrays of doubles, with the real and imaginary parts held in
+ * separate arrays.  The transforms are done in place in arrays supplied by the
+ * caller, so no complex number objects are created.  The
+ * cosine and sine values needed for the transforms are computed once when the
+ * engine is created.  An engine isn't changed by its transforms, so one engine
+ * can be shared by any number of threads, and engines are borrowed from the
+ * FFTPlanCache rather than created for each transform.
+ * <p>
+ * For a power of 2 length, the complex transform is the iterative radix-2
+ * decimation in time algorithm.  The pairs of values swapped into bit-reversed
+ * order before the transform are also computed when the engine is created.
+ * Lengths with no prime factors other than 2, 3, 5 and 7 are also handled,
+ * using the mixed-radix Stockham algorithm, which works through the factors of
+ * the length one at a time, moving the values between the input arrays and a
+ * work array of the same length.  The work arrays are made once for each
+ * thread that uses the engine and are kept with it, so the transforms don't
+ * allocate.  These lengths let a record be padded to a length much closer to
+ * its own than the next power of 2.
+ * </p><p>
+ * Since the records processed are real, the engine also provides a forward
+ * transform of a real array and an inverse transform back to a real array.
+ * These pack the real array of length n into a complex array of length n/2,
+ * transform that, and then separate the even and odd parts, which takes about
+ * half the work of a full complex transform.  Only the first n/2+1 values of the
+ * spectrum of a real array are held, since the rest are their complex conjugates.
+ * </p><p>
+ * The transforms are not normalized, except for the inverse real transform,
+ * which divides by n to return the original array, matching the standard
+ * normalization of the inverse transform.
+ * </p>
+ * @author jmjones
+ */
+public final class FFTEngine {
+    private final int n;
+    private final double[] cosvals;
+    private final double[] sinvals;
+    private final int[] swapfull;
+    private final int[] swaphalf;
+    private final boolean power2;
+    private final int[] factorsfull;
+    private final int[] factorshalf;
+    private final ThreadLocal<MixedScratch> scratch;
+    private static final int[] RADICES = {2, 3, 5, 7};
+    private static final int MAX_RADIX = 7;
+    /**
+     * Constructor for the engine computes the cosine and sine values and the
+     * bit-reversal swaps or factors for the given transform length.
+     * @param length the transform length, which must be a power of 2 or an
+     * even length with no prime factors other than 2, 3, 5 and 7
+     * @throws IllegalArgumentException if the length is not supported
+     */
+    public FFTEngine( int length ) {
+        if (!isSupportedLength(length)) {
+            throw new IllegalArgumentException("FFT length must be a power of 2 "
+                            + "or an even product of 2, 3, 5 and 7: " + length);
+        }
+        this.n = length;
+        this.power2 = ((length & (length - 1)) == 0);
+        int half = Math.max(length / 2, 1);
+        //the power of 2 transforms only need the first half of the values,
+        //the mixed-radix transforms index over the full circle
+        int numvals = power2 ? half : length;
+        this.cosvals = new double[numvals];
+        this.sinvals = new double[numvals];
+        for (int i = 0; i < numvals; i++) {
+            double angle = (2.0 * Math.PI * i) / length;
+            cosvals[i] = Math.cos(angle);
+            sinvals[i] = Math.sin(angle);
+        }
+        if (power2) {
+            this.swapfull = makeSwaps(length);
+            this.swaphalf = makeSwaps(half);
+            this.factorsfull = null;
+            this.factorshalf = null;
+            this.scratch = null;
+        } else {
+            this.swapfull = null;
+            this.swaphalf = null;
+            this.factorsfull = makeFactors(length);
+            this.factorshalf = makeFactors(half);
+            this.scratch = ThreadLocal.withInitial(() -> new MixedScratch(length));
+        }
+    }
+    /**
+     * Checks if the engine can compute transforms of the given length, which
+     * is either a power of 2 or an even length with no prime factors other
+     * than 2, 3, 5 and 7.  The length must be even, other than 1, for the
+     * real array transforms.
+     * @param length the transform length
+     * @return true if the length is supported
+     */
+    public static boolean isSupportedLength( int length ) {
+        if (length < 1) {
+            return false;
+        }
+        if ((length & (length - 1)) == 0) {
+            return true;
+        }
+        if ((length % 2) != 0) {
+            return false;
+        }
+        int rest = length;
+        for (int radix : RADICES) {
+            while ((rest % radix) == 0) {
+                rest /= radix;
+            }
+        }
+        return (rest == 1);
+    }
+    /**
+     * Makes the list of factors of the given length, in the order the
+     * mixed-radix transform uses them.
+     * @param length the length, with no prime factors other than 2, 3, 5 and 7
+     * @return the factors
+     */
+    private static int[] makeFactors( int length ) {
+        int[] factors = new int[32];
+        int count = 0;
+        int rest = length;
+        for (int radix : RADICES) {
+            while ((rest % radix) == 0) {
+                factors[count++] = radix;
+                rest /= radix;
+            }
+        }
+        int[] list = new int[count];
+        System.arraycopy(factors, 0, list, 0, count);
+        return list;
+    }
+    /**
+     * Makes the list of index pairs to swap to put an array of the given
+     * length into bit-reversed order, held as [i0,j0,i1,j1,...].
+     * @param length the array length, a power of 2
+     * @return the index pairs
+     */
+    private static int[] makeSwaps( int length ) {
+        int[] swaps = new int[length];
+        int count = 0;
+        for (int i = 1, j = 0; i < length; i++) {
+            int bit = length >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                swaps[count++] = i;
+                swaps[count++] = j;
+            }
+        }
+        int[] pairs = new int[count];
+        System.arraycopy(swaps, 0, pairs, 0, count);
+        return pairs;
+    }
+    /**
+     * Getter for the transform length
+     * @return the transform length
+     */
+    public int getLength() {
+        return n;
+    }
+    /**
+     * Computes the complex transform of length n in place.  The inverse
+     * transform is not divided by n.
+     * @param re the real parts, of at least length n
+     * @param im the imaginary parts, of at least length n
+     * @param inverse true for the inverse transform, false for the forward
+     */
+    public void transform( double[] re, double[] im, boolean inverse ) {
+        transform(re, im, n, inverse);
+    }
+    /**
+     * Computes the transform of a real array of length n.  The array is
+     * treated as padded with zeros to length n, with the values starting at the
+     * given offset, so padding can be placed at the start or end of the array.
+     * The first n/2+1 values of the spectrum are returned in the re and im
+     * arrays, which are also used as the work space for the transform.
+     * @param array the real array, of at most length n - offset
+     * @param offset the location of the first array value in the padded array
+     * @param re the real parts of the spectrum, of at least length n/2+1
+     * @param im the imaginary parts of the spectrum, of at least length n/2+1
+     */
+    public void realForward( double[] array, int offset, double[] re, double[] im ) {
+        if (n == 1) {
+            re[0] = (offset == 0 && array.length > 0) ? array[0] : 0.0;
+            im[0] = 0.0;
+            return;
+        }
+        int m = n / 2;
+        //pack the even values into the real parts and the odd values into the
+        //imaginary parts of a complex array of half the length
+        for (int k = 0; k < m; k++) {
+            re[k] = 0.0;
+            im[k] = 0.0;
+        }
+        for (int i = 0; i < array.length; i++) {
+            int pos = i + offset;
+            if ((pos & 1) == 0) {
+                re[pos >> 1] = array[i];
+            } else {
+                im[pos >> 1] = array[i];
+            }
+        }
+        transform(re, im, m, false);
+
+        //separate the spectra of the even and odd values and combine them into
+        //the spectrum of the full array, working on the pairs k and m-k at once
+        double zr = re[0];
+        double zi = im[0];
+        re[0] = zr + zi;
+        im[0] = 0.0;
+        re[m] = zr - zi;
+        im[m] = 0.0;
+        for (int k = 1; k <= m / 2; k++) {
+            int j = m - k;
+            double evenr = 0.5 * (re[k] + re[j]);
+            double eveni = 0.5 * (im[k] - im[j]);
+            double oddr = 0.5 * (im[k] + im[j]);
+            double oddi = -0.5 * (re[k] - re[j]);
+            double wr = cosvals[k];
+            double wi = -sinvals[k];
+            double tr = wr * oddr - wi * oddi;
+            double ti = wr * oddi + wi * oddr;
+            re[k] = evenr + tr;
+            im[k] = eveni + ti;
+            re[j] = evenr - tr;
+            im[j] = -(eveni - ti);
+        }
+    }
+    /**
+     * Computes the inverse transform of the spectrum of a real array, divided
+     * by n, returning the real array.  Only the first n/2+1 values of the
+     * spectrum are used, with the rest taken as their complex conjugates.  The
+     * imaginary parts of the first and last of these are ignored, which gives
+     * the real part of the inverse complex transform.  The re and im arrays are
+     * used as the work space for the transform and are overwritten.
+     * @param re the real parts of the spectrum, of at least length n/2+1
+     * @param im the imaginary parts of the spectrum, of at least length n/2+1
+     * @param out the output real array, of at least length n
+     */
+    public void realInverse( double[] re, double[] im, double[] out ) {
+        if (n == 1) {
+            out[0] = re[0];
+            return;
+        }
+        int m = n / 2;
+        //rebuild the complex array of half the length from the spectrum, working
+        //on the pairs k and m-k at once
+        double first = re[0];
+        double last = re[m];
+        re[0] = 0.5 * (first + last);
+        im[0] = 0.5 * (first - last);
+        for (int k = 1; k <= m / 2; k++) {
+            int j = m - k;
+            double evenr = 0.5 * (re[k] + re[j]);
+            double eveni = 0.5 * (im[k] - im[j]);
+            double dr = 0.5 * (re[k] - re[j]);
+            double di = 0.5 * (im[k] + im[j]);
+            double wr = cosvals[k];
+            double wi = sinvals[k];
+            double oddr = dr * wr - di * wi;
+            double oddi = dr * wi + di * wr;
+            re[k] = evenr - oddi;
+            im[k] = eveni + oddr;
+            re[j] = evenr + oddi;
+            im[j] = -eveni + oddr;
+        }
+        transform(re, im, m, true);
+        double scale = 1.0 / m;
+        for (int k = 0; k < m; k++) {
+            out[2*k] = re[k] * scale;
+            out[2*k+1] = im[k] * scale;
+        }
+    }
+    /**
+     * Computes the complex transform in place for a length of n or n/2,
+     * using every (n/length)th cosine and sine value.
+     * @param re the real parts
+     * @param im the imaginary parts
+     * @param length the transform length, either n or n/2
+     * @param inverse true for the inverse transform, false for the forward
+     */
+    private void transform( double[] re, double[] im, int length, boolean inverse ) {
+        if (!power2) {
+            transformMixed(re, im, length, inverse);
+            return;
+        }
+        double temp;
+        //reorder the values into bit-reversed order
+        int[] swaps = (length == n) ? swapfull : swaphalf;
+        for (int s = 0; s < swaps.length; s += 2) {
+            int i = swaps[s];
+            int j = swaps[s+1];
+            temp = re[i];
+            re[i] = re[j];
+            re[j] = temp;
+            temp = im[i];
+            im[i] = im[j];
+            im[j] = temp;
+        }
+        double sign = inverse ? 1.0 : -1.0;
+        for (int size = 2; size <= length; size <<= 1) {
+            int half = size >> 1;
+            int step = n / size;
+            for (int k = 0; k < half; k++) {
+                double wr = cosvals[k * step];
+                double wi = sign * sinvals[k * step];
+                for (int i = k; i < length; i += size) {
+                    int j = i + half;
+                    double tr = wr * re[j] - wi * im[j];
+                    double ti = wr * im[j] + wi * re[j];
+                    re[j] = re[i] - tr;
+                    im[j] = im[i] - ti;
+                    re[i] += tr;
+                    im[i] += ti;
+                }
+            }
+        }
+    }
+    /**
+     * Computes the complex transform in place for a length of n or n/2 that is
+     * not a power of 2, with the Stockham algorithm.  Each pass takes one
+     * factor p of the length, combines the p values that are span/p apart
+     * with a length p transform and multiplies them by the cosine and sine
+     * values of the span, then divides the span by p.  The passes move the
+     * values back and forth between the input arrays and a work array, and
+     * leave them in order, so no reordering is needed.  The work array is
+     * the calling thread's scratch space for this engine.
+     * @param re the real parts
+     * @param im the imaginary parts
+     * @param length the transform length, either n or n/2
+     * @param inverse true for the inverse transform, false for the forward
+     */
+    private void transformMixed( double[] re, double[] im, int length, boolean inverse ) {
+        int[] factors = (length == n) ? factorsfull : factorshalf;
+        double sign = inverse ? 1.0 : -1.0;
+        double[] xr = re;
+        double[] xi = im;
+        MixedScratch work = scratch.get();
+        double[] yr = work.yr;
+        double[] yi = work.yi;
+        double[] ar = work.ar;
+        double[] ai = work.ai;
+        double[] temp;
+        int span = length;
+        int stride = 1;
+        for (int p : factors) {
+            int m = span / p;
+            int wstep = n / span;
+            int pstep = n / p;
+            for (int q = 0; q < m; q++) {
+                for (int k = 0; k < stride; k++) {
+                    for (int r = 0; r < p; r++) {
+                        int idx = k + stride * (q + m * r);
+                        ar[r] = xr[idx];
+                        ai[r] = xi[idx];
+                    }
+                    for (int j = 0; j < p; j++) {
+                        //length p transform for output j
+                        double sr = 0.0;
+                        double si = 0.0;
+                        for (int r = 0; r < p; r++) {
+                            int w = ((r * j) % p) * pstep;
+                            double wr = cosvals[w];
+                            double wi = sign * sinvals[w];
+                            sr += ar[r] * wr - ai[r] * wi;
+                            si += ar[r] * wi + ai[r] * wr;
+                        }
+                        //multiply by the cosine and sine values of the span
+                        int w = q * j * wstep;
+                        double wr = cosvals[w];
+                        double wi = sign * sinvals[w];
+                        int out = k + stride * (p * q + j);
+                        yr[out] = sr * wr - si * wi;
+                        yi[out] = sr * wi + si * wr;
+                    }
+                }
+            }
+            temp = xr;
+            xr = yr;
+            yr = temp;
+            temp = xi;
+            xi = yi;
+            yi = temp;
+            span = m;
+            stride *= p;
+        }
+        if (xr != re) {
+            System.arraycopy(xr, 0, re, 0, length);
+            System.arraycopy(xi, 0, im, 0, length);
+        }
+    }
+    /**
+     * This private class holds one thread's work arrays for the mixed-radix
+     * transforms.  The arrays have the full transform length, which also covers
+     * the half length transforms of the real arrays.
+     */
+    private static final class MixedScratch {
+        private final double[] yr;
+        private final double[] yi;
+        private final double[] ar;
+        private final double[] ai;
+        
+        MixedScratch( int length ) {
+            this.yr = new double[length];
+            this.yi = new double[length];
+            this.ar = new double[MAX_RADIX];
+            this.ai = new double[MAX_RADIX];
+        }
+    }
+}
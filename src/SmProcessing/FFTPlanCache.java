@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Name: Java class FFTPlanCache.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmProcessing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class holds the FFT engines shared by all the FFT users, keyed by
+ * transform length.  Each engine holds the cosine and sine values and the
+ * bit-reversal swaps for its length, so within a record, where the same length
+ * is transformed many times by the trend removal, filtering, integration,
+ * adaptive baseline correction and spectra steps, these are only computed
+ * once.  The engines aren't changed by their transforms, so one engine can be
+ * used by any number of threads at the same time.
+ * <p>
+ * The cache holds at most MAX_PLANS engines, and when full drops the one used
+ * least recently.  Counts of the cache hits and misses are kept for checking
+ * how well the cache is working for a batch.
+ * </p>
+ * @author jmjones
+ */
+public final class FFTPlanCache {
+    /**
+     * The maximum number of engines held in the cache
+     */
+    public static final int MAX_PLANS = 16;
+    private static final Map<Integer, FFTEngine> plans = 
+                    new LinkedHashMap<Integer, FFTEngine>(MAX_PLANS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<Integer, FFTEngine> eldest ) {
+            return size() > MAX_PLANS;
+        }
+    };
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    /**
+     * Default private constructor for the static methods
+     */
+    private FFTPlanCache() {
+    }
+    /**
+     * Gets the FFT engine for the given length, creating it if it isn't in
+     * the cache.  The engine is created outside the lock, so a thread making
+     * a long engine doesn't hold up threads using other lengths.
+     * @param length the transform length, which must be supported by FFTEngine
+     * @return the FFT engine
+     * @throws IllegalArgumentException if the length is not supported
+     */
+    public static FFTEngine getEngine( int length ) {
+        Integer key = length;
+        synchronized (plans) {
+            FFTEngine engine = plans.get(key);
+            if (engine != null) {
+                hits.incrementAndGet();
+                return engine;
+            }
+        }
+        misses.incrementAndGet();
+        FFTEngine engine = new FFTEngine(length);
+        synchronized (plans) {
+            FFTEngine other = plans.putIfAbsent(key, engine);
+            return (other == null) ? engine : other;
+        }
+    }
+    /**
+     * Getter for the number of requests found in the cache
+     * @return the number of cache hits
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+    /**
+     * Getter for the number of requests that created a new engine
+     * @return the number of cache misses
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+    /**
+     * Getter for the number of engines currently in the cache
+     * @return the number of cached engines
+     */
+    public static int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+    /**
+     * Empties the cache and resets the hit and miss counts
+     */
+    public static void clear() {
+        synchronized (plans) {
+            plans.clear();
+            hits.set(0);
+            misses.set(0);
+        }
+    }
+}
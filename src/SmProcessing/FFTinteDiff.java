@@ -23,8 +23,6 @@
  ******************************************************************************/
 package SmProcessing;
 
-import org.apache.commons.math3.complex.Complex;
-
 /**
 * <p>
  * The FFTintediff class provides algorithms for integration and differentiation
@@ -34,16 +32,26 @@ import org.apache.commons.math3.complex.Complex;
  * Based on matlab code written by Dr. Erol Kalkan, P.E. (ekalkan@usgs.gov)
  * </p>
  * <p>
- * The complex number operations use the apache commons math 
- * package.  http://commons.apache.org/proper/commons-math/
+ * The transforms use the real array FFT of the FFourierTransform class, which
+ * holds only the first half of the spectrum of a real array.
  * </p>
  * @author jmjones
  */
 public class FFTinteDiff {
     private final double OPS_EPSILON;
+    private final boolean fastlength;
     
     public FFTinteDiff() {
+        this(false);
+    }
+    /**
+     * Constructor with the padding length option for the transforms
+     * @param fastlength true to pad the arrays to the closest fast length
+     * instead of the closest power of 2, see FFourierTransform
+     */
+    public FFTinteDiff( boolean fastlength ) {
         OPS_EPSILON = 0.00001;
+        this.fastlength = fastlength;
     }
     /**
      * This method computes the integration of a discrete time-signal in the 
@@ -59,48 +67,119 @@ public class FFTinteDiff {
         if ((yarray == null) || (yarray.length == 0) || (Math.abs(dt - 0.0) < OPS_EPSILON)) {
             return new double[0];
         }
-        FFourierTransform fft = new FFourierTransform();
+        FFourierTransform fft = new FFourierTransform(fastlength);
+        V2Workspace work = V2Workspace.forThread();
         
-        // calculate the length of the time record and
-        // compute the shifted fft
-        Complex[] temp = fft.calculateFFTComplex( yarray );
-        Complex[] zarray = fft.shiftForward( temp );
+        // calculate the length of the time record and compute the fft.  Only
+        // the first half of the spectrum is computed, up to the Nyquist frequency,
+        // since the rest are the complex conjugates for a real array.  The
+        // spectrum and inverse arrays are scratch arrays from the workspace.
+        int zlen = fft.findPaddedLength( yarray.length );
+        double[] zreal = work.borrow( zlen / 2 + 1 );
+        double[] zimag = work.borrow( zlen / 2 + 1 );
+        fft.calculateFFTHalf( yarray, zreal, zimag );
         
-        int zlen = zarray.length;
         double timelen = dt * zlen;
         double df = 1.0 / timelen;
         double omega = 2.0 * Math.PI * df;
         
-        // compute frequency array iomega
-        double[] warray = new double[zlen];
-        for (int i=0;i < zlen; i++) {
-            warray[i] = omega * (i - (zlen/2));
-        }
-       // integrate in the frequency domain by dividing the spectrum by iomega
-       // First multiply by (0 + 1j). Result: (a + bj)(0 + 1j) = (b + aj)
-       // Then divide by scalar omega (b + aj) / w = ((b/w) + (a/w)j)
-       // Then take the conjugate of the result: ((b/w) + (a/w)j) -> ((b/w) - (a/w)j)
-        Complex[] znew = new Complex[zlen];
-        for (int k=0; k<zlen; k++) {
-            if (Double.compare(warray[k], 0.0 ) != 0) {
-                znew[k] = new Complex((zarray[k].getImaginary() / warray[k]),
-                                    ((-1.0) * zarray[k].getReal() / warray[k]));
-            } else {
-                znew[k] = new Complex(0.0,0.0);
-            }
-        }        
-        // shift again and compute the inverse fft, then removed extra pad
-        // lengths at the end if needed
-        temp = fft.shiftBack(znew);
-        double[] yptemp = fft.inverseFFTComplex(temp);
+        divideByIOmega(zreal, zimag, omega, zlen);
+        
+        // compute the inverse fft, then removed extra pad lengths at the end
+        // if needed
+        double[] yptemp = work.borrow( zlen );
+        fft.inverseFFTHalf(zreal, zimag, yptemp);
         double[] yp = new double[yarray.length];
         System.arraycopy(yptemp,0,yp,0,yarray.length);
+        work.release(yptemp);
+        work.release(zimag);
+        work.release(zreal);
         
         // Detrend the output array before returning        
         ArrayOps.removeLinearTrend(yp, dt);
         
         return yp;
     }
+    /**
+     * This method integrates a discrete time-signal twice in the frequency
+     * domain, returning both the first integral (velocity from acceleration)
+     * and the second (displacement from acceleration), from a single forward
+     * transform of the input array.  The second spectrum is computed by dividing
+     * the first by i / w again, rather than transforming the first integral,
+     * so only one forward and two inverse transforms are needed instead of the
+     * two forward and two inverse transforms of calling integrate twice.
+     * 
+     * The first integral is the same as from integrate.  The second integral
+     * is close to, but not the same as, calling integrate on the first.  That
+     * transforms the first integral after it is detrended and trimmed to the
+     * input length, while here the second integral comes from the untrimmed
+     * and undetrended first integral, which continues into the padding.  To
+     * bring the two close, the quadratic term of the integral of the first
+     * integral's linear trend is removed from the second integral before its
+     * own linear trend is removed.  The difference is usually far below the
+     * precision of the output products, but processing that needs the same
+     * results as integrate should call it twice instead.
+     * @param yarray array to be integrated
+     * @param dt the time step in seconds (sampling interval)
+     * @return array of [first integral, second integral], each the length of
+     * the input array, or an array of 0 length if input parameters are invalid
+     */
+    public double[][] integrateTwice( double[] yarray, double dt) {
+        if ((yarray == null) || (yarray.length == 0) || (Math.abs(dt - 0.0) < OPS_EPSILON)) {
+            return new double[0][];
+        }
+        FFourierTransform fft = new FFourierTransform(fastlength);
+        V2Workspace work = V2Workspace.forThread();
+        
+        // compute the first half of the spectrum once and make a copy for the
+        // second integral before the first is computed in place.  The spectrum
+        // and inverse arrays are scratch arrays from the workspace.
+        int zlen = fft.findPaddedLength( yarray.length );
+        int halflen = zlen / 2 + 1;
+        double[] vreal = work.borrow( halflen );
+        double[] vimag = work.borrow( halflen );
+        fft.calculateFFTHalf( yarray, vreal, vimag );
+        
+        double timelen = dt * zlen;
+        double df = 1.0 / timelen;
+        double omega = 2.0 * Math.PI * df;
+        
+        divideByIOmega(vreal, vimag, omega, zlen);
+        double[] dreal = work.borrow( halflen );
+        double[] dimag = work.borrow( halflen );
+        System.arraycopy(vreal, 0, dreal, 0, halflen);
+        System.arraycopy(vimag, 0, dimag, 0, halflen);
+        divideByIOmega(dreal, dimag, omega, zlen);
+        
+        // compute the inverse ffts and remove the extra pad lengths at the end
+        int len = yarray.length;
+        double[] vel = new double[len];
+        double[] dis = new double[len];
+        double[] temp = work.borrow( zlen );
+        fft.inverseFFTHalf(vreal, vimag, temp);
+        System.arraycopy(temp, 0, vel, 0, len);
+        fft.inverseFFTHalf(dreal, dimag, temp);
+        System.arraycopy(temp, 0, dis, 0, len);
+        work.release(temp);
+        work.release(dimag);
+        work.release(dreal);
+        work.release(vimag);
+        work.release(vreal);
+        
+        // detrend the first integral, then remove the quadratic term of the
+        // integral of that trend from the second integral before detrending it
+        double[] trend = ArrayOps.findLinearTrend(vel, dt);
+        double slope = (len > 1) ? (trend[1] - trend[0]) / dt : 0.0;
+        double time;
+        for (int i = 0; i < len; i++) {
+            time = i * dt;
+            vel[i] = vel[i] - trend[i];
+            dis[i] = dis[i] - 0.5 * slope * time * time;
+        }
+        ArrayOps.removeLinearTrend(dis, dt);
+        
+        return new double[][]{vel, dis};
+    }
     /**
      * NOTE: This method is available but not currently in use in prism.
      * The implementation uses the application of a half-cosine taper (window)
@@ -131,42 +210,78 @@ public class FFTinteDiff {
         }
         //window the input array
         ArrayOps.applyCosineTaper(yarray, taperlength, taperlength);
-        FFourierTransform fft = new FFourierTransform();
+        FFourierTransform fft = new FFourierTransform(fastlength);
         
-        // calculate the length of the time record and
-        // compute the shifted fft
-        Complex[] temp = fft.calculateFFTComplex( yarray );
-        Complex[] zarray = fft.shiftForward( temp );
+        // calculate the length of the time record and compute the first half
+        // of the fft
+        double[][] spectrum = fft.calculateFFTHalf( yarray );
+        double[] zreal = spectrum[0];
+        double[] zimag = spectrum[1];
 
-        int zlen = zarray.length;
+        int zlen = fft.getPowerLength();
         double timelen = dt * zlen;
         double df = 1.0 / timelen;
         double omega = 2.0 * Math.PI * df;
         
-        // compute frequency array iomega
-        double[] warray = new double[zlen];
-        for (int i=0;i < zlen; i++) {
-            warray[i] = omega * (i - (zlen/2));
-        }
-        
        // Differentiate in the frequency domain by multiplying the spectrum by iomega
        // First multiply by (0 - 1j). Result: (a + bj)(0 + 1j) = (-b - aj)
        // Then multiply by scalar omega (b + aj) * w = ((-b*w) + (-a*w)j)
        // Then get the conjugate of the complex number: (a + bj) -> (a - bj)
-        Complex[] znew = new Complex[zlen];
-        for (int k=0; k<zlen; k++) {
-            znew[k] = new Complex(((-1.0) * zarray[k].getImaginary() * warray[k]),
-                                  (-1.0)*((-1.0) * zarray[k].getReal() * warray[k]));
+        double w;
+        double real;
+        for (int k=0; k<zreal.length; k++) {
+            w = frequency(omega, k, zlen);
+            real = zreal[k];
+            zreal[k] = (-1.0) * zimag[k] * w;
+            zimag[k] = (-1.0)*((-1.0) * real * w);
         }        
-        // shift again
-        temp = fft.shiftBack(znew);
-        
         // calculate the inverse fft and remove pads if necessary
-        double[] yptemp = fft.inverseFFTComplex(temp);
+        double[] yptemp = fft.inverseFFTHalf(zreal, zimag);
         double[] dy = new double[yarray.length];
         System.arraycopy(yptemp,0,dy,0,yarray.length);
         
         return dy;
     }
-    
+    /**
+     * Integrates the first half of a spectrum in place by dividing it by iomega.
+     * The zero frequency value is set to 0.
+     * @param zreal the real parts of the spectrum
+     * @param zimag the imaginary parts of the spectrum
+     * @param omega the frequency step, in radians/sec
+     * @param zlen the length of the full spectrum
+     */
+    private void divideByIOmega( double[] zreal, double[] zimag, double omega, int zlen ) {
+       // integrate in the frequency domain by dividing the spectrum by iomega
+       // First multiply by (0 + 1j). Result: (a + bj)(0 + 1j) = (b + aj)
+       // Then divide by scalar omega (b + aj) / w = ((b/w) + (a/w)j)
+       // Then take the conjugate of the result: ((b/w) + (a/w)j) -> ((b/w) - (a/w)j)
+        double w;
+        double real;
+        for (int k=0; k<zreal.length; k++) {
+            w = frequency(omega, k, zlen);
+            if (Double.compare(w, 0.0 ) != 0) {
+                real = zreal[k];
+                zreal[k] = zimag[k] / w;
+                zimag[k] = (-1.0) * real / w;
+            } else {
+                zreal[k] = 0.0;
+                zimag[k] = 0.0;
+            }
+        }        
+    }
+    /**
+     * Gets the angular frequency for an index into the unshifted spectrum.
+     * The first half of the spectrum holds the positive frequencies and the
+     * second half the negative frequencies, with the Nyquist frequency taken
+     * as negative, the same as indexing the frequency array of the spectrum
+     * shifted to put the zero frequency at the center.
+     * @param omega the frequency step, in radians/sec
+     * @param index the index into the spectrum
+     * @param length the spectrum length
+     * @return the angular frequency
+     */
+    private double frequency( double omega, int index, int length ) {
+        int half = length / 2;
+        return (index < half) ? omega * index : omega * (index - length);
+    }
 }
@@ -24,50 +24,67 @@
 
 package SmProcessing;
 
-import java.util.Arrays;
 import org.apache.commons.math3.complex.Complex;
-import org.apache.commons.math3.transform.DftNormalization;
-import org.apache.commons.math3.transform.FastFourierTransformer;
-import org.apache.commons.math3.transform.TransformType;
 
 /**
- * This class calculates the FFT of an array using the Apache Commons Math 
- * package and returns the result as magnitudes (square root of the squares of
- * the real and imaginary parts).  It first pads the array to the next closest
- * power-of-2 length before calculating the FFT.
+ * This class calculates the FFT of an array and returns the result as magnitudes
+ * (square root of the squares of the real and imaginary parts), or as the
+ * complex spectrum.  It first pads the array to the next closest power-of-2
+ * length before calculating the FFT.  The transforms are done by the FFTEngine
+ * on arrays of doubles, with the real and imaginary parts of a spectrum held in
+ * separate arrays, returned as a 2-d array of [real parts, imaginary parts].
+ * The methods using arrays of Complex are kept for callers that need them, and
+ * convert to and from the double arrays.
+ * <p>
+ * With the fast length option, the methods for the first half of the spectrum
+ * of a real array, which are used for integration, differentiation and the
+ * Fourier amplitude spectra, pad the array instead to the closest even length
+ * with no prime factors other than 2, 3, 5 and 7.  This is usually much closer
+ * to the array length than the next power of 2, so the transforms take less
+ * memory and time, but the spectrum has a different frequency step.  The full
+ * spectrum methods used by resampling and decimation always use the power of
+ * 2 length.
+ * </p>
  * @author jmjones
  */
 public class FFourierTransform {
     private int powerlength;
     private int fftlen;
     private int cpowerlength;
+    private final boolean fastlength;
     /**
-     * Constructor just initializes variables.
+     * Constructor just initializes variables, padding arrays to a power of 2
+     * length.
      */
     public FFourierTransform() {
+        this(false);
+    }
+    /**
+     * Constructor initializes variables and sets the padding length option
+     * @param fastlength true to pad the arrays for the first half of the
+     * spectrum to the closest fast length instead of the closest power of 2
+     */
+    public FFourierTransform( boolean fastlength ) {
         this.powerlength = 0;
         this.fftlen = 0;
         this.cpowerlength = 0;
+        this.fastlength = fastlength;
     }
     /**
      * Performs the FFT calculations by padding the input array AT THE END to the closest
-     * power of 2 gt or eq to the current length, calling the FFT transform method,
-     * extracting only the first half of the complex array returned and converting
+     * power of 2 (or fast length) gt or eq to the current length, calculating the transform,
+     * keeping only the first half of the spectrum and converting
      * these values to magnitudes.
      * @param array input array for calculating the transform
      * @return the magnitudes of the transformed array
      */
     public double[] calculateFFT( double[] array ) {
-        double[] arrpad = padArrayAtEnd( array );
-         
-        FastFourierTransformer fft = new FastFourierTransformer( DftNormalization.STANDARD);
-        Complex[] transfreq = fft.transform(arrpad, TransformType.FORWARD);
-
-        fftlen = (powerlength / 2) + 1;
+        double[][] spectrum = calculateFFTHalf( array );
+        double[] re = spectrum[0];
+        double[] im = spectrum[1];
         double[] mags = new double[fftlen];
         for (int i = 0; i < fftlen; i++) {
-            mags[i]= Math.sqrt(Math.pow(transfreq[i].getReal(),2) + 
-                                    Math.pow(transfreq[i].getImaginary(),2));
+            mags[i]= Math.sqrt(re[i] * re[i] + im[i] * im[i]);
         }
         return mags;
     }
@@ -86,31 +103,150 @@ public class FFourierTransform {
             mags[i] = mags[i] / original_length;
         }
     }
+    /**
+     * Calculates the first half of the spectrum of the input array, padded AT
+     * THE END to the closest power of 2 (or fast length) gt or eq to the current
+     * length.  The spectrum holds the padded length / 2 + 1 values, from 0 frequency to
+     * the Nyquist frequency, since the rest of the spectrum of a real array
+     * are the complex conjugates of these.
+     * @param array input array for calculating the transform
+     * @return the spectrum as [real parts, imaginary parts]
+     */
+    public double[][] calculateFFTHalf( double[] array ) {
+        powerlength = findPaddedLength( array.length);
+        fftlen = (powerlength / 2) + 1;
+        double[] re = new double[fftlen];
+        double[] im = new double[fftlen];
+        getEngine(powerlength).realForward(array, 0, re, im);
+        return new double[][]{re, im};
+    }
+    /**
+     * Calculates the first half of the spectrum of the input array, padded AT
+     * THE END to the closest power of 2 (or fast length) gt or eq to the current
+     * length, into arrays supplied by the caller.  This lets a caller that
+     * transforms many arrays of the same length reuse its arrays.
+     * @param array input array for calculating the transform
+     * @param re array to hold the real parts, at least padded length / 2 + 1
+     * @param im array to hold the imaginary parts, at least padded length / 2 + 1
+     */
+    public void calculateFFTHalf( double[] array, double[] re, double[] im ) {
+        powerlength = findPaddedLength( array.length);
+        fftlen = (powerlength / 2) + 1;
+        getEngine(powerlength).realForward(array, 0, re, im);
+    }
+    /**
+     * Calculates the full spectrum of the input array, padded AT THE START to
+     * the closest power of 2 gt or eq to the current length.
+     * @param array input array for calculating the transform
+     * @return the spectrum as [real parts, imaginary parts]
+     */
+    public double[][] calculateFFTSplitFront( double[] array ) {
+        powerlength = findPower2Length( array.length);
+        return calculateFullSpectrum( array, (powerlength - array.length));
+    }
+    /**
+     * Calculates the full spectrum of the input array, padded AT THE END to
+     * the closest power of 2 gt or eq to the current length.
+     * @param array input array for calculating the transform
+     * @return the spectrum as [real parts, imaginary parts]
+     */
+    public double[][] calculateFFTSplit( double[] array ) {
+        powerlength = findPower2Length( array.length);
+        return calculateFullSpectrum( array, 0);
+    }
+    /**
+     * Calculates the full spectrum of the array, padded to the power of 2 length
+     * with the array values starting at the given offset.  The first half of the
+     * spectrum is calculated and the second half filled in with the complex
+     * conjugates.
+     * @param array input array for calculating the transform
+     * @param offset the location of the first array value in the padded array
+     * @return the spectrum as [real parts, imaginary parts]
+     */
+    private double[][] calculateFullSpectrum( double[] array, int offset ) {
+        int len = powerlength;
+        double[] re = new double[len];
+        double[] im = new double[len];
+        getEngine(len).realForward(array, offset, re, im);
+        for (int k = 1; k < len / 2; k++) {
+            re[len - k] = re[k];
+            im[len - k] = -im[k];
+        }
+        return new double[][]{re, im};
+    }
     /**
      * Performs the FFT calculations by padding the input array AT THE END to the closest
-     * power of 2 gt or eq to the current length, calling the FFT transform method,
+     * power of 2 gt or eq to the current length, calculating the transform,
      * and returning the complex array.
      * @param array input array for calculating the transform
      * @return the transformed array
      */
     public Complex[] calculateFFTComplex( double[] array ) {
-        double[] arrpad = padArrayAtEnd( array );
-        FastFourierTransformer fft = new FastFourierTransformer( DftNormalization.STANDARD);
-        Complex[] transfreq = fft.transform(arrpad, TransformType.FORWARD);
-        return transfreq;
+        return toComplex( calculateFFTSplit( array ));
     }
     /**
      * Performs the FFT calculations by padding the input array AT THE START to the closest
-     * power of 2 gt or eq to the current length, calling the FFT transform method,
+     * power of 2 gt or eq to the current length, calculating the transform,
      * and returning the complex array.
      * @param array input array for calculating the transform
      * @return the transformed array
      */
     public Complex[] calculateFFTComplexFront( double[] array ) {
-        double[] arrpad = padArrayAtStart( array );
-        FastFourierTransformer fft = new FastFourierTransformer( DftNormalization.STANDARD);
-        Complex[] transfreq = fft.transform(arrpad, TransformType.FORWARD);
-        return transfreq;
+        return toComplex( calculateFFTSplitFront( array ));
+    }
+    /**
+     * Calculates the inverse FFT of the first half of the spectrum of a real
+     * array, as returned by calculateFFTHalf, and returns the real array.  The
+     * length of the output array is 2 * (re.length - 1), which must be a power
+     * of 2 or a fast length.  The input arrays are used as work space and are overwritten.
+     * @param re the real parts of the spectrum
+     * @param im the imaginary parts of the spectrum
+     * @return the real array of the inverse transform
+     */
+    public double[] inverseFFTHalf( double[] re, double[] im ) {
+        int len = Math.max(2 * (re.length - 1), 1);
+        double[] realvals = new double[len];
+        getEngine(len).realInverse(re, im, realvals);
+        return realvals;
+    }
+    /**
+     * Calculates the inverse FFT of the first half of the spectrum of a real
+     * array into an array supplied by the caller.  See inverseFFTHalf.
+     * @param re the real parts of the spectrum
+     * @param im the imaginary parts of the spectrum
+     * @param out the array for the real array of the inverse transform, at
+     * least 2 * (re.length - 1) long
+     */
+    public void inverseFFTHalf( double[] re, double[] im, double[] out ) {
+        int len = Math.max(2 * (re.length - 1), 1);
+        getEngine(len).realInverse(re, im, out);
+    }
+    /**
+     * Calculates the inverse FFT on an input complex spectrum (first padding if
+     * needed with complex zeros at the END of the array) and returns an array
+     * of doubles containing only the real component of the iFFT result.  If no
+     * padding is needed the input arrays are used as work space and are
+     * overwritten.
+     * @param re the real parts of the spectrum
+     * @param im the imaginary parts of the spectrum
+     * @return an array containing the real components of the iFFT result
+     */
+    public double[] inverseFFTSplit( double[] re, double[] im ) {
+        cpowerlength = findPower2Length( re.length);
+        double[] padre = re;
+        double[] padim = im;
+        if (cpowerlength != re.length) {
+            padre = new double[cpowerlength];
+            padim = new double[cpowerlength];
+            System.arraycopy(re, 0, padre, 0, re.length);
+            System.arraycopy(im, 0, padim, 0, im.length);
+        }
+        getEngine(cpowerlength).transform(padre, padim, true);
+        double scale = 1.0 / cpowerlength;
+        for (int i = 0; i < cpowerlength; i++) {
+            padre[i] = padre[i] * scale;
+        }
+        return padre;
     }
     /**
      * Calculates the inverse FFT on an input complex array (first padding if
@@ -120,67 +256,62 @@ public class FFourierTransform {
      * @return an array containing the real components of the iFFT result
      */
     public double[] inverseFFTComplex( Complex[] transfreq ) {
-        Complex[] transpad = padArrayComplexAtEnd( transfreq );
-        double[] realvals;
-        FastFourierTransformer fft = new FastFourierTransformer( DftNormalization.STANDARD);
-        Complex[] invvals = fft.transform(transpad, TransformType.INVERSE);
-        realvals = new double[invvals.length];
-        for (int i = 0; i < invvals.length; i++) {
-            realvals[i] = invvals[i].getReal();
+        int len = transfreq.length;
+        double[] re = new double[len];
+        double[] im = new double[len];
+        for (int i = 0; i < len; i++) {
+            re[i] = transfreq[i].getReal();
+            im[i] = transfreq[i].getImaginary();
         }
-        return realvals;
+        return inverseFFTSplit( re, im );
     }
     /**
-     * pads the incoming array with zeros to the nearest power of 2 length, pads
-     * are added at the end
-     * @param array the input array
-     * @return the padded real array
+     * Converts a spectrum held as [real parts, imaginary parts] to an array
+     * of complex values
+     * @param spectrum the spectrum
+     * @return the complex array
      */
-    private double[] padArrayAtEnd( double[] array ) {
-        powerlength = findPower2Length( array.length);
-        if (array.length != powerlength) {
-            double[] arrpad = new double[powerlength];
-            Arrays.fill(arrpad, 0.0);
-            System.arraycopy(array, 0, arrpad, 0, array.length);
-            return arrpad;
-        } else {
-            return array;
+    private Complex[] toComplex( double[][] spectrum ) {
+        double[] re = spectrum[0];
+        double[] im = spectrum[1];
+        Complex[] transfreq = new Complex[re.length];
+        for (int i = 0; i < re.length; i++) {
+            transfreq[i] = new Complex(re[i], im[i]);
         }
+        return transfreq;
     }
     /**
-     * pads the incoming array with zeros to the nearest power of 2 length, pads
-     * are added at the start
-     * @param array the input array
-     * @return the padded real array
+     * Gets the FFT engine for the given length from the shared plan cache
+     * @param length the transform length
+     * @return the FFT engine
      */
-    private double[] padArrayAtStart( double[] array ) {
-        powerlength = findPower2Length( array.length);
-        int inlen = array.length;
-        if (inlen != powerlength) {
-            double[] arrpad = new double[powerlength];
-            Arrays.fill(arrpad, 0.0);
-            System.arraycopy(array, 0, arrpad, (powerlength-inlen), inlen);
-            return arrpad;
-        } else {
-            return array;
-        }
+    private FFTEngine getEngine( int length ) {
+        return FFTPlanCache.getEngine( length );
     }
     /**
-     * pads the incoming array with zeros to the nearest power of 2 length, pads
-     * are added at the end
-     * @param array the input array
-     * @return the padded real array
-     */
-    private Complex[] padArrayComplexAtEnd( Complex[] carray ) {
-        cpowerlength = findPower2Length( carray.length);
-        if (cpowerlength != carray.length) {
-            Complex[] arrpad = new Complex[cpowerlength];
-            Arrays.fill(arrpad, Complex.ZERO);
-            System.arraycopy(carray, 0, arrpad, 0, carray.length);
-            return arrpad;
-        } else {
-            return carray;
+     * Finds the padded length for the first half spectrum methods, which is
+     * the closest fast length if the fast length option is set, and otherwise
+     * the closest power of 2.  The first half of the spectrum has length
+     * padded length / 2 + 1.
+     * @param length the length of the input array
+     * @return the padded length
+     */
+    public int findPaddedLength( int length ) {
+        return (fastlength) ? nextFastLength( length ) : findPower2Length( length );
+    }
+    /**
+     * Finds the nearest even length that is greater than or equal to the input
+     * value and has no prime factors other than 2, 3, 5 and 7.  The FFTEngine
+     * transforms arrays of this length almost as quickly as a power of 2 length.
+     * @param length the length of the input array
+     * @return the nearest fast length
+     */
+    public int nextFastLength( int length ) {
+        int fastlen = (length > 2) ? length + (length % 2) : 2;
+        while (!FFTEngine.isSupportedLength(fastlen)) {
+            fastlen += 2;
         }
+        return fastlen;
     }
     /**
      * finds the nearest power of 2 that is greater than or equal to the input value
@@ -211,6 +342,20 @@ public class FFourierTransform {
         System.arraycopy(inarray, half, shift, 0, (inlen-half));
         return shift;
     }
+    /**
+     * shifts the zero frequency to the center of the array, for one of the
+     * real or imaginary parts of a spectrum
+     * @param inarray input array to shift
+     * @return shifted array
+     */
+    public double[] shiftForward( double[] inarray ) {
+        int inlen = inarray.length;
+        int half = (inlen % 2 == 0) ? inlen / 2 : inlen / 2 + 1;
+        double[] shift = new double[inlen];
+        System.arraycopy(inarray, 0, shift, (inlen-half), half);
+        System.arraycopy(inarray, half, shift, 0, (inlen-half));
+        return shift;
+    }
     /**
      * inverse of shiftforward, returning the zero frequency to the start
      * of the array
@@ -226,8 +371,23 @@ public class FFourierTransform {
         return reverse;
     }
     /**
-     * Getter for the calculated power of 2 length
-     * @return the power of 2 length
+     * inverse of shiftforward, returning the zero frequency to the start
+     * of the array, for one of the real or imaginary parts of a spectrum
+     * @param inarray shifted array to reset
+     * @return un-shifted array
+     */
+    public double[] shiftBack( double[] inarray ) {
+        int inlen = inarray.length;
+        int half = inlen / 2;
+        double[] reverse = new double[inlen];
+        System.arraycopy(inarray, 0, reverse, (inlen-half), half);
+        System.arraycopy(inarray, half, reverse, 0, (inlen-half));        
+        return reverse;
+    }
+    /**
+     * Getter for the calculated padded length, which is a power of 2 unless
+     * the fast length option is set
+     * @return the padded length
      */
     public int getPowerLength() {
         return powerlength;
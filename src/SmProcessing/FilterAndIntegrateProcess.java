@@ -44,6 +44,8 @@ public class FilterAndIntegrateProcess {
     private double initialVel;
     private double initialDis;
     private boolean usefftforint;
+    private final boolean fastlength;
+    private final boolean singlefft;
     /**
      * Constructor simply initializes filter variables
      * @param lowcut filter low cutoff frequency
@@ -55,12 +57,49 @@ public class FilterAndIntegrateProcess {
      */
     public FilterAndIntegrateProcess( double lowcut, double highcut, int numroll,
                                 double tapertime, int startInd, boolean fftint) {
+        this(lowcut, highcut, numroll, tapertime, startInd, fftint, false);
+    }
+    /**
+     * Constructor initializes filter variables and the padding length option
+     * for frequency-based integration
+     * @param lowcut filter low cutoff frequency
+     * @param highcut filter high cutoff frequency
+     * @param numroll the filter roll off, which is 1/2 the filter order
+     * @param tapertime the taper length value from the configuration file
+     * @param startInd the array index for the start of the event
+     * @param fftint flag for frequency-based integration
+     * @param fastlen flag to pad to the closest fast length instead of the
+     * closest power of 2 for frequency-based integration
+     */
+    public FilterAndIntegrateProcess( double lowcut, double highcut, int numroll,
+                double tapertime, int startInd, boolean fftint, boolean fastlen) {
+        this(lowcut, highcut, numroll, tapertime, startInd, fftint, fastlen, false);
+    }
+    /**
+     * Constructor initializes filter variables, the padding length option
+     * and the single transform option for frequency-based integration
+     * @param lowcut filter low cutoff frequency
+     * @param highcut filter high cutoff frequency
+     * @param numroll the filter roll off, which is 1/2 the filter order
+     * @param tapertime the taper length value from the configuration file
+     * @param startInd the array index for the start of the event
+     * @param fftint flag for frequency-based integration
+     * @param fastlen flag to pad to the closest fast length instead of the
+     * closest power of 2 for frequency-based integration
+     * @param singlefft flag to find the velocity and displacement from one
+     * transform of the acceleration, see FFTinteDiff.integrateTwice
+     */
+    public FilterAndIntegrateProcess( double lowcut, double highcut, int numroll,
+                double tapertime, int startInd, boolean fftint, boolean fastlen,
+                                                            boolean singlefft) {
         this.lowcut = lowcut;
         this.highcut = highcut;
         this.numroll = numroll;
         this.taperlength = tapertime;
         this.startIndex = startInd;
         this.usefftforint = fftint;
+        this.fastlength = fastlen;
+        this.singlefft = singlefft;
     }
     /**
      * 
@@ -82,22 +121,72 @@ public class FilterAndIntegrateProcess {
         config_taper = filter.getEndTaperlength();
         //The acceleration array was updated with the filtered values in the 
         //applyFilter call
+        integratePadded(accel.length, filter.getPadLength(), dtime);
+    }
+    /**
+     * Filters several acceleration arrays of the same length together with
+     * the batch ButterworthFilter applyFilter, then integrates each one to
+     * velocity and displacement.  The results are the same as calling
+     * filterAndIntegrate on each array with its own FilterAndIntegrateProcess.
+     * @param accels the arrays to filter, which are modified during processing,
+     * with the final arrays containing the filtered acceleration values
+     * @param dtime the sample time interval (seconds/sample) for the record
+     * @return one FilterAndIntegrateProcess for each array, holding its results
+     * for the getters, in the same order as the input arrays
+     * @throws SmException if unable to calculate valid filter parameters
+     */
+    public FilterAndIntegrateProcess[] filterAndIntegrate( double[][] accels, 
+                                            double dtime) throws SmException {
+        ButterworthFilter filter = new ButterworthFilter();
+        boolean valid = filter.calculateCoefficients(lowcut, highcut, 
+                                                            dtime, numroll, true);
+        if (!valid) {
+            throw new SmException("Invalid bandpass filter calculated parameters");
+        }
+        double[][] padded = filter.applyFilter(accels, taperlength, startIndex);
+        double[] tapers = filter.getBatchTaperlengths();
+        FilterAndIntegrateProcess[] results = new FilterAndIntegrateProcess[accels.length];
+        for (int i = 0; i < accels.length; i++) {
+            FilterAndIntegrateProcess each = new FilterAndIntegrateProcess(lowcut,
+                            highcut, numroll, taperlength, startIndex, usefftforint,
+                                                            fastlength, singlefft);
+            each.paddedaccel = padded[i];
+            each.calculated_taper = tapers[i];
+            each.config_taper = filter.getEndTaperlength();
+            each.integratePadded(accels[i].length, filter.getPadLength(), dtime);
+            results[i] = each;
+        }
+        return results;
+    }
+    /**
+     * Integrates the padded filtered acceleration to velocity and displacement,
+     * then removes the pads and records the initial values.
+     * @param length the length of the acceleration array without the pads
+     * @param padlength the length of the pad at the start of the array
+     * @param dtime the sample time interval (seconds/sample) for the record
+     */
+    private void integratePadded( int length, int padlength, double dtime ) {
         double[] paddedvelocity;
         double[] paddeddisplace;
-        velocity = new double[accel.length];
-        displace = new double[accel.length];
+        velocity = new double[length];
+        displace = new double[length];
         
         // Integrate padded acceleration to velocity and displacement and unpad
-        if (usefftforint) {
-            FFTinteDiff fftid = new FFTinteDiff();
+        if (usefftforint && singlefft) {
+            FFTinteDiff fftid = new FFTinteDiff(fastlength);
+            double[][] integrals = fftid.integrateTwice( paddedaccel, dtime);
+            paddedvelocity = integrals[0];
+            paddeddisplace = integrals[1];
+        } else if (usefftforint) {
+            FFTinteDiff fftid = new FFTinteDiff(fastlength);
             paddedvelocity = fftid.integrate( paddedaccel, dtime);
             paddeddisplace = fftid.integrate( paddedvelocity, dtime);
         } else {
             paddedvelocity = ArrayOps.integrate( paddedaccel, dtime,0.0);
             paddeddisplace = ArrayOps.integrate( paddedvelocity, dtime,0.0);
         }
-        System.arraycopy(paddedvelocity, filter.getPadLength(), velocity, 0, velocity.length);
-        System.arraycopy(paddeddisplace, filter.getPadLength(), displace, 0, displace.length);
+        System.arraycopy(paddedvelocity, padlength, velocity, 0, length);
+        System.arraycopy(paddeddisplace, padlength, displace, 0, length);
         initialVel = velocity[0];
         initialDis = displace[0];
     }
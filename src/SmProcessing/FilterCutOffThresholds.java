@@ -30,6 +30,7 @@ import static SmConstants.VFileConstants.MagnitudeType.M_LOCAL;
 import static SmConstants.VFileConstants.MagnitudeType.M_OTHER;
 import static SmConstants.VFileConstants.MagnitudeType.SURFACE;
 import SmUtilities.FilterCornerReader;
+import SmUtilities.ProcessingContext;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -82,15 +83,27 @@ public class FilterCutOffThresholds {
     private final double mid = 3.5;
     private final double high = 5.5;
     private final double lowsamp = 50;
+    private final ProcessingContext context;
 /**
  * Constructor just initializes values.  The sample rate is used during the magnitude
  * approach to screen for an appropriate sample rate for the given EQ magnitude.
  * For the frequency approach, it is used for creation of an array of frequency values.
+ * Station filter corners are looked up in the FilterCornerReader.
  */
     public FilterCutOffThresholds() {
+        this(null);
+    }
+/**
+ * Constructor for use during processing, station filter corners are looked up
+ * in the corner table snapshot of the processing context.
+ * @param context the processing context for the run, or null to use the
+ * FilterCornerReader
+ */
+    public FilterCutOffThresholds( ProcessingContext context ) {
         this.magnitude = 0.0;
         this.f1 = 0.0;
         this.f2 = 0.0;
+        this.context = context;
     }
     /**
      * Determines the high and low filter cutoff thresholds to use based on
@@ -145,9 +158,13 @@ public class FilterCutOffThresholds {
      * @return true if the sncl code is in the table and false if not
      */
     public boolean CheckForTableCorners( String sncl ) {
-        FilterCornerReader corners = FilterCornerReader.INSTANCE;
-        if ((!corners.isEmpty()) && (corners.containsKey(sncl))) {
-            double[] cornervalues = corners.getCornerValues(sncl);
+        double[] cornervalues;
+        if (context != null) {
+            cornervalues = context.getCornerValues(sncl);
+        } else {
+            cornervalues = FilterCornerReader.INSTANCE.getCornerValues(sncl);
+        }
+        if (cornervalues.length > 0) {
             f1 = cornervalues[0];
             f2 = cornervalues[1];
             return true;
@@ -215,7 +232,9 @@ public class FilterCutOffThresholds {
         }
         double dt = 1.0 / current_samprate;
         double nyquist = 0.5 * orig_samprate;
-        FFourierTransform fft = new FFourierTransform();
+        boolean fastlength = (context != null) && 
+                                    context.getPrismConfig().getFFTFastLength();
+        FFourierTransform fft = new FFourierTransform(fastlength);
         
         // get the pre-event subset of the acceleration array, calculate the
         // frequency spectrum and smooth it
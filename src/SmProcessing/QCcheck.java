@@ -24,13 +24,9 @@
 
 package SmProcessing;
 
-import static SmConstants.VFileConstants.DEFAULT_QA_INITIAL_VELOCITY;
-import static SmConstants.VFileConstants.DEFAULT_QA_RESIDUAL_DISPLACE;
-import static SmConstants.VFileConstants.DEFAULT_QA_RESIDUAL_VELOCITY;
 import SmUtilities.ConfigReader;
-import static SmConstants.SmConfigConstants.QC_INITIAL_VELOCITY;
-import static SmConstants.SmConfigConstants.QC_RESIDUAL_DISPLACE;
-import static SmConstants.SmConfigConstants.QC_RESIDUAL_VELOCITY;
+import SmUtilities.PrismConfig;
+import SmUtilities.ProcessingContext;
 
 /**
  * This class handles the QC checks for velocity and displacement, using the
@@ -49,16 +45,28 @@ public class QCcheck {
     private double velstart;
     private double velend;
     private double disend;
+    private final ProcessingContext context;
     /**
-     * Default constructor
+     * Default constructor, the QC limits are read from the ConfigReader
      */
     public QCcheck() {
+        this(null);
+    }
+    /**
+     * Constructor for use during processing, the QC limits are read from the
+     * configuration snapshot in the processing context.
+     * @param context the processing context for the run, or null to use the
+     * ConfigReader
+     */
+    public QCcheck( ProcessingContext context ) {
         this.qcvelinit = -1.0;
         this.qcvelres = -1.0;
         this.qcdisres = -1.0;
+        this.context = context;
     }
     /**
-     * Retrieves the QC limits from the configuration file.  If no configuration
+     * Retrieves the QC limits from the configuration file, as converted into the
+     * typed PrismConfig.  If no configuration
      * file is found (or no entries for QC parameters found), then default values
      * are substituted.  If values are retrieved from the configuration file, but
      * they can't be converted to doubles, then this method returns 'false'.
@@ -66,23 +74,12 @@ public class QCcheck {
      * extract them from the configuration file.
      */
     public boolean validateQCvalues() {
-        ConfigReader config = ConfigReader.INSTANCE;
-        try {
-            String qainitvel = config.getConfigValue(QC_INITIAL_VELOCITY);
-            this.qcvelinit = (qainitvel == null) ? DEFAULT_QA_INITIAL_VELOCITY : 
-                                                    Double.parseDouble(qainitvel);
-
-            String qaendvel = config.getConfigValue(QC_RESIDUAL_VELOCITY);
-            this.qcvelres = (qaendvel == null) ? DEFAULT_QA_RESIDUAL_VELOCITY : 
-                                                    Double.parseDouble(qaendvel);
-
-            String qaenddis = config.getConfigValue(QC_RESIDUAL_DISPLACE);
-            this.qcdisres = (qaenddis == null) ? DEFAULT_QA_RESIDUAL_DISPLACE : 
-                                                    Double.parseDouble(qaenddis);
-        } catch (NumberFormatException err) {
-            return false;
-        }
-        return true;
+        PrismConfig config = (context == null) ? 
+                    ConfigReader.INSTANCE.getPrismConfig() : context.getPrismConfig();
+        this.qcvelinit = config.getQCInitialVelocity();
+        this.qcvelres = config.getQCResidualVelocity();
+        this.qcdisres = config.getQCResidualDisplace();
+        return config.getQCParamsValid();
     }
     /**
      * Finds the appropriate window length in the array to use for the QC check.
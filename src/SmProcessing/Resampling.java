@@ -24,8 +24,6 @@
 package SmProcessing;
 
 import SmException.SmException;
-import java.util.Arrays;
-import org.apache.commons.math3.complex.Complex;
 
 /**
  * The Resampling class re-samples records to a higher sampling rate as needed.
@@ -84,25 +82,28 @@ public class Resampling {
         padlen = ylen * (factor-1);
         int complexlen = fft.findPower2Length( padlen + fftpadlen);
         int padlenpower2 = complexlen - fftpadlen;
-        Complex[] zeroes = new Complex[padlenpower2];
-        Arrays.fill( zeroes, Complex.ZERO );
 
         //compute fft
-        Complex[] zarray = fft.calculateFFTComplexFront( yarray );
+        double[][] zarray = fft.calculateFFTSplitFront( yarray );
         
-        //construct a new Fourier spectrum by centering zeroes
-        Complex[] zp = new Complex[complexlen];
-        System.arraycopy(zarray, 0, zp, 0, zlen);
-        System.arraycopy(zeroes, 0, zp, zlen, padlenpower2);
-        System.arraycopy(zarray, zlen, zp, (zlen+padlenpower2), fftpadlen-zlen);
+        //construct a new Fourier spectrum by centering zeroes, the new
+        //arrays start out filled with zeroes
+        double[] zpreal = new double[complexlen];
+        double[] zpimag = new double[complexlen];
+        System.arraycopy(zarray[0], 0, zpreal, 0, zlen);
+        System.arraycopy(zarray[0], zlen, zpreal, (zlen+padlenpower2), fftpadlen-zlen);
+        System.arraycopy(zarray[1], 0, zpimag, 0, zlen);
+        System.arraycopy(zarray[1], zlen, zpimag, (zlen+padlenpower2), fftpadlen-zlen);
         
         //correct for Nyquist (number of data in input signal is always even)
-        zp[zlen-1] = zp[zlen-1].divide(2.0);
-        zp[zlen-1+padlen] = zp[zlen-1];
+        zpreal[zlen-1] = zpreal[zlen-1] / 2.0;
+        zpimag[zlen-1] = zpimag[zlen-1] / 2.0;
+        zpreal[zlen-1+padlen] = zpreal[zlen-1];
+        zpimag[zlen-1+padlen] = zpimag[zlen-1];
         
         //compute inverse FFT
         double[] yp = new double[newlen];
-        double[] ypfft = fft.inverseFFTComplex(zp);
+        double[] ypfft = fft.inverseFFTSplit(zpreal, zpimag);
         //amplitude correction
         int newstart = complexlen - newlen;
         for (int i = newstart; i < complexlen; i++) {
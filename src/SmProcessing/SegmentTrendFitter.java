@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Name: Java class SegmentTrendFitter.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmProcessing;
+
+import java.util.Arrays;
+
+/**
+ * This class fits polynomial trends to the end segment of an array, from a
+ * start index to the end of the array, for a series of start indexes.  It keeps
+ * running power sums over the current end segment, so moving the start index
+ * only adds or removes the samples between the old and new start instead of
+ * summing over the whole segment again.  The least-squares fit at each start
+ * is solved from the sums in the same scaled form used by
+ * ArrayOps.findPolynomialTrend, and the coefficients match that method to
+ * within rounding.
+ * <p>
+ * The sums are kept in terms of the distance back from the last sample, so
+ * they grow as the start index moves toward the front of the array.  Walking
+ * the start index from the end toward the front only adds to the sums, and is
+ * the most accurate order to use.  Moving the start index back toward the end
+ * subtracts the dropped samples, and once the segment is less than half as
+ * long as the longest segment summed, the sums are started over from the new
+ * segment so that the subtractions don't lose precision.
+ * </p>
+ * This class is not synchronized, each thread should use its own fitter.
+ * @author jmjones
+ */
+public class SegmentTrendFitter {
+    private final double[] array;
+    private final double timestep;
+    private final int maxdegree;
+    private final double unit;
+    private final double[] xsums;
+    private final double[] ysums;
+    private int start;
+    private int front;
+    /**
+     * Constructor for the fitter, which starts with an empty end segment.
+     * @param array the input array to fit, which is not modified or copied
+     * @param timestep sample interval
+     * @param maxdegree the highest polynomial degree that will be fit
+     */
+    public SegmentTrendFitter( double[] array, double timestep, int maxdegree ) {
+        this.array = array;
+        this.timestep = timestep;
+        this.maxdegree = maxdegree;
+        this.unit = Math.max(array.length - 1, 1);
+        this.xsums = new double[2*maxdegree + 1];
+        this.ysums = new double[maxdegree + 1];
+        this.start = array.length;
+        this.front = array.length;
+    }
+    /**
+     * Moves the start of the end segment to the given index, updating the
+     * running sums with the samples between the old and new start.
+     * @param index the new start index, from 0 to the array length
+     */
+    public void moveTo( int index ) {
+        if ((index < 0) || (index > array.length)) {
+            throw new IllegalArgumentException("Segment start " + index +
+                    " is outside the array of length " + array.length);
+        }
+        int len = array.length;
+        if (index < start) {
+            accumulate(index, start, 1.0);
+        } else if (2*(len - index) < (len - front)) {
+            Arrays.fill(xsums, 0.0);
+            Arrays.fill(ysums, 0.0);
+            accumulate(index, len, 1.0);
+            front = index;
+        } else if (index > start) {
+            accumulate(start, index, -1.0);
+        }
+        start = index;
+        front = Math.min(front, index);
+    }
+    /**
+     * Adds (sign 1) or removes (sign -1) the power sum terms for the samples
+     * in the given index range.
+     * @param from the first index of the range
+     * @param to one past the last index of the range
+     * @param sign 1.0 to add the samples, -1.0 to remove them
+     */
+    private void accumulate( int from, int to, double sign ) {
+        int last = array.length - 1;
+        double x;
+        double xpow;
+        for (int i = to - 1; i >= from; i--) {
+            x = (last - i) / unit;
+            xpow = sign;
+            for (int k = 0; k < xsums.length; k++) {
+                xsums[k] += xpow;
+                if (k < ysums.length) {
+                    ysums[k] += array[i] * xpow;
+                }
+                xpow *= x;
+            }
+        }
+    }
+    /**
+     * Getter for the current start index of the end segment
+     * @return the start index
+     */
+    public int getStart() {
+        return start;
+    }
+    /**
+     * Finds the polynomial trend of the given degree for the current end
+     * segment, from the start index to the end of the array.  Time 0 of the
+     * polynomial is at the start index.
+     * @param degree polynomial degree to calculate, from 1 to the maximum degree
+     * @return array of coefficients, or an empty array if the segment is
+     * empty or the degree is out of range
+     */
+    public double[] fit( int degree ) {
+        int len = array.length - start;
+        if ((len == 0) || (degree < 1) || (degree > maxdegree)) {
+            return new double[0];
+        }
+        if (len <= degree) {
+            return ArrayOps.findPolynomialTrend(
+                    Arrays.copyOfRange(array, start, array.length), degree, timestep);
+        }
+        //The scaled segment position is u = 1 - x*ratio, where x is the
+        //distance back from the last sample in units of the array length.
+        //Expand the powers of u to get its sums from the sums of x.
+        double halflen = (len - 1) / 2.0;
+        double ratio = unit / halflen;
+        double[] usums = new double[2*degree + 1];
+        double[] uysums = new double[degree + 1];
+        for (int k = 0; k < usums.length; k++) {
+            double binom = 1.0;
+            double scale = 1.0;
+            for (int j = 0; j <= k; j++) {
+                usums[k] += binom * scale * xsums[j];
+                if (k < uysums.length) {
+                    uysums[k] += binom * scale * ysums[j];
+                }
+                binom = binom * (k - j) / (j + 1);
+                scale *= -ratio;
+            }
+        }
+        return ArrayOps.polynomialFromSums(usums, uysums, degree, halflen, timestep);
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Name: Java class SharedPools.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmProcessing;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class holds the fork-join pools shared by the processing steps that
+ * divide their work among threads, such as the response spectra oscillators
+ * and the adaptive baseline correction candidates.  One pool is kept for each
+ * thread count requested and is created on first use.  The pool threads are
+ * daemon threads, so the pools don't need to be shut down.
+ * @author jmjones
+ */
+public final class SharedPools {
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> pools = 
+                                                    new ConcurrentHashMap<>();
+    /**
+     * Default private constructor for the static methods
+     */
+    private SharedPools() {
+    }
+    /**
+     * Gets the shared fork-join pool for the given number of threads
+     * @param threads the number of threads in the pool
+     * @return the pool
+     */
+    public static ForkJoinPool getPool( int threads ) {
+        return pools.computeIfAbsent(threads, ForkJoinPool::new);
+    }
+}
@@ -25,7 +25,6 @@
 package SmProcessing;
 
 import static SmConstants.VFileConstants.NUM_COEF_VALS;
-import static SmConstants.VFileConstants.NUM_T_PERIODS;
 import static SmConstants.VFileConstants.V3_DAMPING_VALUES;
 import static SmConstants.VFileConstants.V3_SAMPLING_RATES;
 import SmException.FormatException;
@@ -38,11 +37,13 @@ import java.util.ArrayList;
 /**
  * This class provides access to the coefficient tables for the different sampling
  * rates and damping values, as well as the file of periods, used during
- * processing of response spectra.
+ * processing of response spectra.  The tables are read in and parsed only once,
+ * the first time a SpectraResources object is created, and are then shared by
+ * all objects and threads.  The getter methods return copies of the shared
+ * values, so the tables can't be changed once loaded.
  * @author jmjones
  */
 public class SpectraResources {
-    private boolean initialized = false;
     private static final double EPSILON = 0.000001;
     private static final String periodFileName = "spectra/T_periods.txt";
     private static final String[] spectraFileNames = 
@@ -66,24 +67,50 @@ public class SpectraResources {
                                                 "spectra/CoefTable_500_0.05.txt",
                                                 "spectra/CoefTable_500_0.1.txt",
                                                 "spectra/CoefTable_500_0.2.txt" };
-    private String[] T_periods;
-    private String[][] coefs;
+    private final SpectraTables tables;
     /**
-     * The constructor checks to see if the files have been read in already.  If 
-     * so, it simply exits.  If not, it reads in the files and stores the contents
-     * internally for access through the getter methods.
+     * The constructor gets the shared tables, reading in and parsing the files
+     * if this is the first SpectraResources object created.
      * @throws IOException if unable to read in a file
      */
     public SpectraResources() throws IOException {
-        //Note that this is not considered thread-safe
-        if (!initialized) {
-            coefs = new String[spectraFileNames.length][NUM_T_PERIODS];
-            //Read in resource tables with periods and coefficients
-            T_periods = readInResource(periodFileName);
+        tables = SpectraTables.LOADED;
+        if (tables.readError != null) {
+            throw new IOException(tables.readError.getMessage(), tables.readError);
+        }
+    }
+    /**
+     * This private class holds the tables shared by all SpectraResources
+     * objects.  The tables are loaded when the class is first used, which the
+     * JVM does only once and safely across threads.  The text of each file is
+     * kept along with its parsed values.  A table that can't be parsed is left
+     * null, and the parse error is reported when that table is requested.
+     */
+    private static final class SpectraTables {
+        private static final SpectraTables LOADED = new SpectraTables();
+        private String[] periodsText;
+        private String[][] coefsText;
+        private double[] periods;
+        private double[][][] coefs;
+        private IOException readError;
+        
+        private SpectraTables() {
+            try {
+                coefsText = new String[spectraFileNames.length][];
+                //Read in resource tables with periods and coefficients
+                periodsText = readInResource(periodFileName);
+                for (int i = 0; i < spectraFileNames.length; i++) {
+                    coefsText[i] = readInResource( spectraFileNames[i]);
+                }
+            } catch (IOException err) {
+                readError = err;
+                return;
+            }
+            periods = parsePeriods(periodsText);
+            coefs = new double[spectraFileNames.length][][];
             for (int i = 0; i < spectraFileNames.length; i++) {
-                coefs[i] = readInResource( spectraFileNames[i]);
+                coefs[i] = parseCoefArray(coefsText[i], NUM_COEF_VALS);
             }
-            initialized = true;
         }
     }
     /**
@@ -92,10 +119,13 @@ public class SpectraResources {
      * @return data from the file as an array of strings
      * @throws IOException if unable to read a file
      */
-    private String[] readInResource( String inName ) throws IOException {
+    private static String[] readInResource( String inName ) throws IOException {
         InputStream stream = SpectraResources.class.getResourceAsStream(inName);
         String nextLine;
         
+        if (stream == null) {
+            throw new IOException("Unable to find spectra resource file " + inName);
+        }
         ArrayList<String> tempfile = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
             while ((nextLine = reader.readLine()) != null) {
@@ -108,22 +138,57 @@ public class SpectraResources {
         return outarray;
     }
     /**
-     * Getter for the periods at which spectra are computed.
-     * @return the 91 period values
-     * @throws FormatException if unable to parse the periods file
+     * This private method handles the conversion of the periods from text to
+     * double.
+     * @param array the periods as strings
+     * @return the periods as doubles, or null if unable to parse the periods
      */
-    public final double[] getTperiods() throws FormatException {
-        int len = T_periods.length;
+    private static double[] parsePeriods( String[] array ) {
+        int len = array.length;
         double[] tout = new double[len];
         try {
             for (int i = 0; i < len; i++) {
-                tout[i] = Double.parseDouble(T_periods[i]);
+                tout[i] = Double.parseDouble(array[i]);
             }
         } catch (NumberFormatException err) {
-            throw new FormatException("Unable to parse spectra periods file");
+            return null;
         }
         return tout;
     }
+    /**
+     * This private method handles the conversion of a coefficient array from
+     * text to double.
+     * @param array the coefficient array as strings
+     * @param cols the number of coefficient values
+     * @return the array of coefficients as doubles, or null if unable to parse
+     * the coefficients
+     */
+    private static double[][] parseCoefArray(String[] array, int cols ) {
+        double[][] outarray = new double[array.length][cols];
+        String[] vals;
+        try {
+            for (int i = 0; i < array.length; i++) {
+                vals = array[i].trim().split("\\s+");
+                for(int j = 0; j < cols; j++) {
+                    outarray[i][j] = Double.parseDouble(vals[j]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException err) {
+            return null;
+        }
+        return outarray;
+    }
+    /**
+     * Getter for the periods at which spectra are computed.
+     * @return the 91 period values
+     * @throws FormatException if unable to parse the periods file
+     */
+    public final double[] getTperiods() throws FormatException {
+        if (tables.periods == null) {
+            throw new FormatException("Unable to parse spectra periods file");
+        }
+        return tables.periods.clone();
+    }
     /**
      * Getter for the coefficient array identified by sample rate and damping
      * value
@@ -149,30 +214,14 @@ public class SpectraResources {
             }
         }
         index = (samp*len) + damp;
-        return reformatCoefArray(coefs[index],NUM_COEF_VALS);
-    }
-    /**
-     * This private method actually handles the conversion of the array from
-     * text to double.
-     * @param array the coefficient array as strings
-     * @param cols the number of coefficient values
-     * @return the array of coefficients as doubles
-     * @throws FormatException if unable to parse the coefficients
-     */
-    private double[][] reformatCoefArray(String[] array, int cols ) 
-                                                        throws FormatException {
-        double[][] outarray = new double[array.length][cols];
-        String[] vals;
-        try {
-            for (int i = 0; i < array.length; i++) {
-                vals = array[i].trim().split("\\s+");
-                for(int j = 0; j < cols; j++) {
-                    outarray[i][j] = Double.parseDouble(vals[j]);
-                }
-            }
-        } catch (NumberFormatException err) {
+        double[][] table = tables.coefs[index];
+        if (table == null) {
             throw new FormatException("Unable to parse spectra coefficients file");
         }
+        double[][] outarray = new double[table.length][];
+        for (int i = 0; i < table.length; i++) {
+            outarray[i] = table[i].clone();
+        }
         return outarray;
     }
     /**
@@ -180,13 +229,17 @@ public class SpectraResources {
      * @return the contents of the periods file
      */
     public final String[] getTPeriodsText() {
-        return T_periods;
+        return tables.periodsText.clone();
     }
     /**
      * Getter of the coefficient arrays as text, mainly for debug
      * @return the coefficients
      */
     public final String[][] getCoefsText() {
-        return coefs;
+        String[][] outarray = new String[tables.coefsText.length][];
+        for (int i = 0; i < tables.coefsText.length; i++) {
+            outarray[i] = tables.coefsText[i].clone();
+        }
+        return outarray;
     }
 }
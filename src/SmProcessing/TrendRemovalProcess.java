@@ -24,7 +24,6 @@
 package SmProcessing;
 
 import SmException.SmException;
-import java.util.Arrays;
 import org.apache.commons.math3.analysis.polynomials.PolynomialFunction;
 
 /**
@@ -40,14 +39,27 @@ public class TrendRemovalProcess {
     private double preEventMean;
     private int trendRemovalOrder;
     private final boolean usefftforint;
+    private final boolean fastlength;
     /**
      * Constructor simply initializes variables.
      * @param startInd the event start index
      * @param fftint flag for freq integration
      */
     public TrendRemovalProcess(int startInd, boolean fftint) {
+        this(startInd, fftint, false);
+    }
+    /**
+     * Constructor initializes variables and the padding length option for
+     * freq integration
+     * @param startInd the event start index
+     * @param fftint flag for freq integration
+     * @param fastlen flag to pad to the closest fast length instead of the
+     * closest power of 2 for freq integration
+     */
+    public TrendRemovalProcess(int startInd, boolean fftint, boolean fastlen) {
         this.startIndex = startInd;
         this.usefftforint = fftint;
+        this.fastlength = fastlen;
     }
     /**
      * Performs the trend removal steps of pre-event mean removal from acceleration,
@@ -61,11 +73,14 @@ public class TrendRemovalProcess {
      * @throws SmException if unable to remove differentiated trend from acceleration
      */
     public double[] removeTrends(double[] accel, double dtime) throws SmException {
-        FFTinteDiff fftid = new FFTinteDiff();
+        FFTinteDiff fftid = new FFTinteDiff(fastlength);
         if (startIndex > 0) {
-            double[] subset = Arrays.copyOfRange( accel, 0, startIndex );
+            V2Workspace work = V2Workspace.forThread();
+            double[] subset = work.borrow( startIndex );
+            System.arraycopy( accel, 0, subset, 0, startIndex );
             ArrayStats accsub = new ArrayStats( subset );
             preEventMean = accsub.getMean();
+            work.release( subset );
             ArrayOps.removeValue(accel, preEventMean);
         }
         //Integrate the acceleration to get velocity, using 0 as first value estimate
@@ -27,8 +27,8 @@ package SmProcessing;
 import COSMOSformat.V0Component;
 import static SmConstants.VFileConstants.*;
 import SmException.SmException;
-import SmUtilities.ConfigReader;
-import static SmConstants.SmConfigConstants.*;
+import SmUtilities.PrismConfig;
+import SmUtilities.ProcessingContext;
 import SmUtilities.CommentFormatter;
 
 /**
@@ -52,6 +52,7 @@ public class V1Process extends V1ProcessFormat {
     private final boolean despikeflag;
     private final int despikedevs;
     private final double dtime;
+    private final ProcessingContext context;
     
     /**
      * The extended constructor for V1Process retrieves the recorder LSB (least significant
@@ -64,12 +65,25 @@ public class V1Process extends V1ProcessFormat {
      * parameters
      */
     public V1Process(final V0Component v0rec) throws SmException {
+        this(v0rec, ProcessingContext.snapshot());
+    }
+    /**
+     * Constructor used during batch processing, with the configuration parameters
+     * taken from the processing context of the run.
+     * @param v0rec the reference to the parent V0 record
+     * @param context the processing context for the run
+     * @throws SmException if unable to acquire needed real header or configuration
+     * parameters
+     */
+    public V1Process(final V0Component v0rec, ProcessingContext context) 
+                                                            throws SmException {
         super();
+        this.context = context;
         double epsilon = 0.0001;
         double nodata = v0rec.getNoRealVal();
         this.inV0 = v0rec;
         this.commentUpdates = inV0.getComments();
-        ConfigReader config = ConfigReader.INSTANCE;
+        PrismConfig config = context.getPrismConfig();
         
         //extract needed values from the V0 record and check if defined
         this.lsb = v0rec.getRealHeaderValue(RECORER_LSB);
@@ -90,22 +104,14 @@ public class V1Process extends V1ProcessFormat {
         }
         dtime = delta_t * MSEC_TO_SEC;    
         
-        //Get config values or use defaults if not defined
-        try {
-            String unitname = config.getConfigValue(DATA_UNITS_NAME);
-            this.data_units = (unitname == null) ? CMSQSECT : unitname;
-            
-            String unitcode = config.getConfigValue(DATA_UNITS_CODE);
-            this.data_unit_code = (unitcode == null) ? CMSQSECN : Integer.parseInt(unitcode);
-
-            String despike = config.getConfigValue(DESPIKE_INPUT);
-            this.despikeflag = (despike == null) ? false : despike.equalsIgnoreCase(DESPIKE_INPUT_FLAG);
-            
-            String numdevs = config.getConfigValue(DESPIKING_STDEV_LIMIT);
-            this.despikedevs = (numdevs == null) ? DEFAULT_DESPIKEDEV : Integer.parseInt(numdevs);
-        } catch (NumberFormatException err) {
+        //Get config values, defaults have been substituted if not defined
+        if (!config.getV1ParamsValid()) {
             throw new SmException("Error extracting numeric values from configuration file");
         }
+        this.data_units = config.getDataUnits();
+        this.data_unit_code = config.getDataUnitCode();
+        this.despikeflag = config.getDespike();
+        this.despikedevs = config.getDespikeDevs();
     }
     /**
      * This method performs the actual processing by calling methods from the
@@ -157,4 +163,9 @@ public class V1Process extends V1ProcessFormat {
      * @return the data units (COSMOS format, Table 2)
      */
     public String getDataUnits() {return this.data_units;}
+    /**
+     * Getter for the processing context used for this record
+     * @return the processing context
+     */
+    public ProcessingContext getContext() {return this.context;}
 }
@@ -31,10 +31,10 @@ import SmConstants.VFileConstants.MagnitudeType;
 import SmConstants.VFileConstants.V2DataType;
 import SmException.SmException;
 import SmUtilities.CSVFileWriter;
-import SmUtilities.ConfigReader;
-import static SmConstants.SmConfigConstants.*;
 import SmUtilities.CommentFormatter;
+import SmUtilities.PrismConfig;
 import SmUtilities.ProcessStepsRecorder2;
+import SmUtilities.ProcessingContext;
 import SmUtilities.SmDebugLogger;
 import java.io.File;
 import java.io.IOException;
@@ -108,6 +108,8 @@ public class V2Process {
     protected double smThreshold;
     private final String logtime;
     protected boolean usefft;
+    protected boolean fastlength;
+    protected boolean singlefft;
     protected double snrvalue;
     protected boolean pgacheck;
     protected double pgathreshold;
@@ -128,6 +130,8 @@ public class V2Process {
     private double QCdisresidual;
     private int ABCnumparams;
     private int ABCwinrank;
+    private int ABCnumscreened;
+    private int ABCnumpruned;
     private int ABCpoly1;
     private int ABCpoly2;
     private int ABCbreak1;
@@ -144,6 +148,7 @@ public class V2Process {
     protected CommentFormatter formatter;
     protected String[] commentUpdates;
     protected String SNCLcode;
+    protected final ProcessingContext context;
     
     /**
      * Constructor gets the necessary header and configuration file parameters
@@ -156,7 +161,23 @@ public class V2Process {
      */
     public V2Process(final V1Component v1rec, File inName, String logtime) 
                                                             throws SmException {
+        this(v1rec, inName, logtime, ProcessingContext.snapshot());
+    }
+    /**
+     * Constructor used during batch processing, with the configuration parameters,
+     * filter corners and loggers taken from the processing context of the run.
+     * @param v1rec the V1 component object holding the uncorrected acceleration
+     * @param inName the name of the V0 input file
+     * @param logtime the processing time
+     * @param context the processing context for the run
+     * @throws SmException if unable to access valid header or configuration file
+     * parameters
+     */
+    public V2Process(final V1Component v1rec, File inName, String logtime,
+                            ProcessingContext context) throws SmException {
         double epsilon = 0.000001;
+        this.context = context;
+        this.stepRec = context.getStepRecorder();
         this.inV1 = v1rec;
         this.lowcutadj = 0.0;
         this.highcutadj = 0.0;
@@ -283,7 +304,7 @@ public class V2Process {
         }
         
         //Remove trends from acceleration record and integrate to velocity for QC
-        TrendRemovalProcess detrend = new TrendRemovalProcess( startIndex, usefft );
+        TrendRemovalProcess detrend = new TrendRemovalProcess( startIndex, usefft, fastlength );
         velocity = detrend.removeTrends(accel, dtime);
         preEventMean = detrend.getPreEventMean();
         trendRemovalOrder = detrend.getTrendRemovalOrder();
@@ -292,7 +313,7 @@ public class V2Process {
         //perform first QA check on velocity copy, check first and last sections of
         //velocity array - should be close to 0.0 with tolerances.  If not,
         //perform adaptive baseline correction.
-        qcchecker = new QCcheck();
+        qcchecker = new QCcheck(context);
         qcchecker.validateQCvalues();
         qcchecker.findWindow(lowcutadj, samplerate, startIndex);
         boolean passedQC = qcchecker.qcVelocity(velocity);
@@ -308,7 +329,7 @@ public class V2Process {
             // Passed first QC, so filter, and integrate
             FilterAndIntegrateProcess filterInt = 
                     new FilterAndIntegrateProcess(lowcutadj,highcutadj,DEFAULT_NUM_ROLL,
-                                                        taperlength,startIndex,usefft);
+                                taperlength,startIndex,usefft,fastlength,singlefft);
             filterInt.filterAndIntegrate(accel, dtime);
             paddedaccel = filterInt.getPaddedAccel();
             velocity = filterInt.getVelocity();
@@ -390,8 +411,8 @@ public class V2Process {
      */
     private void initializeForProcessing() throws SmException {
         this.errorlog = new ArrayList<>();
-        this.elog = SmDebugLogger.INSTANCE;
-        ConfigReader config = ConfigReader.INSTANCE;
+        this.elog = context.getDebugLogger();
+        PrismConfig config = context.getPrismConfig();
         this.writeDebug = false;
         this.writeBaseline = false;
         this.QCvelinitial = 0.0;
@@ -399,6 +420,8 @@ public class V2Process {
         this.QCdisresidual = 0.0;
         this.ABCnumparams = 0;
         this.ABCwinrank = 0;
+        this.ABCnumscreened = 0;
+        this.ABCnumpruned = 0;
         this.ABCpoly1 = 0;
         this.ABCpoly2 = 0;
         this.ABCbreak1 = 0;
@@ -407,76 +430,34 @@ public class V2Process {
         logstart = new String[2];
         logstart[0] = "\n";
         logstart[1] = "Prism Error/Debug Log Entry: " + logtime;
-        try {
-            String unitcode = config.getConfigValue(DATA_UNITS_CODE);
-            this.data_unit_code = (unitcode == null) ? CMSQSECN : Integer.parseInt(unitcode);
-
-            String lowcut = config.getConfigValue(BP_FILTER_CUTOFFLOW);
-            this.lowcutoff = (lowcut == null) ? DEFAULT_LOWCUT : Double.parseDouble(lowcut);
-
-            String highcut = config.getConfigValue(BP_FILTER_CUTOFFHIGH);
-            this.highcutoff = (highcut == null) ? DEFAULT_HIGHCUT : Double.parseDouble(highcut);
-
-            //The Butterworth filter implementation requires an even number for rolloff
-            String filorder = config.getConfigValue(BP_FILTER_ORDER);
-            this.numroll = (filorder == null) ? DEFAULT_NUM_ROLL : Integer.parseInt(filorder)/2;
-
-            //The Butterworth filter taper length for the half cosine taper
-            //this taperlength is the value in seconds from the configuration file
-            String taplen = config.getConfigValue(BP_TAPER_LENGTH);
-            this.taperlength = (taplen == null) ? DEFAULT_TAPER_LENGTH : Double.parseDouble(taplen);
-            this.taperlength = (this.taperlength < 0.0) ? DEFAULT_TAPER_LENGTH : this.taperlength;  
-            
-            String pbuf = config.getConfigValue(EVENT_ONSET_BUFFER);
-            this.ebuffer = (pbuf == null) ? DEFAULT_EVENT_ONSET_BUFFER : Double.parseDouble(pbuf);
-            this.ebuffer = (this.ebuffer < 0.0) ? DEFAULT_EVENT_ONSET_BUFFER : this.ebuffer;
-            
-            String thold = config.getConfigValue(SM_THRESHOLD);
-            this.smThreshold = (thold == null) ? DEFAULT_SM_THRESHOLD : Double.parseDouble(thold);
-            this.smThreshold = ((this.smThreshold < 0.0) || (this.smThreshold > 100.0)) ? 
-                                                DEFAULT_SM_THRESHOLD : this.smThreshold;
-
-            String snrval = config.getConfigValue(SIGNAL_NOISE_RATIO);
-            this.snrvalue = (snrval == null) ? DEFAULT_SNR : Double.parseDouble(snrval);
-            
-            String pgaflag = config.getConfigValue(PGA_CHECK);
-            this.pgacheck = (pgaflag == null) ? false : pgaflag.equalsIgnoreCase(PGA_INPUT_FLAG);
-            
-            String pgaval = config.getConfigValue(PGA_THRESHOLD);
-            this.pgathreshold = (pgaval == null) ? DEFAULT_PGA : Double.parseDouble(pgaval);
-            
-        } catch (NumberFormatException err) {
+        if (!config.getV2ParamsValid()) {
             throw new SmException("Error extracting numeric values from configuration file");
         }
-        String eventmethod = config.getConfigValue(EVENT_ONSET_METHOD);
-        if (eventmethod == null) {
-            this.emethod = DEFAULT_EVENT_ONSET_METHOD;
-        } else if (eventmethod.equalsIgnoreCase("AIC")) {
-            this.emethod = EventOnsetType.AIC;
-        } else {
-            this.emethod = EventOnsetType.PWD;
-        }
-        
-        String fftint = config.getConfigValue(INTEGRATION_METHOD);
-        this.usefft = (fftint == null) ? true : 
-                                        fftint.equalsIgnoreCase(FFT_FOR_INTEGRATION);
-        
-        String filtcorner = config.getConfigValue(FILTER_CORNER_METHOD);
-        this.usefas = (filtcorner == null) ? false : 
-                                        filtcorner.equalsIgnoreCase(FAS_FOR_CORNERS);
-        
-        String decval = config.getConfigValue(DECIMATE_AFTER_RESAMPLING);
-        this.decimate = (decval == null) ? false : 
-                                        decval.equalsIgnoreCase(DECIMATE_OUTPUT);
-        
-        String debugon = config.getConfigValue(DEBUG_TO_LOG);
-        this.writeDebug = (debugon == null) ? false : 
-                                        debugon.equalsIgnoreCase(DEBUG_TO_LOG_ON);
-        String baselineon = config.getConfigValue(WRITE_BASELINE_FUNCTION);
-        this.writeBaseline = (baselineon == null) ? false : 
-                                    baselineon.equalsIgnoreCase(BASELINE_WRITE_ON);
+        this.data_unit_code = config.getDataUnitCode();
+        this.lowcutoff = config.getLowCutoff();
+        this.highcutoff = config.getHighCutoff();
+
+        //The Butterworth filter implementation requires an even number for rolloff
+        this.numroll = config.getNumRoll();
+
+        //The Butterworth filter taper length for the half cosine taper
+        //this taperlength is the value in seconds from the configuration file
+        this.taperlength = config.getTaperLength();
+        this.ebuffer = config.getEventOnsetBuffer();
+        this.smThreshold = config.getSMThreshold();
+        this.snrvalue = config.getSNRvalue();
+        this.pgacheck = config.getPGAcheck();
+        this.pgathreshold = config.getPGAthreshold();
+        this.emethod = config.getEventOnsetMethod();
+        this.usefft = config.getFFTintegration();
+        this.fastlength = config.getFFTFastLength();
+        this.singlefft = config.getSingleFFTIntegration();
+        this.usefas = config.getFASCorners();
+        this.decimate = config.getDecimate();
+        this.writeDebug = config.getDebugToLog();
+        this.writeBaseline = config.getWriteBaseline();
         
-        qcchecker = new QCcheck();
+        qcchecker = new QCcheck(context);
         if (!qcchecker.validateQCvalues()){
             throw new SmException("Error extracting numeric values from configuration file");
         }
@@ -488,7 +469,7 @@ public class V2Process {
     private boolean updateThresholds(double samprate, double origrate, 
                                         int eonset) throws SmException, IOException {
         boolean thresholdstat = true;
-        FilterCutOffThresholds threshold = new FilterCutOffThresholds();
+        FilterCutOffThresholds threshold = new FilterCutOffThresholds(context);
         MagnitudeType magtype = threshold.SelectMagnitude(mmag, lmag, smag, omag, noRealVal);
         magnitude = threshold.getMagnitude();
         errorlog.add(String.format("Earthquake magnitude is %4.2f and M used is %s",
@@ -568,7 +549,7 @@ public class V2Process {
      */
     private double[] adaptiveCorrection() throws SmException {
         ABC2 adapt = new ABC2(dtime,velocity,accel, lowcutadj,highcutadj,numroll,
-                                                        startIndex,taperlength);
+                                                startIndex,taperlength,context);
         procStatus = adapt.findFit();
         if (procStatus == V2Status.NOABC) {
             double[] goodrun = new double[0];
@@ -582,6 +563,8 @@ public class V2Process {
         calculated_taper = adapt.getCalculatedTaperLength();
         config_taper = adapt.getConfigTaperLength();
         ABCnumparams = adapt.getNumRuns();
+        ABCnumscreened = adapt.getNumScreened();
+        ABCnumpruned = adapt.getNumPruned();
         ABCwinrank = (procStatus == V2Status.GOOD) ? (solution + 1) : 0;
         adapt.clearParamsArray();
         accel = adapt.getABCacceleration();
@@ -650,6 +633,10 @@ public class V2Process {
                                     CorrectionOrder.ORDER2, 3);
         }
         errorlog.add("    length of ABC params: " + ABCnumparams);
+        if (ABCnumscreened > 0) {
+            errorlog.add(String.format("    ABC: prescreen pruned %d of %d candidates (%d filtered)",
+                        ABCnumpruned, ABCnumscreened, (ABCnumscreened - ABCnumpruned)));
+        }
         errorlog.add("    ABC: final status: " + procStatus.name());
         errorlog.add("    ABC: rank: " + ABCwinrank);
         errorlog.add("    ABC: poly1 order: " + (ABCpoly1-1));
@@ -1081,4 +1068,5 @@ public class V2Process {
     public double[] getPaddedAccel() {return paddedaccel;}
     public String[] getUpdatedComments() {return commentUpdates; }
     public boolean getFFTflag() {return usefft; }
+    public ProcessingContext getContext() {return context; }
 }
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Name: Java class V2Workspace.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmProcessing;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class holds the scratch arrays reused by the V2 processing steps of
+ * one thread.  The trend removal, filtering, integration and adaptive baseline
+ * correction steps need many arrays the length of the record that are only
+ * used within one method call, such as the spectra for the frequency domain
+ * integration and the baselines compared during trend fitting.  Instead of
+ * creating these for each call, a step borrows an array of the length it needs
+ * and releases it when done, so in a long batch run the same arrays are used
+ * record after record.  The workspace also keeps an array of the sample times,
+ * which is shared by all the fitting steps instead of each making its own.
+ * <p>
+ * Each thread has its own workspace, found with forThread, so the steps
+ * don't need to coordinate their use of the arrays, and the workspace works
+ * the same for the single record path and for the parallel channels and
+ * adaptive baseline correction candidates.  The pool keeps the released
+ * arrays by length, holding at most MAX_PER_LENGTH arrays of each length and
+ * at most MAX_LENGTHS different lengths.  When a new length is released into
+ * a full pool, the length used least recently is dropped, so the lengths of
+ * the current record stay pooled while those of earlier records are let go.
+ * Arrays whose length changes with every call, such as the segments of the
+ * adaptive baseline candidates, should be created directly instead of
+ * borrowed.  An array must not be used after it is released.
+ * </p>
+ * @author jmjones
+ */
+public final class V2Workspace {
+    /**
+     * The maximum number of different array lengths held in the pool
+     */
+    public static final int MAX_LENGTHS = 8;
+    /**
+     * The maximum number of released arrays of one length held in the pool
+     */
+    public static final int MAX_PER_LENGTH = 4;
+    private static final ThreadLocal<V2Workspace> workspaces = 
+                                    ThreadLocal.withInitial(V2Workspace::new);
+    private final Map<Integer, ArrayDeque<double[]>> pool;
+    private long borrowed;
+    private long allocated;
+    private double[] time;
+    private double timestep;
+    /**
+     * Constructor for an empty workspace, workspaces are found through forThread
+     */
+    private V2Workspace() {
+        this.pool = new LinkedHashMap<>(2 * MAX_LENGTHS, 0.75f, true);
+        this.borrowed = 0;
+        this.allocated = 0;
+        this.time = new double[0];
+        this.timestep = 0.0;
+    }
+    /**
+     * Gets the workspace of the current thread
+     * @return the workspace
+     */
+    public static V2Workspace forThread() {
+        return workspaces.get();
+    }
+    /**
+     * Replaces the workspace of the current thread with an empty one, dropping
+     * the pooled arrays and starting the counts over
+     * @return the new workspace
+     */
+    public static V2Workspace resetForThread() {
+        V2Workspace work = new V2Workspace();
+        workspaces.set(work);
+        return work;
+    }
+    /**
+     * Borrows an array of the given length, filled with zeros, the same as a
+     * newly created array.  The array should be released when no longer
+     * needed, and must not be kept or returned from the step using it.
+     * @param length the array length
+     * @return the array
+     */
+    public double[] borrow( int length ) {
+        borrowed++;
+        ArrayDeque<double[]> free = pool.get(length);
+        if ((free != null) && !free.isEmpty()) {
+            double[] buffer = free.pop();
+            Arrays.fill(buffer, 0.0);
+            return buffer;
+        }
+        allocated++;
+        return new double[length];
+    }
+    /**
+     * Returns an array to the pool for reuse.  If the pool already holds
+     * MAX_PER_LENGTH arrays of this length the array is dropped, and if it
+     * holds MAX_LENGTHS other lengths the least recently used length is
+     * dropped to make room.
+     * @param buffer the array being released, which may be null
+     */
+    public void release( double[] buffer ) {
+        if (buffer == null) {
+            return;
+        }
+        ArrayDeque<double[]> free = pool.get(buffer.length);
+        if (free == null) {
+            if (pool.size() >= MAX_LENGTHS) {
+                Iterator<Integer> eldest = pool.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+            free = new ArrayDeque<>();
+            pool.put(buffer.length, free);
+        }
+        if (free.size() < MAX_PER_LENGTH) {
+            free.push(buffer);
+        }
+    }
+    /**
+     * Gets an array of the sample times (i * timestep) of at least the given
+     * length.  The array is shared and must not be modified, and may be longer
+     * than requested, so the caller should use its own length for the loops.
+     * A new array is made when the time step changes or a longer array is
+     * needed, and arrays returned earlier are left unchanged.
+     * @param dtime the sample interval
+     * @param length the minimum array length
+     * @return the array of sample times
+     */
+    public double[] getTimeArray( double dtime, int length ) {
+        if ((Double.compare(dtime, timestep) != 0) || (time.length < length)) {
+            time = new double[length];
+            for (int i = 0; i < length; i++) {
+                time[i] = i * dtime;
+            }
+            timestep = dtime;
+            allocated++;
+        }
+        return time;
+    }
+    /**
+     * Getter for the number of arrays borrowed from this workspace
+     * @return the number of borrowed arrays
+     */
+    public long getBorrowed() {
+        return borrowed;
+    }
+    /**
+     * Getter for the number of arrays this workspace has created, including
+     * the time arrays, which is the number of borrows and time array requests
+     * that couldn't be met from the pool
+     * @return the number of created arrays
+     */
+    public long getAllocated() {
+        return allocated;
+    }
+}
@@ -32,9 +32,11 @@ import static SmConstants.VFileConstants.NUM_T_PERIODS;
 import static SmConstants.VFileConstants.V3_DAMPING_VALUES;
 import SmException.FormatException;
 import SmException.SmException;
+import SmUtilities.ProcessingContext;
 import SmUtilities.SmDebugLogger;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.RecursiveAction;
 /**
  * The V3Process class executes the steps necessary to generate a V3 product file
  * from a V2 component object. It calculates the FFT of the corrected acceleration
@@ -44,6 +46,7 @@ import java.util.ArrayList;
  */
 public class V3Process {
     private final double EPSILON = 0.0001;
+    private static final int SPECTRA_TASK_SIZE = 8;
     private ArrayList<double[]> V3Data;
     private double[][][] spectra;
     private double[] T_periods;
@@ -56,6 +59,7 @@ public class V3Process {
     private double peakTime;
     private SpectraResources spec;
     private SmDebugLogger elog;
+    private final ProcessingContext context;
     private boolean writeArrays;
     private double Sa_0p2;
     private double Sa_0p3;
@@ -75,7 +79,8 @@ public class V3Process {
     public V3Process(final V2Component v2acc, V2Process v2val) throws IOException, SmException, 
                                                                 FormatException {
 
-        this.elog = SmDebugLogger.INSTANCE;
+        this.context = v2val.getContext();
+        this.elog = context.getDebugLogger();
         writeArrays = false;
         this.paccel = v2val.getPaddedAccel();
         this.strongMotion = v2val.getStrongMotion();
@@ -120,7 +125,8 @@ public class V3Process {
         double scale;
         
         //Calculate the FFT of the padded acceleration
-        FFourierTransform fft = new FFourierTransform();
+        FFourierTransform fft = new FFourierTransform(
+                                    context.getPrismConfig().getFFTFastLength());
         double[] accspec = fft.calculateFFT(paccel);
         double delta_f = 1.0 / (fft.getPowerLength() * dtime);
         
@@ -171,39 +177,21 @@ public class V3Process {
         
         //Calculate the spectra for each damping value
         double omega;
-        int len = paccel.length;
         double[] sd;
         double[] sv;
         double[] sa;
-        double coef_a; double coef_b;
-        double coef_c; double coef_d;
-        double coef_e; double coef_f;
+        
+        //Get the peak relative displacement (cm) for each damping and period
+        double[][] sdgrid = calculatePeakResponses(spectra, paccel, 
+                                    context.getPrismConfig().getSpectraThreads());
         
         for (int d = 0; d < V3_DAMPING_VALUES.length; d++) {
-            sd = new double[NUM_T_PERIODS];
+            sd = sdgrid[d];
             sv = new double[NUM_T_PERIODS];
             sa = new double[NUM_T_PERIODS];
 
             for (int p = 0; p < T_periods.length; p++) {
-                coef_a = spectra[d][p][0];
-                coef_b = spectra[d][p][1];
-                coef_c = spectra[d][p][2];
-                coef_d = spectra[d][p][3];
-                coef_e = spectra[d][p][4];
-                coef_f = spectra[d][p][5];
                 omega = (2.0 * Math.PI) / T_periods[p];
-                double[][] y = new double[2][len];
-                y[0][0] = 0.0;
-                y[1][0] = 0.0;
-                
-                for(int k = 1; k < len; k++) {
-                    y[0][k] = coef_a * y[0][k-1] + coef_b * y[1][k-1] + coef_e * paccel[k];
-                    y[1][k] = coef_c * y[0][k-1] + coef_d * y[1][k-1] + coef_f * paccel[k];
-                }
-                //Get the relative displacement (cm)
-                double[] disp = y[0];
-                ArrayStats stat = new ArrayStats(disp);
-                sd[p] = Math.abs(stat.getPeakVal());
                 sv[p] = sd[p] * omega;
                 sa[p] = sv[p] * omega;
             }
@@ -235,6 +223,111 @@ public class V3Process {
             V3Data.add(sa);
         }
     }
+    /**
+     * Calculates the peak absolute relative displacement of the oscillators for
+     * each damping value and period.  When more than 1 thread is requested, the
+     * oscillators are divided among the threads of a shared fork-join pool.  Each
+     * oscillator is computed the same way and stored in its own place in the 
+     * output, so the results are the same for any number of threads.
+     * @param coefs the oscillator coefficients, by damping value and period
+     * @param accel the input acceleration
+     * @param threads the number of threads to use
+     * @return the peak displacements, by damping value and period
+     */
+    public static double[][] calculatePeakResponses( double[][][] coefs, 
+                                                double[] accel, int threads ) {
+        double[][] peaks = new double[coefs.length][];
+        for (int d = 0; d < coefs.length; d++) {
+            peaks[d] = new double[coefs[d].length];
+        }
+        SpectraTask task = new SpectraTask(coefs, accel, peaks, 0, 
+                                                coefs.length * coefs[0].length);
+        if (threads > 1) {
+            SharedPools.getPool(threads).invoke(task);
+        } else {
+            task.computeDirectly();
+        }
+        return peaks;
+    }
+    /**
+     * This private class holds a range of oscillators to compute, numbered
+     * through the damping values and then the periods.  Ranges larger than
+     * SPECTRA_TASK_SIZE are split in half and forked.
+     */
+    private static class SpectraTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[][][] coefs;
+        private final double[] accel;
+        private final double[][] peaks;
+        private final int start;
+        private final int end;
+        
+        SpectraTask( double[][][] coefs, double[] accel, double[][] peaks,
+                                                        int start, int end ) {
+            this.coefs = coefs;
+            this.accel = accel;
+            this.peaks = peaks;
+            this.start = start;
+            this.end = end;
+        }
+        @Override
+        protected void compute() {
+            if ((end - start) <= SPECTRA_TASK_SIZE) {
+                computeDirectly();
+            } else {
+                int mid = (start + end) >>> 1;
+                invokeAll(new SpectraTask(coefs, accel, peaks, start, mid),
+                          new SpectraTask(coefs, accel, peaks, mid, end));
+            }
+        }
+        void computeDirectly() {
+            int periods = coefs[0].length;
+            for (int i = start; i < end; i++) {
+                int d = i / periods;
+                int p = i % periods;
+                peaks[d][p] = calculatePeakResponse(coefs[d][p], accel);
+            }
+        }
+    }
+    /**
+     * Calculates the peak absolute relative displacement of a single degree of
+     * freedom oscillator driven by the input acceleration.  The oscillator
+     * response is stepped through the acceleration using the 6 coefficients for
+     * the oscillator period and damping, with the response starting at rest.
+     * Only the current displacement and velocity are kept as the response is
+     * stepped, along with the running peak, so no response arrays are created.
+     * The peak matches the absolute value of the ArrayStats peak value of
+     * the full displacement response.
+     * @param coefs the 6 coefficients a through f for the oscillator
+     * @param accel the input acceleration
+     * @return the peak absolute displacement
+     */
+    public static double calculatePeakResponse( double[] coefs, double[] accel ) {
+        double coef_a = coefs[0];
+        double coef_b = coefs[1];
+        double coef_c = coefs[2];
+        double coef_d = coefs[3];
+        double coef_e = coefs[4];
+        double coef_f = coefs[5];
+        double disp = 0.0;
+        double vel = 0.0;
+        double prevdisp;
+        double absdisp;
+        //ArrayStats starts its search for the highest value at Double.MIN_VALUE,
+        //so do the same here to return the same value for a response of all 0s.
+        double peak = Double.MIN_VALUE;
+        
+        for (int k = 1; k < accel.length; k++) {
+            prevdisp = disp;
+            disp = coef_a * prevdisp + coef_b * vel + coef_e * accel[k];
+            vel = coef_c * prevdisp + coef_d * vel + coef_f * accel[k];
+            absdisp = Math.abs(disp);
+            if (absdisp > peak) {
+                peak = absdisp;
+            }
+        }
+        return peak;
+    }
     /**
      * Getter for one of the calculated arrays, the order of the list: the 91 periods,
      * the fft array, sd, sv, sa repeated for each of the 5 damping values. 
@@ -322,4 +415,12 @@ public class V3Process {
     public double getHousnerIntensity() {
         return housnerIntensity;
     }
+    /**
+     * Getter for the processing context used for this record, which is the
+     * context of the V2 processing
+     * @return the processing context
+     */
+    public ProcessingContext getContext() {
+        return context;
+    }
 }
@@ -25,12 +25,10 @@ package SmUtilities;
 
 import COSMOSformat.V1Component;
 import COSMOSformat.V2Component;
-import static SmConstants.SmConfigConstants.FULL_ACC_SPECTRA;
 import static SmConstants.VFileConstants.COSMOS_EPICENTRALDIST;
 import static SmConstants.VFileConstants.COSMOS_LATITUDE;
 import static SmConstants.VFileConstants.COSMOS_LONGITUDE;
 import static SmConstants.VFileConstants.COSMOS_STATION_TYPE;
-import static SmConstants.VFileConstants.FULL_SA_VALUES;
 import static SmConstants.VFileConstants.NUM_T_PERIODS;
 import static SmConstants.VFileConstants.PEAK_VAL;
 import static SmConstants.VFileConstants.TO_G_CONVERSION;
@@ -64,10 +62,15 @@ public class BuildAPKtable {
      * see if partial or full SA values are to be written out.
      */
     public BuildAPKtable() {
-        ConfigReader config = ConfigReader.INSTANCE;
-        String typeval = config.getConfigValue(FULL_ACC_SPECTRA);
-        this.fulloutput = (typeval == null) ? false : 
-                                        typeval.equalsIgnoreCase(FULL_SA_VALUES);
+        this(ProcessingContext.snapshot());
+    }
+    /**
+     * This constructor is used during batch processing, with the configuration
+     * parameter taken from the processing context of the run.
+     * @param config the processing context for the run
+     */
+    public BuildAPKtable(ProcessingContext config) {
+        this.fulloutput = config.getPrismConfig().getFullSpectra();
     }
     /**
      * This constructor is used by the GUI to enter the user preference.
@@ -52,7 +52,9 @@ public class CSVFileWriter {
     }
     /**
      * Writes the list out as a CSV file, with the first line containing the column names.
-     * If the file already exists, the data line is appended to the file
+     * If the file already exists, the data line is appended to the file.  If the
+     * calling thread is holding its log writes in a DeferredLogBuffer, the
+     * line is queued there instead.
      * @param msg a list of the parameters for one record
      * @param headerline the column names to write out the first time
      * @param name the name of the file
@@ -61,7 +63,6 @@ public class CSVFileWriter {
      */
     public void writeToCSV( ArrayList<String> msg, String[] headerline, 
                             String name, String time ) throws IOException {
-        String[] values;
         String startTime = time.replace("-","_").replace(" ", "_").replace(":","_");
         StringBuilder sbheader = new StringBuilder();
         StringBuilder sbname = new StringBuilder();
@@ -75,22 +76,33 @@ public class CSVFileWriter {
         sbname.append(segments[0]).append("_").append(startTime).append(".").append(segments[1]);
         
         Path outfile = Paths.get(csvfolder.toString(), sbname.toString());
-        if (!outfile.toFile().exists()) {
-            values = new String[2];
-            for (String each : headerline) {
-                sbheader.append(each).append(",");
-            }
-            sbheader.replace(sbheader.length()-1, sbheader.length(), "");
-            values[0] = sbheader.toString();
-            values[1] = sbmsg.toString();
-        } else {
-            values = new String[1];
-            values[0] = sbmsg.toString();
+        for (String each : headerline) {
+            sbheader.append(each).append(",");
+        }
+        sbheader.replace(sbheader.length()-1, sbheader.length(), "");
+        String header = sbheader.toString();
+        String line = sbmsg.toString();
+        if (!DeferredLogBuffer.defer(() -> appendLine(outfile, header, line))) {
+            appendLine(outfile, header, line);
         }
-        TextFileWriter textfile = new TextFileWriter( outfile, values);
-        textfile.appendToFile();
         sbheader.setLength(0);
         sbname.setLength(0);
         sbmsg.setLength(0);
     }
+    /**
+     * Appends the data line to the csv file through the shared log appender,
+     * which writes the header line first if the file doesn't exist yet.  The
+     * appender opens each file once, so only one header is written when
+     * several threads share the file.
+     * @param outfile the csv file
+     * @param header the column names as a single comma-separated line
+     * @param line the data values as a single comma-separated line
+     * @throws IOException if unable to write to the file
+     */
+    private static void appendLine( Path outfile, String header, 
+                                            String line ) throws IOException {
+        String[] values = new String[1];
+        values[0] = line;
+        LogAppender.INSTANCE.append(outfile, header, values);
+    }
 }
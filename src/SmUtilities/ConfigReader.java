@@ -38,6 +38,7 @@ import java.util.Map;
  */
 public class ConfigReader {
     private final Map<String, String> contents;
+    private PrismConfig compiled;
     public final static ConfigReader INSTANCE = new ConfigReader();
 /**
  * Constructor for the configuration file reader is private as part of the
@@ -46,6 +47,7 @@ public class ConfigReader {
  */
     private ConfigReader() {
         contents = new HashMap<>(50);
+        compiled = null;
     }
 /**
  * Getter for the value stored for the given key.
@@ -62,5 +64,34 @@ public class ConfigReader {
  */
     public void setConfigValue(String key, String value) {
         String line = contents.put(key, value);
+        compiled = null;
+    }
+/**
+ * Returns a copy of all the key-value pairs, used to create a snapshot of the
+ * configuration for a processing run.
+ * @return a copy of the configuration contents
+ */
+    public Map<String, String> getContents() {
+        return new HashMap<>(contents);
+    }
+/**
+ * Converts the current contents into a typed PrismConfig.  This is called by
+ * the PrismXMLReader once the configuration file has been loaded, and the
+ * result is kept until a value is changed.
+ */
+    public void compile() {
+        compiled = new PrismConfig(contents);
+    }
+/**
+ * Getter for the typed configuration parameters, which are converted from the
+ * current contents if they haven't been already or a value has been changed
+ * since.
+ * @return the typed configuration parameters
+ */
+    public PrismConfig getPrismConfig() {
+        if (compiled == null) {
+            compile();
+        }
+        return compiled;
     }
 }
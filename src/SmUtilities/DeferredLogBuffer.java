@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Name: Java class DeferredLogBuffer.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmUtilities;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * This class holds the log writes made while one input file is processed on a
+ * worker thread in the parallel batch mode.  Once a buffer is attached to
+ * a thread, the prism, debug and csv loggers queue their writes in the buffer
+ * instead of appending to their files.  The controller then flushes each
+ * buffer in input file order, so the log files have the same contents as they
+ * would after a serial run.  When no buffer is attached the loggers write
+ * directly, as before.
+ * @author jmjones
+ */
+public class DeferredLogBuffer {
+    private static final ThreadLocal<DeferredLogBuffer> current = new ThreadLocal<>();
+    private final ArrayList<LogAction> pending;
+
+    /**
+     * A single log write to be performed when the buffer is flushed.
+     */
+    public interface LogAction {
+        void write() throws IOException;
+    }
+    /**
+     * Constructor for the buffer is private, buffers are created through the
+     * attach method.
+     */
+    private DeferredLogBuffer() {
+        this.pending = new ArrayList<>();
+    }
+    /**
+     * Creates a new buffer and attaches it to the current thread.  All log
+     * writes made by this thread are held in the buffer until it is flushed.
+     * @return the new buffer
+     */
+    public static DeferredLogBuffer attach() {
+        DeferredLogBuffer buffer = new DeferredLogBuffer();
+        current.set(buffer);
+        return buffer;
+    }
+    /**
+     * Detaches any buffer from the current thread, returning the loggers to
+     * direct writes.
+     */
+    public static void detach() {
+        current.remove();
+    }
+    /**
+     * Called by the loggers before writing.  If the current thread has a
+     * buffer attached, the write is queued and true is returned.  Otherwise
+     * false is returned and the caller should write directly.
+     * @param action the log write
+     * @return true if the write was queued, false if not
+     */
+    public static boolean defer( LogAction action ) {
+        DeferredLogBuffer buffer = current.get();
+        if (buffer == null) {
+            return false;
+        }
+        buffer.pending.add(action);
+        return true;
+    }
+    /**
+     * Performs all the queued log writes in the order they were made and
+     * empties the buffer.  If the thread doing the flush has its own buffer
+     * attached, the queued writes are moved to the end of that buffer instead,
+     * so that nested buffers keep their place in the outer buffer's order.
+     * @throws IOException if unable to write to a log file
+     */
+    public void flush() throws IOException {
+        DeferredLogBuffer outer = current.get();
+        if ((outer != null) && (outer != this)) {
+            outer.pending.addAll(pending);
+            pending.clear();
+            return;
+        }
+        try {
+            for (LogAction each : pending) {
+                each.write();
+            }
+        } finally {
+            pending.clear();
+        }
+    }
+}
@@ -74,6 +74,14 @@ public class FilterCornerReader {
     public boolean containsKey(String key) {
         return contents.containsKey(key);
     }
+    /**
+     * Returns a copy of all the key-value pairs, used to create a snapshot of
+     * the corner table for a processing run.
+     * @return a copy of the corner table contents
+     */
+    public Map<String, double[]> getContents() {
+        return new HashMap<>(contents);
+    }
     /**
      * Clears the contents of the reader
      */
@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Name: Java class LogAppender.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmUtilities;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import java.util.HashMap;
+
+/**
+ * This class is a singleton instance of the appender shared by the prism and
+ * debug loggers and the csv file writer.  Instead of opening the file for
+ * each write, the lines to append are held in a fixed-size ring buffer and a
+ * background thread writes them out through writers that are kept open for
+ * the run.  The buffer is written out at least once a second, whenever it is
+ * half full, when flush or close is called, and when the JVM shuts down.
+ * <p>
+ * The lines of each append call are kept together, and the appends are
+ * written out in the order they were made, so the order of the records in
+ * each file is the same as with direct writes.  An error writing out the
+ * buffer on the background thread is thrown from the next append or flush.
+ * </p>
+ * @author jmjones
+ */
+public class LogAppender {
+    public final static LogAppender INSTANCE = new LogAppender();
+    private static final int CAPACITY = 1024;
+    private static final long FLUSH_INTERVAL = 1000L;  //milliseconds
+    private final Charset ENCODING = StandardCharsets.UTF_8;
+    private final Entry[] ring;
+    private int head;
+    private int count;
+    private IOException error;
+    private Thread flusher;
+    private final Object iolock;
+    private final HashMap<Path, BufferedWriter> writers;
+
+    /**
+     * A single append call, with the header line to write first if the
+     * file doesn't exist yet.
+     */
+    private static class Entry {
+        private final Path file;
+        private final String header;
+        private final String[] lines;
+        private Entry( Path file, String header, String[] lines ) {
+            this.file = file;
+            this.header = header;
+            this.lines = lines;
+        }
+    }
+    /**
+     * Constructor for the appender is private as part of the singleton
+     * implementation.  Access to the appender is through the INSTANCE
+     * variable:  LogAppender appender = LogAppender.INSTANCE.
+     */
+    private LogAppender() {
+        this.ring = new Entry[CAPACITY];
+        this.head = 0;
+        this.count = 0;
+        this.error = null;
+        this.flusher = null;
+        this.iolock = new Object();
+        this.writers = new HashMap<>();
+    }
+    /**
+     * Appends the lines to the end of the file, creating the file if it
+     * doesn't exist.
+     * @param file the file to append to
+     * @param lines the lines to append, each followed by a newline
+     * @throws IOException if an earlier write failed, or if unable to write
+     * out a full buffer
+     */
+    public void append( Path file, String[] lines ) throws IOException {
+        append(file, null, lines);
+    }
+    /**
+     * Appends the lines to the end of the file.  If the file doesn't exist
+     * yet, it is created and the header line is written first.
+     * @param file the file to append to
+     * @param header the first line for a new file, or null for none
+     * @param lines the lines to append, each followed by a newline
+     * @throws IOException if an earlier write failed, or if unable to write
+     * out a full buffer
+     */
+    public void append( Path file, String header, String[] lines )
+                                                        throws IOException {
+        Entry entry = new Entry(file, header, lines.clone());
+        while (true) {
+            synchronized (this) {
+                checkError();
+                if (count < CAPACITY) {
+                    ring[(head + count) % CAPACITY] = entry;
+                    count++;
+                    startFlusher();
+                    if (count >= CAPACITY / 2) {
+                        notifyAll();
+                    }
+                    return;
+                }
+            }
+            //the buffer is full, so write it out on this thread
+            drain();
+        }
+    }
+    /**
+     * Writes out everything appended so far and flushes the files.
+     * @throws IOException if unable to write out the buffer, or if an earlier
+     * write failed
+     */
+    public void flush() throws IOException {
+        drain();
+        synchronized (this) {
+            checkError();
+        }
+    }
+    /**
+     * Writes out everything appended so far and closes the files.  The
+     * appender can still be used after closing, and the files are opened
+     * again when they are next appended to.
+     * @throws IOException if unable to write out the buffer or close a file,
+     * or if an earlier write failed
+     */
+    public void close() throws IOException {
+        synchronized (iolock) {
+            try {
+                flush();
+            } finally {
+                IOException failed = null;
+                for (BufferedWriter each : writers.values()) {
+                    try {
+                        each.close();
+                    } catch (IOException err) {
+                        failed = (failed == null) ? err : failed;
+                    }
+                }
+                writers.clear();
+                if (failed != null) {
+                    throw failed;
+                }
+            }
+        }
+    }
+    /**
+     * Throws and clears any error from a write on the background thread.
+     * Called with the lock on this object held.
+     * @throws IOException the saved error
+     */
+    private void checkError() throws IOException {
+        if (error != null) {
+            IOException err = error;
+            error = null;
+            throw err;
+        }
+    }
+    /**
+     * Starts the background thread on the first append, along with the
+     * shutdown hook that writes out the buffer when the JVM exits.  Called
+     * with the lock on this object held.
+     */
+    private void startFlusher() {
+        if (flusher == null) {
+            flusher = new Thread(this::runFlusher, "PRISM log appender");
+            flusher.setDaemon(true);
+            flusher.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    close();
+                } catch (IOException err) {
+                    //Nothing to do if the logs can't be written at exit.
+                }
+            }));
+        }
+    }
+    /**
+     * The background thread loop, which writes out the buffer once a second
+     * or as soon as it is half full.
+     */
+    private void runFlusher() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    if (count < CAPACITY / 2) {
+                        wait(FLUSH_INTERVAL);
+                    }
+                } catch (InterruptedException err) {
+                    return;
+                }
+            }
+            try {
+                drain();
+            } catch (IOException err) {
+                synchronized (this) {
+                    error = (error == null) ? err : error;
+                }
+            }
+        }
+    }
+    /**
+     * Takes everything out of the buffer, appends it to the files in order,
+     * and flushes the files.  Only one thread at a time writes out the buffer,
+     * so the appends stay in order.
+     * @throws IOException if unable to write to a file
+     */
+    private void drain() throws IOException {
+        synchronized (iolock) {
+            Entry[] batch;
+            synchronized (this) {
+                batch = new Entry[count];
+                for (int i = 0; i < count; i++) {
+                    batch[i] = ring[(head + i) % CAPACITY];
+                    ring[(head + i) % CAPACITY] = null;
+                }
+                head = 0;
+                count = 0;
+            }
+            IOException failed = null;
+            for (Entry each : batch) {
+                try {
+                    write(each);
+                } catch (IOException err) {
+                    failed = (failed == null) ? err : failed;
+                }
+            }
+            for (BufferedWriter each : writers.values()) {
+                try {
+                    each.flush();
+                } catch (IOException err) {
+                    failed = (failed == null) ? err : failed;
+                }
+            }
+            if (failed != null) {
+                throw failed;
+            }
+        }
+    }
+    /**
+     * Appends one entry to its file, opening the file the first time it is
+     * used.  Called with the io lock held.
+     * @param entry the lines to append
+     * @throws IOException if unable to open or write to the file
+     */
+    private void write( Entry entry ) throws IOException {
+        BufferedWriter writer = writers.get(entry.file);
+        if (writer == null) {
+            boolean newfile = Files.notExists(entry.file);
+            writer = Files.newBufferedWriter(entry.file, ENCODING, CREATE, APPEND);
+            writers.put(entry.file, writer);
+            if (newfile && (entry.header != null)) {
+                writer.write(entry.header);
+                writer.newLine();
+            }
+        }
+        for (String line : entry.lines) {
+            writer.write(line);
+            writer.newLine();
+        }
+    }
+}
@@ -0,0 +1,436 @@
+/*******************************************************************************
+ * Name: Java class PrismConfig.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmUtilities;
+
+import static SmConstants.SmConfigConstants.*;
+import static SmConstants.VFileConstants.*;
+import SmConstants.VFileConstants.EventOnsetType;
+import SmConstants.VFileConstants.SmArrayStyle;
+import java.util.Map;
+
+/**
+ * This class holds the configuration file parameters used during record
+ * processing, converted once from their text values into typed fields.  The
+ * defaults are substituted for any parameters not in the configuration, and
+ * the range checks made by the processing classes are done here, so the
+ * per-record code reads the values directly instead of parsing the text for
+ * each record.  The object can't be changed after it is created.
+ *
+ * The numeric parameters used by V1 processing, V2 processing and the QC checks
+ * are checked as groups.  If a parameter in a group can't be converted, the
+ * group is flagged as invalid and the processing class reports the error when
+ * it is used, as it did when it parsed the text values itself.  The xml schema
+ * check on the configuration file normally prevents this.
+ * @author jmjones
+ */
+public final class PrismConfig {
+    //processing agency and output format
+    private final String agencyAbbrev;
+    private final boolean hasAgencyCode;
+    private final int agencyCode;
+    private final SmArrayStyle arrayStyle;
+    private final boolean fullSpectra;
+    private final int processingThreads;
+    private final int writerThreads;
+    private final int channelThreads;
+    private final int spectraThreads;
+    private final int abcThreads;
+
+    //V1 processing
+    private final boolean v1valid;
+    private final String dataUnits;
+    private final int dataUnitCode;
+    private final boolean despike;
+    private final int despikeDevs;
+
+    //V2 processing
+    private final boolean v2valid;
+    private final double lowCutoff;
+    private final double highCutoff;
+    private final int filterOrder;
+    private final int numRoll;
+    private final double taperLength;
+    private final double eventOnsetBuffer;
+    private final double smThreshold;
+    private final double snrValue;
+    private final boolean pgaCheck;
+    private final double pgaThreshold;
+    private final EventOnsetType eventOnsetMethod;
+    private final boolean fftIntegration;
+    private final boolean singleFFTIntegration;
+    private final boolean fftFastLength;
+    private final boolean fasCorners;
+    private final boolean decimate;
+    private final boolean debugToLog;
+    private final boolean writeBaseline;
+
+    //QC checks
+    private final boolean qcvalid;
+    private final double qcInitialVelocity;
+    private final double qcResidualVelocity;
+    private final double qcResidualDisplace;
+
+    //adaptive baseline correction
+    private final int diffOrder;
+    private final int firstPolyLower;
+    private final int firstPolyUpper;
+    private final int thirdPolyLower;
+    private final int thirdPolyUpper;
+    private final boolean abcAdaptiveSearch;
+    private final int abcCandidateBudget;
+    private final boolean abcPrescreen;
+    /**
+     * The constructor converts the configuration parameters from their text
+     * values, substituting defaults for any parameters not defined.
+     * @param values the configuration parameters as key-value pairs, such as
+     * the contents of the ConfigReader
+     */
+    public PrismConfig( Map<String, String> values ) {
+        //processing agency and output format
+        String agabbrev = values.get(PROC_AGENCY_ABBREV);
+        this.agencyAbbrev = (agabbrev == null) ? DEFAULT_AG_CODE : agabbrev;
+
+        String agcode = values.get(PROC_AGENCY_CODE);
+        int agval = 0;
+        boolean agfound = false;
+        if (agcode != null) {
+            try {
+                agval = Integer.parseInt(agcode);
+                agfound = true;
+            } catch (NumberFormatException err) {
+                agval = 0;
+            }
+        }
+        this.agencyCode = agval;
+        this.hasAgencyCode = agfound;
+
+        String arrformat = values.get(OUT_ARRAY_FORMAT);
+        arrformat = (arrformat == null) ? DEFAULT_ARRAY_STYLE : arrformat;
+        this.arrayStyle = (arrformat.equalsIgnoreCase("singleColumn")) ?
+                              SmArrayStyle.SINGLE_COLUMN : SmArrayStyle.PACKED;
+
+        String typeval = values.get(FULL_ACC_SPECTRA);
+        this.fullSpectra = (typeval == null) ? false :
+                                        typeval.equalsIgnoreCase(FULL_SA_VALUES);
+
+        this.processingThreads = getThreads(values, PROCESSING_THREADS,
+                                                DEFAULT_PROCESSING_THREADS, 1);
+        this.writerThreads = getThreads(values, WRITER_THREADS,
+                                                DEFAULT_WRITER_THREADS, 0);
+        this.channelThreads = getThreads(values, CHANNEL_THREADS,
+                                                DEFAULT_CHANNEL_THREADS, 1);
+        this.spectraThreads = getThreads(values, SPECTRA_THREADS,
+                                                DEFAULT_SPECTRA_THREADS, 1);
+        this.abcThreads = getThreads(values, ABC_THREADS, DEFAULT_ABC_THREADS, 1);
+
+        //V1 processing
+        String unitname = values.get(DATA_UNITS_NAME);
+        this.dataUnits = (unitname == null) ? CMSQSECT : unitname;
+
+        String despikeval = values.get(DESPIKE_INPUT);
+        this.despike = (despikeval == null) ? false :
+                                    despikeval.equalsIgnoreCase(DESPIKE_INPUT_FLAG);
+
+        //the data unit code is used by both V1 and V2 processing
+        int unitcode = CMSQSECN;
+        boolean unitsvalid = true;
+        try {
+            unitcode = getInt(values, DATA_UNITS_CODE, CMSQSECN);
+        } catch (NumberFormatException err) {
+            unitsvalid = false;
+        }
+        this.dataUnitCode = unitcode;
+
+        int numdevs = DEFAULT_DESPIKEDEV;
+        boolean valid = unitsvalid;
+        try {
+            numdevs = getInt(values, DESPIKING_STDEV_LIMIT, DEFAULT_DESPIKEDEV);
+        } catch (NumberFormatException err) {
+            valid = false;
+        }
+        this.despikeDevs = numdevs;
+        this.v1valid = valid;
+
+        //V2 processing
+        double lowcut = DEFAULT_LOWCUT;
+        double highcut = DEFAULT_HIGHCUT;
+        int filorder = 2 * DEFAULT_NUM_ROLL;
+        int roll = DEFAULT_NUM_ROLL;
+        double taplen = DEFAULT_TAPER_LENGTH;
+        double pbuf = DEFAULT_EVENT_ONSET_BUFFER;
+        double thold = DEFAULT_SM_THRESHOLD;
+        double snrval = DEFAULT_SNR;
+        double pgaval = DEFAULT_PGA;
+        valid = unitsvalid;
+        try {
+            lowcut = getDouble(values, BP_FILTER_CUTOFFLOW, DEFAULT_LOWCUT);
+            highcut = getDouble(values, BP_FILTER_CUTOFFHIGH, DEFAULT_HIGHCUT);
+
+            //The Butterworth filter implementation requires an even number for rolloff
+            if (values.get(BP_FILTER_ORDER) != null) {
+                filorder = Integer.parseInt(values.get(BP_FILTER_ORDER));
+                roll = filorder / 2;
+            }
+            //The taper length is the value in seconds from the configuration file
+            taplen = getDouble(values, BP_TAPER_LENGTH, DEFAULT_TAPER_LENGTH);
+            taplen = (taplen < 0.0) ? DEFAULT_TAPER_LENGTH : taplen;
+
+            pbuf = getDouble(values, EVENT_ONSET_BUFFER, DEFAULT_EVENT_ONSET_BUFFER);
+            pbuf = (pbuf < 0.0) ? DEFAULT_EVENT_ONSET_BUFFER : pbuf;
+
+            thold = getDouble(values, SM_THRESHOLD, DEFAULT_SM_THRESHOLD);
+            thold = ((thold < 0.0) || (thold > 100.0)) ? DEFAULT_SM_THRESHOLD : thold;
+
+            snrval = getDouble(values, SIGNAL_NOISE_RATIO, DEFAULT_SNR);
+            pgaval = getDouble(values, PGA_THRESHOLD, DEFAULT_PGA);
+        } catch (NumberFormatException err) {
+            valid = false;
+        }
+        this.lowCutoff = lowcut;
+        this.highCutoff = highcut;
+        this.filterOrder = filorder;
+        this.numRoll = roll;
+        this.taperLength = taplen;
+        this.eventOnsetBuffer = pbuf;
+        this.smThreshold = thold;
+        this.snrValue = snrval;
+        this.pgaThreshold = pgaval;
+        this.v2valid = valid;
+
+        String pgaflag = values.get(PGA_CHECK);
+        this.pgaCheck = (pgaflag == null) ? false : pgaflag.equalsIgnoreCase(PGA_INPUT_FLAG);
+
+        String eventmethod = values.get(EVENT_ONSET_METHOD);
+        if (eventmethod == null) {
+            this.eventOnsetMethod = DEFAULT_EVENT_ONSET_METHOD;
+        } else if (eventmethod.equalsIgnoreCase("AIC")) {
+            this.eventOnsetMethod = EventOnsetType.AIC;
+        } else {
+            this.eventOnsetMethod = EventOnsetType.PWD;
+        }
+        String fftint = values.get(INTEGRATION_METHOD);
+        this.fftIntegration = (fftint == null) ? true :
+                                        fftint.equalsIgnoreCase(FFT_FOR_INTEGRATION);
+        String singlefft = values.get(SINGLE_FFT_INTEGRATION);
+        this.singleFFTIntegration = (singlefft == null) ? false :
+                                singlefft.equalsIgnoreCase(SINGLE_FFT_INTEGRATION_ON);
+        String fftlen = values.get(FFT_LENGTH);
+        this.fftFastLength = (fftlen == null) ? false :
+                                        fftlen.equalsIgnoreCase(FFT_FAST_LENGTH);
+
+        String filtcorner = values.get(FILTER_CORNER_METHOD);
+        this.fasCorners = (filtcorner == null) ? false :
+                                        filtcorner.equalsIgnoreCase(FAS_FOR_CORNERS);
+
+        String decval = values.get(DECIMATE_AFTER_RESAMPLING);
+        this.decimate = (decval == null) ? false :
+                                        decval.equalsIgnoreCase(DECIMATE_OUTPUT);
+
+        String debugon = values.get(DEBUG_TO_LOG);
+        this.debugToLog = (debugon == null) ? false :
+                                        debugon.equalsIgnoreCase(DEBUG_TO_LOG_ON);
+
+        String baselineon = values.get(WRITE_BASELINE_FUNCTION);
+        this.writeBaseline = (baselineon == null) ? false :
+                                    baselineon.equalsIgnoreCase(BASELINE_WRITE_ON);
+
+        //QC checks
+        double qcinit = DEFAULT_QA_INITIAL_VELOCITY;
+        double qcvel = DEFAULT_QA_RESIDUAL_VELOCITY;
+        double qcdis = DEFAULT_QA_RESIDUAL_DISPLACE;
+        valid = true;
+        try {
+            qcinit = getDouble(values, QC_INITIAL_VELOCITY, DEFAULT_QA_INITIAL_VELOCITY);
+            qcvel = getDouble(values, QC_RESIDUAL_VELOCITY, DEFAULT_QA_RESIDUAL_VELOCITY);
+            qcdis = getDouble(values, QC_RESIDUAL_DISPLACE, DEFAULT_QA_RESIDUAL_DISPLACE);
+        } catch (NumberFormatException err) {
+            valid = false;
+        }
+        this.qcInitialVelocity = qcinit;
+        this.qcResidualVelocity = qcvel;
+        this.qcResidualDisplace = qcdis;
+        this.qcvalid = valid;
+
+        //adaptive baseline correction
+        int difford;
+        try {
+            difford = getInt(values, DIFFERENTIATION_ORDER, DEFAULT_DIFFORDER);
+        } catch (NumberFormatException err) {
+            difford = DEFAULT_DIFFORDER;
+        }
+        this.diffOrder = difford;
+        this.firstPolyLower = validatePolyOrder(values, FIRST_POLY_ORDER_LOWER,
+                                                DEFAULT_1ST_POLY_ORD_LOWER,
+                                                DEFAULT_1ST_POLY_ORD_LOWER,
+                                                DEFAULT_1ST_POLY_ORD_UPPER);
+        this.firstPolyUpper = validatePolyOrder(values, FIRST_POLY_ORDER_UPPER,
+                                                DEFAULT_1ST_POLY_ORD_UPPER,
+                                                firstPolyLower,
+                                                DEFAULT_1ST_POLY_ORD_UPPER);
+        this.thirdPolyLower = validatePolyOrder(values, THIRD_POLY_ORDER_LOWER,
+                                                DEFAULT_3RD_POLY_ORD_LOWER,
+                                                DEFAULT_3RD_POLY_ORD_LOWER,
+                                                DEFAULT_3RD_POLY_ORD_UPPER);
+        this.thirdPolyUpper = validatePolyOrder(values, THIRD_POLY_ORDER_UPPER,
+                                                DEFAULT_3RD_POLY_ORD_UPPER,
+                                                thirdPolyLower,
+                                                DEFAULT_3RD_POLY_ORD_UPPER);
+        String search = values.get(ABC_SEARCH_MODE);
+        this.abcAdaptiveSearch = (search == null) ? false :
+                                        search.equalsIgnoreCase(ABC_ADAPTIVE_SEARCH);
+        int budget;
+        try {
+            budget = getInt(values, ABC_CANDIDATE_BUDGET, DEFAULT_ABC_CANDIDATE_BUDGET);
+        } catch (NumberFormatException err) {
+            budget = DEFAULT_ABC_CANDIDATE_BUDGET;
+        }
+        this.abcCandidateBudget = (budget < MIN_ABC_CANDIDATE_BUDGET) ?
+                                            DEFAULT_ABC_CANDIDATE_BUDGET : budget;
+        String screen = values.get(ABC_PRESCREEN);
+        this.abcPrescreen = (screen == null) ? true :
+                                        !screen.equalsIgnoreCase(ABC_PRESCREEN_OFF);
+    }
+    /**
+     * Gets an integer parameter, or the default if not defined
+     * @param values the configuration parameters
+     * @param key the parameter key
+     * @param defval the default value
+     * @return the parameter value
+     * @throws NumberFormatException if the value can't be converted
+     */
+    private static int getInt( Map<String, String> values, String key, int defval ) {
+        String val = values.get(key);
+        return (val == null) ? defval : Integer.parseInt(val);
+    }
+    /**
+     * Gets a thread count parameter, or the default if not defined, not a
+     * number, or less than the minimum
+     * @param values the configuration parameters
+     * @param key the parameter key
+     * @param defval the default thread count
+     * @param minval the minimum valid thread count
+     * @return the thread count
+     */
+    private static int getThreads( Map<String, String> values, String key,
+                                                    int defval, int minval ) {
+        int threads;
+        try {
+            threads = getInt(values, key, defval);
+        } catch (NumberFormatException err) {
+            threads = defval;
+        }
+        return (threads < minval) ? defval : threads;
+    }
+    /**
+     * Gets a real parameter, or the default if not defined
+     * @param values the configuration parameters
+     * @param key the parameter key
+     * @param defval the default value
+     * @return the parameter value
+     * @throws NumberFormatException if the value can't be converted
+     */
+    private static double getDouble( Map<String, String> values, String key,
+                                                                double defval ) {
+        String val = values.get(key);
+        return (val == null) ? defval : Double.parseDouble(val);
+    }
+    /**
+     * Validates a polynomial order for the adaptive baseline correction against
+     * the acceptable lower and upper limits.
+     * @param values the configuration parameters
+     * @param key the parameter key
+     * @param defval the default value for this parameter
+     * @param lower the acceptable lower limit
+     * @param upper the acceptable upper limit
+     * @return a valid value for the parameter, or 0 if unable to parse, or -1
+     * if out of range
+     */
+    private static int validatePolyOrder( Map<String, String> values, String key,
+                                            int defval, int lower, int upper ) {
+        int outval;
+        String inval = values.get(key);
+        if (inval == null) {
+            outval = defval;
+        } else {
+            try {
+                outval = Integer.parseInt(inval);
+                outval = ((outval < lower) || (outval > upper)) ? -1 : outval;
+            } catch (NumberFormatException e) {
+                outval = 0;
+            }
+        }
+        return outval;
+    }
+    public String getAgencyAbbrev() { return agencyAbbrev; }
+    public boolean hasAgencyCode() { return hasAgencyCode; }
+    public int getAgencyCode() { return agencyCode; }
+    public SmArrayStyle getArrayStyle() { return arrayStyle; }
+    public boolean getFullSpectra() { return fullSpectra; }
+    public int getProcessingThreads() { return processingThreads; }
+    public int getWriterThreads() { return writerThreads; }
+    public int getChannelThreads() { return channelThreads; }
+    public int getSpectraThreads() { return spectraThreads; }
+    public int getABCThreads() { return abcThreads; }
+
+    public boolean getV1ParamsValid() { return v1valid; }
+    public String getDataUnits() { return dataUnits; }
+    public int getDataUnitCode() { return dataUnitCode; }
+    public boolean getDespike() { return despike; }
+    public int getDespikeDevs() { return despikeDevs; }
+
+    public boolean getV2ParamsValid() { return v2valid; }
+    public double getLowCutoff() { return lowCutoff; }
+    public double getHighCutoff() { return highCutoff; }
+    public int getFilterOrder() { return filterOrder; }
+    public int getNumRoll() { return numRoll; }
+    public double getTaperLength() { return taperLength; }
+    public double getEventOnsetBuffer() { return eventOnsetBuffer; }
+    public double getSMThreshold() { return smThreshold; }
+    public double getSNRvalue() { return snrValue; }
+    public boolean getPGAcheck() { return pgaCheck; }
+    public double getPGAthreshold() { return pgaThreshold; }
+    public EventOnsetType getEventOnsetMethod() { return eventOnsetMethod; }
+    public boolean getFFTintegration() { return fftIntegration; }
+    public boolean getSingleFFTIntegration() { return singleFFTIntegration; }
+    public boolean getFFTFastLength() { return fftFastLength; }
+    public boolean getFASCorners() { return fasCorners; }
+    public boolean getDecimate() { return decimate; }
+    public boolean getDebugToLog() { return debugToLog; }
+    public boolean getWriteBaseline() { return writeBaseline; }
+
+    public boolean getQCParamsValid() { return qcvalid; }
+    public double getQCInitialVelocity() { return qcInitialVelocity; }
+    public double getQCResidualVelocity() { return qcResidualVelocity; }
+    public double getQCResidualDisplace() { return qcResidualDisplace; }
+
+    public int getDiffOrder() { return diffOrder; }
+    public int getFirstPolyLower() { return firstPolyLower; }
+    public int getFirstPolyUpper() { return firstPolyUpper; }
+    public int getThirdPolyLower() { return thirdPolyLower; }
+    public int getThirdPolyUpper() { return thirdPolyUpper; }
+    public boolean getABCAdaptiveSearch() { return abcAdaptiveSearch; }
+    public int getABCCandidateBudget() { return abcCandidateBudget; }
+    public boolean getABCPrescreen() { return abcPrescreen; }
+}
@@ -37,7 +37,7 @@ import java.nio.file.Paths;
  */
 public class PrismLogger {
     private Path logfile;
-    private static boolean logReady = false;
+    private boolean logReady = false;
     private final String logname = "PrismLog.txt";
     public final static PrismLogger INSTANCE = new PrismLogger();
     private String finalFolder;
@@ -47,8 +47,9 @@ public class PrismLogger {
      * Constructor for the logger is private as part of the
      * singleton implementation.  Access to the logger is through the INSTANCE 
      * variable:  PrismLogger logger = PrismLogger.INSTANCE.
+     * A ProcessingContext can also create its own logger for a separate run.
      */
-    private PrismLogger() {
+    PrismLogger() {
     }
     /**
      * This method initializes the logger and checks if the log folder exists,
@@ -72,16 +73,27 @@ public class PrismLogger {
     }
     /**
      * Writes the array of text messages out to the log file, appending to the
-     * end of the current file.
+     * end of the current file.  If the calling thread is holding its log writes
+     * in a DeferredLogBuffer, the messages are queued there instead.
      * @param msg the list of messages to be written out
      * @throws IOException if unable to write to the file
      */
     public void writeToLog( String[] msg ) throws IOException {
         if (logReady) {
-            TextFileWriter textfile = new TextFileWriter( logfile, msg);
-            textfile.appendToFile();
+            if (!DeferredLogBuffer.defer(() -> appendToLog(msg))) {
+                appendToLog(msg);
+            }
         }
     }
+    /**
+     * Appends the messages to the log file through the shared log appender,
+     * which keeps the messages of each call together.
+     * @param msg the list of messages to be written out
+     * @throws IOException if unable to write to the file
+     */
+    private void appendToLog( String[] msg ) throws IOException {
+        LogAppender.INSTANCE.append(logfile, msg);
+    }
     /**
      * This method is used for debug, to write out data arrays as text files
      * for debugging.  The files are written into the topmost folder.
@@ -108,7 +108,7 @@ public class PrismXMLReader {
 /**
  * This method validates the document, pulls out the unique
  * paths to each text node, and enters each key-value pair in the config reader
- * object.
+ * object.  The config reader then converts the values into a typed PrismConfig.
  * @param doc The xml file to parse
  * @throws IOException if unable to read in the file
  */
@@ -132,6 +132,9 @@ public class PrismXMLReader {
             config.setConfigValue(keyvalue[0], keyvalue[1]);
         }
         tagtrail.clear();
+        
+        //Convert the parameters into their typed values once for processing
+        config.compile();
     }
 /**
  * Recursive method to find all the child nodes of each node until a text node
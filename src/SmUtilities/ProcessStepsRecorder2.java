@@ -55,9 +55,10 @@ public class ProcessStepsRecorder2 {
     private ArrayList<blcorrect> blist;
     public final static ProcessStepsRecorder2 INSTANCE = new ProcessStepsRecorder2();
     /**
-     * Private constructor for the singleton class.
+     * Constructor for the singleton class, a ProcessingContext can also create
+     * its own recorder for a separate run.
      */
-    private ProcessStepsRecorder2(){
+    ProcessStepsRecorder2(){
         this.eventOnsetTime = 0.0;
         this.ctype = CorrectionType.AUTO;
         this.needsResampling = false;
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Name: Java class ProcessingContext.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package SmUtilities;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class holds everything a processing run reads while it works through
+ * its records: a snapshot of the configuration file parameters along with
+ * their typed PrismConfig values, a snapshot of
+ * the station filter corner table, the prism and debug loggers, and the
+ * processing steps recorder.  The context is created once per run and handed
+ * down from the queue to the V1, V2 and V3 processing, so the per-record code
+ * doesn't go back to the shared readers for each value.  The snapshots can't
+ * be changed after the context is created, so the context can be shared by
+ * all the threads of a run, and runs with different configurations can be
+ * processed at the same time, each with its own context.
+ *
+ * The snapshot method copies the current contents of the ConfigReader and
+ * FilterCornerReader and uses the shared logger and recorder instances, which
+ * matches the behavior of the single batch run.  The withLogs method creates
+ * a context with its own loggers for a run that needs separate log files.
+ * @author jmjones
+ */
+public final class ProcessingContext {
+    private final Map<String, String> config;
+    private final PrismConfig params;
+    private final Map<String, double[]> corners;
+    private final PrismLogger prismlog;
+    private final SmDebugLogger debuglog;
+    private final ProcessStepsRecorder2 stepRec;
+    /**
+     * Constructor for the context is private, contexts are created through
+     * the snapshot and withLogs methods.
+     * @param config configuration parameters, as key-value pairs
+     * @param params the typed configuration parameters
+     * @param corners station filter corners, keyed by SNCL code
+     * @param prismlog the prism logger for this run
+     * @param debuglog the debug logger for this run
+     * @param stepRec the processing steps recorder for this run
+     */
+    private ProcessingContext( Map<String, String> config, PrismConfig params,
+                    Map<String, double[]> corners, PrismLogger prismlog,
+                    SmDebugLogger debuglog, ProcessStepsRecorder2 stepRec ) {
+        this.config = Collections.unmodifiableMap(new HashMap<>(config));
+        this.params = params;
+        Map<String, double[]> cornercopy = new HashMap<>(corners.size());
+        for (Map.Entry<String, double[]> each : corners.entrySet()) {
+            cornercopy.put(each.getKey(), each.getValue().clone());
+        }
+        this.corners = Collections.unmodifiableMap(cornercopy);
+        this.prismlog = prismlog;
+        this.debuglog = debuglog;
+        this.stepRec = stepRec;
+    }
+    /**
+     * Creates a context from the current contents of the ConfigReader and
+     * FilterCornerReader, using the shared logger and recorder instances.
+     * Later changes to the readers are not seen by the returned context.
+     * @return the new context
+     */
+    public static ProcessingContext snapshot() {
+        ConfigReader reader = ConfigReader.INSTANCE;
+        return new ProcessingContext(reader.getContents(), reader.getPrismConfig(),
+                                    FilterCornerReader.INSTANCE.getContents(),
+                                    PrismLogger.INSTANCE, SmDebugLogger.INSTANCE,
+                                    ProcessStepsRecorder2.INSTANCE);
+    }
+    /**
+     * Creates a context from the given configuration parameters and filter
+     * corners, with its own prism and debug loggers writing into the log
+     * folder under the given output folder, and its own steps recorder.
+     * @param config configuration parameters, as key-value pairs
+     * @param corners station filter corners, keyed by SNCL code
+     * @param outfolder the top level output folder for the run
+     * @param time processing start time, used in the log file names
+     * @return the new context
+     * @throws IOException if unable to set up the log folder
+     */
+    public static ProcessingContext withLogs( Map<String, String> config,
+                        Map<String, double[]> corners, String outfolder,
+                                            String time ) throws IOException {
+        PrismLogger prismlog = new PrismLogger();
+        prismlog.initializeLogger(outfolder, time);
+        SmDebugLogger debuglog = new SmDebugLogger();
+        debuglog.initializeLogger(outfolder, time);
+        return new ProcessingContext(config, new PrismConfig(config), corners,
+                            prismlog, debuglog, new ProcessStepsRecorder2());
+    }
+    /**
+     * Getter for the value stored for the given configuration key.
+     * @param key The key associated with the key-value pair
+     * @return The value for the given key, or null if not in the configuration
+     */
+    public String getConfigValue( String key ) {
+        return config.get(key);
+    }
+    /**
+     * Getter for the typed configuration parameters of this run
+     * @return the typed configuration parameters
+     */
+    public PrismConfig getPrismConfig() {
+        return params;
+    }
+    /**
+     * Checks for the given SNCL code in the filter corner table.
+     * @param sncl the SNCL code to check for
+     * @return true if the code has filter corners in the table
+     */
+    public boolean hasCornerValues( String sncl ) {
+        return corners.containsKey(sncl);
+    }
+    /**
+     * Getter for the filter corners stored for the given SNCL code.
+     * @param sncl the SNCL code
+     * @return a copy of the corners, which is [low corner, high corner], or an
+     * empty array if the code is not in the table
+     */
+    public double[] getCornerValues( String sncl ) {
+        double[] values = corners.get(sncl);
+        return (values == null) ? new double[0] : values.clone();
+    }
+    /**
+     * Getter for the prism logger of this run
+     * @return the prism logger
+     */
+    public PrismLogger getPrismLogger() {
+        return prismlog;
+    }
+    /**
+     * Getter for the debug logger of this run
+     * @return the debug logger
+     */
+    public SmDebugLogger getDebugLogger() {
+        return debuglog;
+    }
+    /**
+     * Getter for the processing steps recorder of this run
+     * @return the steps recorder
+     */
+    public ProcessStepsRecorder2 getStepRecorder() {
+        return stepRec;
+    }
+}
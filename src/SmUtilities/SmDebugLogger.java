@@ -40,7 +40,7 @@ import java.nio.file.Paths;
 public class SmDebugLogger {
     private Path logfile;
     private Path troublefile;
-    private static boolean logReady = false;
+    private boolean logReady = false;
     private final String logname = "DebugLog.txt";
     private final String troublename = "TroubleLog.txt";
     public final static SmDebugLogger INSTANCE = new SmDebugLogger();
@@ -51,8 +51,9 @@ public class SmDebugLogger {
      * Constructor for the logger is private as part of the
      * singleton implementation.  Access to the logger is through the INSTANCE 
      * variable:  SmDebugLogger logger = SmDebugLogger.INSTANCE.
+     * A ProcessingContext can also create its own logger for a separate run.
      */
-    private SmDebugLogger() {
+    SmDebugLogger() {
     }
     /**
      * This method initializes the logger and checks if the log folder exists,
@@ -84,22 +85,33 @@ public class SmDebugLogger {
     }
     /**
      * Writes the array of text messages out to the log file, appending to the
-     * end of the current file.
+     * end of the current file.  If the calling thread is holding its log writes
+     * in a DeferredLogBuffer, the messages are queued there instead.
      * @param msg the list of messages to be written to the log
      * @param logger the type of log file, either debug or trouble
      * @throws IOException if unable to write to the file
      */
     public void writeToLog( String[] msg, LogType logger ) throws IOException {
         if (logReady) {
-            if (logger == LogType.DEBUG) {
-                TextFileWriter textfile = new TextFileWriter( logfile, msg);
-                textfile.appendToFile();
-            } else if (logger == LogType.TROUBLE) {
-                TextFileWriter textfile = new TextFileWriter( troublefile, msg);
-                textfile.appendToFile();                
+            if (!DeferredLogBuffer.defer(() -> appendToLog(msg, logger))) {
+                appendToLog(msg, logger);
             }
         }
     }
+    /**
+     * Appends the messages to the selected log file through the shared log
+     * appender, which keeps the messages of each call together.
+     * @param msg the list of messages to be written to the log
+     * @param logger the type of log file, either debug or trouble
+     * @throws IOException if unable to write to the file
+     */
+    private void appendToLog( String[] msg, LogType logger ) throws IOException {
+        if (logger == LogType.DEBUG) {
+            LogAppender.INSTANCE.append(logfile, msg);
+        } else if (logger == LogType.TROUBLE) {
+            LogAppender.INSTANCE.append(troublefile, msg);
+        }
+    }
     /**
      * This method is used for debug, to write out data arrays as text files
      * for debugging.  The files are written into the topmost folder.
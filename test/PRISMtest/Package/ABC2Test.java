@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Name: Java class ABC2Test.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import COSMOSformat.V0Component;
+import static SmConstants.SmConfigConstants.ABC_PRESCREEN;
+import static SmConstants.SmConfigConstants.ABC_THREADS;
+import static SmConstants.SmConfigConstants.QC_INITIAL_VELOCITY;
+import static SmConstants.SmConfigConstants.QC_RESIDUAL_DISPLACE;
+import static SmConstants.SmConfigConstants.QC_RESIDUAL_VELOCITY;
+import static SmConstants.VFileConstants.RAWACC;
+import SmConstants.VFileConstants.V2Status;
+import SmException.FormatException;
+import SmException.SmException;
+import SmProcessing.ABC2;
+import SmProcessing.TrendRemovalProcess;
+import SmProcessing.V1Process;
+import SmUtilities.ProcessingContext;
+import SmUtilities.TextFileReader;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * JUnit test class for ABC2 in SmProcessing, using the HNE channel of one of
+ * the example V0 files.  The event onset and filter corners are the ones
+ * found by V2 processing for this channel.
+ * @author jmjones
+ */
+public class ABC2Test {
+    static String v0file = "/PRISMtest/Data/NCC032-n.711.HNE.01.v0";
+    static final double DTIME = 0.005;
+    static final int ONSET = 6009;
+    static final double LOWCUT = 0.1;
+    static final double HIGHCUT = 40.0;
+    static final int NUMROLL = 2;
+    static final double TAPER = 3.0;
+    static double[] accel;
+    static double[] velocity;
+    static String logfolder;
+
+    public ABC2Test() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws IOException, URISyntaxException,
+                                            FormatException, SmException {
+        URL url = ABC2Test.class.getResource(v0file);
+        TextFileReader infile = new TextFileReader( new File(url.toURI()) );
+        V0Component v0 = new V0Component( RAWACC );
+        v0.loadComponent(0, infile.readInTextFile());
+        logfolder = Files.createTempDirectory("abc2").toString();
+        V1Process v1 = new V1Process(v0, makeContext(new HashMap<>()));
+        v1.processV1Data();
+        accel = v1.getV1Array().clone();
+        TrendRemovalProcess detrend = new TrendRemovalProcess(ONSET, true, false);
+        velocity = detrend.removeTrends(accel, DTIME);
+    }
+    private static ProcessingContext makeContext( Map<String, String> config )
+                                                            throws IOException {
+        return ProcessingContext.withLogs(config, new HashMap<>(), logfolder,
+                                                        "2020-01-01 10:00:00");
+    }
+    private ABC2 runABC( Map<String, String> config, boolean prescreen )
+                                            throws IOException, SmException {
+        ABC2 abc = new ABC2(DTIME, velocity.clone(), accel.clone(), LOWCUT, HIGHCUT,
+                                NUMROLL, ONSET, TAPER, makeContext(config));
+        abc.setPrescreen(prescreen);
+        abc.findFit();
+        return abc;
+    }
+    private Map<String, String> qcLimits( String init, String resvel, String resdis ) {
+        Map<String, String> config = new HashMap<>();
+        config.put(QC_INITIAL_VELOCITY, init);
+        config.put(QC_RESIDUAL_VELOCITY, resvel);
+        config.put(QC_RESIDUAL_DISPLACE, resdis);
+        return config;
+    }
+    private void checkPrescreen( Map<String, String> config, V2Status status,
+                                        int pruned ) throws IOException, SmException {
+        ABC2 full = new ABC2(DTIME, velocity.clone(), accel.clone(), LOWCUT, HIGHCUT,
+                                NUMROLL, ONSET, TAPER, makeContext(config));
+        full.setPrescreen(false);
+        org.junit.Assert.assertEquals(status, full.findFit());
+        ABC2 screened = new ABC2(DTIME, velocity.clone(), accel.clone(), LOWCUT, HIGHCUT,
+                                NUMROLL, ONSET, TAPER, makeContext(config));
+        org.junit.Assert.assertEquals(status, screened.findFit());
+        org.junit.Assert.assertEquals(full.getNumRuns(), screened.getNumRuns());
+        org.junit.Assert.assertEquals(0, full.getNumScreened());
+        org.junit.Assert.assertEquals(full.getNumRuns(), screened.getNumScreened());
+        org.junit.Assert.assertEquals(pruned, screened.getNumPruned());
+
+        double[] fullrun = full.getSolutionParms(full.getSolution());
+        double[] screenrun = screened.getSolutionParms(screened.getSolution());
+        org.junit.Assert.assertEquals(fullrun[5], screenrun[5], 0.0);
+        org.junit.Assert.assertEquals(fullrun[7], screenrun[7], 0.0);
+        org.junit.Assert.assertArrayEquals(fullrun, screenrun, 0.0);
+        org.junit.Assert.assertArrayEquals(full.getABCvelocity(),
+                                                screened.getABCvelocity(), 0.0);
+
+        //only the pruned runs differ from the full search, and they are flagged
+        ArrayList<double[]> params = screened.getParameters();
+        ArrayList<double[]> fparams = full.getParameters();
+        int flagged = 0;
+        for (int i = 0; i < params.size(); i++) {
+            org.junit.Assert.assertEquals(0.0, fparams.get(i)[ABC2.PRUNED_FLAG], 0.0);
+            if (params.get(i)[ABC2.PRUNED_FLAG] == 1.0) {
+                flagged++;
+                org.junit.Assert.assertEquals(true, Double.isNaN(params.get(i)[1]));
+            } else {
+                org.junit.Assert.assertArrayEquals(fparams.get(i), params.get(i), 0.0);
+            }
+        }
+        org.junit.Assert.assertEquals(pruned, flagged);
+        org.junit.Assert.assertEquals(0.0, screenrun[ABC2.PRUNED_FLAG], 0.0);
+
+        //the prescreen gives the same parameter list for any number of threads
+        config.put(ABC_THREADS, "3");
+        ABC2 threaded = runABC(config, true);
+        org.junit.Assert.assertEquals(pruned, threaded.getNumPruned());
+        ArrayList<double[]> tparams = threaded.getParameters();
+        org.junit.Assert.assertEquals(params.size(), tparams.size());
+        for (int i = 0; i < params.size(); i++) {
+            org.junit.Assert.assertArrayEquals(params.get(i), tparams.get(i), 0.0);
+        }
+    }
+    @Test
+    public void TestPrescreenDefaultQC() throws IOException, SmException {
+        checkPrescreen(new HashMap<>(), V2Status.GOOD, 314);
+    }
+    @Test
+    public void TestPrescreenTightQC() throws IOException, SmException {
+        checkPrescreen(qcLimits("0.1", "0.000375", "0.1"), V2Status.GOOD, 302);
+    }
+    @Test
+    public void TestPrescreenNoPass() throws IOException, SmException {
+        checkPrescreen(qcLimits("1.0e-9", "1.0e-9", "1.0e-9"), V2Status.FAILQC, 0);
+    }
+    @Test
+    public void TestPrescreenConfig() throws IOException, SmException {
+        Map<String, String> config = new HashMap<>();
+        config.put(ABC_PRESCREEN, "No");
+        ABC2 abc = new ABC2(DTIME, velocity.clone(), accel.clone(), LOWCUT, HIGHCUT,
+                                NUMROLL, ONSET, TAPER, makeContext(config));
+        org.junit.Assert.assertEquals(V2Status.GOOD, abc.findFit());
+        org.junit.Assert.assertEquals(0, abc.getNumScreened());
+        org.junit.Assert.assertEquals(0, abc.getNumPruned());
+    }
+}
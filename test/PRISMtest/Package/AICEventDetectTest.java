@@ -93,4 +93,19 @@ public class AICEventDetectTest {
          
          
      }
+     @Test
+     public void checkLongRecord() {
+         int len = 200000;
+         int onset = 150000;
+         double[] record = new double[len];
+         for (int i = 0; i < len; i++) {
+             record[i] = (i < onset) ? 0.01 * Math.sin(1.3 * i) : 
+                                                    5.0 * Math.sin(0.2 * i);
+         }
+         org.junit.Assert.assertEquals(onset + 1, aicPeak.calculateIndex(record, "Full"));
+         for (int i = 0; i < onset / 2; i++) {
+             record[i] = 0.0;
+         }
+         org.junit.Assert.assertEquals(onset + 1, aicPeak.calculateIndex(record, "Full"));
+     }
 }
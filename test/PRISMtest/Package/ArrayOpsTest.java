@@ -31,7 +31,10 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import org.apache.commons.math3.fitting.PolynomialCurveFitter;
+import org.apache.commons.math3.fitting.WeightedObservedPoint;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -639,4 +642,30 @@ public class ArrayOpsTest {
         double[] bad = new double[0];
         org.junit.Assert.assertEquals(Double.MAX_VALUE,ArrayOps.findStandardDev(bad), EPSILON);
     }
+    @Test
+    public void testPolynomialTrendMatchesFitter() {
+        int[] lengths = {2, 3, 4, 7, 200, 20001};
+        double dt = 0.01;
+        for (int len : lengths) {
+            double[] array = new double[len];
+            for (int i = 0; i < len; i++) {
+                double t = i * dt;
+                array[i] = 1.5 - 0.3 * t + 0.02 * t * t - 0.001 * t * t * t 
+                                                    + 0.05 * Math.sin(1.3 * i);
+            }
+            for (int degree = 1; degree <= 3; degree++) {
+                ArrayList<WeightedObservedPoint> points = new ArrayList<>();
+                for (int i = 0; i < len; i++) {
+                    points.add(new WeightedObservedPoint(1.0, i * dt, array[i]));
+                }
+                double[] expected = PolynomialCurveFitter.create(degree).fit(points);
+                double[] coefs = ArrayOps.findPolynomialTrend(array, degree, dt);
+                org.junit.Assert.assertEquals(degree + 1, coefs.length);
+                for (int k = 0; k <= degree; k++) {
+                    double tol = 1.0e-7 * Math.max(1.0, Math.abs(expected[k]));
+                    org.junit.Assert.assertEquals(expected[k], coefs[k], tol);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Name: Java class ButterworthCoefficientsTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmProcessing.ButterworthCoefficients;
+import SmProcessing.ButterworthFilter;
+import org.junit.Test;
+
+/**
+ * JUnit test class for ButterworthCoefficients
+ * @author jmjones
+ */
+public class ButterworthCoefficientsTest {
+    
+    public ButterworthCoefficientsTest() {
+    }
+    
+    @Test
+    public void TestSharedCoefficients() {
+        ButterworthCoefficients.clear();
+        ButterworthCoefficients first = ButterworthCoefficients.getCoefficients(0.1, 20.0, 0.01, 2, true);
+        ButterworthCoefficients second = ButterworthCoefficients.getCoefficients(0.1, 20.0, 0.01, 2, true);
+        org.junit.Assert.assertEquals(true, (first == second));
+        org.junit.Assert.assertEquals(1L, ButterworthCoefficients.getMisses());
+        org.junit.Assert.assertEquals(1L, ButterworthCoefficients.getHits());
+        
+        ButterworthCoefficients causal = ButterworthCoefficients.getCoefficients(0.1, 20.0, 0.01, 2, false);
+        org.junit.Assert.assertEquals(false, (first == causal));
+        org.junit.Assert.assertArrayEquals(first.getFact(), causal.getFact(), 0.0);
+        org.junit.Assert.assertEquals(2, ButterworthCoefficients.size());
+        
+        ButterworthFilter filter = new ButterworthFilter();
+        org.junit.Assert.assertEquals(true, filter.calculateCoefficients(0.1, 20.0, 0.01, 2, true));
+        org.junit.Assert.assertArrayEquals(first.getFact(), filter.getFact(), 0.0);
+        org.junit.Assert.assertArrayEquals(first.getB1(), filter.getB1(), 0.0);
+        org.junit.Assert.assertArrayEquals(first.getB2(), filter.getB2(), 0.0);
+        org.junit.Assert.assertEquals(2L, ButterworthCoefficients.getHits());
+        
+        filter.getB1()[0] = 5.0;
+        org.junit.Assert.assertEquals(false, (first.getB1()[0] == 5.0));
+    }
+    @Test
+    public void TestInvalidParameters() {
+        org.junit.Assert.assertEquals(null, ButterworthCoefficients.getCoefficients(0.0, 20.0, 0.01, 2, true));
+        org.junit.Assert.assertEquals(null, ButterworthCoefficients.getCoefficients(0.1, 0.1, 0.01, 2, true));
+        org.junit.Assert.assertEquals(null, ButterworthCoefficients.getCoefficients(0.1, 20.0, 0.01, 9, true));
+        org.junit.Assert.assertEquals(null, ButterworthCoefficients.getCoefficients(0.1, 50.0, 0.01, 2, true));
+        ButterworthFilter filter = new ButterworthFilter();
+        org.junit.Assert.assertEquals(false, filter.calculateCoefficients(0.1, 20.0, 0.01, 0, true));
+    }
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Name: Java class ButterworthFilterTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmProcessing.ButterworthFilter;
+import org.junit.Test;
+
+/**
+ * JUnit test class for ButterworthFilter
+ * @author jmjones
+ */
+public class ButterworthFilterTest {
+    private static final int LENGTH = 3000;
+    private static final int ONSET = 500;
+    
+    public ButterworthFilterTest() {
+    }
+    
+    private double[][] makeArrays( int count ) {
+        double[][] arrays = new double[count][LENGTH];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < LENGTH; j++) {
+                double noise = 0.01 * Math.sin(0.7 * j + i);
+                double signal = (j < ONSET) ? 0.0 : 
+                        Math.exp(-0.002 * (j - ONSET)) * Math.sin(0.05 * (i + 1) * (j - ONSET));
+                arrays[i][j] = noise + signal;
+            }
+        }
+        return arrays;
+    }
+    private void checkBatch( boolean acausal ) {
+        int count = 5;
+        double[][] single = makeArrays(count);
+        double[][] batch = makeArrays(count);
+        ButterworthFilter filter = new ButterworthFilter();
+        filter.calculateCoefficients(0.1, 20.0, 0.01, 2, acausal);
+        double[][] expected = new double[count][];
+        double[] tapers = new double[count];
+        for (int i = 0; i < count; i++) {
+            expected[i] = filter.applyFilter(single[i], 1.0, ONSET);
+            tapers[i] = filter.getTaperlength();
+        }
+        double[][] padded = filter.applyFilter(batch, 1.0, ONSET);
+        for (int i = 0; i < count; i++) {
+            org.junit.Assert.assertArrayEquals(expected[i], padded[i], 0.0);
+            org.junit.Assert.assertArrayEquals(single[i], batch[i], 0.0);
+        }
+        org.junit.Assert.assertArrayEquals(tapers, filter.getBatchTaperlengths(), 0.0);
+    }
+    @Test
+    public void TestBatchAcausal() {
+        checkBatch(true);
+    }
+    @Test
+    public void TestBatchCausal() {
+        checkBatch(false);
+    }
+    @Test
+    public void TestBatchLengths() {
+        ButterworthFilter filter = new ButterworthFilter();
+        filter.calculateCoefficients(0.1, 20.0, 0.01, 2, true);
+        double[][] arrays = new double[][]{makeArrays(1)[0], new double[LENGTH + 1]};
+        double[] first = arrays[0].clone();
+        try {
+            filter.applyFilter(arrays, 1.0, ONSET);
+            org.junit.Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException err) {
+            //the arrays are checked before any of them are tapered
+            org.junit.Assert.assertArrayEquals(first, arrays[0], 0.0);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Name: Java class COSMOSlineReaderTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import COSMOSformat.COSMOSlineReader;
+import COSMOSformat.V0Component;
+import COSMOSformat.VIntArray;
+import COSMOSformat.VRealArray;
+import static SmConstants.VFileConstants.RAWACC;
+import SmControl.SmQueue;
+import SmException.FormatException;
+import SmException.SmException;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * JUnit test class for COSMOSlineReader and the parsing of COSMOS records
+ * read through a byte channel
+ * @author jmjones
+ */
+public class COSMOSlineReaderTest {
+    public COSMOSlineReaderTest() {
+    }
+    private static COSMOSlineReader channelReader( String text ) {
+        byte[] bytes = text.getBytes(Charset.defaultCharset());
+        return new COSMOSlineReader(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+    private static String[] bufferedLines( String text ) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        String line;
+        try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+    private static String[] readAll( COSMOSlineReader reader ) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        while (reader.hasLineAt(reader.getLineIndex())) {
+            lines.add(reader.readLine());
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+    private static String[] makeRecord( int chan, int[] counts ) {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("Raw acceleration counts   (Format v01.20 with 13 text lines) Src: 921az039.evt");
+        lines.add("Rcrd of Wed Jan 15, 2014 01:35:00.0 PST");
+        lines.add("Hypocenter: To be determined    H=   km       ML=     Mw= ");
+        lines.add("Origin: To be determined ");
+        lines.add("Statn No: 05- 13921 Code:CE-13921  CGS  Riverside - Limonite & Downey");
+        lines.add("Coords: 33.975  -117.487   Site geology:  ");
+        lines.add("Recorder: Etna   s/n 1614 ( 3 Chns of   3 at Sta) Sensor: FBA ");
+        lines.add("Rcrd start time: 1/15/2014, 09:35:  .0 UTC (Q=5) RcrdId: 13921-L1614-14015.39");
+        lines.add("Sta Chan  " + chan + ": 360 deg (Rcrdr Chan  " + chan + ")");
+        lines.add("Raw record length =  56.000 sec, Uncor max =    20108 counts, at   25.205 sec.");
+        lines.add("Processed: 01/15/14  (k2vol0 v0.1 CSMIP)");
+        lines.add("Record not filtered.");
+        lines.add("Values used when parameter or data value is unknown/unspecified:   -999, -999.0");
+        lines.add(" 100 Integer-header values follow on  10 lines, Format= (10I8)");
+        for (int i = 0; i < 10; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < 10; j++) {
+                sb.append(String.format("%8d", (i == 0 && j == 4) ? chan : -999));
+            }
+            lines.add(sb.toString());
+        }
+        lines.add(" 100 Real-header values follow on  17 lines, Format= (6F13.6)");
+        for (int i = 0; i < 100; i += 6) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = i; j < Math.min(i + 6, 100); j++) {
+                sb.append(String.format("%13.6f", (j == 29) ? 0.005 : -999.0));
+            }
+            lines.add(sb.toString());
+        }
+        lines.add("   1 Comment line(s) follow, each starting with a \"|\":");
+        lines.add("|");
+        lines.add(String.format("%8d", counts.length) +
+                " acceleration pts, approx  56 secs, units=counts (50),Format=(10I8)");
+        for (int i = 0; i < counts.length; i += 10) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = i; j < Math.min(i + 10, counts.length); j++) {
+                sb.append(String.format("%8d", counts[j]));
+            }
+            lines.add(sb.toString());
+        }
+        lines.add("End-of-data for Chan  " + chan + " acceleration");
+        return lines.toArray(new String[lines.size()]);
+    }
+    @Test
+    public void testLineEndings() throws IOException {
+        String text = "first\r\nsecond\rthird\n\n\r\nlast\r";
+        try (COSMOSlineReader reader = channelReader(text)) {
+            org.junit.Assert.assertArrayEquals(bufferedLines(text), readAll(reader));
+            org.junit.Assert.assertEquals(6, reader.getLineIndex());
+        }
+        text = "no terminator";
+        try (COSMOSlineReader reader = channelReader(text)) {
+            org.junit.Assert.assertArrayEquals(bufferedLines(text), readAll(reader));
+        }
+        try (COSMOSlineReader reader = channelReader("")) {
+            org.junit.Assert.assertEquals(false, reader.hasLineAt(0));
+        }
+    }
+    @Test
+    public void testLongLines() throws IOException {
+        char[] fill = new char[150000];
+        Arrays.fill(fill, 'x');
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            sb.append("line ").append(i).append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        sb.append(fill).append("\r\nend");
+        String text = sb.toString();
+        try (COSMOSlineReader reader = channelReader(text)) {
+            org.junit.Assert.assertEquals("line 5", reader.getLine(5));
+            reader.skipTo(2999);
+            org.junit.Assert.assertEquals("line 2999", reader.readLine());
+            org.junit.Assert.assertEquals(fill.length, reader.readLine().length());
+            org.junit.Assert.assertEquals("end", reader.readLine());
+            org.junit.Assert.assertEquals(false, reader.hasLineAt(3002));
+        }
+    }
+    @Test
+    public void testRealFields() throws FormatException, IOException {
+        String[] fields = {"1.234567E+02", "-0.000000E+00", "1.797693134E308",
+            "4.9E-324", "1234567890123", "12345678901234567890", "+3.5", "1e5", ".5",
+            "5.", "-2.500000E-3", "0.1000000000001", "9.999999999e-23", "1E23",
+            "-123456.789012", "NaN", "Infinity", "0x1.8p1", "1.5E+400", "7d"};
+        String[] data = new String[5];
+        data[0] = "      20 test values, Format=(5E20.6)";
+        for (int i = 0; i < 4; i++) {
+            StringBuilder line = new StringBuilder();
+            for (int j = 0; j < 5; j++) {
+                line.append(String.format("%20s", fields[5 * i + j]));
+            }
+            data[i + 1] = line.toString();
+        }
+        VRealArray fromText = new VRealArray();
+        fromText.parseValues(0, data);
+        StringBuilder sb = new StringBuilder();
+        for (String each : data) {
+            sb.append(each).append("\n");
+        }
+        VRealArray fromBytes = new VRealArray();
+        try (COSMOSlineReader reader = channelReader(sb.toString())) {
+            fromBytes.parseValues(reader);
+            org.junit.Assert.assertEquals(5, reader.getLineIndex());
+        }
+        double[] expect = fromText.getRealArray();
+        double[] result = fromBytes.getRealArray();
+        org.junit.Assert.assertEquals(20, result.length);
+        for (int i = 0; i < expect.length; i++) {
+            org.junit.Assert.assertEquals(Double.doubleToRawLongBits(expect[i]),
+                                            Double.doubleToRawLongBits(result[i]));
+        }
+        org.junit.Assert.assertEquals(Double.doubleToRawLongBits(-0.0),
+                                            Double.doubleToRawLongBits(result[1]));
+    }
+    @Test
+    public void testIntFields() throws FormatException, IOException {
+        String text = "       6 test values, Format=(3I12)\n"
+                    + " -2147483648  2147483647         +12\n"
+                    + "  0000000042          -0  1234567890\n"
+                    + "End\n";
+        VIntArray fromBytes = new VIntArray();
+        try (COSMOSlineReader reader = channelReader(text)) {
+            fromBytes.parseValues(reader);
+            org.junit.Assert.assertEquals(3, reader.getLineIndex());
+            org.junit.Assert.assertEquals("End", reader.readLine());
+        }
+        org.junit.Assert.assertArrayEquals(new int[]{Integer.MIN_VALUE,
+                Integer.MAX_VALUE, 12, 42, 0, 1234567890}, fromBytes.getIntArray());
+
+        text = "       3 test values, Format=(3I8)\n       1   2.000       3\n";
+        try (COSMOSlineReader reader = channelReader(text)) {
+            new VIntArray().parseValues(reader);
+            org.junit.Assert.fail("expected a conversion error");
+        } catch (FormatException err) {
+            org.junit.Assert.assertEquals("Unable to convert text to numeric in array",
+                                                                err.getMessage());
+        }
+    }
+    @Test
+    public void testErrorLines() throws IOException {
+        String[][] cases = {
+            {"       9 test values, Format=(3I8)", "       1       2       3",
+                                                  "       4       5       6"},
+            {"       6 test values, Format=(3I8)", "       1       2       3", "   4"},
+            {"       6 test values, Format=(3I8)", "       1       2       3",
+                                                  "       4               6"},
+        };
+        for (String[] lines : cases) {
+            String expect = "";
+            try {
+                new VIntArray().parseValues(0, lines);
+            } catch (FormatException err) {
+                expect = err.getMessage();
+            }
+            org.junit.Assert.assertEquals(false, expect.isEmpty());
+            String actual = "";
+            try (COSMOSlineReader reader = channelReader(String.join("\r\n", lines))) {
+                new VIntArray().parseValues(reader);
+            } catch (FormatException err) {
+                actual = err.getMessage();
+            }
+            org.junit.Assert.assertEquals(expect, actual);
+        }
+    }
+    @Test
+    public void testParseVFile() throws IOException, FormatException, SmException {
+        int[] counts1 = new int[25];
+        int[] counts2 = new int[10];
+        for (int i = 0; i < counts1.length; i++) {
+            counts1[i] = 3300 - 7 * i;
+        }
+        for (int i = 0; i < counts2.length; i++) {
+            counts2[i] = -20 + 5 * i;
+        }
+        String[] rec1 = makeRecord(1, counts1);
+        String[] rec2 = makeRecord(2, counts2);
+        File infile = File.createTempFile("prism", ".v0c");
+        File empty = File.createTempFile("prism", ".v0c");
+        StringBuilder sb = new StringBuilder();
+        for (String each : rec1) {
+            sb.append(each).append("\r\n");
+        }
+        for (String each : rec2) {
+            sb.append(each).append("\n");
+        }
+        try {
+            Files.write(infile.toPath(), sb.toString().getBytes(Charset.defaultCharset()));
+            SmQueue queue = new SmQueue(infile, "", infile.getParentFile());
+            org.junit.Assert.assertEquals(2, queue.parseVFile(infile, RAWACC));
+            V0Component first = (V0Component)queue.getSmList().get(0);
+            V0Component second = (V0Component)queue.getSmList().get(1);
+            org.junit.Assert.assertArrayEquals(counts1, first.getDataArray());
+            org.junit.Assert.assertArrayEquals(counts2, second.getDataArray());
+            org.junit.Assert.assertArrayEquals(Arrays.copyOf(rec2, 13), second.getTextHeader());
+            org.junit.Assert.assertEquals(2, second.getIntHeaderValue(4));
+            org.junit.Assert.assertEquals(0.005, second.getRealHeaderValue(29), 1.0e-9);
+            org.junit.Assert.assertEquals(rec2[rec2.length - 1], second.getEndOfData());
+
+            V0Component v0 = new V0Component(RAWACC);
+            org.junit.Assert.assertEquals(rec1.length, v0.loadComponent(0, rec1));
+            org.junit.Assert.assertArrayEquals(v0.VrecToText(), first.VrecToText());
+            try {
+                queue.parseVFile(empty, RAWACC);
+                org.junit.Assert.fail("expected an exception for an empty file");
+            } catch (IOException err) {
+                org.junit.Assert.assertEquals("Empty file: " + empty, err.getMessage());
+            }
+        } finally {
+            Files.deleteIfExists(infile.toPath());
+            Files.deleteIfExists(empty.toPath());
+        }
+    }
+}
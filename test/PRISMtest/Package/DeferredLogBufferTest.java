@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Name: Java class DeferredLogBufferTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmUtilities.DeferredLogBuffer;
+import java.io.IOException;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * JUnit test class for DeferredLogBuffer in SmUtilities
+ * @author jmjones
+ */
+public class DeferredLogBufferTest {
+    ArrayList<String> written = new ArrayList<>();
+
+    public DeferredLogBufferTest() {
+    }
+
+    @After
+    public void tearDown() {
+        DeferredLogBuffer.detach();
+    }
+    @Test
+    public void TestNoBufferAttached() {
+        org.junit.Assert.assertEquals(false, DeferredLogBuffer.defer(() -> written.add("a")));
+        org.junit.Assert.assertEquals(0, written.size());
+    }
+    @Test
+    public void TestFlushInOrder() throws IOException {
+        DeferredLogBuffer buffer = DeferredLogBuffer.attach();
+        org.junit.Assert.assertEquals(true, DeferredLogBuffer.defer(() -> written.add("a")));
+        org.junit.Assert.assertEquals(true, DeferredLogBuffer.defer(() -> written.add("b")));
+        org.junit.Assert.assertEquals(true, DeferredLogBuffer.defer(() -> written.add("c")));
+        org.junit.Assert.assertEquals(0, written.size());
+        DeferredLogBuffer.detach();
+        org.junit.Assert.assertEquals(false, DeferredLogBuffer.defer(() -> written.add("d")));
+        buffer.flush();
+        org.junit.Assert.assertEquals(3, written.size());
+        org.junit.Assert.assertEquals("a", written.get(0));
+        org.junit.Assert.assertEquals("b", written.get(1));
+        org.junit.Assert.assertEquals("c", written.get(2));
+        buffer.flush();
+        org.junit.Assert.assertEquals(3, written.size());
+    }
+    @Test
+    public void TestBufferPerThread() throws InterruptedException, IOException {
+        DeferredLogBuffer buffer = DeferredLogBuffer.attach();
+        boolean[] deferred = new boolean[1];
+        Thread other = new Thread(() -> {
+            deferred[0] = DeferredLogBuffer.defer(() -> written.add("other"));
+        });
+        other.start();
+        other.join();
+        org.junit.Assert.assertEquals(false, deferred[0]);
+        buffer.flush();
+        org.junit.Assert.assertEquals(0, written.size());
+    }
+}
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Name: Java class FFTEngineTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmProcessing.FFTEngine;
+import SmProcessing.FFourierTransform;
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+import org.junit.Test;
+
+/**
+ * JUnit test class for FFTEngine, checked against the apache commons math FFT
+ * @author jmjones
+ */
+public class FFTEngineTest {
+    private static final double EPSILON = 1.0e-9;
+    private static final int[] LENGTHS = {1, 2, 4, 8, 64, 1024};
+    private static final int[] MIXED_LENGTHS = {6, 10, 14, 18, 42, 90, 210, 1000, 1470};
+    
+    public FFTEngineTest() {
+    }
+    
+    private double[] makeArray( int len ) {
+        double[] array = new double[len];
+        for (int i = 0; i < len; i++) {
+            array[i] = Math.sin(0.3 * i) + 0.5 * Math.cos(1.7 * i) + 0.01 * i;
+        }
+        return array;
+    }
+    @Test
+    public void TestComplexTransform() {
+        FastFourierTransformer apache = new FastFourierTransformer(DftNormalization.STANDARD);
+        for (int len : LENGTHS) {
+            double[] re = makeArray(len);
+            double[] im = new double[len];
+            for (int i = 0; i < len; i++) {
+                im[i] = 0.25 * re[len - 1 - i];
+            }
+            Complex[] input = new Complex[len];
+            for (int i = 0; i < len; i++) {
+                input[i] = new Complex(re[i], im[i]);
+            }
+            Complex[] expected = apache.transform(input, TransformType.FORWARD);
+            FFTEngine engine = new FFTEngine(len);
+            engine.transform(re, im, false);
+            for (int i = 0; i < len; i++) {
+                org.junit.Assert.assertEquals(expected[i].getReal(), re[i], EPSILON);
+                org.junit.Assert.assertEquals(expected[i].getImaginary(), im[i], EPSILON);
+            }
+            engine.transform(re, im, true);
+            for (int i = 0; i < len; i++) {
+                org.junit.Assert.assertEquals(input[i].getReal(), re[i] / len, EPSILON);
+                org.junit.Assert.assertEquals(input[i].getImaginary(), im[i] / len, EPSILON);
+            }
+        }
+    }
+    @Test
+    public void TestRealTransform() {
+        FastFourierTransformer apache = new FastFourierTransformer(DftNormalization.STANDARD);
+        for (int len : LENGTHS) {
+            double[] array = makeArray(len);
+            Complex[] expected = apache.transform(array, TransformType.FORWARD);
+            int half = len / 2 + 1;
+            double[] re = new double[half];
+            double[] im = new double[half];
+            FFTEngine engine = new FFTEngine(len);
+            engine.realForward(array, 0, re, im);
+            for (int i = 0; i < half; i++) {
+                org.junit.Assert.assertEquals(expected[i].getReal(), re[i], EPSILON);
+                org.junit.Assert.assertEquals(expected[i].getImaginary(), im[i], EPSILON);
+            }
+            double[] out = new double[len];
+            engine.realInverse(re, im, out);
+            org.junit.Assert.assertArrayEquals(array, out, EPSILON);
+        }
+    }
+    @Test
+    public void TestRealTransformOffset() {
+        FastFourierTransformer apache = new FastFourierTransformer(DftNormalization.STANDARD);
+        double[] array = makeArray(45);
+        double[] padded = new double[64];
+        System.arraycopy(array, 0, padded, 19, array.length);
+        Complex[] expected = apache.transform(padded, TransformType.FORWARD);
+        double[] re = new double[33];
+        double[] im = new double[33];
+        new FFTEngine(64).realForward(array, 19, re, im);
+        for (int i = 0; i < re.length; i++) {
+            org.junit.Assert.assertEquals(expected[i].getReal(), re[i], EPSILON);
+            org.junit.Assert.assertEquals(expected[i].getImaginary(), im[i], EPSILON);
+        }
+        FFourierTransform fft = new FFourierTransform();
+        double[][] full = fft.calculateFFTSplitFront(array);
+        org.junit.Assert.assertEquals(64, full[0].length);
+        for (int i = 0; i < full[0].length; i++) {
+            org.junit.Assert.assertEquals(expected[i].getReal(), full[0][i], EPSILON);
+            org.junit.Assert.assertEquals(expected[i].getImaginary(), full[1][i], EPSILON);
+        }
+    }
+    @Test
+    public void TestMixedRadixTransforms() {
+        for (int len : MIXED_LENGTHS) {
+            double[] array = makeArray(len);
+            double[][] expected = dft(array, new double[len]);
+            double[] re = array.clone();
+            double[] im = new double[len];
+            FFTEngine engine = new FFTEngine(len);
+            engine.transform(re, im, false);
+            org.junit.Assert.assertArrayEquals(expected[0], re, EPSILON);
+            org.junit.Assert.assertArrayEquals(expected[1], im, EPSILON);
+            engine.transform(re, im, true);
+            for (int i = 0; i < len; i++) {
+                org.junit.Assert.assertEquals(array[i], re[i] / len, EPSILON);
+                org.junit.Assert.assertEquals(0.0, im[i] / len, EPSILON);
+            }
+            
+            int half = len / 2 + 1;
+            re = new double[half];
+            im = new double[half];
+            engine.realForward(array, 0, re, im);
+            for (int i = 0; i < half; i++) {
+                org.junit.Assert.assertEquals(expected[0][i], re[i], EPSILON);
+                org.junit.Assert.assertEquals(expected[1][i], im[i], EPSILON);
+            }
+            double[] out = new double[len];
+            engine.realInverse(re, im, out);
+            org.junit.Assert.assertArrayEquals(array, out, EPSILON);
+        }
+    }
+    @Test
+    public void TestMixedRadixSharedEngine() throws InterruptedException {
+        int len = 1470;
+        FFTEngine engine = new FFTEngine(len);
+        double[][] arrays = new double[4][];
+        double[][] expected = new double[4][];
+        for (int t = 0; t < arrays.length; t++) {
+            arrays[t] = makeArray(len - 2*t);
+            expected[t] = new double[len];
+            double[] re = new double[len / 2 + 1];
+            double[] im = new double[len / 2 + 1];
+            engine.realForward(arrays[t], t, re, im);
+            engine.realInverse(re, im, expected[t]);
+        }
+        double[][] results = new double[4][];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int index = t;
+            threads[t] = new Thread(() -> {
+                double[] re = new double[len / 2 + 1];
+                double[] im = new double[len / 2 + 1];
+                double[] out = new double[len];
+                for (int rep = 0; rep < 50; rep++) {
+                    engine.realForward(arrays[index], index, re, im);
+                    engine.realInverse(re, im, out);
+                }
+                results[index] = out;
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            org.junit.Assert.assertArrayEquals(expected[t], results[t], 0.0);
+        }
+    }
+    @Test
+    public void TestFastLengths() {
+        org.junit.Assert.assertEquals(true, FFTEngine.isSupportedLength(1));
+        org.junit.Assert.assertEquals(true, FFTEngine.isSupportedLength(2048));
+        org.junit.Assert.assertEquals(true, FFTEngine.isSupportedLength(40320));
+        org.junit.Assert.assertEquals(false, FFTEngine.isSupportedLength(0));
+        org.junit.Assert.assertEquals(false, FFTEngine.isSupportedLength(15));
+        org.junit.Assert.assertEquals(false, FFTEngine.isSupportedLength(22));
+        
+        FFourierTransform fft = new FFourierTransform();
+        org.junit.Assert.assertEquals(2, fft.nextFastLength(1));
+        org.junit.Assert.assertEquals(2, fft.nextFastLength(2));
+        org.junit.Assert.assertEquals(12, fft.nextFastLength(11));
+        org.junit.Assert.assertEquals(40320, fft.nextFastLength(40001));
+        org.junit.Assert.assertEquals(65536, fft.findPower2Length(40001));
+        
+        FFourierTransform fast = new FFourierTransform(true);
+        double[] array = makeArray(40001);
+        double[] mags = fast.calculateFFT(array);
+        org.junit.Assert.assertEquals(40320, fast.getPowerLength());
+        org.junit.Assert.assertEquals(40320 / 2 + 1, mags.length);
+        double[] padded = new double[40320];
+        System.arraycopy(array, 0, padded, 0, array.length);
+        double[][] expected = new double[2][];
+        FFTEngine engine = new FFTEngine(40320);
+        expected[0] = padded.clone();
+        expected[1] = new double[40320];
+        engine.transform(expected[0], expected[1], false);
+        for (int i = 0; i < mags.length; i++) {
+            double mag = Math.hypot(expected[0][i], expected[1][i]);
+            org.junit.Assert.assertEquals(mag, mags[i], 1.0e-7);
+        }
+    }
+    @Test(expected = IllegalArgumentException.class)
+    public void TestInvalidLength() {
+        FFTEngine engine = new FFTEngine(22);
+    }
+    /**
+     * Direct computation of the discrete Fourier transform for checking
+     * @param re the real parts
+     * @param im the imaginary parts
+     * @return the transform as [real parts, imaginary parts]
+     */
+    private double[][] dft( double[] re, double[] im ) {
+        int len = re.length;
+        double[][] out = new double[2][len];
+        for (int k = 0; k < len; k++) {
+            for (int t = 0; t < len; t++) {
+                double angle = -2.0 * Math.PI * (((long)k * t) % len) / len;
+                out[0][k] += re[t] * Math.cos(angle) - im[t] * Math.sin(angle);
+                out[1][k] += re[t] * Math.sin(angle) + im[t] * Math.cos(angle);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Name: Java class FFTPlanCacheTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmProcessing.FFTEngine;
+import SmProcessing.FFTPlanCache;
+import SmProcessing.FFourierTransform;
+import org.junit.Test;
+
+/**
+ * JUnit test class for FFTPlanCache
+ * @author jmjones
+ */
+public class FFTPlanCacheTest {
+    
+    public FFTPlanCacheTest() {
+    }
+    
+    @Test
+    public void TestHitsAndMisses() {
+        FFTPlanCache.clear();
+        FFTEngine first = FFTPlanCache.getEngine(256);
+        FFTEngine second = FFTPlanCache.getEngine(256);
+        org.junit.Assert.assertEquals(true, (first == second));
+        org.junit.Assert.assertEquals(256, first.getLength());
+        org.junit.Assert.assertEquals(1L, FFTPlanCache.getMisses());
+        org.junit.Assert.assertEquals(1L, FFTPlanCache.getHits());
+        
+        FFourierTransform fft = new FFourierTransform();
+        fft.calculateFFT(new double[200]);
+        fft.calculateFFT(new double[150]);
+        org.junit.Assert.assertEquals(1L, FFTPlanCache.getMisses());
+        org.junit.Assert.assertEquals(3L, FFTPlanCache.getHits());
+        org.junit.Assert.assertEquals(1, FFTPlanCache.size());
+    }
+    @Test
+    public void TestBoundedSize() {
+        FFTPlanCache.clear();
+        FFTEngine keep = FFTPlanCache.getEngine(2);
+        for (int i = 2; i <= FFTPlanCache.MAX_PLANS + 4; i++) {
+            FFTPlanCache.getEngine(1 << i);
+            org.junit.Assert.assertEquals(true, (keep == FFTPlanCache.getEngine(2)));
+        }
+        org.junit.Assert.assertEquals(FFTPlanCache.MAX_PLANS, FFTPlanCache.size());
+        FFTPlanCache.getEngine(4);
+        org.junit.Assert.assertEquals(FFTPlanCache.MAX_PLANS + 5, FFTPlanCache.getMisses());
+        FFTPlanCache.clear();
+        org.junit.Assert.assertEquals(0, FFTPlanCache.size());
+    }
+}
@@ -45,6 +45,7 @@ public class FFTinteDiffTest {
     static double[] vel;
     static double EPSILON = 0.1;
     double SM_EPSILON = 0.1;
+    double DIS_EPSILON = 1.0e-6;
     static String[] filecontents;
     static String[] fileformat;
     
@@ -99,5 +100,18 @@ public class FFTinteDiffTest {
          org.junit.Assert.assertArrayEquals(vel, fftid.integrate(acc, deltat),  SM_EPSILON);
          org.junit.Assert.assertArrayEquals(acc, fftid.differentiate(vel, deltat, 6000),  SM_EPSILON);
      }
+     @Test
+     public void testIntegrateTwice() throws IOException {
+         FFTinteDiff fftid = new FFTinteDiff();
+         org.junit.Assert.assertEquals(0, fftid.integrateTwice(new double[0], STEP).length);
+         org.junit.Assert.assertEquals(0, fftid.integrateTwice(null, STEP).length);
+         org.junit.Assert.assertEquals(0, fftid.integrateTwice(acc, 0.0).length);
+         
+         double[] velocity = fftid.integrate(acc, deltat);
+         double[] displace = fftid.integrate(velocity, deltat);
+         double[][] integrals = fftid.integrateTwice(acc, deltat);
+         org.junit.Assert.assertArrayEquals(velocity, integrals[0], 1.0e-10);
+         org.junit.Assert.assertArrayEquals(displace, integrals[1], DIS_EPSILON);
+     }
     
 }
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Name: Java class LogAppenderTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmUtilities.LogAppender;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * JUnit test class for LogAppender in SmUtilities
+ * @author jmjones
+ */
+public class LogAppenderTest {
+    LogAppender appender = LogAppender.INSTANCE;
+
+    public LogAppenderTest() {
+    }
+
+    @Test
+    public void TestAppendInOrder() throws IOException {
+        Path logfile = File.createTempFile("applog", ".txt").toPath();
+        try {
+            Files.delete(logfile);
+            for (int i = 0; i < 3000; i++) {
+                appender.append(logfile, "header", new String[]{"line " + i});
+            }
+            appender.flush();
+            List<String> lines = Files.readAllLines(logfile, StandardCharsets.UTF_8);
+            org.junit.Assert.assertEquals(3001, lines.size());
+            org.junit.Assert.assertEquals("header", lines.get(0));
+            for (int i = 0; i < 3000; i++) {
+                org.junit.Assert.assertEquals("line " + i, lines.get(i + 1));
+            }
+            appender.close();
+            appender.append(logfile, "header", new String[]{"again"});
+            appender.close();
+            lines = Files.readAllLines(logfile, StandardCharsets.UTF_8);
+            org.junit.Assert.assertEquals(3002, lines.size());
+            org.junit.Assert.assertEquals("again", lines.get(3001));
+        } finally {
+            appender.close();
+            Files.deleteIfExists(logfile);
+        }
+    }
+    @Test
+    public void TestRecordsKeptTogether() throws IOException, InterruptedException {
+        Path logfile = File.createTempFile("applog", ".txt").toPath();
+        try {
+            Thread[] threads = new Thread[4];
+            IOException[] errors = new IOException[threads.length];
+            for (int t = 0; t < threads.length; t++) {
+                final int id = t;
+                threads[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 500; i++) {
+                            String[] record = {id + " " + i + " a", id + " " + i + " b"};
+                            appender.append(logfile, record);
+                        }
+                    } catch (IOException err) {
+                        errors[id] = err;
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread each : threads) {
+                each.join();
+            }
+            appender.flush();
+            for (IOException each : errors) {
+                org.junit.Assert.assertNull(each);
+            }
+            List<String> lines = Files.readAllLines(logfile, StandardCharsets.UTF_8);
+            org.junit.Assert.assertEquals(4000, lines.size());
+            int[] next = new int[threads.length];
+            for (int i = 0; i < lines.size(); i += 2) {
+                String[] first = lines.get(i).split(" ");
+                int id = Integer.parseInt(first[0]);
+                org.junit.Assert.assertEquals(id + " " + next[id] + " a", lines.get(i));
+                org.junit.Assert.assertEquals(id + " " + next[id] + " b", lines.get(i + 1));
+                next[id]++;
+            }
+        } finally {
+            appender.close();
+            Files.deleteIfExists(logfile);
+        }
+    }
+}
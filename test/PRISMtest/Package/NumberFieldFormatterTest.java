@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Name: Java class NumberFieldFormatterTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import COSMOSformat.NumberFieldFormatter;
+import COSMOSformat.VRealArray;
+import SmConstants.VFileConstants.SmArrayStyle;
+import SmException.FormatException;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * JUnit test class for NumberFieldFormatter in COSMOSformat
+ * @author jmjones
+ */
+public class NumberFieldFormatterTest {
+    private final NumberFieldFormatter formatter = new NumberFieldFormatter();
+    private final StringBuilder line = new StringBuilder();
+    private final double[] special = {0.0, -0.0, 0.5, -0.5, 1.0e-5, 9.9999995e-5,
+        999999.5, 9999999.5, 0.15, 2.5, 1.0e23, Double.MIN_VALUE, Double.MAX_VALUE,
+        Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    public NumberFieldFormatterTest() {
+    }
+    private void checkReal( double value, int width, int precision ) {
+        line.setLength(0);
+        formatter.appendScientific(line, value, width, precision);
+        org.junit.Assert.assertEquals(String.format("%" + width + "." + precision + "e",
+                                                        value), line.toString());
+        line.setLength(0);
+        formatter.appendFixed(line, value, width, precision);
+        org.junit.Assert.assertEquals(String.format("%" + width + "." + precision + "f",
+                                                        value), line.toString());
+    }
+    @Test
+    public void testSpecialValues() {
+        for (double each : special) {
+            for (int precision = 0; precision <= 10; precision++) {
+                checkReal(each, 15, precision);
+                checkReal(-each, 8, precision);
+            }
+        }
+        int[] ints = {0, -1, 7, 12345678, -1234567, 123456789, Integer.MIN_VALUE,
+                                                            Integer.MAX_VALUE};
+        for (int each : ints) {
+            line.setLength(0);
+            formatter.appendInt(line, each, 8);
+            org.junit.Assert.assertEquals(String.format("%8d", each), line.toString());
+        }
+    }
+    @Test
+    public void testRandomValues() {
+        Random random = new Random(20191015L);
+        for (int i = 0; i < 20000; i++) {
+            double scale = Math.pow(10, random.nextInt(40) - 20);
+            checkReal(random.nextGaussian() * scale, 15, 6);
+            checkReal(Math.round(random.nextGaussian() * 1.0e7) * 5.0e-7, 13, 6);
+            checkReal(Double.longBitsToDouble(random.nextLong()), 15, 6);
+        }
+    }
+    @Test
+    public void testNumberSectionToText() throws FormatException {
+        Random random = new Random(3L);
+        double[] vals = new double[23];
+        for (int i = 0; i < vals.length; i++) {
+            vals[i] = random.nextGaussian() * 100.0;
+        }
+        VRealArray array = new VRealArray();
+        array.setRealArray(vals);
+        array.setFieldWidth(15);
+        array.setPrecision(6);
+        array.setDisplayType("E");
+        array.setNumVals(vals.length);
+        array.buildArrayParams(SmArrayStyle.PACKED);
+        String[] text = array.numberSectionToText();
+        org.junit.Assert.assertEquals(6, text.length);
+        for (int i = 0; i < vals.length; i++) {
+            org.junit.Assert.assertEquals(String.format("%15.6e", vals[i]),
+                                text[i / 5 + 1].substring((i % 5) * 15, (i % 5) * 15 + 15));
+        }
+        org.junit.Assert.assertEquals(45, text[5].length());
+    }
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Name: Java class PrismConfigTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import static SmConstants.SmConfigConstants.*;
+import static SmConstants.VFileConstants.*;
+import SmConstants.VFileConstants.EventOnsetType;
+import SmConstants.VFileConstants.SmArrayStyle;
+import SmUtilities.ConfigReader;
+import SmUtilities.PrismConfig;
+import SmUtilities.PrismXMLReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ * JUnit test class for PrismConfig in SmUtilities
+ * @author jmjones
+ */
+public class PrismConfigTest {
+    ConfigReader config = ConfigReader.INSTANCE;
+    String filename = "/PRISMtest/Data/prism_config.xml";
+    private static final double EPSILON = 0.000001;
+
+    public PrismConfigTest() {
+    }
+
+    @Test
+    public void TestReadFile() throws ParserConfigurationException, IOException, SAXException {
+        InputStream ins = PrismXMLReaderTest.class.getResourceAsStream(filename);
+        PrismXMLReader xml = new PrismXMLReader();
+        xml.readFile(ins);
+        PrismConfig params = config.getPrismConfig();
+        org.junit.Assert.assertEquals(true, (params == config.getPrismConfig()));
+        org.junit.Assert.assertEquals("USGS", params.getAgencyAbbrev());
+        org.junit.Assert.assertEquals(true, params.hasAgencyCode());
+        org.junit.Assert.assertEquals(2, params.getAgencyCode());
+        org.junit.Assert.assertEquals(SmArrayStyle.SINGLE_COLUMN, params.getArrayStyle());
+        org.junit.Assert.assertEquals(true, params.getFullSpectra());
+        org.junit.Assert.assertEquals(true, params.getV1ParamsValid());
+        org.junit.Assert.assertEquals(true, params.getV2ParamsValid());
+        org.junit.Assert.assertEquals(true, params.getQCParamsValid());
+        org.junit.Assert.assertEquals(4, params.getDataUnitCode());
+        org.junit.Assert.assertEquals(4, params.getFilterOrder());
+        org.junit.Assert.assertEquals(2, params.getNumRoll());
+        org.junit.Assert.assertEquals(0.1, params.getLowCutoff(), EPSILON);
+        org.junit.Assert.assertEquals(20.0, params.getHighCutoff(), EPSILON);
+        org.junit.Assert.assertEquals(3.0, params.getTaperLength(), EPSILON);
+        org.junit.Assert.assertEquals(5.0, params.getSMThreshold(), EPSILON);
+        org.junit.Assert.assertEquals(EventOnsetType.PWD, params.getEventOnsetMethod());
+        org.junit.Assert.assertEquals(true, params.getFFTintegration());
+        org.junit.Assert.assertEquals(5, params.getDiffOrder());
+        org.junit.Assert.assertEquals(0.1, params.getQCInitialVelocity(), EPSILON);
+        org.junit.Assert.assertEquals(false, params.getFFTFastLength());
+        org.junit.Assert.assertEquals(false, params.getSingleFFTIntegration());
+        org.junit.Assert.assertEquals(false, params.getABCAdaptiveSearch());
+        org.junit.Assert.assertEquals(60, params.getABCCandidateBudget());
+        org.junit.Assert.assertEquals(1, params.getProcessingThreads());
+        org.junit.Assert.assertEquals(0, params.getWriterThreads());
+        org.junit.Assert.assertEquals(true, params.getABCPrescreen());
+
+        String hold = config.getConfigValue(BP_FILTER_ORDER);
+        config.setConfigValue(BP_FILTER_ORDER, "8");
+        org.junit.Assert.assertEquals(false, (params == config.getPrismConfig()));
+        org.junit.Assert.assertEquals(4, config.getPrismConfig().getNumRoll());
+        org.junit.Assert.assertEquals(2, params.getNumRoll());
+        config.setConfigValue(BP_FILTER_ORDER, hold);
+    }
+    @Test
+    public void TestDefaults() {
+        PrismConfig params = new PrismConfig(new HashMap<>());
+        org.junit.Assert.assertEquals(DEFAULT_AG_CODE, params.getAgencyAbbrev());
+        org.junit.Assert.assertEquals(false, params.hasAgencyCode());
+        org.junit.Assert.assertEquals(0, params.getAgencyCode());
+        org.junit.Assert.assertEquals(SmArrayStyle.SINGLE_COLUMN, params.getArrayStyle());
+        org.junit.Assert.assertEquals(CMSQSECT, params.getDataUnits());
+        org.junit.Assert.assertEquals(CMSQSECN, params.getDataUnitCode());
+        org.junit.Assert.assertEquals(DEFAULT_NUM_ROLL, params.getNumRoll());
+        org.junit.Assert.assertEquals(DEFAULT_LOWCUT, params.getLowCutoff(), EPSILON);
+        org.junit.Assert.assertEquals(DEFAULT_TAPER_LENGTH, params.getTaperLength(), EPSILON);
+        org.junit.Assert.assertEquals(DEFAULT_EVENT_ONSET_METHOD, params.getEventOnsetMethod());
+        org.junit.Assert.assertEquals(true, params.getFFTintegration());
+        org.junit.Assert.assertEquals(false, params.getDecimate());
+        org.junit.Assert.assertEquals(DEFAULT_DIFFORDER, params.getDiffOrder());
+        org.junit.Assert.assertEquals(DEFAULT_1ST_POLY_ORD_LOWER, params.getFirstPolyLower());
+        org.junit.Assert.assertEquals(DEFAULT_3RD_POLY_ORD_UPPER, params.getThirdPolyUpper());
+        org.junit.Assert.assertEquals(DEFAULT_PROCESSING_THREADS, params.getProcessingThreads());
+        org.junit.Assert.assertEquals(DEFAULT_WRITER_THREADS, params.getWriterThreads());
+        org.junit.Assert.assertEquals(DEFAULT_CHANNEL_THREADS, params.getChannelThreads());
+        org.junit.Assert.assertEquals(DEFAULT_SPECTRA_THREADS, params.getSpectraThreads());
+        org.junit.Assert.assertEquals(DEFAULT_ABC_THREADS, params.getABCThreads());
+        org.junit.Assert.assertEquals(false, params.getFFTFastLength());
+        org.junit.Assert.assertEquals(false, params.getSingleFFTIntegration());
+        org.junit.Assert.assertEquals(false, params.getABCAdaptiveSearch());
+        org.junit.Assert.assertEquals(DEFAULT_ABC_CANDIDATE_BUDGET, params.getABCCandidateBudget());
+        org.junit.Assert.assertEquals(true, params.getABCPrescreen());
+        
+        Map<String, String> values = new HashMap<>();
+        values.put(FFT_LENGTH, "fast");
+        values.put(SINGLE_FFT_INTEGRATION, "Yes");
+        values.put(ABC_SEARCH_MODE, "Adaptive");
+        values.put(ABC_CANDIDATE_BUDGET, "200");
+        values.put(ABC_PRESCREEN, "No");
+        values.put(PROCESSING_THREADS, "4");
+        values.put(WRITER_THREADS, "2");
+        params = new PrismConfig(values);
+        org.junit.Assert.assertEquals(true, params.getFFTFastLength());
+        org.junit.Assert.assertEquals(true, params.getSingleFFTIntegration());
+        org.junit.Assert.assertEquals(true, params.getABCAdaptiveSearch());
+        org.junit.Assert.assertEquals(200, params.getABCCandidateBudget());
+        org.junit.Assert.assertEquals(false, params.getABCPrescreen());
+        org.junit.Assert.assertEquals(4, params.getProcessingThreads());
+        org.junit.Assert.assertEquals(2, params.getWriterThreads());
+    }
+    @Test
+    public void TestInvalidValues() {
+        Map<String, String> values = new HashMap<>();
+        values.put(BP_TAPER_LENGTH, "-2.0");
+        values.put(SM_THRESHOLD, "150");
+        values.put(FIRST_POLY_ORDER_LOWER, "9");
+        values.put(THIRD_POLY_ORDER_UPPER, "abc");
+        values.put(SPECTRA_THREADS, "0");
+        values.put(ABC_THREADS, "two");
+        values.put(PROCESSING_THREADS, "0");
+        values.put(WRITER_THREADS, "-1");
+        values.put(ABC_CANDIDATE_BUDGET, "5");
+        PrismConfig params = new PrismConfig(values);
+        org.junit.Assert.assertEquals(true, params.getV2ParamsValid());
+        org.junit.Assert.assertEquals(DEFAULT_TAPER_LENGTH, params.getTaperLength(), EPSILON);
+        org.junit.Assert.assertEquals(DEFAULT_SM_THRESHOLD, params.getSMThreshold(), EPSILON);
+        org.junit.Assert.assertEquals(-1, params.getFirstPolyLower());
+        org.junit.Assert.assertEquals(0, params.getThirdPolyUpper());
+        org.junit.Assert.assertEquals(DEFAULT_SPECTRA_THREADS, params.getSpectraThreads());
+        org.junit.Assert.assertEquals(DEFAULT_ABC_THREADS, params.getABCThreads());
+        org.junit.Assert.assertEquals(DEFAULT_PROCESSING_THREADS, params.getProcessingThreads());
+        org.junit.Assert.assertEquals(DEFAULT_WRITER_THREADS, params.getWriterThreads());
+        org.junit.Assert.assertEquals(DEFAULT_ABC_CANDIDATE_BUDGET, params.getABCCandidateBudget());
+
+        values.put(QC_RESIDUAL_VELOCITY, "xyz");
+        values.put(BP_FILTER_CUTOFFLOW, "1*3");
+        params = new PrismConfig(values);
+        org.junit.Assert.assertEquals(true, params.getV1ParamsValid());
+        org.junit.Assert.assertEquals(false, params.getV2ParamsValid());
+        org.junit.Assert.assertEquals(false, params.getQCParamsValid());
+
+        values.put(DATA_UNITS_CODE, "cm");
+        params = new PrismConfig(values);
+        org.junit.Assert.assertEquals(false, params.getV1ParamsValid());
+    }
+}
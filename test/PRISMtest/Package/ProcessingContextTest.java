@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Name: Java class ProcessingContextTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmUtilities.ConfigReader;
+import SmUtilities.FilterCornerReader;
+import SmUtilities.PrismLogger;
+import SmUtilities.ProcessingContext;
+import SmUtilities.SmDebugLogger;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * JUnit test class for ProcessingContext in SmUtilities
+ * @author jmjones
+ */
+public class ProcessingContextTest {
+    ConfigReader config = ConfigReader.INSTANCE;
+    FilterCornerReader corners = FilterCornerReader.INSTANCE;
+
+    public ProcessingContextTest() {
+    }
+
+    @Test
+    public void TestSnapshotConfig() {
+        config.setConfigValue("ctxtest", "1");
+        ProcessingContext context = ProcessingContext.snapshot();
+        config.setConfigValue("ctxtest", "2");
+        org.junit.Assert.assertEquals("1", context.getConfigValue("ctxtest"));
+        org.junit.Assert.assertEquals("2", config.getConfigValue("ctxtest"));
+        org.junit.Assert.assertEquals(null, context.getConfigValue("notakey"));
+        org.junit.Assert.assertEquals(true, (context.getPrismLogger() == PrismLogger.INSTANCE));
+        org.junit.Assert.assertEquals(true, (context.getDebugLogger() == SmDebugLogger.INSTANCE));
+    }
+    @Test
+    public void TestSnapshotCorners() {
+        double[] test1 = {0.1, 20.0};
+        corners.setCornerValues("ctx.test", test1);
+        ProcessingContext context = ProcessingContext.snapshot();
+        double[] test2 = {1.0, 2.0};
+        corners.setCornerValues("ctx.test", test2);
+        org.junit.Assert.assertEquals(true, context.hasCornerValues("ctx.test"));
+        org.junit.Assert.assertArrayEquals(test1, context.getCornerValues("ctx.test"), 1e-10);
+        context.getCornerValues("ctx.test")[0] = 5.0;
+        org.junit.Assert.assertEquals(0.1, context.getCornerValues("ctx.test")[0], 1e-10);
+        org.junit.Assert.assertEquals(false, context.hasCornerValues("nocode"));
+        org.junit.Assert.assertEquals(0, context.getCornerValues("nocode").length);
+    }
+    @Test
+    public void TestSeparateRuns() throws IOException {
+        Map<String, String> params1 = new HashMap<>();
+        params1.put("ctxtest", "1");
+        Map<String, String> params2 = new HashMap<>();
+        params2.put("ctxtest", "2");
+        Map<String, double[]> nocorners = new HashMap<>();
+        ProcessingContext run1 = ProcessingContext.withLogs(params1, nocorners,
+                Files.createTempDirectory("run1").toString(), "2020-01-01 10:00:00");
+        ProcessingContext run2 = ProcessingContext.withLogs(params2, nocorners,
+                Files.createTempDirectory("run2").toString(), "2020-01-01 10:00:00");
+        params1.put("ctxtest", "3");
+        org.junit.Assert.assertEquals("1", run1.getConfigValue("ctxtest"));
+        org.junit.Assert.assertEquals("2", run2.getConfigValue("ctxtest"));
+        org.junit.Assert.assertEquals(false, (run1.getDebugLogger() == run2.getDebugLogger()));
+        org.junit.Assert.assertEquals(false, (run1.getStepRecorder() == run2.getStepRecorder()));
+        org.junit.Assert.assertEquals(false, run1.getPrismLogger().getLogFolder().equals(
+                                        run2.getPrismLogger().getLogFolder()));
+    }
+}
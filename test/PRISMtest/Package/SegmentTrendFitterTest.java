@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Name: Java class SegmentTrendFitterTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmProcessing.ArrayOps;
+import SmProcessing.SegmentTrendFitter;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * JUnit test class for SegmentTrendFitter in SmProcessing
+ * @author jmjones
+ */
+public class SegmentTrendFitterTest {
+    private static final double TOLERANCE = 1.0e-8;
+    private final double dt = 0.01;
+    private final double[] array;
+
+    public SegmentTrendFitterTest() {
+        array = new double[6001];
+        for (int i = 0; i < array.length; i++) {
+            double t = i * dt;
+            array[i] = 0.8 - 0.05 * t + 0.004 * t * t - 0.00003 * t * t * t
+                                                    + 0.2 * Math.sin(0.7 * i);
+        }
+    }
+    private void checkFit( SegmentTrendFitter fitter, int start ) {
+        double[] segment = Arrays.copyOfRange(array, start, array.length);
+        for (int degree = 1; degree <= 3; degree++) {
+            double[] expected = ArrayOps.findPolynomialTrend(segment, degree, dt);
+            double[] coefs = fitter.fit(degree);
+            org.junit.Assert.assertEquals(degree + 1, coefs.length);
+            for (int k = 0; k <= degree; k++) {
+                double tol = TOLERANCE * Math.max(1.0, Math.abs(expected[k]));
+                org.junit.Assert.assertEquals(expected[k], coefs[k], tol);
+            }
+        }
+    }
+    @Test
+    public void testWalkTowardFront() {
+        SegmentTrendFitter fitter = new SegmentTrendFitter(array, dt, 3);
+        for (int start = 4800; start >= 200; start -= 200) {
+            fitter.moveTo(start);
+            org.junit.Assert.assertEquals(start, fitter.getStart());
+            checkFit(fitter, start);
+        }
+        fitter.moveTo(0);
+        checkFit(fitter, 0);
+    }
+    @Test
+    public void testWalkTowardEnd() {
+        SegmentTrendFitter fitter = new SegmentTrendFitter(array, dt, 3);
+        for (int start = 200; start <= 4800; start += 200) {
+            fitter.moveTo(start);
+            checkFit(fitter, start);
+        }
+        fitter.moveTo(array.length - 3);
+        checkFit(fitter, array.length - 3);
+    }
+    @Test
+    public void testLimits() {
+        SegmentTrendFitter fitter = new SegmentTrendFitter(array, dt, 2);
+        org.junit.Assert.assertEquals(array.length, fitter.getStart());
+        org.junit.Assert.assertEquals(0, fitter.fit(1).length);
+        fitter.moveTo(array.length - 2);
+        org.junit.Assert.assertEquals(2, fitter.fit(1).length);
+        org.junit.Assert.assertEquals(3, fitter.fit(2).length);
+        org.junit.Assert.assertEquals(0, fitter.fit(3).length);
+        org.junit.Assert.assertEquals(0, fitter.fit(0).length);
+        try {
+            fitter.moveTo(array.length + 1);
+            org.junit.Assert.fail("expected an exception for a start past the end");
+        } catch (IllegalArgumentException err) {
+            org.junit.Assert.assertEquals(array.length - 2, fitter.getStart());
+        }
+    }
+}
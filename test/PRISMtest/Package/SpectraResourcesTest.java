@@ -145,6 +145,20 @@ public class SpectraResourcesTest {
         }
     }
     @Test
+    public void checkSharedTables() throws IOException, FormatException {
+        SpectraResources spec2 = new SpectraResources();
+        double[][] cvals = spec.getCoefArray(V3_SAMPLING_RATES[1], V3_DAMPING_VALUES[2]);
+        double hold = cvals[0][0];
+        cvals[0][0] = hold + 1.0;
+        double[] tvals = spec.getTperiods();
+        double thold = tvals[0];
+        tvals[0] = thold + 1.0;
+        org.junit.Assert.assertEquals(hold, spec2.getCoefArray(V3_SAMPLING_RATES[1], 
+                                            V3_DAMPING_VALUES[2])[0][0], EPSILON);
+        org.junit.Assert.assertEquals(thold, spec2.getTperiods()[0], EPSILON);
+        org.junit.Assert.assertArrayEquals(spec.getTPeriodsText(), spec2.getTPeriodsText());
+    }
+    @Test
     public void checkV3Logic() throws IOException, FormatException {
         double[][][] spectra;
         double[] T_periods;
@@ -35,6 +35,9 @@ import static SmConstants.VFileConstants.UNCORACC;
 import static SmConstants.VFileConstants.VELOCITY;
 import SmException.FormatException;
 import SmException.SmException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Rule;
@@ -334,4 +337,17 @@ public class V0ComponentTest {
         org.junit.Assert.assertEquals(infile[0], textout[0]);
         org.junit.Assert.assertEquals(infile[47], textout[47]);
     }
+    @Test
+    public void testWriteRecord() throws FormatException, SmException, IOException {
+        v0.loadComponent(0, infile);
+        StringWriter out = new StringWriter();
+        try (BufferedWriter writer = new BufferedWriter(out)) {
+            v0.writeRecord(writer);
+        }
+        StringBuilder expected = new StringBuilder();
+        for (String line : v0.VrecToText()) {
+            expected.append(line).append(System.lineSeparator());
+        }
+        org.junit.Assert.assertEquals(expected.toString(), out.toString());
+    }
 }
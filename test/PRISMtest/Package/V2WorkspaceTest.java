@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Name: Java class V2WorkspaceTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmProcessing.FFTinteDiff;
+import SmProcessing.V2Workspace;
+import org.junit.Test;
+
+/**
+ * JUnit test class for V2Workspace
+ * @author jmjones
+ */
+public class V2WorkspaceTest {
+    
+    public V2WorkspaceTest() {
+    }
+    
+    @Test
+    public void TestBorrowAndRelease() {
+        V2Workspace work = V2Workspace.resetForThread();
+        org.junit.Assert.assertEquals(true, (work == V2Workspace.forThread()));
+        org.junit.Assert.assertEquals(0L, work.getAllocated());
+        double[] first = work.borrow(123);
+        org.junit.Assert.assertEquals(123, first.length);
+        first[5] = 2.0;
+        work.release(first);
+        double[] second = work.borrow(123);
+        org.junit.Assert.assertEquals(true, (first == second));
+        org.junit.Assert.assertEquals(0.0, second[5], 0.0);
+        org.junit.Assert.assertEquals(1L, work.getAllocated());
+        double[] third = work.borrow(123);
+        org.junit.Assert.assertEquals(false, (second == third));
+        org.junit.Assert.assertEquals(2L, work.getAllocated());
+        org.junit.Assert.assertEquals(3L, work.getBorrowed());
+        work.release(second);
+        work.release(third);
+        work.release(null);
+    }
+    @Test
+    public void TestLengthLimit() {
+        V2Workspace work = V2Workspace.resetForThread();
+        int count = V2Workspace.MAX_PER_LENGTH + 2;
+        double[][] buffers = new double[count][];
+        for (int i = 0; i < count; i++) {
+            buffers[i] = work.borrow(50);
+        }
+        for (int i = 0; i < count; i++) {
+            work.release(buffers[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            buffers[i] = work.borrow(50);
+        }
+        org.junit.Assert.assertEquals(count + 2L, work.getAllocated());
+    }
+    @Test
+    public void TestEviction() {
+        V2Workspace work = V2Workspace.resetForThread();
+        double[] first = work.borrow(1);
+        double[] kept = work.borrow(100);
+        work.release(first);
+        work.release(kept);
+        for (int len = 2; len < V2Workspace.MAX_LENGTHS; len++) {
+            work.release(new double[len]);
+        }
+        //use the length 100 again so length 1 is the least recently used
+        work.release(work.borrow(100));
+        work.release(new double[V2Workspace.MAX_LENGTHS]);
+        long allocated = work.getAllocated();
+        org.junit.Assert.assertEquals(true, (kept == work.borrow(100)));
+        org.junit.Assert.assertEquals(allocated, work.getAllocated());
+        org.junit.Assert.assertEquals(false, (first == work.borrow(1)));
+        org.junit.Assert.assertEquals(allocated + 1, work.getAllocated());
+    }
+    @Test
+    public void TestTimeArray() {
+        V2Workspace work = V2Workspace.resetForThread();
+        double[] time = work.getTimeArray(0.01, 100);
+        org.junit.Assert.assertEquals(true, time.length >= 100);
+        for (int i = 0; i < 100; i++) {
+            org.junit.Assert.assertEquals(i * 0.01, time[i], 0.0);
+        }
+        org.junit.Assert.assertEquals(true, (time == work.getTimeArray(0.01, 50)));
+        double[] longer = work.getTimeArray(0.01, 2000);
+        org.junit.Assert.assertEquals(99 * 0.01, time[99], 0.0);
+        org.junit.Assert.assertEquals(1999 * 0.01, longer[1999], 0.0);
+        double[] other = work.getTimeArray(0.005, 10);
+        org.junit.Assert.assertEquals(9 * 0.005, other[9], 0.0);
+    }
+    @Test
+    public void TestSteadyState() throws InterruptedException {
+        double[] array = new double[5000];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = Math.sin(0.01 * i);
+        }
+        FFTinteDiff fftid = new FFTinteDiff();
+        V2Workspace[] other = new V2Workspace[1];
+        Thread thread = new Thread(() -> {
+            other[0] = V2Workspace.forThread();
+            fftid.integrate(array, 0.01);
+        });
+        thread.start();
+        thread.join();
+        org.junit.Assert.assertEquals(false, (other[0] == V2Workspace.forThread()));
+        org.junit.Assert.assertEquals(true, other[0].getAllocated() > 0);
+        
+        V2Workspace work = V2Workspace.resetForThread();
+        double[] expected = fftid.integrate(array, 0.01);
+        long allocated = work.getAllocated();
+        long borrowed = work.getBorrowed();
+        double[] result = fftid.integrate(array, 0.01);
+        org.junit.Assert.assertArrayEquals(expected, result, 0.0);
+        org.junit.Assert.assertEquals(allocated, work.getAllocated());
+        org.junit.Assert.assertEquals(true, work.getBorrowed() > borrowed);
+    }
+}
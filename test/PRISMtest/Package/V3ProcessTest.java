@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Name: Java class V3ProcessTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ * 
+ * This software is in the public domain because it contains materials that 
+ * originally came from the United States Geological Survey, an agency of the 
+ * United States Department of Interior. For more information, see the official 
+ * USGS copyright policy at 
+ * https://www.usgs.gov/information-policies-and-instructions/copyrights-and-credits#copyright
+ * 
+ * This software has been approved for release by the U.S. Geological Survey (USGS). 
+ * Although the software has been subjected to rigorous review, the USGS reserves 
+ * the right to update the software as needed pursuant to further analysis and 
+ * review. No warranty, expressed or implied, is made by the USGS or the U.S. 
+ * Government as to the functionality of the software and related material nor 
+ * shall the fact of release constitute any such warranty. Furthermore, the 
+ * software is released on condition that neither the USGS nor the U.S. Government 
+ * shall be held liable for any damages resulting from its authorized or unauthorized use.
+ * 
+ * Version 1.0 release: Feb. 2015
+ * Version 2.0 release: Oct. 2019
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import static SmConstants.VFileConstants.V3_DAMPING_VALUES;
+import SmException.FormatException;
+import SmProcessing.ArrayStats;
+import SmProcessing.SpectraResources;
+import SmProcessing.V3Process;
+import java.io.IOException;
+import org.junit.Test;
+
+/**
+ * JUnit test class for the oscillator response in V3Process
+ * @author jmjones
+ */
+public class V3ProcessTest {
+    double[] accel;
+    double[] T_periods;
+    double[][][] spectra;
+    
+    public V3ProcessTest() throws IOException, FormatException {
+        int len = 2000;
+        accel = new double[len];
+        for (int i = 0; i < len; i++) {
+            accel[i] = 50.0 * Math.sin(0.07 * i) * Math.exp(-0.002 * i)
+                                                + 10.0 * Math.cos(0.31 * i);
+        }
+        SpectraResources spec = new SpectraResources();
+        T_periods = spec.getTperiods();
+        spectra = new double[V3_DAMPING_VALUES.length][][];
+        for (int i = 0; i < V3_DAMPING_VALUES.length; i++) {
+            spectra[i] = spec.getCoefArray(100.0, V3_DAMPING_VALUES[i]);
+        }
+    }
+    private double fullResponsePeak( double[] coefs, double[] acc ) {
+        int len = acc.length;
+        double[][] y = new double[2][len];
+        for(int k = 1; k < len; k++) {
+            y[0][k] = coefs[0] * y[0][k-1] + coefs[1] * y[1][k-1] + coefs[4] * acc[k];
+            y[1][k] = coefs[2] * y[0][k-1] + coefs[3] * y[1][k-1] + coefs[5] * acc[k];
+        }
+        ArrayStats stat = new ArrayStats(y[0]);
+        return Math.abs(stat.getPeakVal());
+    }
+    @Test
+    public void TestPeakResponse() {
+        for (int d = 0; d < V3_DAMPING_VALUES.length; d++) {
+            for (int p = 0; p < T_periods.length; p++) {
+                org.junit.Assert.assertEquals(fullResponsePeak(spectra[d][p], accel),
+                        V3Process.calculatePeakResponse(spectra[d][p], accel), 0.0);
+            }
+        }
+    }
+    @Test
+    public void TestPeakResponsesThreads() {
+        double[][] serial = V3Process.calculatePeakResponses(spectra, accel, 1);
+        double[][] parallel = V3Process.calculatePeakResponses(spectra, accel, 4);
+        org.junit.Assert.assertEquals(V3_DAMPING_VALUES.length, parallel.length);
+        for (int d = 0; d < V3_DAMPING_VALUES.length; d++) {
+            org.junit.Assert.assertEquals(T_periods.length, parallel[d].length);
+            org.junit.Assert.assertArrayEquals(serial[d], parallel[d], 0.0);
+            for (int p = 0; p < T_periods.length; p++) {
+                org.junit.Assert.assertEquals(V3Process.calculatePeakResponse(
+                                    spectra[d][p], accel), serial[d][p], 0.0);
+            }
+        }
+    }
+    @Test
+    public void TestPeakResponseZeros() {
+        double[] zeros = new double[100];
+        double[] one = new double[1];
+        org.junit.Assert.assertEquals(fullResponsePeak(spectra[2][0], zeros),
+                        V3Process.calculatePeakResponse(spectra[2][0], zeros), 0.0);
+        org.junit.Assert.assertEquals(fullResponsePeak(spectra[2][0], one),
+                        V3Process.calculatePeakResponse(spectra[2][0], one), 0.0);
+    }
+}